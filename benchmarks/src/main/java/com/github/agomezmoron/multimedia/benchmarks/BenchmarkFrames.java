@@ -0,0 +1,148 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.github.agomezmoron.multimedia.capture.FrameBuffer;
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+
+/**
+ * Frames and directories shared by the benchmarks. The frames come from a {@link SyntheticFrameSource}, so every run
+ * measures the same content.
+ *
+ */
+final class BenchmarkFrames {
+
+    /**
+     * Time between the timestamps of the generated frames (in nanoseconds): 10 frames/sec.
+     */
+    static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Fraction of the frame changed by each generated frame.
+     */
+    static final float CHANGE_RATE = 0.05f;
+
+    /**
+     * We don't allow to create objects for this class.
+     */
+    private BenchmarkFrames() {
+
+    }
+
+    /**
+     * @param resolution like <code>1920x1080</code>.
+     * @return the size.
+     */
+    static Dimension parseResolution(String resolution) {
+        String[] size = resolution.split("x");
+        return new Dimension(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    }
+
+    /**
+     * @param resolution of the source, like <code>1920x1080</code>.
+     * @param content of the frames.
+     * @return a synthetic source.
+     */
+    static SyntheticFrameSource createSource(String resolution, SyntheticContent content) {
+        Dimension size = parseResolution(resolution);
+        return new SyntheticFrameSource(size.width, size.height, content, CHANGE_RATE);
+    }
+
+    /**
+     * @param resolution of the frame, like <code>1920x1080</code>.
+     * @param content of the frame.
+     * @return the first frame of a synthetic source.
+     * @throws IOException never, the frames are generated.
+     */
+    static BufferedImage render(String resolution, SyntheticContent content) throws IOException {
+        SyntheticFrameSource source = createSource(resolution, content);
+        FrameBuffer frame = FrameBuffer.wrap(new BufferedImage(source.getBounds().width, source.getBounds().height,
+                BufferedImage.TYPE_INT_RGB));
+        source.grab(source.getBounds(), frame, 0);
+        return frame.getImage();
+    }
+
+    /**
+     * @param resolution of the frames, like <code>1920x1080</code>.
+     * @param content of the frames.
+     * @param count number of frames.
+     * @return consecutive frames of a synthetic source encoded with the default settings.
+     * @throws IOException if a frame couldn't be encoded.
+     */
+    static EncodedFrame[] encode(String resolution, SyntheticContent content, int count) throws IOException {
+        SyntheticFrameSource source = createSource(resolution, content);
+        FrameBuffer frame = FrameBuffer.wrap(new BufferedImage(source.getBounds().width, source.getBounds().height,
+                BufferedImage.TYPE_INT_RGB));
+        JpegEncoder encoder = new JpegEncoder();
+        try {
+            EncodedFrame[] frames = new EncodedFrame[count];
+            for (int i = 0; i < count; i++) {
+                // a max age below 0 always produces a new frame
+                source.grab(source.getBounds(), frame, -1);
+                frames[i] = new EncodedFrame(i, i * FRAME_INTERVAL, encoder.encode(frame.getImage()));
+            }
+            return frames;
+        } finally {
+            encoder.dispose();
+        }
+    }
+
+    /**
+     * @param prefix of the name of the directory.
+     * @return a new temporal directory.
+     * @throws IOException if it couldn't be created.
+     */
+    static File createTempDirectory(String prefix) throws IOException {
+        File directory = File.createTempFile(prefix, "");
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new IOException("The directory " + directory + " couldn't be created");
+        }
+        return directory;
+    }
+
+    /**
+     * It deletes recursively a file or a directory.
+     * @param file to be deleted.
+     */
+    static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
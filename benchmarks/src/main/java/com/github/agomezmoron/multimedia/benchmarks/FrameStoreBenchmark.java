@@ -0,0 +1,180 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.store.DirectoryFrameStore;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.MemoryFrameStore;
+import com.github.agomezmoron.multimedia.store.SpoolFrameStore;
+
+/**
+ * Write and read throughput of the frame stores (in frames per second), with already encoded frames.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(FrameStoreBenchmark.FRAMES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameStoreBenchmark {
+
+    /**
+     * Frames written or read by each invocation.
+     */
+    static final int FRAMES = 100;
+
+    /**
+     * Memory limit of the memory stores: all the frames fit.
+     */
+    private static final long MEMORY_LIMIT = 1024L * 1024 * 1024;
+
+    @Param({ "DIRECTORY", "SPOOL", "HEAP", "DIRECT" })
+    public FrameStoreType storeType;
+
+    @Param({ "1920x1080" })
+    public String resolution;
+
+    @Param({ "TEXT" })
+    public SyntheticContent content;
+
+    private EncodedFrame[] frames;
+
+    private File directory;
+
+    /**
+     * Store filled once to be read.
+     */
+    private FrameStore readStore;
+
+    /**
+     * Store created empty for each write invocation.
+     */
+    private FrameStore writeStore;
+
+    private int writes = 0;
+
+    /**
+     * Buffer the read frames are copied into, so their data is really read.
+     */
+    private byte[] readBuffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = BenchmarkFrames.encode(resolution, content, FRAMES);
+        directory = BenchmarkFrames.createTempDirectory("frame-store-benchmark");
+        readStore = createStore("read");
+        int maxLength = 0;
+        for (EncodedFrame frame : frames) {
+            readStore.append(frame);
+            maxLength = Math.max(maxLength, frame.getLength());
+        }
+        readBuffer = new byte[maxLength];
+    }
+
+    @TearDown
+    public void tearDown() {
+        readStore.delete();
+        BenchmarkFrames.delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void createWriteStore() {
+        writeStore = createStore("write" + writes++);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWriteStore() {
+        writeStore.delete();
+    }
+
+    @Benchmark
+    public FrameStore write() throws IOException {
+        for (EncodedFrame frame : frames) {
+            writeStore.append(frame);
+        }
+        return writeStore;
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long bytes = 0;
+        FrameReader reader = readStore.openReader();
+        try {
+            EncodedFrame frame;
+            while ((frame = reader.next()) != null) {
+                frame.copyTo(readBuffer, 0);
+                bytes += frame.getLength();
+            }
+        } finally {
+            reader.close();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param name of the store in the directory of the benchmark.
+     * @return a new store of the benchmarked type.
+     */
+    private FrameStore createStore(String name) {
+        switch (storeType) {
+        case DIRECTORY:
+            return new DirectoryFrameStore(new File(directory, name));
+        case SPOOL:
+            return new SpoolFrameStore(new File(directory, name + ".spool"));
+        case HEAP:
+        case DIRECT:
+            return new MemoryFrameStore(storeType == FrameStoreType.DIRECT, MEMORY_LIMIT,
+                    new SpoolFrameStore(new File(directory, name + ".spool")));
+        default:
+            throw new IllegalArgumentException("The store " + storeType + " isn't benchmarked");
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.encoder.ChromaSubsampling;
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
+import com.github.agomezmoron.multimedia.encoder.StripedJpegEncoder;
+
+/**
+ * Latency of the JPEG encoding of a frame, with a single thread and in parallel stripes. Run it with
+ * <code>-prof gc</code> to get the allocation rate.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JpegEncodeBenchmark {
+
+    @Param({ "1280x720", "1920x1080", "3840x2160" })
+    public String resolution;
+
+    @Param({ "TEXT", "GRADIENT", "NOISE" })
+    public SyntheticContent content;
+
+    @Param({ "YUV420", "YUV444" })
+    public ChromaSubsampling subsampling;
+
+    private BufferedImage frame;
+
+    private JpegEncoder encoder;
+
+    private ForkJoinPool pool;
+
+    private StripedJpegEncoder stripedEncoder;
+
+    @Setup
+    public void setUp() throws IOException {
+        frame = BenchmarkFrames.render(resolution, content);
+        encoder = new JpegEncoder(JpegEncoder.DEFAULT_QUALITY, subsampling, false, false);
+        pool = new ForkJoinPool();
+        stripedEncoder = new StripedJpegEncoder(pool, JpegEncoder.DEFAULT_QUALITY, subsampling);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoder.dispose();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return encoder.encode(frame);
+    }
+
+    /**
+     * The frames smaller than {@link StripedJpegEncoder#MIN_STRIPED_PIXELS} are encoded by a single thread.
+     */
+    @Benchmark
+    public byte[] encodeInStripes() throws IOException {
+        return stripedEncoder.encode(frame);
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.recorder.RecordingSession;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+
+/**
+ * End to end throughput of a recording fed by a {@link SyntheticFrameSource} as fast as it can (a capture every
+ * millisecond): each invocation records for {@value #RECORDING_MILLIS} ms and creates the video. The
+ * <code>frames</code> counter is the number of recorded frames per second, including the time to create the video.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordingBenchmark {
+
+    /**
+     * Duration of each recording (in milliseconds).
+     */
+    static final long RECORDING_MILLIS = 2000;
+
+    @Param({ "1280x720", "1920x1080", "3840x2160" })
+    public String resolution;
+
+    @Param({ "SPOOL", "HEAP" })
+    public FrameStoreType storeType;
+
+    @Param({ "TEXT" })
+    public SyntheticContent content;
+
+    private File directory;
+
+    private RecordingSettings settings;
+
+    /**
+     * Recorded frames, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RecordedFrames {
+
+        public long frames;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = BenchmarkFrames.createTempDirectory("recording-benchmark");
+        SyntheticFrameSource source = BenchmarkFrames.createSource(resolution, content);
+        settings = RecordingSettings.fromConfiguration().withFrameSource(source).withArea(source.getBounds())
+                .withCaptureInterval(1).withFrameStoreType(storeType).withTempDirectory(directory)
+                .withVideoDirectory(directory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFrames.delete(directory);
+    }
+
+    @Benchmark
+    public String record(RecordedFrames counters) throws Exception {
+        RecordingSession session = new RecordingSession("recording-benchmark", settings);
+        final AtomicLong frames = new AtomicLong();
+        session.addVideoRecorderEventListener(new VideoRecorderEventListener() {
+            @Override
+            public void frameAdded(VideoRecorderEventObject args) {
+                frames.incrementAndGet();
+            }
+        }, DispatchPolicy.BLOCK, 64, 1);
+        session.start();
+        Thread.sleep(RECORDING_MILLIS);
+        String video = session.stop();
+        counters.frames += frames.get();
+        if (video != null) {
+            new File(video).delete();
+        }
+        return video;
+    }
+
+}
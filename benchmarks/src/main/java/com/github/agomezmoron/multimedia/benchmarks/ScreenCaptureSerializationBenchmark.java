@@ -0,0 +1,124 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.agomezmoron.multimedia.capture.CapturePayload;
+import com.github.agomezmoron.multimedia.capture.ScreenCapture;
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+
+/**
+ * Cost of the Java serialization of a {@link ScreenCapture} with each {@link CapturePayload}: writing it, reading it
+ * (without decoding the pixels) and reading and decoding it. Run it with <code>-prof gc</code> to get the allocation
+ * rate.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenCaptureSerializationBenchmark {
+
+    @Param({ "1280x720", "1920x1080" })
+    public String resolution;
+
+    @Param({ "TEXT" })
+    public SyntheticContent content;
+
+    @Param({ "RAW", "DEFLATE", "JPEG" })
+    public CapturePayload payload;
+
+    private ScreenCapture capture;
+
+    private ByteArrayOutputStream out;
+
+    /**
+     * Serialized capture.
+     */
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        capture = new ScreenCapture(BenchmarkFrames.render(resolution, content), 1, BenchmarkFrames.FRAME_INTERVAL);
+        capture.setPayload(payload);
+        out = new ByteArrayOutputStream();
+        serialized = serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        // the JPEG is encoded every time, as for a capture that wasn't recorded yet
+        capture.setEncoded(null);
+        out.reset();
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(capture);
+        objects.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public ScreenCapture deserialize() throws IOException, ClassNotFoundException {
+        return read();
+    }
+
+    @Benchmark
+    public BufferedImage deserializeAndDecode() throws IOException, ClassNotFoundException {
+        return read().getSource();
+    }
+
+    /**
+     * @return the serialized capture, read again.
+     */
+    private ScreenCapture read() throws IOException, ClassNotFoundException {
+        ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        try {
+            return (ScreenCapture) objects.readObject();
+        } finally {
+            objects.close();
+        }
+    }
+
+}
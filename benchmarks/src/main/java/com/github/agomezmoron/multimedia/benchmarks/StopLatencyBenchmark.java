@@ -0,0 +1,127 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.recorder.RecordingSession;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+
+/**
+ * Time from {@link RecordingSession#stop()} until the video file is created, after recording a
+ * {@link SyntheticFrameSource} for {@value #RECORDING_MILLIS} ms at 10 frames/sec.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class StopLatencyBenchmark {
+
+    /**
+     * Duration of each recording (in milliseconds).
+     */
+    static final long RECORDING_MILLIS = 5000;
+
+    @Param({ "1920x1080" })
+    public String resolution;
+
+    @Param({ "DIRECTORY", "SPOOL", "HEAP" })
+    public FrameStoreType storeType;
+
+    @Param({ "false", "true" })
+    public boolean encodeLive;
+
+    @Param({ "TEXT" })
+    public SyntheticContent content;
+
+    @Param({ "1", "4" })
+    public int muxerParallelism;
+
+    private File directory;
+
+    private RecordingSettings settings;
+
+    private RecordingSession session;
+
+    private String video;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = BenchmarkFrames.createTempDirectory("stop-latency-benchmark");
+        SyntheticFrameSource source = BenchmarkFrames.createSource(resolution, content);
+        settings = RecordingSettings.fromConfiguration().withFrameSource(source).withArea(source.getBounds())
+                .withCaptureInterval((int) TimeUnit.NANOSECONDS.toMillis(BenchmarkFrames.FRAME_INTERVAL))
+                .withFrameStoreType(storeType).withEncodeLive(encodeLive).withMuxerParallelism(muxerParallelism)
+                .withTempDirectory(directory).withVideoDirectory(directory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFrames.delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void record() throws InterruptedException {
+        session = new RecordingSession("stop-latency-benchmark", settings);
+        session.start();
+        Thread.sleep(RECORDING_MILLIS);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteVideo() {
+        if (video != null) {
+            new File(video).delete();
+        }
+    }
+
+    @Benchmark
+    public String stop() throws IOException {
+        video = session.stop();
+        return video;
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Base {@link FrameSource} whose frames are whole images, one after another: a new one is produced when a recording
+ * asks for a frame and the current one is older than the given maximum age, so every recording grabbing at the same
+ * time gets the same frame. The areas are cropped from the images, and the pixels out of them are black.
+ *
+ */
+public abstract class AbstractFrameSource implements FrameSource {
+
+    /**
+     * @see {@link FrameSource#getEpoch()}
+     */
+    private final long epoch = System.nanoTime();
+
+    /**
+     * Current frame and when it was produced.
+     */
+    private BufferedImage current;
+
+    private long currentAt;
+
+    private long frames = 0;
+
+    /**
+     * @see {@link FrameSource#getEpoch()}
+     */
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Nothing to do: the frames are the same whatever the areas grabbed.
+     * @see {@link FrameSource#register(Rectangle)}
+     */
+    @Override
+    public void register(Rectangle area) {
+
+    }
+
+    /**
+     * @see {@link FrameSource#unregister(Rectangle)}
+     */
+    @Override
+    public void unregister(Rectangle area) {
+
+    }
+
+    /**
+     * @see {@link FrameSource#grab(Rectangle, FrameBuffer, long)}
+     */
+    @Override
+    public synchronized long grab(Rectangle area, FrameBuffer into, long maxAge) throws IOException {
+        long now = System.nanoTime();
+        if (current == null || now - currentAt > maxAge) {
+            current = nextFrame();
+            currentAt = now;
+            frames++;
+        }
+        // the images can be changed in place by the next frame, so they are copied with the lock
+        Rectangle bounds = getBounds();
+        Rectangle inside = area.intersection(new Rectangle(bounds.x, bounds.y, current.getWidth(),
+                current.getHeight()));
+        if (inside.equals(area)) {
+            into.copyFrom(current, area.x - bounds.x, area.y - bounds.y);
+        } else {
+            Arrays.fill(into.array(), 0);
+            if (!inside.isEmpty()) {
+                into.getImage().getRaster().setRect(inside.x - area.x, inside.y - area.y, current.getRaster()
+                        .createChild(inside.x - bounds.x, inside.y - bounds.y, inside.width, inside.height, 0, 0,
+                                null));
+            }
+        }
+        return currentAt;
+    }
+
+    /**
+     * @return the number of frames produced.
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * It produces the next frame. The previous one is not used anymore, so it can be reused.
+     * @return the frame, with the size of the bounds of the source.
+     * @throws IOException if the frame can't be produced.
+     */
+    protected abstract BufferedImage nextFrame() throws IOException;
+
+}
@@ -0,0 +1,203 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.util.Arrays;
+
+/**
+ * It reduces frames averaging the area of the source pixels covered by each target pixel, working directly on the
+ * pixels of the {@link FrameBuffer}s. The weights of the source rows and columns are computed once for the sizes, so
+ * each frame is a vertical pass adding the source rows of a target row and a horizontal pass adding its columns, all
+ * in integer arithmetic.
+ * <p>
+ * An instance keeps its accumulators between frames, so it must be used by one thread at a time.
+ *
+ */
+public class AreaAveragingScaler {
+
+    private final int sourceWidth;
+
+    private final int sourceHeight;
+
+    private final int targetWidth;
+
+    private final int targetHeight;
+
+    /*
+     * Source columns of each target column: the first one, how many and their weights (from columnOffsets).
+     */
+    private final int[] columnStarts;
+
+    private final int[] columnCounts;
+
+    private final int[] columnOffsets;
+
+    private final int[] columnWeights;
+
+    /*
+     * Source rows of each target row, like the columns.
+     */
+    private final int[] rowStarts;
+
+    private final int[] rowCounts;
+
+    private final int[] rowOffsets;
+
+    private final int[] rowWeights;
+
+    /*
+     * Sums of the weighted source rows of a target row, per column and color component.
+     */
+    private final int[] red;
+
+    private final int[] green;
+
+    private final int[] blue;
+
+    /**
+     * Constructor.
+     * @param sourceWidth width of the frames to be reduced.
+     * @param sourceHeight height of the frames to be reduced.
+     * @param targetWidth width of the reduced frames, up to the source one.
+     * @param targetHeight height of the reduced frames, up to the source one.
+     */
+    public AreaAveragingScaler(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0 || targetWidth > sourceWidth || targetHeight > sourceHeight) {
+            throw new IllegalArgumentException("Cannot reduce " + sourceWidth + "x" + sourceHeight + " to "
+                    + targetWidth + "x" + targetHeight);
+        }
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.columnStarts = new int[targetWidth];
+        this.columnCounts = new int[targetWidth];
+        this.columnOffsets = new int[targetWidth];
+        this.columnWeights = weights(sourceWidth, targetWidth, columnStarts, columnCounts, columnOffsets);
+        this.rowStarts = new int[targetHeight];
+        this.rowCounts = new int[targetHeight];
+        this.rowOffsets = new int[targetHeight];
+        this.rowWeights = weights(sourceHeight, targetHeight, rowStarts, rowCounts, rowOffsets);
+        this.red = new int[sourceWidth];
+        this.green = new int[sourceWidth];
+        this.blue = new int[sourceWidth];
+    }
+
+    /**
+     * @return the width of the reduced frames.
+     */
+    public int getTargetWidth() {
+        return targetWidth;
+    }
+
+    /**
+     * @return the height of the reduced frames.
+     */
+    public int getTargetHeight() {
+        return targetHeight;
+    }
+
+    /**
+     * It reduces a frame.
+     * @param source frame, with the source size.
+     * @param target frame, with the target size.
+     */
+    public void scale(FrameBuffer source, FrameBuffer target) {
+        if (source.getWidth() != sourceWidth || source.getHeight() != sourceHeight
+                || target.getWidth() != targetWidth || target.getHeight() != targetHeight) {
+            throw new IllegalArgumentException("The scaler reduces " + sourceWidth + "x" + sourceHeight + " to "
+                    + targetWidth + "x" + targetHeight);
+        }
+        int[] in = source.array();
+        int[] out = target.array();
+        if (sourceWidth == targetWidth && sourceHeight == targetHeight) {
+            System.arraycopy(in, 0, out, 0, in.length);
+            return;
+        }
+        // every target pixel covers sourceWidth x sourceHeight weight units
+        long area = (long) sourceWidth * sourceHeight;
+        long half = area / 2;
+        for (int y = 0; y < targetHeight; y++) {
+            Arrays.fill(red, 0);
+            Arrays.fill(green, 0);
+            Arrays.fill(blue, 0);
+            for (int r = 0; r < rowCounts[y]; r++) {
+                int weight = rowWeights[rowOffsets[y] + r];
+                int line = (rowStarts[y] + r) * sourceWidth;
+                for (int x = 0; x < sourceWidth; x++) {
+                    int pixel = in[line + x];
+                    red[x] += ((pixel >> 16) & 0xFF) * weight;
+                    green[x] += ((pixel >> 8) & 0xFF) * weight;
+                    blue[x] += (pixel & 0xFF) * weight;
+                }
+            }
+            int line = y * targetWidth;
+            for (int x = 0; x < targetWidth; x++) {
+                long sumRed = 0;
+                long sumGreen = 0;
+                long sumBlue = 0;
+                int start = columnStarts[x];
+                int offset = columnOffsets[x];
+                for (int c = 0; c < columnCounts[x]; c++) {
+                    long weight = columnWeights[offset + c];
+                    sumRed += red[start + c] * weight;
+                    sumGreen += green[start + c] * weight;
+                    sumBlue += blue[start + c] * weight;
+                }
+                out[line + x] = (int) ((sumRed + half) / area) << 16 | (int) ((sumGreen + half) / area) << 8
+                        | (int) ((sumBlue + half) / area);
+            }
+        }
+    }
+
+    /**
+     * It computes the weights of the source pixels of each target pixel along one side. A source pixel measures
+     * target units and a target pixel source units, so the weights (the overlaps) are integers adding up to source.
+     * @param source size of the side.
+     * @param target reduced size of the side.
+     * @param starts first source pixel of each target pixel (output).
+     * @param counts number of source pixels of each target pixel (output).
+     * @param offsets position of the weights of each target pixel (output).
+     * @return the weights.
+     */
+    private static int[] weights(int source, int target, int[] starts, int[] counts, int[] offsets) {
+        int[] weights = new int[source + target];
+        int size = 0;
+        for (int i = 0; i < target; i++) {
+            long from = (long) i * source;
+            long to = from + source;
+            int first = (int) (from / target);
+            int last = (int) ((to - 1) / target);
+            starts[i] = first;
+            counts[i] = last - first + 1;
+            offsets[i] = size;
+            for (int j = first; j <= last; j++) {
+                weights[size++] = (int) (Math.min(to, (long) (j + 1) * target) - Math.max(from, (long) j * target));
+            }
+        }
+        return weights;
+    }
+
+}
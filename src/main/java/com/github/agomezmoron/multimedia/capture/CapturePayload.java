@@ -0,0 +1,77 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+/**
+ * How the pixels of a {@link ScreenCapture} are written when it is serialized.
+ *
+ */
+public enum CapturePayload {
+
+    /**
+     * The RGB pixels as they are: the fastest to write and read, the biggest.
+     */
+    RAW(0),
+
+    /**
+     * The RGB pixels compressed with deflate: lossless, usually several times smaller than {@link #RAW} for screens.
+     */
+    DEFLATE(1),
+
+    /**
+     * A JPEG image: the smallest, but lossy. The JPEG of the capture is reused if it was already encoded.
+     */
+    JPEG(2);
+
+    /**
+     * Code of the payload in the serialized captures.
+     */
+    private final int code;
+
+    private CapturePayload(int code) {
+        this.code = code;
+    }
+
+    /**
+     * @return the code of the payload in the serialized captures.
+     */
+    int getCode() {
+        return code;
+    }
+
+    /**
+     * @param code of a payload in a serialized capture.
+     * @return the payload, or null if the code is unknown.
+     */
+    static CapturePayload fromCode(int code) {
+        for (CapturePayload payload : values()) {
+            if (payload.code == code) {
+                return payload;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,230 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pixels of a frame (one int per pixel, RGB) with a reference count. A buffer leased from a {@link FramePool} goes back
+ * to the pool when its last reference is released, so its pixels are reused by a following frame: the holders must
+ * not touch the buffer after releasing it.
+ *
+ */
+public class FrameBuffer {
+
+    private final int width;
+
+    private final int height;
+
+    private final int[] pixels;
+
+    /**
+     * Image backed by the pixels.
+     */
+    private final BufferedImage image;
+
+    /**
+     * Pool the buffer returns to, or null if it is not pooled.
+     */
+    private final FramePool pool;
+
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Constructor of a buffer backed by a new image.
+     * @param width of the frame.
+     * @param height of the frame.
+     * @param pool where the buffer returns once released, or null.
+     */
+    FrameBuffer(int width, int height, FramePool pool) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        DataBufferInt data = new DataBufferInt(pixels, pixels.length);
+        DirectColorModel colorModel = new DirectColorModel(24, 0xff0000, 0xff00, 0xff);
+        WritableRaster raster = Raster.createPackedRaster(data, width, height, width, colorModel.getMasks(), null);
+        this.image = new BufferedImage(colorModel, raster, false, null);
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor of a buffer sharing the pixels of an image.
+     */
+    private FrameBuffer(BufferedImage image, int[] pixels) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.pixels = pixels;
+        this.image = image;
+        this.pool = null;
+    }
+
+    /**
+     * It returns a buffer (not pooled) with the pixels of an image. They are shared if the image stores them as one
+     * int per pixel, otherwise they are copied.
+     * @param image with the pixels.
+     * @return the buffer, with one reference.
+     */
+    public static FrameBuffer wrap(BufferedImage image) {
+        int[] pixels = getPixels(image);
+        FrameBuffer buffer;
+        if (pixels != null && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            buffer = new FrameBuffer(image, pixels);
+        } else {
+            buffer = new FrameBuffer(image.getWidth(), image.getHeight(), null);
+            buffer.copyFrom(image);
+        }
+        buffer.references.set(1);
+        return buffer;
+    }
+
+    /**
+     * @return the width of the frame.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the frame.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of pixels between the starts of two consecutive rows.
+     */
+    public int getStride() {
+        return width;
+    }
+
+    /**
+     * @return a read only view of the pixels, row after row.
+     */
+    public IntBuffer getPixels() {
+        return IntBuffer.wrap(pixels).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the pixels, row after row, to be read and written in place.
+     */
+    int[] array() {
+        return pixels;
+    }
+
+    /**
+     * @return the image backed by the pixels. Writing into it changes the frame.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * It copies the pixels of an image of the same size into the buffer.
+     * @param source image.
+     */
+    public void copyFrom(BufferedImage source) {
+        if (source.getWidth() != width || source.getHeight() != height) {
+            throw new IllegalArgumentException("The image is " + source.getWidth() + "x" + source.getHeight()
+                    + " but the buffer is " + width + "x" + height);
+        }
+        copyFrom(source, 0, 0);
+    }
+
+    /**
+     * It copies a region of a bigger image into the buffer (a crop).
+     * @param source image.
+     * @param x coordinate of the region in the image.
+     * @param y coordinate of the region in the image.
+     */
+    public void copyFrom(BufferedImage source, int x, int y) {
+        if (x < 0 || y < 0 || x + width > source.getWidth() || y + height > source.getHeight()) {
+            throw new IllegalArgumentException("The region " + width + "x" + height + " at " + x + "," + y
+                    + " is out of the image");
+        }
+        int[] sourcePixels = getPixels(source);
+        if (sourcePixels == null) {
+            source.getRGB(x, y, width, height, pixels, 0, width);
+        } else if (source.getWidth() == width) {
+            System.arraycopy(sourcePixels, y * width, pixels, 0, pixels.length);
+        } else {
+            int stride = source.getWidth();
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(sourcePixels, (y + row) * stride + x, pixels, row * width, width);
+            }
+        }
+    }
+
+    /**
+     * It adds a reference, so the buffer is not reused until it is released once more.
+     * @return the buffer.
+     */
+    public FrameBuffer retain() {
+        references.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * It removes a reference. The last one returns the buffer to its pool.
+     */
+    public void release() {
+        int left = references.decrementAndGet();
+        if (left == 0 && pool != null) {
+            pool.recycle(this);
+        } else if (left < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("The frame buffer was already released");
+        }
+    }
+
+    /**
+     * It sets the reference count of a buffer that is being leased.
+     */
+    void lease() {
+        references.set(1);
+    }
+
+    /**
+     * @param image to be read.
+     * @return the pixels of the image or null if they are not stored as one int per pixel, row after row.
+     */
+    private static int[] getPixels(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        if (buffer instanceof DataBufferInt && buffer.getNumBanks() == 1
+                && buffer.getSize() == image.getWidth() * image.getHeight()
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+            return ((DataBufferInt) buffer).getData();
+        }
+        return null;
+    }
+
+}
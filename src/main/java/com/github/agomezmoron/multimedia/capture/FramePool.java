@@ -0,0 +1,128 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of {@link FrameBuffer}s of the same size, so the frames of a recording reuse a few preallocated buffers instead
+ * of allocating a new one per frame. Leasing never blocks: if every buffer is in use a new one is allocated, and it
+ * joins the pool when it is released if the pool isn't full.
+ *
+ */
+public class FramePool {
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * Maximum number of free buffers kept.
+     */
+    private final int capacity;
+
+    private final Deque<FrameBuffer> free = new ArrayDeque<FrameBuffer>();
+
+    /**
+     * Number of buffers allocated by the pool.
+     */
+    private int allocated = 0;
+
+    /**
+     * Constructor.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param capacity maximum number of free buffers kept.
+     * @param preallocated number of buffers allocated up front.
+     */
+    public FramePool(int width, int height, int capacity, int preallocated) {
+        this.width = width;
+        this.height = height;
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < Math.min(preallocated, this.capacity); i++) {
+            free.push(new FrameBuffer(width, height, this));
+            allocated++;
+        }
+    }
+
+    /**
+     * @return the width of the frames.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the frames.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * It leases a buffer. Its previous content is undefined.
+     * @return a buffer with one reference, to be released when it isn't needed anymore.
+     */
+    public FrameBuffer lease() {
+        FrameBuffer buffer;
+        synchronized (this) {
+            buffer = free.poll();
+            if (buffer == null) {
+                allocated++;
+            }
+        }
+        if (buffer == null) {
+            buffer = new FrameBuffer(width, height, this);
+        }
+        buffer.lease();
+        return buffer;
+    }
+
+    /**
+     * @return the number of buffers allocated by the pool, in use or not.
+     */
+    public synchronized int getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * @return the number of free buffers.
+     */
+    public synchronized int getFree() {
+        return free.size();
+    }
+
+    /**
+     * It takes back a buffer whose last reference was released.
+     * @param buffer released.
+     */
+    synchronized void recycle(FrameBuffer buffer) {
+        if (free.size() < capacity) {
+            free.push(buffer);
+        }
+    }
+
+}
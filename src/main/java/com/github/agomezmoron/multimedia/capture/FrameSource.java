@@ -0,0 +1,75 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+/**
+ * Source of the frames of a recording. The screen is the default one, but the frames can come from anything able to
+ * fill a {@link FrameBuffer} (generated content, saved recordings, other capture backends), so the rest of the
+ * pipeline can be exercised without a display.
+ * <p>
+ * A source can be used by several recordings at the same time, each one grabbing its own area.
+ *
+ */
+public interface FrameSource {
+
+    /**
+     * @return the area that can be grabbed (the virtual desktop for the screen).
+     */
+    Rectangle getBounds();
+
+    /**
+     * @return the {@link System#nanoTime()} the capture deadlines of the recordings using the source are aligned to,
+     *         so they ask for their frames at the same time.
+     */
+    long getEpoch();
+
+    /**
+     * It adds the area of a recording that starts using the source.
+     * @param area to be grabbed.
+     */
+    void register(Rectangle area);
+
+    /**
+     * It removes the area of a recording that ended.
+     * @param area grabbed.
+     */
+    void unregister(Rectangle area);
+
+    /**
+     * It grabs an area into a buffer of the same size. A frame grabbed for another recording up to maxAge ago can be
+     * reused.
+     * @param area to be grabbed.
+     * @param into buffer receiving the pixels.
+     * @param maxAge of a frame to be reused (in nanoseconds).
+     * @return the {@link System#nanoTime()} when the frame was grabbed.
+     * @throws IOException if the frame can't be grabbed.
+     * @throws InterruptedException if the thread is interrupted while grabbing.
+     */
+    long grab(Rectangle area, FrameBuffer into, long maxAge) throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import com.github.agomezmoron.multimedia.store.DirectoryFrameStore;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.SpoolFrameStore;
+
+/**
+ * {@link FrameSource} replaying the frames of a saved recording (for example a frame directory opened with
+ * {@link DirectoryFrameStore#open(java.io.File)} or a spool opened with {@link SpoolFrameStore#open(java.io.File)}),
+ * so the recordings can run without a display. Each new frame is the next stored one, whatever the time between them
+ * when they were recorded.
+ *
+ */
+public class ReplayFrameSource extends AbstractFrameSource {
+
+    private final FrameStore frames;
+
+    /**
+     * If true, it starts again after the last frame. Otherwise the last frame is repeated.
+     */
+    private final boolean loop;
+
+    private final Rectangle bounds;
+
+    /**
+     * Index of the next frame to be replayed.
+     */
+    private int next = 0;
+
+    private BufferedImage frame;
+
+    /**
+     * Constructor.
+     * @param frames to be replayed, with the same size.
+     * @param loop if true, it starts again after the last frame; otherwise the last frame is repeated.
+     * @throws IOException if the first frame can't be read.
+     */
+    public ReplayFrameSource(FrameStore frames, boolean loop) throws IOException {
+        if (frames.size() == 0) {
+            throw new IllegalArgumentException("There are no frames to be replayed");
+        }
+        this.frames = frames;
+        this.loop = loop;
+        BufferedImage first = decode(frames.get(0));
+        this.bounds = new Rectangle(0, 0, first.getWidth(), first.getHeight());
+    }
+
+    /**
+     * @see {@link FrameSource#getBounds()}
+     */
+    @Override
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * @see {@link AbstractFrameSource#nextFrame()}
+     */
+    @Override
+    protected BufferedImage nextFrame() throws IOException {
+        if (next == frames.size()) {
+            if (!loop) {
+                return frame;
+            }
+            next = 0;
+        }
+        BufferedImage decoded = decode(frames.get(next++));
+        if (decoded.getWidth() != bounds.width || decoded.getHeight() != bounds.height) {
+            throw new IOException("The frame " + (next - 1) + " is " + decoded.getWidth() + "x" + decoded.getHeight()
+                    + " but the first one is " + bounds.width + "x" + bounds.height);
+        }
+        frame = decoded;
+        return frame;
+    }
+
+    /**
+     * @param encoded frame.
+     * @return the decoded frame, one int per pixel.
+     * @throws IOException if the frame can't be decoded.
+     */
+    private static BufferedImage decode(EncodedFrame encoded) throws IOException {
+        byte[] data = new byte[encoded.getLength()];
+        encoded.copyTo(data, 0);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IOException("The frame " + encoded.getSequence() + " isn't a JPEG image");
+        }
+        return FrameBuffer.wrap(image).getImage();
+    }
+
+}
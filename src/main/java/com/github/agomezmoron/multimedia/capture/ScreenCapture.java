@@ -27,31 +27,125 @@ package com.github.agomezmoron.multimedia.capture;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 
 import javax.imageio.ImageIO;
 
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
+
 /**
  * It models a capture from the screen.
+ * <p>
+ * It is serialized with a versioned header (format version, payload, sequence, timestamp and size) followed by the
+ * length of the pixels and the pixels, as a {@link CapturePayload}. A deserialized capture keeps them encoded until
+ * {@link #getSource()} is called, so captures that are only forwarded or stored are never decoded.
+ * <p>
+ * The pixels of a pooled capture are reused once it is released, so {@link #getSource()} returns a copy of them that
+ * can be kept. {@link #getImage()} and {@link #getFrameBuffer()} give access to them without copying.
  * 
  * @author Alejandro Gomez <agommor@gmail.com>
  *
  */
-public class ScreenCapture implements Serializable{
+public class ScreenCapture implements Externalizable {
 
     /**
 	 * Auto generated serial version UID
 	 */
 	private static final long serialVersionUID = 2843139292448505412L;
+
+    /**
+     * Version of the serialized format.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Maximum width and height of a deserialized capture.
+     */
+    static final int MAX_DIMENSION = 32768;
+
+    /**
+     * Maximum bytes of the pixels of a deserialized capture, as RGB ints (a 16K screen fits).
+     */
+    static final long MAX_PIXEL_BYTES = 1L << 30;
+
+    /**
+     * Bytes a compressed payload can take beyond the uncompressed pixels (JPEG headers, incompressible data).
+     */
+    private static final int MAX_PAYLOAD_OVERHEAD = 64 * 1024;
+
+    /**
+     * Payload used when none was set.
+     */
+    public static final CapturePayload DEFAULT_PAYLOAD = CapturePayload.JPEG;
 	
 	/**
-     * Capture in a {@link BufferedImage} instance.
+     * Capture in a {@link BufferedImage} instance. It is null in a deserialized capture until it is decoded.
+     */
+    private volatile BufferedImage source;
+
+    /**
+     * Pooled pixels of the capture, or null if it was built from an image.
      */
-    private BufferedImage source;
+    private transient FrameBuffer frameBuffer;
+
+    /**
+     * Whether {@link #frameBuffer} was leased from a pool.
+     */
+    private transient boolean pooled;
+
+    /**
+     * Copy of the pixels of a pooled capture, returned by {@link #getSource()}.
+     */
+    private transient volatile BufferedImage copy;
+
+    /**
+     * Position of the capture in its recording (starting at 0).
+     */
+    private long sequence;
+
+    /**
+     * Nanoseconds elapsed since the start of the recording when the capture was taken (from
+     * {@link System#nanoTime()}, so it is monotonic).
+     */
+    private long timestamp;
+
+    private int width;
+
+    private int height;
+
+    /**
+     * Payload used to serialize the capture.
+     */
+    private CapturePayload payload = DEFAULT_PAYLOAD;
+
+    /**
+     * JPEG of the capture, if it was already encoded.
+     */
+    private byte[] encoded;
+
+    /**
+     * Serialized pixels not decoded yet, as {@link #receivedPayload}.
+     */
+    private byte[] received;
+
+    private CapturePayload receivedPayload;
+
+    /**
+     * Constructor for the deserialization.
+     */
+    public ScreenCapture() {
+
+    }
 
     /**
      * Constructor.
@@ -62,9 +156,72 @@ public class ScreenCapture implements Serializable{
     }
 
     /**
-     * @return the source.
+     * Constructor.
+     * @param source {@link BufferedImage} instance.
+     * @param sequence position of the capture in its recording.
+     * @param timestamp nanoseconds elapsed since the start of the recording.
+     */
+    public ScreenCapture(BufferedImage source, long sequence, long timestamp) {
+        this(source);
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Constructor of a capture whose pixels are in a pooled buffer. The capture takes over one reference of the
+     * buffer, so {@link #release()} has to be called once it isn't needed anymore.
+     * @param frameBuffer with the pixels.
+     * @param sequence position of the capture in its recording.
+     * @param timestamp nanoseconds elapsed since the start of the recording.
+     */
+    public ScreenCapture(FrameBuffer frameBuffer, long sequence, long timestamp) {
+        this(frameBuffer.getImage(), sequence, timestamp);
+        this.frameBuffer = frameBuffer;
+        this.pooled = true;
+    }
+
+    /**
+     * @return the pixels of the capture. If it was built from an image, they are wrapped (or copied if the image
+     *         doesn't store them as RGB ints) the first time.
+     */
+    public FrameBuffer getFrameBuffer() {
+        if (frameBuffer == null && getImage() != null) {
+            frameBuffer = FrameBuffer.wrap(source);
+        }
+        return frameBuffer;
+    }
+
+    /**
+     * It releases the reference of the capture to its pooled buffer, if any. The capture can't be used afterwards.
+     */
+    public void release() {
+        if (frameBuffer != null) {
+            frameBuffer.release();
+        }
+    }
+
+    /**
+     * @return the source. A deserialized capture is decoded the first time. The pixels of a pooled capture are copied
+     *         the first time, so the image stays valid after the capture is released.
      */
     public BufferedImage getSource() {
+        if (pooled) {
+            if (copy == null) {
+                copyPixels();
+            }
+            return copy;
+        }
+        return getImage();
+    }
+
+    /**
+     * @return the image of the capture without copying it: the image of a pooled capture is only valid until it is
+     *         released. A deserialized capture is decoded the first time.
+     */
+    public BufferedImage getImage() {
+        if (source == null && received != null) {
+            decode();
+        }
         return source;
     }
 
@@ -73,16 +230,31 @@ public class ScreenCapture implements Serializable{
      */
     protected void setSource(BufferedImage source) {
         this.source = source;
+        this.copy = null;
+        this.width = source != null ? source.getWidth() : 0;
+        this.height = source != null ? source.getHeight() : 0;
+        this.encoded = null;
+        this.received = null;
+    }
+
+    /**
+     * @return the sequence.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the timestamp (in nanoseconds since the start of the recording).
+     */
+    public long getTimestamp() {
+        return timestamp;
     }
 
     /**
      *  @return the height of the capture.
      */
     public int getHeight() {
-        int height = 0;
-        if (this.source != null) {
-            height = this.source.getHeight();
-        }
         return height;
     }
 
@@ -90,44 +262,240 @@ public class ScreenCapture implements Serializable{
      *  @return the width of the capture.
      */
     public int getWidth() {
-        int width = 0;
-        if (this.source != null) {
-            width = this.source.getWidth();
-        }
         return width;
     }
-    
-    /**
-     * Custom serializable write function
-     * @param o
-     * @throws IOException
-     */
-    private void writeObject(ObjectOutputStream o)
-    	    throws IOException { 
-    	
-    	//Converts the buffered image in a byte array
-    	byte[] imageInByte;
-    	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    	ImageIO.write(this.source, "jpg", baos);
-    	baos.flush();
-        imageInByte = baos.toByteArray();
-        baos.close();
-    	
-        o.write(imageInByte);
-    }
-    
-    /**
-     * Custom serializable read function
-     * @param o
-     * @throws IOException
-     * @throws ClassNotFoundException
-     */
-    private void readObject(ObjectInputStream o)
-    	    throws IOException, ClassNotFoundException {  
-    	
-    	 //Converts the byte array in a buffered image
-        InputStream in = new ByteArrayInputStream((byte[]) o.readObject());
-        this.source = ImageIO.read(in);
-    	
+
+    /**
+     * @return the payload used to serialize the capture.
+     */
+    public CapturePayload getPayload() {
+        return payload;
+    }
+
+    /**
+     * @param payload to be used to serialize the capture.
+     */
+    public void setPayload(CapturePayload payload) {
+        if (payload != null) {
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * @return the JPEG of the capture if it was already encoded (by the recorder or by the sender), or null.
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * @param encoded JPEG of the capture, reused when it is serialized as {@link CapturePayload#JPEG}.
+     */
+    public void setEncoded(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * It writes the header and the pixels of the capture in its payload. The pixels of a deserialized capture that
+     * wasn't decoded are forwarded as they are when the payload is the same.
+     * @see {@link Externalizable#writeExternal(ObjectOutput)}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        CapturePayload written = payload;
+        byte[] data;
+        if (received != null && receivedPayload == payload) {
+            data = received;
+        } else if (getImage() == null) {
+            data = new byte[0];
+        } else if (payload == CapturePayload.JPEG) {
+            if (encoded == null) {
+                encoded = JpegEncoder.forCurrentThread().encode(source);
+            }
+            data = encoded;
+        } else {
+            data = payload == CapturePayload.DEFLATE ? deflate(getFrameBuffer()) : toBytes(getFrameBuffer());
+        }
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(written.getCode());
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * It reads the header and the pixels of the capture, without decoding them. The sizes of the header are checked
+     * before allocating anything, so a corrupted or forged stream can't exhaust the memory.
+     * @see {@link Externalizable#readExternal(ObjectInput)}
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new InvalidObjectException("Unsupported capture format " + version);
+        }
+        CapturePayload readPayload = CapturePayload.fromCode(in.readUnsignedByte());
+        if (readPayload == null) {
+            throw new InvalidObjectException("Unknown capture payload");
+        }
+        sequence = in.readLong();
+        timestamp = in.readLong();
+        width = in.readInt();
+        height = in.readInt();
+        int length = in.readInt();
+        if (!isValidSize(readPayload, width, height, length)) {
+            throw new InvalidObjectException("Corrupted capture " + width + "x" + height + ", " + readPayload + " "
+                    + length + " bytes");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        payload = readPayload;
+        source = null;
+        if (length > 0) {
+            received = data;
+            receivedPayload = readPayload;
+            if (readPayload == CapturePayload.JPEG) {
+                encoded = data;
+            }
+        }
+    }
+
+    /**
+     * @param payload of the pixels.
+     * @param width of the capture.
+     * @param height of the capture.
+     * @param length of the serialized pixels.
+     * @return true if the pixels of a capture of that size can take that length in that payload.
+     */
+    private static boolean isValidSize(CapturePayload payload, int width, int height, int length) {
+        if (width < 0 || height < 0 || width > MAX_DIMENSION || height > MAX_DIMENSION || length < 0) {
+            return false;
+        }
+        long pixelBytes = (long) width * height * 4;
+        if (pixelBytes > MAX_PIXEL_BYTES) {
+            return false;
+        }
+        if (length == 0) {
+            // a capture without image
+            return true;
+        }
+        if (payload == CapturePayload.RAW) {
+            return length == pixelBytes;
+        }
+        return pixelBytes > 0 && length <= pixelBytes + MAX_PAYLOAD_OVERHEAD;
+    }
+
+    /**
+     * It copies the pixels of a pooled capture.
+     */
+    private synchronized void copyPixels() {
+        if (copy == null) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            image.setData(source.getRaster());
+            copy = image;
+        }
+    }
+
+    /**
+     * It decodes the pixels of a deserialized capture.
+     */
+    private synchronized void decode() {
+        if (source != null || received == null) {
+            return;
+        }
+        try {
+            if (receivedPayload == CapturePayload.JPEG) {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(received));
+                if (image == null) {
+                    throw new IOException("The JPEG can't be read");
+                }
+                source = image;
+            } else {
+                FrameBuffer buffer = new FrameBuffer(width, height, null);
+                byte[] raw = received;
+                if (receivedPayload == CapturePayload.DEFLATE) {
+                    // the size was checked when it was read, so it fits in an int
+                    raw = inflate(received, width * height * 4);
+                }
+                ByteBuffer.wrap(raw).asIntBuffer().get(buffer.array());
+                source = buffer.getImage();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The capture " + sequence + " couldn't be decoded", e);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("The capture " + sequence + " couldn't be decoded", e);
+        }
+        // the frame keeps the JPEG, if any, for the next serialization
+        received = null;
+    }
+
+    /**
+     * @param frame with the pixels.
+     * @return the pixels as big endian ints.
+     */
+    private static byte[] toBytes(FrameBuffer frame) {
+        byte[] raw = new byte[frame.getWidth() * frame.getHeight() * 4];
+        ByteBuffer.wrap(raw).asIntBuffer().put(frame.array(), 0, frame.getWidth() * frame.getHeight());
+        return raw;
+    }
+
+    /**
+     * @param frame with the pixels.
+     * @return the pixels as big endian ints, compressed with deflate.
+     * @throws IOException if they couldn't be compressed.
+     */
+    private static byte[] deflate(FrameBuffer frame) throws IOException {
+        int[] pixels = frame.array();
+        int width = frame.getWidth();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, 64 * 1024);
+            // one row at a time, so the whole frame isn't copied before being compressed
+            byte[] row = new byte[width * 4];
+            IntBuffer rowInts = ByteBuffer.wrap(row).asIntBuffer();
+            for (int offset = 0; offset < width * frame.getHeight(); offset += width) {
+                rowInts.clear();
+                rowInts.put(pixels, offset, width);
+                deflaterOut.write(row);
+            }
+            deflaterOut.finish();
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param data compressed with deflate.
+     * @param length of the uncompressed data.
+     * @return the uncompressed data.
+     * @throws IOException if it is corrupted.
+     */
+    private static byte[] inflate(byte[] data, int length) throws IOException {
+        byte[] raw = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                throw new IOException("The pixels are truncated: " + inflated + " of " + length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("The pixels are corrupted", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
     }
 }
@@ -0,0 +1,205 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * {@link FrameSource} generating the frames, so the recordings can run without a display. The frames are split into
+ * square tiles and each new frame repaints a fraction of them (the change rate), so the same source always produces
+ * the same frames.
+ *
+ */
+public class SyntheticFrameSource extends AbstractFrameSource {
+
+    /**
+     * Side of the tiles (in pixels).
+     */
+    public static final int TILE_SIZE = 32;
+
+    /**
+     * Seed of the generated frames.
+     */
+    private static final long SEED = 0x5EED;
+
+    private final Rectangle bounds;
+
+    private final SyntheticContent content;
+
+    /**
+     * Fraction of the tiles repainted by each frame.
+     */
+    private final float changeRate;
+
+    private final BufferedImage frame;
+
+    private final int[] pixels;
+
+    private final int tilesX;
+
+    private final int tilesY;
+
+    private final Random random = new Random(SEED);
+
+    private boolean painted = false;
+
+    /**
+     * Constructor.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param content of the frames.
+     * @param changeRate fraction of the frame changed by each new one, from 0 (never changes) to 1 (changes
+     *            completely). Any value above 0 changes at least a tile.
+     */
+    public SyntheticFrameSource(int width, int height, SyntheticContent content, float changeRate) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        if (content == null) {
+            throw new IllegalArgumentException("The content is required");
+        }
+        if (!(changeRate >= 0 && changeRate <= 1)) {
+            throw new IllegalArgumentException("Invalid change rate " + changeRate);
+        }
+        this.bounds = new Rectangle(0, 0, width, height);
+        this.content = content;
+        this.changeRate = changeRate;
+        FrameBuffer buffer = new FrameBuffer(width, height, null);
+        this.frame = buffer.getImage();
+        this.pixels = buffer.array();
+        this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * @see {@link FrameSource#getBounds()}
+     */
+    @Override
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * @return the content of the frames.
+     */
+    public SyntheticContent getContent() {
+        return content;
+    }
+
+    /**
+     * @return the fraction of the frame changed by each new one.
+     */
+    public float getChangeRate() {
+        return changeRate;
+    }
+
+    /**
+     * The first frame paints every tile and the next ones repaint randomly chosen tiles (a tile can be chosen twice).
+     * @see {@link AbstractFrameSource#nextFrame()}
+     */
+    @Override
+    protected BufferedImage nextFrame() {
+        int tiles = tilesX * tilesY;
+        if (!painted) {
+            for (int tile = 0; tile < tiles; tile++) {
+                paintTile(tile % tilesX, tile / tilesX, random.nextInt());
+            }
+            painted = true;
+        } else if (changeRate > 0) {
+            int changed = Math.max(1, Math.round(changeRate * tiles));
+            for (int i = 0; i < changed; i++) {
+                int tile = random.nextInt(tiles);
+                paintTile(tile % tilesX, tile / tilesX, random.nextInt());
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * It paints a tile.
+     * @param tileX column of the tile.
+     * @param tileY row of the tile.
+     * @param variant of the content.
+     */
+    private void paintTile(int tileX, int tileY, int variant) {
+        int width = bounds.width;
+        int startX = tileX * TILE_SIZE;
+        int startY = tileY * TILE_SIZE;
+        int endX = Math.min(width, startX + TILE_SIZE);
+        int endY = Math.min(bounds.height, startY + TILE_SIZE);
+        int state = variant | 1;
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                int rgb;
+                switch (content) {
+                case FLAT:
+                    rgb = variant & 0xffffff;
+                    break;
+                case TEXT:
+                    rgb = isGlyph(x, y, variant) ? 0x202020 : 0xf4f4f4;
+                    break;
+                case GRADIENT:
+                    int shift = variant & 0xff;
+                    rgb = ((x + shift) & 0xff) << 16 | ((y + shift) & 0xff) << 8 | (((x + y) / 2 + shift) & 0xff);
+                    break;
+                default:
+                    // xorshift, cheap enough to not dominate a benchmark
+                    state ^= state << 13;
+                    state ^= state >>> 17;
+                    state ^= state << 5;
+                    rgb = state & 0xffffff;
+                    break;
+                }
+                pixels[y * width + x] = rgb;
+            }
+        }
+    }
+
+    /**
+     * It decides if a pixel is part of a glyph: the tiles are split into cells of 8x16 pixels with a 6x10 glyph of
+     * strokes chosen by the variant.
+     * @param x of the pixel.
+     * @param y of the pixel.
+     * @param variant of the tile.
+     * @return true if the pixel is dark.
+     */
+    private static boolean isGlyph(int x, int y, int variant) {
+        int cellX = x % 8;
+        int cellY = y % 16;
+        if (cellX < 1 || cellX > 6 || cellY < 3 || cellY > 12) {
+            return false;
+        }
+        int glyph = (variant ^ (x / 8) * 0x9E3779B9 ^ (y / 16) * 0x7F4A7C15) * 0x2545F491;
+        // vertical strokes at the sides and the middle, horizontal ones at the top, middle and bottom
+        boolean vertical = (cellX == 1 && (glyph & 1) != 0) || (cellX == 6 && (glyph & 2) != 0)
+                || (cellX == 3 && (glyph & 4) != 0);
+        boolean horizontal = (cellY == 3 && (glyph & 8) != 0) || (cellY == 7 && (glyph & 16) != 0)
+                || (cellY == 12 && (glyph & 32) != 0);
+        return vertical || horizontal;
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.encoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+
+/**
+ * {@link javax.imageio.stream.ImageOutputStream} writing into a growing byte array that can be cleared and reused, so
+ * encoding a frame doesn't allocate a new stream and buffer.
+ *
+ */
+class ByteArrayImageOutputStream extends ImageOutputStreamImpl {
+
+    private byte[] buffer;
+
+    /**
+     * Number of valid bytes of the buffer.
+     */
+    private int count = 0;
+
+    /**
+     * Constructor.
+     * @param capacity initial size of the buffer.
+     */
+    ByteArrayImageOutputStream(int capacity) {
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * It discards the written bytes, keeping the buffer.
+     */
+    void clear() {
+        count = 0;
+        streamPos = 0;
+        flushedPos = 0;
+        bitOffset = 0;
+    }
+
+    /**
+     * @return the number of written bytes.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * It writes the written bytes into a stream.
+     * @param out where the bytes will be written.
+     * @throws IOException if they couldn't be written.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, count);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + 1);
+        buffer[(int) streamPos++] = (byte) b;
+        count = Math.max(count, (int) streamPos);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBits();
+        ensureCapacity(streamPos + len);
+        System.arraycopy(b, off, buffer, (int) streamPos, len);
+        streamPos += len;
+        count = Math.max(count, (int) streamPos);
+    }
+
+    @Override
+    public int read() throws IOException {
+        bitOffset = 0;
+        if (streamPos >= count) {
+            return -1;
+        }
+        return buffer[(int) streamPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        bitOffset = 0;
+        if (streamPos >= count) {
+            return -1;
+        }
+        int read = Math.min(len, count - (int) streamPos);
+        System.arraycopy(buffer, (int) streamPos, b, off, read);
+        streamPos += read;
+        return read;
+    }
+
+    @Override
+    public long length() {
+        return count;
+    }
+
+    /**
+     * It grows the buffer if it is smaller than the given size.
+     */
+    private void ensureCapacity(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The encoded image is too big");
+        }
+        if (size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.max(size, Math.min(Integer.MAX_VALUE, 2L * buffer.length)));
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.encoder;
+
+/**
+ * Resolution of the color (chroma) components of the JPEG frames compared to the brightness (luma) one.
+ *
+ */
+public enum ChromaSubsampling {
+
+    /**
+     * Half the horizontal and vertical resolution: the smallest frames (the JPEG default).
+     */
+    YUV420(2, 2),
+
+    /**
+     * Half the horizontal resolution.
+     */
+    YUV422(2, 1),
+
+    /**
+     * Full resolution: the sharpest colored text, but bigger frames.
+     */
+    YUV444(1, 1);
+
+    private final int horizontalFactor;
+
+    private final int verticalFactor;
+
+    private ChromaSubsampling(int horizontalFactor, int verticalFactor) {
+        this.horizontalFactor = horizontalFactor;
+        this.verticalFactor = verticalFactor;
+    }
+
+    /**
+     * @return the horizontal sampling factor of the luma component.
+     */
+    public int getHorizontalFactor() {
+        return horizontalFactor;
+    }
+
+    /**
+     * @return the vertical sampling factor of the luma component.
+     */
+    public int getVerticalFactor() {
+        return verticalFactor;
+    }
+
+}
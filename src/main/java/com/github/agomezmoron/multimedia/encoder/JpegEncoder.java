@@ -0,0 +1,244 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.encoder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * JPEG encoder keeping its {@link ImageWriter}, its parameters and its output buffer between frames, so the service
+ * registry lookup and the writer setup are done once instead of once per frame as {@link ImageIO#write} does.
+ * <p>
+ * An instance must be used by one thread at a time; {@link #forCurrentThread} returns the one cached for the calling
+ * thread.
+ *
+ */
+public class JpegEncoder {
+
+    /**
+     * Default quality, the same used by {@link ImageIO#write}.
+     */
+    public static final float DEFAULT_QUALITY = 0.75f;
+
+    /**
+     * Name of the native metadata format of the JPEG writer.
+     */
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    /**
+     * Encoders cached per thread.
+     */
+    private static final ThreadLocal<JpegEncoder> ENCODERS = new ThreadLocal<JpegEncoder>();
+
+    private final float quality;
+
+    private final ChromaSubsampling subsampling;
+
+    private final boolean progressive;
+
+    private final boolean optimizeHuffman;
+
+    private final ImageWriter writer;
+
+    private final JPEGImageWriteParam param;
+
+    /**
+     * Reused output buffer.
+     */
+    private final ByteArrayImageOutputStream output = new ByteArrayImageOutputStream(256 * 1024);
+
+    /**
+     * Metadata with the chroma subsampling, cached for the last image type.
+     */
+    private IIOMetadata metadata;
+
+    /**
+     * {@link BufferedImage} type of the cached metadata.
+     */
+    private int metadataType = BufferedImage.TYPE_CUSTOM;
+
+    /**
+     * Constructor using the default settings.
+     */
+    public JpegEncoder() {
+        this(DEFAULT_QUALITY, ChromaSubsampling.YUV420, false, false);
+    }
+
+    /**
+     * Constructor.
+     * @param quality between 0 (smallest frames) and 1 (best quality).
+     * @param subsampling of the color components.
+     * @param progressive if true the frames are progressive JPEGs. Not every player supports them inside a video.
+     * @param optimizeHuffman if true the Huffman tables are computed for each frame: smaller frames, more CPU.
+     */
+    public JpegEncoder(float quality, ChromaSubsampling subsampling, boolean progressive, boolean optimizeHuffman) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("There is no JPEG writer available");
+        }
+        this.quality = Math.max(0f, Math.min(1f, quality));
+        this.subsampling = subsampling != null ? subsampling : ChromaSubsampling.YUV420;
+        this.progressive = progressive;
+        this.optimizeHuffman = optimizeHuffman;
+        this.writer = writers.next();
+        this.param = (JPEGImageWriteParam) writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(this.quality);
+        param.setProgressiveMode(progressive ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+        param.setOptimizeHuffmanTables(optimizeHuffman);
+    }
+
+    /**
+     * It returns the encoder cached for the calling thread, replacing it if its settings are different.
+     * @param quality between 0 (smallest frames) and 1 (best quality).
+     * @param subsampling of the color components.
+     * @param progressive if true the frames are progressive JPEGs.
+     * @param optimizeHuffman if true the Huffman tables are computed for each frame.
+     * @return the encoder.
+     */
+    public static JpegEncoder forCurrentThread(float quality, ChromaSubsampling subsampling, boolean progressive,
+            boolean optimizeHuffman) {
+        JpegEncoder encoder = ENCODERS.get();
+        if (encoder == null || !encoder.hasSettings(quality, subsampling, progressive, optimizeHuffman)) {
+            if (encoder != null) {
+                encoder.dispose();
+            }
+            encoder = new JpegEncoder(quality, subsampling, progressive, optimizeHuffman);
+            ENCODERS.set(encoder);
+        }
+        return encoder;
+    }
+
+    /**
+     * It returns the encoder cached for the calling thread with the default settings.
+     * @return the encoder.
+     */
+    public static JpegEncoder forCurrentThread() {
+        return forCurrentThread(DEFAULT_QUALITY, ChromaSubsampling.YUV420, false, false);
+    }
+
+    /**
+     * @return true if the encoder uses the given settings.
+     */
+    public boolean hasSettings(float quality, ChromaSubsampling subsampling, boolean progressive,
+            boolean optimizeHuffman) {
+        return this.quality == Math.max(0f, Math.min(1f, quality))
+                && this.subsampling == (subsampling != null ? subsampling : ChromaSubsampling.YUV420)
+                && this.progressive == progressive && this.optimizeHuffman == optimizeHuffman;
+    }
+
+    /**
+     * It encodes an image.
+     * @param image to be encoded.
+     * @return the JPEG bytes.
+     * @throws IOException if the image couldn't be encoded.
+     */
+    public byte[] encode(BufferedImage image) throws IOException {
+        write(image);
+        return output.toByteArray();
+    }
+
+    /**
+     * It encodes an image into a stream.
+     * @param image to be encoded.
+     * @param out where the JPEG bytes will be written.
+     * @return the number of written bytes.
+     * @throws IOException if the image couldn't be encoded or written.
+     */
+    public int encode(BufferedImage image, OutputStream out) throws IOException {
+        write(image);
+        output.writeTo(out);
+        return output.size();
+    }
+
+    /**
+     * It releases the writer. The encoder can't be used afterwards.
+     */
+    public void dispose() {
+        writer.dispose();
+    }
+
+    /**
+     * It encodes an image into the output buffer.
+     */
+    private void write(BufferedImage image) throws IOException {
+        output.clear();
+        writer.setOutput(output);
+        try {
+            writer.write(null, new IIOImage(image, null, getMetadata(image)), param);
+        } finally {
+            writer.setOutput(null);
+        }
+    }
+
+    /**
+     * It returns the metadata setting the chroma subsampling for an image, reusing it for images of the same type.
+     * @param image to be encoded.
+     * @return the metadata, or null to use the defaults.
+     * @throws IOException if the metadata couldn't be built.
+     */
+    private IIOMetadata getMetadata(BufferedImage image) throws IOException {
+        if (subsampling == ChromaSubsampling.YUV420) {
+            // the default of the writer
+            return null;
+        }
+        if (metadata != null && metadataType == image.getType() && metadataType != BufferedImage.TYPE_CUSTOM) {
+            return metadata;
+        }
+        IIOMetadata imageMetadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+        Node tree = imageMetadata.getAsTree(JPEG_METADATA_FORMAT);
+        NodeList components = ((Element) tree).getElementsByTagName("componentSpec");
+        // the first component is the luma one, the chroma ones are sampled relative to it
+        if (components.getLength() > 1) {
+            Element luma = (Element) components.item(0);
+            luma.setAttribute("HsamplingFactor", String.valueOf(subsampling.getHorizontalFactor()));
+            luma.setAttribute("VsamplingFactor", String.valueOf(subsampling.getVerticalFactor()));
+            for (int i = 1; i < components.getLength(); i++) {
+                Element chroma = (Element) components.item(i);
+                chroma.setAttribute("HsamplingFactor", "1");
+                chroma.setAttribute("VsamplingFactor", "1");
+            }
+        }
+        imageMetadata.setFromTree(JPEG_METADATA_FORMAT, tree);
+        metadata = imageMetadata;
+        metadataType = image.getType();
+        return metadata;
+    }
+
+}
@@ -0,0 +1,269 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.encoder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * JPEG encoder splitting the big images into horizontal stripes that are encoded in parallel by a
+ * {@link ForkJoinPool} and joined into a single baseline JPEG. The stripes are encoded with the same tables, so their
+ * data only has to be separated by restart markers, with the restart interval set to the MCUs of a stripe. The result
+ * is a standard JPEG, decoded like any other.
+ * <p>
+ * The Huffman tables have to be the same for every stripe, so the frames are always encoded with the standard tables
+ * (not optimized) and not progressive. The images with less than {@link #MIN_STRIPED_PIXELS} pixels are encoded whole.
+ * It can be used by several threads at the same time.
+ *
+ */
+public class StripedJpegEncoder {
+
+    /**
+     * Minimum size of the images encoded in stripes (in pixels). Below it splitting doesn't pay off.
+     */
+    public static final int MIN_STRIPED_PIXELS = 2 * 1000 * 1000;
+
+    /**
+     * Minimum height of a stripe (in rows of MCUs).
+     */
+    private static final int MIN_STRIPE_MCU_ROWS = 4;
+
+    /**
+     * Maximum restart interval (in MCUs), the DRI field is 16 bits long.
+     */
+    private static final int MAX_RESTART_INTERVAL = 0xFFFF;
+
+    private static final int SOI = 0xD8;
+
+    private static final int SOF0 = 0xC0;
+
+    private static final int DRI = 0xDD;
+
+    private static final int SOS = 0xDA;
+
+    private static final int RST0 = 0xD0;
+
+    private static final int EOI = 0xD9;
+
+    private final ForkJoinPool pool;
+
+    private final float quality;
+
+    private final ChromaSubsampling subsampling;
+
+    /**
+     * Constructor.
+     * @param pool encoding the stripes.
+     * @param quality between 0 (smallest frames) and 1 (best quality).
+     * @param subsampling of the color components.
+     */
+    public StripedJpegEncoder(ForkJoinPool pool, float quality, ChromaSubsampling subsampling) {
+        this.pool = pool;
+        this.quality = quality;
+        this.subsampling = subsampling != null ? subsampling : ChromaSubsampling.YUV420;
+    }
+
+    /**
+     * It encodes an image, in stripes if it is big enough.
+     * @param image to be encoded.
+     * @return the JPEG bytes.
+     * @throws IOException if the image couldn't be encoded.
+     */
+    public byte[] encode(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int mcuWidth = 8 * subsampling.getHorizontalFactor();
+        int mcuHeight = 8 * subsampling.getVerticalFactor();
+        int mcusPerRow = (width + mcuWidth - 1) / mcuWidth;
+        int mcuRows = (height + mcuHeight - 1) / mcuHeight;
+        int stripes = Math.min(pool.getParallelism(), mcuRows / MIN_STRIPE_MCU_ROWS);
+        if ((long) width * height < MIN_STRIPED_PIXELS || stripes < 2 || mcusPerRow > MAX_RESTART_INTERVAL) {
+            return getEncoder().encode(image);
+        }
+        int stripeMcuRows = Math.min((mcuRows + stripes - 1) / stripes, MAX_RESTART_INTERVAL / mcusPerRow);
+        stripes = (mcuRows + stripeMcuRows - 1) / stripeMcuRows;
+        StripesTask task = new StripesTask(image, stripeMcuRows * mcuHeight, stripes);
+        pool.invoke(task);
+        if (task.error != null) {
+            throw task.error;
+        }
+        return join(task.stripes, height, stripeMcuRows * mcusPerRow);
+    }
+
+    /**
+     * @return the encoder of the calling thread, with the settings the stripes need.
+     */
+    private JpegEncoder getEncoder() {
+        return JpegEncoder.forCurrentThread(quality, subsampling, false, false);
+    }
+
+    /**
+     * It joins the stripes into a single JPEG: the headers of the first one, with the height of the whole image and
+     * the restart interval, and the data of every stripe, separated by restart markers.
+     * @param stripes JPEGs of the stripes, from top to bottom.
+     * @param height of the whole image.
+     * @param restartInterval MCUs of a stripe.
+     * @return the JPEG bytes.
+     * @throws IOException if the stripes don't have the expected structure.
+     */
+    private static byte[] join(byte[][] stripes, int height, int restartInterval) throws IOException {
+        int size = 6;
+        for (byte[] stripe : stripes) {
+            size += stripe.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        byte[] first = stripes[0];
+        if ((first[0] & 0xFF) != 0xFF || (first[1] & 0xFF) != SOI) {
+            throw new IOException("The stripe is not a JPEG");
+        }
+        out.write(first, 0, 2);
+        int position = 2;
+        int marker = 0;
+        while (marker != SOS) {
+            if (position + 4 > first.length || (first[position] & 0xFF) != 0xFF) {
+                throw new IOException("Unexpected JPEG structure at " + position);
+            }
+            marker = first[position + 1] & 0xFF;
+            int length = ((first[position + 2] & 0xFF) << 8) | (first[position + 3] & 0xFF);
+            if (marker == SOF0) {
+                // the height follows the length and the precision
+                first[position + 5] = (byte) (height >> 8);
+                first[position + 6] = (byte) height;
+            } else if (marker == SOS) {
+                out.write(new byte[] { (byte) 0xFF, (byte) DRI, 0, 4, (byte) (restartInterval >> 8),
+                        (byte) restartInterval }, 0, 6);
+            } else if (marker == DRI) {
+                throw new IOException("The stripe already has restart markers");
+            }
+            out.write(first, position, 2 + length);
+            position += 2 + length;
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            byte[] stripe = stripes[i];
+            int start = i == 0 ? position : scanStart(stripe);
+            int end = stripe.length - 2;
+            if ((stripe[end] & 0xFF) != 0xFF || (stripe[end + 1] & 0xFF) != EOI) {
+                throw new IOException("The stripe " + i + " doesn't end with EOI");
+            }
+            if (i > 0) {
+                out.write(0xFF);
+                out.write(RST0 + (i - 1) % 8);
+            }
+            out.write(stripe, start, end - start);
+        }
+        out.write(0xFF);
+        out.write(EOI);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param jpeg baseline JPEG.
+     * @return the position of the entropy coded data, after the SOS segment.
+     * @throws IOException if there is no SOS segment.
+     */
+    private static int scanStart(byte[] jpeg) throws IOException {
+        int position = 2;
+        while (position + 4 <= jpeg.length && (jpeg[position] & 0xFF) == 0xFF) {
+            int marker = jpeg[position + 1] & 0xFF;
+            position += 2 + (((jpeg[position + 2] & 0xFF) << 8) | (jpeg[position + 3] & 0xFF));
+            if (marker == SOS) {
+                return position;
+            }
+        }
+        throw new IOException("Unexpected JPEG structure at " + position);
+    }
+
+    /**
+     * Task encoding a range of stripes, splitting it in halves.
+     */
+    private class StripesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BufferedImage image;
+
+        private final int stripeHeight;
+
+        /**
+         * Encoded stripes, shared by all the subtasks.
+         */
+        private final byte[][] stripes;
+
+        private final int from;
+
+        private final int to;
+
+        /**
+         * First error of the subtasks (only set in the root task).
+         */
+        private volatile IOException error;
+
+        private final StripesTask root;
+
+        /**
+         * Constructor of the root task.
+         * @param image to be encoded.
+         * @param stripeHeight height of every stripe but the last one.
+         * @param count number of stripes.
+         */
+        StripesTask(BufferedImage image, int stripeHeight, int count) {
+            this(image, stripeHeight, new byte[count][], 0, count, null);
+        }
+
+        private StripesTask(BufferedImage image, int stripeHeight, byte[][] stripes, int from, int to,
+                StripesTask root) {
+            this.image = image;
+            this.stripeHeight = stripeHeight;
+            this.stripes = stripes;
+            this.from = from;
+            this.to = to;
+            this.root = root != null ? root : this;
+        }
+
+        /**
+         * @see {@link RecursiveAction#compute()}
+         */
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StripesTask(image, stripeHeight, stripes, from, middle, root),
+                        new StripesTask(image, stripeHeight, stripes, middle, to, root));
+            } else {
+                int y = from * stripeHeight;
+                try {
+                    stripes[from] = getEncoder().encode(image.getSubimage(0, y, image.getWidth(),
+                            Math.min(stripeHeight, image.getHeight() - y)));
+                } catch (IOException e) {
+                    root.error = e;
+                }
+            }
+        }
+    }
+
+}
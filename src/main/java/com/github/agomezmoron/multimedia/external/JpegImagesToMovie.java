@@ -33,7 +33,6 @@ package com.github.agomezmoron.multimedia.external;
 import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.util.Vector;
 
@@ -63,6 +62,10 @@ import javax.media.protocol.FileTypeDescriptor;
 import javax.media.protocol.PullBufferDataSource;
 import javax.media.protocol.PullBufferStream;
 
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FileListFrameReader;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+
 /**
  * This program takes a list of JPEG image files and convert them into a
  * QuickTime movie.
@@ -71,7 +74,34 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
 
     public boolean doIt(int width, int height, int frameRate, Vector inFiles, MediaLocator outML)
             throws MalformedURLException {
-        ImageDataSource ids = new ImageDataSource(width, height, frameRate, inFiles);
+        return doIt(width, height, frameRate, new FileListFrameReader(inFiles, null), outML);
+    }
+
+    /**
+     * Same as {@link #doIt(int, int, int, Vector, MediaLocator)} but the frames are read from a {@link FrameReader},
+     * so each frame carries the time (in nanoseconds from the beginning of the movie) when it has to be shown and the
+     * movie plays back in real time even if the frames were not captured at a constant rate. If the reader blocks
+     * (the frames are still being recorded), the movie is written while the frames arrive and this method returns
+     * once the reader runs out of frames.
+     * @param frameRate average frame rate, used for the frames without timestamp.
+     * @param frames to be muxed. It is closed once the movie is written.
+     */
+    public boolean doIt(int width, int height, float frameRate, FrameReader frames, MediaLocator outML)
+            throws MalformedURLException {
+        try {
+            return process(new ImageDataSource(width, height, frameRate, frames), outML);
+        } finally {
+            try {
+                frames.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * It runs the processor over the data source writing the movie.
+     */
+    boolean process(ImageDataSource ids, MediaLocator outML) {
 
         Processor p;
 
@@ -365,9 +395,9 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
 
         ImageSourceStream streams[];
 
-        ImageDataSource(int width, int height, int frameRate, Vector images) {
+        ImageDataSource(int width, int height, float frameRate, FrameReader frames) {
             streams = new ImageSourceStream[1];
-            streams[0] = new ImageSourceStream(width, height, frameRate, images);
+            streams[0] = new ImageSourceStream(width, height, frameRate, frames);
         }
 
         public void setLocator(MediaLocator source) {
@@ -426,27 +456,26 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
      */
     class ImageSourceStream implements PullBufferStream {
 
-        Vector images;
+        FrameReader frames;
         int width, height;
         VideoFormat format;
 
-        int nextImage = 0; // index of the next image to be read.
         boolean ended = false;
 
-        public ImageSourceStream(int width, int height, int frameRate, Vector images) {
+        public ImageSourceStream(int width, int height, float frameRate, FrameReader frames) {
             this.width = width;
             this.height = height;
-            this.images = images;
+            this.frames = frames;
 
             format = new VideoFormat(VideoFormat.JPEG, new Dimension(width, height), Format.NOT_SPECIFIED,
-                    Format.byteArray, (float) frameRate);
+                    Format.byteArray, frameRate);
         }
 
         /**
-         * We should never need to block assuming data are read from files.
+         * It only blocks if the frames are still being recorded.
          */
         public boolean willReadBlock() {
-            return false;
+            return frames.willBlock();
         }
 
         /**
@@ -455,10 +484,11 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
          */
         public void read(Buffer buf) throws IOException {
 
+            EncodedFrame frame = frames.next();
+
             // Check if we've finished all the frames.
-            if (nextImage >= images.size()) {
+            if (frame == null) {
                 // We are done. Set EndOfMedia.
-                // System.err.println("Done reading all images.");
                 buf.setEOM(true);
                 buf.setOffset(0);
                 buf.setLength(0);
@@ -466,15 +496,6 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
                 return;
             }
 
-            String imageFile = (String) images.elementAt(nextImage);
-            nextImage++;
-
-            // System.err.println(" - reading image file: " + imageFile);
-
-            // Open a random access file for the next image.
-            RandomAccessFile raFile;
-            raFile = new RandomAccessFile(imageFile, "r");
-
             byte data[] = null;
 
             // Check the input buffer type & size.
@@ -483,23 +504,20 @@ public class JpegImagesToMovie implements ControllerListener, DataSinkListener {
                 data = (byte[]) buf.getData();
 
             // Check to see the given buffer is big enough for the frame.
-            if (data == null || data.length < raFile.length()) {
-                data = new byte[(int) raFile.length()];
+            if (data == null || data.length < frame.getLength()) {
+                data = new byte[frame.getLength()];
                 buf.setData(data);
             }
 
-            // Read the entire JPEG image from the file.
-            raFile.readFully(data, 0, (int) raFile.length());
-
-            // System.err.println(" read " + raFile.length() + " bytes.");
+            frame.copyTo(data, 0);
 
             buf.setOffset(0);
-            buf.setLength((int) raFile.length());
+            buf.setLength(frame.getLength());
             buf.setFormat(format);
             buf.setFlags(buf.getFlags() | buf.FLAG_KEY_FRAME);
-
-            // Close the random access file.
-            raFile.close();
+            if (frame.getTimestamp() != EncodedFrame.NO_TIMESTAMP) {
+                buf.setTimeStamp(frame.getTimestamp());
+            }
         }
 
         /**
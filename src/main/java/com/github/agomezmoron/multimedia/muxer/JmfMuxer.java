@@ -0,0 +1,117 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.media.MediaLocator;
+
+import com.github.agomezmoron.multimedia.external.JpegImagesToMovie;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.sun.jna.Platform;
+
+/**
+ * {@link VideoMuxer} using the Java Media Framework ({@link JpegImagesToMovie}). JMF is an optional dependency: it is
+ * only needed if this muxer is used, so the projects using it have to add {@code javax.media:jmf:2.1.1e} to their
+ * dependencies.
+ *
+ */
+public class JmfMuxer implements VideoMuxer {
+
+    /**
+     * Class of JMF looked up to know if it is in the classpath.
+     */
+    private static final String JMF_CLASS = "javax.media.Manager";
+
+    /**
+     * Constructor.
+     * @throws IllegalStateException if JMF isn't in the classpath.
+     */
+    public JmfMuxer() {
+        checkAvailable();
+    }
+
+    /**
+     * @return true if JMF is in the classpath.
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName(JMF_CLASS, false, JmfMuxer.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * It checks that JMF is in the classpath, so a recording using this muxer fails when it starts instead of when its
+     * video is created.
+     * @throws IllegalStateException if it isn't.
+     */
+    public static void checkAvailable() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("The JMF muxer needs the Java Media Framework in the classpath: it is an"
+                    + " optional dependency, add javax.media:jmf:2.1.1e to the dependencies of the project or use the"
+                    + " QUICKTIME muxer");
+        }
+    }
+
+    /**
+     * @see {@link VideoMuxer#mux(int, int, float, FrameReader, File)}
+     */
+    @Override
+    public void mux(int width, int height, float frameRate, FrameReader frames, File video) throws IOException {
+        String fileURL;
+        if (Platform.isWindows()) {
+            fileURL = "file://" + video.getPath();
+        } else {
+            fileURL = video.getAbsolutePath();
+        }
+        MediaLocator oml = JpegImagesToMovie.createMediaLocator(fileURL);
+        if (oml == null) {
+            frames.close();
+            throw new IOException("Cannot build a media locator from " + fileURL);
+        }
+        if (!new JpegImagesToMovie().doIt(width, height, frameRate, frames, oml)) {
+            throw new IOException("JMF couldn't create the video " + video);
+        }
+    }
+
+    /**
+     * The JMF processor takes the frames one after another, so they are read in order. The end of the recording is
+     * ignored: the last frame lasts 1 / frameRate.
+     * @see {@link VideoMuxer#mux(int, int, float, FrameStore, long, File)}
+     */
+    @Override
+    public void mux(int width, int height, float frameRate, FrameStore frames, long end, File video)
+            throws IOException {
+        mux(width, height, frameRate, frames.openReader(), video);
+    }
+
+}
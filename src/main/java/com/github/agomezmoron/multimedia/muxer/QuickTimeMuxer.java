@@ -0,0 +1,748 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+
+/**
+ * {@link VideoMuxer} writing QuickTime (.mov) files with a Motion JPEG track, in plain Java. The frames are already
+ * JPEG, so they are written as they are: one after another into the media data atom, through a {@link FileChannel}
+ * (the frames stored in files are transferred by the file system). The sample tables are kept in memory and written
+ * in the movie atom at the end of the file.
+ * <p>
+ * Each frame lasts until the next one was captured, according to their timestamps, so the skipped duplicates and the
+ * late captures keep their real timing. The last frame lasts until the end of the recording, if it is known. The frames
+ * without timestamp last 1 / frameRate.
+ * <p>
+ * When the frames of a stopped recording are muxed from their store, the sample tables are built first, so the offset
+ * of every frame is known before it is written, and the media data is written in segments of consecutive frames by
+ * several threads at the same time. The file is the same as if the frames were written one after another.
+ *
+ */
+public class QuickTimeMuxer implements VideoMuxer {
+
+    /**
+     * Time units per second of the track (the usual one for video, multiple of the common frame rates).
+     */
+    static final int MEDIA_TIMESCALE = 90000;
+
+    /**
+     * Time units per second of the movie.
+     */
+    static final int MOVIE_TIMESCALE = 1000;
+
+    /**
+     * Longest duration of a version 0 header or of a sample (in its time scale), written as an unsigned 32 bits int.
+     */
+    static final long MAX_DURATION = 0xFFFFFFFFL;
+
+    /**
+     * Seconds between 1904 (the QuickTime epoch) and 1970.
+     */
+    private static final long EPOCH_OFFSET = 2082844800L;
+
+    /**
+     * Size of the header of the media data atom, using a 64 bits size.
+     */
+    private static final int MDAT_HEADER_SIZE = 16;
+
+    /**
+     * Size of the file type atom.
+     */
+    private static final int FTYP_SIZE = 20;
+
+    /**
+     * Identity transformation matrix of the movie and the track.
+     */
+    private static final int[] MATRIX = { 0x00010000, 0, 0, 0, 0x00010000, 0, 0, 0, 0x40000000 };
+
+    /**
+     * Minimum number of frames of the segments written in parallel, the shorter videos are written on one thread.
+     */
+    static final int MIN_SEGMENT_FRAMES = 64;
+
+    /**
+     * Segments per thread, so the threads that end first write the remaining ones.
+     */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    /**
+     * Number of threads writing the segments of a video.
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor writing the videos on a single thread.
+     */
+    public QuickTimeMuxer() {
+        this(1);
+    }
+
+    /**
+     * Constructor.
+     * @param parallelism number of threads writing the segments of the videos muxed from a store.
+     */
+    public QuickTimeMuxer(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @see {@link VideoMuxer#mux(int, int, float, FrameReader, File)}
+     */
+    @Override
+    public void mux(int width, int height, float frameRate, FrameReader frames, File video) throws IOException {
+        mux(width, height, frameRate, frames, EncodedFrame.NO_TIMESTAMP, video);
+    }
+
+    /**
+     * It writes the frames one after another.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param frameRate average frame rate, used for the frames without timestamp.
+     * @param frames to be muxed. It is closed once the video is written.
+     * @param end timestamp of the end of the recording, or {@link EncodedFrame#NO_TIMESTAMP} to take it from the
+     *            reader.
+     * @param video file to be written.
+     * @throws IOException if the frames couldn't be read or the video couldn't be written.
+     */
+    private void mux(int width, int height, float frameRate, FrameReader frames, long end, File video)
+            throws IOException {
+        RandomAccessFile raFile = null;
+        try {
+            raFile = new RandomAccessFile(video, "rw");
+            raFile.setLength(0);
+            FileChannel channel = raFile.getChannel();
+            SampleTable samples = new SampleTable(frameRate);
+            writeFully(channel, header());
+            EncodedFrame frame;
+            while ((frame = frames.next()) != null) {
+                long offset = channel.position();
+                long length = frame.transferTo(channel);
+                channel.position(offset + length);
+                samples.add(offset, (int) length, frame.getTimestamp());
+            }
+            samples.end(end != EncodedFrame.NO_TIMESTAMP ? end : frames.getEnd());
+            long mdatEnd = channel.position();
+            // the size of the media data atom, now that it is known
+            ByteBuffer mdatSize = ByteBuffer.allocate(8);
+            mdatSize.putLong(mdatEnd - FTYP_SIZE).flip();
+            channel.write(mdatSize, FTYP_SIZE + 8);
+            channel.position(mdatEnd);
+            writeFully(channel, ByteBuffer.wrap(movie(width, height, samples)));
+            channel.force(false);
+        } finally {
+            try {
+                frames.close();
+            } finally {
+                if (raFile != null) {
+                    raFile.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @see {@link VideoMuxer#mux(int, int, float, FrameStore, long, File)}
+     */
+    @Override
+    public void mux(int width, int height, float frameRate, FrameStore frames, long end, File video)
+            throws IOException {
+        int count = frames.size();
+        int segments = Math.min(parallelism * SEGMENTS_PER_THREAD, count / MIN_SEGMENT_FRAMES);
+        if (parallelism == 1 || segments < 2) {
+            mux(width, height, frameRate, frames.openReader(), end, video);
+            return;
+        }
+        // the frames are laid out one after another, as if they were written in order
+        SampleTable samples = new SampleTable(frameRate);
+        long mdatEnd = FTYP_SIZE + MDAT_HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            EncodedFrame frame = frames.get(i);
+            samples.add(mdatEnd, frame.getLength(), frame.getTimestamp());
+            mdatEnd += frame.getLength();
+        }
+        samples.end(end);
+        RandomAccessFile raFile = new RandomAccessFile(video, "rw");
+        try {
+            raFile.setLength(mdatEnd);
+            FileChannel channel = raFile.getChannel();
+            ByteBuffer header = header();
+            header.putLong(FTYP_SIZE + 8, mdatEnd - FTYP_SIZE);
+            writeFully(channel, header);
+            writeSegments(frames, samples, segments, video);
+            channel.position(mdatEnd);
+            writeFully(channel, ByteBuffer.wrap(movie(width, height, samples)));
+            channel.force(false);
+        } finally {
+            raFile.close();
+        }
+    }
+
+    /**
+     * It writes the frames into the media data atom, splitting them into segments of consecutive frames written by
+     * several threads.
+     * @param frames to be written.
+     * @param samples with the offset and the size of each frame.
+     * @param segments number of segments.
+     * @param video file being written, long enough for all the frames.
+     * @throws IOException if a frame couldn't be read or written.
+     */
+    private void writeSegments(final FrameStore frames, final SampleTable samples, int segments, final File video)
+            throws IOException {
+        final AtomicInteger threads = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(Math.min(parallelism, segments), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "screen-recorder-segment-writer-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            int count = samples.size();
+            List<Future<Void>> written = new ArrayList<Future<Void>>(segments);
+            for (int segment = 0; segment < segments; segment++) {
+                final int start = (int) ((long) count * segment / segments);
+                final int end = (int) ((long) count * (segment + 1) / segments);
+                written.add(writers.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        writeSegment(frames, samples, start, end, video);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> segment : written) {
+                segment.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing the video " + video);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("The video " + video + " couldn't be written", e.getCause());
+        } finally {
+            // the segments not written yet are useless once one of them fails
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * It writes a segment of consecutive frames at their offsets, through its own channel.
+     * @param frames to be written.
+     * @param samples with the offset and the size of each frame.
+     * @param start index of the first frame of the segment.
+     * @param end index after the last frame of the segment.
+     * @param video file being written.
+     * @throws IOException if a frame couldn't be read or written, or its size changed.
+     */
+    private static void writeSegment(FrameStore frames, SampleTable samples, int start, int end, File video)
+            throws IOException {
+        RandomAccessFile raFile = new RandomAccessFile(video, "rw");
+        try {
+            FileChannel channel = raFile.getChannel();
+            for (int i = start; i < end; i++) {
+                channel.position(samples.getOffset(i));
+                if (frames.get(i).transferTo(channel) != samples.getSize(i)) {
+                    throw new IOException("The frame " + i + " of the video " + video + " changed while muxing it");
+                }
+            }
+        } finally {
+            raFile.close();
+        }
+    }
+
+    /**
+     * @return the file type atom and the header of the media data atom, with its 64 bits size still unknown.
+     */
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(FTYP_SIZE + MDAT_HEADER_SIZE);
+        header.putInt(FTYP_SIZE).put(type("ftyp")).put(type("qt  ")).putInt(0x20050300).put(type("qt  "));
+        header.putInt(1).put(type("mdat")).putLong(0);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * It builds the movie atom: the headers of the movie and of its video track, and the sample tables.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param samples written.
+     * @return the movie atom.
+     * @throws IOException never, it is written in memory.
+     */
+    private static byte[] movie(int width, int height, SampleTable samples) throws IOException {
+        long mediaDuration = samples.getDuration();
+        long movieDuration = mediaDuration * MOVIE_TIMESCALE / MEDIA_TIMESCALE;
+        long now = System.currentTimeMillis() / 1000 + EPOCH_OFFSET;
+        Atom moov = new Atom("moov");
+
+        // the headers whose duration doesn't fit in 32 bits are written in version 1, with 64 bits times
+        Atom mvhd = moov.child("mvhd");
+        boolean large = movieDuration > MAX_DURATION;
+        mvhd.out.writeInt(large ? 0x01000000 : 0); // version and flags
+        writeTime(mvhd.out, large, now);
+        writeTime(mvhd.out, large, now);
+        mvhd.out.writeInt(MOVIE_TIMESCALE);
+        writeTime(mvhd.out, large, movieDuration);
+        mvhd.out.writeInt(0x00010000); // preferred rate
+        mvhd.out.writeShort(0x0100); // preferred volume
+        mvhd.out.write(new byte[10]);
+        writeMatrix(mvhd.out);
+        mvhd.out.write(new byte[24]); // preview, poster, selection and current times
+        mvhd.out.writeInt(2); // next track
+        mvhd.close();
+
+        Atom trak = moov.child("trak");
+        Atom tkhd = trak.child("tkhd");
+        // version and flags: enabled, in movie, in preview and in poster
+        tkhd.out.writeInt((large ? 0x01000000 : 0) | 0x0000000F);
+        writeTime(tkhd.out, large, now);
+        writeTime(tkhd.out, large, now);
+        tkhd.out.writeInt(1); // track id
+        tkhd.out.writeInt(0);
+        writeTime(tkhd.out, large, movieDuration);
+        tkhd.out.write(new byte[8]);
+        tkhd.out.writeShort(0); // layer
+        tkhd.out.writeShort(0); // alternate group
+        tkhd.out.writeShort(0); // volume
+        tkhd.out.writeShort(0);
+        writeMatrix(tkhd.out);
+        tkhd.out.writeInt(width << 16);
+        tkhd.out.writeInt(height << 16);
+        tkhd.close();
+
+        Atom mdia = trak.child("mdia");
+        Atom mdhd = mdia.child("mdhd");
+        boolean largeMedia = mediaDuration > MAX_DURATION;
+        mdhd.out.writeInt(largeMedia ? 0x01000000 : 0);
+        writeTime(mdhd.out, largeMedia, now);
+        writeTime(mdhd.out, largeMedia, now);
+        mdhd.out.writeInt(MEDIA_TIMESCALE);
+        writeTime(mdhd.out, largeMedia, mediaDuration);
+        mdhd.out.writeShort(0); // language
+        mdhd.out.writeShort(0); // quality
+        mdhd.close();
+        writeHandler(mdia.child("hdlr"), "mhlr", "vide", "VideoHandler");
+
+        Atom minf = mdia.child("minf");
+        Atom vmhd = minf.child("vmhd");
+        vmhd.out.writeInt(0x00000001);
+        vmhd.out.writeShort(0x0040); // graphics mode: dither copy
+        vmhd.out.writeShort(0x8000);
+        vmhd.out.writeShort(0x8000);
+        vmhd.out.writeShort(0x8000);
+        vmhd.close();
+        writeHandler(minf.child("hdlr"), "dhlr", "alis", "DataHandler");
+        Atom dinf = minf.child("dinf");
+        Atom dref = dinf.child("dref");
+        dref.out.writeInt(0);
+        dref.out.writeInt(1);
+        dref.out.writeInt(12);
+        dref.out.write(type("alis"));
+        dref.out.writeInt(0x00000001); // the data is in this file
+        dref.close();
+        dinf.close();
+
+        Atom stbl = minf.child("stbl");
+        Atom stsd = stbl.child("stsd");
+        stsd.out.writeInt(0);
+        stsd.out.writeInt(1);
+        stsd.out.writeInt(86); // size of the description
+        stsd.out.write(type("jpeg"));
+        stsd.out.write(new byte[6]);
+        stsd.out.writeShort(1); // data reference
+        stsd.out.writeShort(0); // version
+        stsd.out.writeShort(0); // revision
+        stsd.out.writeInt(0); // vendor
+        stsd.out.writeInt(0); // temporal quality
+        stsd.out.writeInt(0x00000200); // spatial quality: normal
+        stsd.out.writeShort(width);
+        stsd.out.writeShort(height);
+        stsd.out.writeInt(0x00480000); // 72 dpi
+        stsd.out.writeInt(0x00480000);
+        stsd.out.writeInt(0); // data size
+        stsd.out.writeShort(1); // frames per sample
+        byte[] compressor = new byte[32];
+        byte[] name = "Photo - JPEG".getBytes("US-ASCII");
+        compressor[0] = (byte) name.length;
+        System.arraycopy(name, 0, compressor, 1, name.length);
+        stsd.out.write(compressor);
+        stsd.out.writeShort(24); // depth
+        stsd.out.writeShort(-1); // no color table
+        stsd.close();
+        samples.write(stbl);
+        stbl.close();
+        minf.close();
+        mdia.close();
+        trak.close();
+        moov.close();
+        return moov.toByteArray();
+    }
+
+    /**
+     * It writes a handler reference atom.
+     * @param hdlr atom to be written.
+     * @param componentType of the handler.
+     * @param componentSubtype of the handler.
+     * @param name of the handler.
+     * @throws IOException never, it is written in memory.
+     */
+    private static void writeHandler(Atom hdlr, String componentType, String componentSubtype, String name)
+            throws IOException {
+        hdlr.out.writeInt(0);
+        hdlr.out.write(type(componentType));
+        hdlr.out.write(type(componentSubtype));
+        hdlr.out.writeInt(0); // manufacturer
+        hdlr.out.writeInt(0); // flags
+        hdlr.out.writeInt(0); // flags mask
+        hdlr.out.writeByte(name.length());
+        hdlr.out.write(name.getBytes("US-ASCII"));
+        hdlr.close();
+    }
+
+    private static void writeMatrix(DataOutputStream out) throws IOException {
+        for (int value : MATRIX) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * @param out of a header.
+     * @param large if the header is a version 1 one.
+     * @param time to be written, as an unsigned 32 bits int or a 64 bits one.
+     * @throws IOException never, it is written in memory.
+     */
+    private static void writeTime(DataOutputStream out, boolean large, long time) throws IOException {
+        if (large) {
+            out.writeLong(time);
+        } else {
+            out.writeInt((int) time);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param nanos a time (in nanoseconds).
+     * @return the time in media units, without overflowing for long recordings.
+     */
+    static long toMediaUnits(long nanos) {
+        return nanos / 1000000000L * MEDIA_TIMESCALE + nanos % 1000000000L * MEDIA_TIMESCALE / 1000000000L;
+    }
+
+    /**
+     * @param type four characters code.
+     * @return its bytes.
+     */
+    private static byte[] type(String type) {
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) type.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Atom being built in memory. Its size is written when it is closed, into its parent.
+     */
+    private static class Atom {
+
+        private final String type;
+
+        private final Atom parent;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Content of the atom.
+         */
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        Atom(String type) {
+            this(type, null);
+        }
+
+        private Atom(String type, Atom parent) {
+            this.type = type;
+            this.parent = parent;
+        }
+
+        /**
+         * @param childType type of the child atom.
+         * @return a child atom, written into this one when it is closed.
+         */
+        Atom child(String childType) {
+            return new Atom(childType, this);
+        }
+
+        /**
+         * It ends the atom, writing it into its parent.
+         * @throws IOException never, it is written in memory.
+         */
+        void close() throws IOException {
+            if (parent != null) {
+                parent.out.writeInt(8 + bytes.size());
+                parent.out.write(type(type));
+                bytes.writeTo(parent.out);
+            }
+        }
+
+        /**
+         * @return the atom with its header.
+         * @throws IOException never, it is written in memory.
+         */
+        byte[] toByteArray() throws IOException {
+            ByteArrayOutputStream atom = new ByteArrayOutputStream(8 + bytes.size());
+            DataOutputStream header = new DataOutputStream(atom);
+            header.writeInt(8 + bytes.size());
+            header.write(type(type));
+            bytes.writeTo(atom);
+            return atom.toByteArray();
+        }
+    }
+
+    /**
+     * Offsets, sizes and durations of the written frames, one sample per chunk. A frame lasting more than
+     * {@link QuickTimeMuxer#MAX_DURATION} (about 13 hours) is written as several samples sharing its data.
+     */
+    static class SampleTable {
+
+        /**
+         * Duration of the frames without timestamp (in media units).
+         */
+        private final long defaultDuration;
+
+        /**
+         * Duration of the last frame (in media units): until the end of the recording if it is known.
+         */
+        private long lastDuration;
+
+        private long[] offsets = new long[256];
+
+        private int[] sizes = new int[256];
+
+        /**
+         * Start of each frame (in media units).
+         */
+        private long[] starts = new long[256];
+
+        private int count = 0;
+
+        /**
+         * @param frameRate used for the frames without timestamp.
+         */
+        SampleTable(float frameRate) {
+            this.defaultDuration = Math.max(1, Math.round(MEDIA_TIMESCALE / (frameRate > 0 ? frameRate : 1)));
+            this.lastDuration = defaultDuration;
+        }
+
+        /**
+         * It adds a frame.
+         * @param offset of the frame in the file.
+         * @param size of the frame.
+         * @param timestamp of the frame (in nanoseconds) or {@link EncodedFrame#NO_TIMESTAMP}.
+         */
+        void add(long offset, int size, long timestamp) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            long start = count == 0 ? 0 : starts[count - 1] + defaultDuration;
+            if (timestamp != EncodedFrame.NO_TIMESTAMP) {
+                // every frame lasts at least one unit
+                start = Math.max(count == 0 ? 0 : starts[count - 1] + 1, toMediaUnits(timestamp));
+            }
+            offsets[count] = offset;
+            sizes[count] = size;
+            starts[count] = start;
+            count++;
+        }
+
+        /**
+         * It makes the last frame last until the end of the recording.
+         * @param end timestamp of the end of the recording (in nanoseconds) or {@link EncodedFrame#NO_TIMESTAMP} if
+         *            it is unknown, so the last frame lasts 1 / frameRate.
+         */
+        void end(long end) {
+            if (count > 0 && end != EncodedFrame.NO_TIMESTAMP) {
+                lastDuration = Math.max(1, toMediaUnits(end) - starts[count - 1]);
+            }
+        }
+
+        /**
+         * @return the number of frames.
+         */
+        int size() {
+            return count;
+        }
+
+        /**
+         * @param index of a frame.
+         * @return its offset in the file.
+         */
+        long getOffset(int index) {
+            return offsets[index];
+        }
+
+        /**
+         * @param index of a frame.
+         * @return its size.
+         */
+        int getSize(int index) {
+            return sizes[index];
+        }
+
+        /**
+         * @param index of a frame.
+         * @return its duration (in media units).
+         */
+        long getDuration(int index) {
+            return index + 1 < count ? starts[index + 1] - starts[index] : lastDuration;
+        }
+
+        /**
+         * @return the duration of all the frames (in media units), from the first one.
+         */
+        long getDuration() {
+            return count == 0 ? 0 : starts[count - 1] + lastDuration - starts[0];
+        }
+
+        /**
+         * It writes the sample tables: time to sample (run length encoded), sample to chunk, sizes and offsets.
+         * @param stbl sample table atom.
+         * @throws IOException never, it is written in memory.
+         */
+        void write(Atom stbl) throws IOException {
+            ByteArrayOutputStream runs = new ByteArrayOutputStream();
+            DataOutputStream runsOut = new DataOutputStream(runs);
+            int entries = 0;
+            int samples = 0;
+            long runDuration = 0;
+            int run = 0;
+            for (int i = 0; i < count; i++) {
+                long remaining = getDuration(i);
+                while (remaining > 0) {
+                    long duration = Math.min(remaining, MAX_DURATION);
+                    remaining -= duration;
+                    samples++;
+                    if (run > 0 && duration == runDuration) {
+                        run++;
+                        continue;
+                    }
+                    if (run > 0) {
+                        runsOut.writeInt(run);
+                        runsOut.writeInt((int) runDuration);
+                        entries++;
+                    }
+                    runDuration = duration;
+                    run = 1;
+                }
+            }
+            if (run > 0) {
+                runsOut.writeInt(run);
+                runsOut.writeInt((int) runDuration);
+                entries++;
+            }
+            Atom stts = stbl.child("stts");
+            stts.out.writeInt(0);
+            stts.out.writeInt(entries);
+            runs.writeTo(stts.out);
+            stts.close();
+
+            Atom stsc = stbl.child("stsc");
+            stsc.out.writeInt(0);
+            stsc.out.writeInt(1);
+            stsc.out.writeInt(1); // first chunk
+            stsc.out.writeInt(1); // samples per chunk
+            stsc.out.writeInt(1); // sample description
+            stsc.close();
+
+            Atom stsz = stbl.child("stsz");
+            stsz.out.writeInt(0);
+            stsz.out.writeInt(0); // the sizes are different
+            stsz.out.writeInt(samples);
+            for (int i = 0; i < count; i++) {
+                for (int j = getSamples(i); j > 0; j--) {
+                    stsz.out.writeInt(sizes[i]);
+                }
+            }
+            stsz.close();
+
+            boolean large = count > 0 && offsets[count - 1] > 0xFFFFFFFFL;
+            Atom stco = stbl.child(large ? "co64" : "stco");
+            stco.out.writeInt(0);
+            stco.out.writeInt(samples);
+            for (int i = 0; i < count; i++) {
+                for (int j = getSamples(i); j > 0; j--) {
+                    if (large) {
+                        stco.out.writeLong(offsets[i]);
+                    } else {
+                        stco.out.writeInt((int) offsets[i]);
+                    }
+                }
+            }
+            stco.close();
+        }
+
+        /**
+         * @param index of a frame.
+         * @return the number of samples it is written as, each one lasting at most
+         *         {@link QuickTimeMuxer#MAX_DURATION}.
+         */
+        private int getSamples(int index) {
+            return (int) ((getDuration(index) + MAX_DURATION - 1) / MAX_DURATION);
+        }
+    }
+
+}
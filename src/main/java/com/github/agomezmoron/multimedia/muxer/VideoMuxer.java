@@ -0,0 +1,66 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+
+/**
+ * It writes the encoded (JPEG) frames of a recording into a video file.
+ *
+ */
+public interface VideoMuxer {
+
+    /**
+     * It writes a video. If the reader blocks (the frames are still being recorded), the video is written while the
+     * frames arrive and this method returns once the reader runs out of frames.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param frameRate average frame rate, used for the frames without timestamp.
+     * @param frames to be muxed. It is closed once the video is written.
+     * @param video file to be written.
+     * @throws IOException if the frames couldn't be read or the video couldn't be written.
+     */
+    void mux(int width, int height, float frameRate, FrameReader frames, File video) throws IOException;
+
+    /**
+     * It writes a video with all the frames of a store whose recording already stopped. The frames can be read in any
+     * order, so several of them can be written at the same time.
+     * @param width of the frames.
+     * @param height of the frames.
+     * @param frameRate average frame rate, used for the frames without timestamp.
+     * @param frames to be muxed. They are not removed from the store.
+     * @param end timestamp of the end of the recording (in nanoseconds, as the ones of the frames), where the last
+     *            frame ends, or {@link EncodedFrame#NO_TIMESTAMP} if it is unknown.
+     * @param video file to be written.
+     * @throws IOException if the frames couldn't be read or the video couldn't be written.
+     */
+    void mux(int width, int height, float frameRate, FrameStore frames, long end, File video) throws IOException;
+
+}
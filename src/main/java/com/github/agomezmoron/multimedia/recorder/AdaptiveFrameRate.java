@@ -0,0 +1,100 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * It adapts the capture interval to the activity on the screen: as soon as enough of the screen changes the interval
+ * goes down to the one of the maximum frame rate, and while the screen is idle it doubles after every capture until it
+ * reaches the one of the minimum frame rate.
+ *
+ */
+class AdaptiveFrameRate {
+
+    /**
+     * Shortest interval (in nanoseconds), the one of the maximum frame rate.
+     */
+    private final long minInterval;
+
+    /**
+     * Longest interval (in nanoseconds), the one of the minimum frame rate.
+     */
+    private final long maxInterval;
+
+    /**
+     * Fraction of the screen that has to change to consider it active.
+     */
+    private final float threshold;
+
+    /**
+     * Current interval (in nanoseconds).
+     */
+    private long interval;
+
+    /**
+     * Constructor.
+     * @param minFrameRate frames per second while the screen is idle.
+     * @param maxFrameRate frames per second while the screen is active.
+     * @param sensitivity between 0 and 1: with 1 any change is activity, with 0.9 at least a 10% of the screen has to
+     *            change.
+     */
+    AdaptiveFrameRate(float minFrameRate, float maxFrameRate, float sensitivity) {
+        this.minInterval = toInterval(maxFrameRate);
+        this.maxInterval = Math.max(minInterval, toInterval(minFrameRate));
+        this.threshold = 1f - Math.max(0f, Math.min(1f, sensitivity));
+        this.interval = minInterval;
+    }
+
+    /**
+     * @return the current interval (in nanoseconds).
+     */
+    long getInterval() {
+        return interval;
+    }
+
+    /**
+     * It updates the interval with the changes of the last capture.
+     * @param dirtyFraction fraction of the screen that changed, between 0 and 1.
+     * @return the new interval (in nanoseconds).
+     */
+    long update(float dirtyFraction) {
+        if (dirtyFraction > 0 && dirtyFraction >= threshold) {
+            interval = minInterval;
+        } else {
+            interval = Math.min(maxInterval, interval * 2);
+        }
+        return interval;
+    }
+
+    /**
+     * @param frameRate frames per second.
+     * @return the interval between frames (in nanoseconds).
+     */
+    private static long toInterval(float frameRate) {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / frameRate));
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * It detects if a capture is different from the previous one. A hash of a sample of the pixels is compared first, so
+ * most changes are detected without reading the whole capture; only when the sampled hashes are equal the pixels are
+ * compared one by one.
+ * <p>
+ * It can also measure how much of the screen changed, splitting the captures into square tiles and counting the tiles
+ * with at least one different pixel.
+ * <p>
+ * It keeps a reference to the pixels of the previous different capture (not a copy), so they must not be overwritten
+ * while it compares with them.
+ *
+ */
+class ChangeDetector {
+
+    /**
+     * Distance between the sampled pixels. It is a prime number so the samples don't align with the columns.
+     */
+    private static final int SAMPLE_STEP = 61;
+
+    /**
+     * Default side of the tiles (in pixels).
+     */
+    static final int DEFAULT_TILE_SIZE = 32;
+
+    /**
+     * Side of the tiles (in pixels).
+     */
+    private final int tileSize;
+
+    /**
+     * Dirty flags of a row of tiles, reused between captures.
+     */
+    private boolean[] dirtyTiles = new boolean[0];
+
+    /**
+     * Pixels of the previous different capture.
+     */
+    private int[] previous;
+
+    /**
+     * Sampled hash of the previous different capture.
+     */
+    private long previousHash;
+
+    /**
+     * Constructor using the default tile size.
+     */
+    ChangeDetector() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * @param tileSize side of the tiles (in pixels).
+     */
+    ChangeDetector(int tileSize) {
+        this.tileSize = Math.max(1, tileSize);
+    }
+
+    /**
+     * It checks if the capture is different from the previous one. If it is, it becomes the one to compare with.
+     * @param image to be checked.
+     * @return true if the capture changed (or it can't be compared).
+     */
+    boolean hasChanged(BufferedImage image) {
+        int[] pixels = getPixels(image);
+        if (pixels == null) {
+            previous = null;
+            return true;
+        }
+        long hash = sampledHash(pixels);
+        boolean changed = previous == null || hash != previousHash || !Arrays.equals(previous, pixels);
+        if (changed) {
+            previous = pixels;
+            previousHash = hash;
+        }
+        return changed;
+    }
+
+    /**
+     * It measures the fraction of the tiles that are different from the previous capture. If any, the capture becomes
+     * the one to compare with.
+     * @param image to be checked.
+     * @return 0 if the capture didn't change, up to 1 if every tile changed (or the capture can't be compared).
+     */
+    float getDirtyFraction(BufferedImage image) {
+        int[] pixels = getPixels(image);
+        if (pixels == null || previous == null || previous.length != pixels.length) {
+            previous = pixels;
+            return 1f;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        if (dirtyTiles.length != tilesX) {
+            dirtyTiles = new boolean[tilesX];
+        }
+        int dirty = 0;
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            Arrays.fill(dirtyTiles, false);
+            int dirtyInRow = 0;
+            int lastY = Math.min(height, (tileY + 1) * tileSize);
+            // once every tile of the row is dirty the rest of its lines don't need to be compared
+            for (int y = tileY * tileSize; y < lastY && dirtyInRow < tilesX; y++) {
+                int line = y * width;
+                for (int tileX = 0; tileX < tilesX; tileX++) {
+                    if (!dirtyTiles[tileX]) {
+                        int last = line + Math.min(width, (tileX + 1) * tileSize);
+                        for (int i = line + tileX * tileSize; i < last; i++) {
+                            if (pixels[i] != previous[i]) {
+                                dirtyTiles[tileX] = true;
+                                dirtyInRow++;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            dirty += dirtyInRow;
+        }
+        if (dirty > 0) {
+            previous = pixels;
+        }
+        return dirty / (float) (tilesX * tilesY);
+    }
+
+    /**
+     * It forgets the previous capture, so the next one is considered as changed.
+     */
+    void reset() {
+        previous = null;
+    }
+
+    /**
+     * @param image capture.
+     * @return the pixels of the capture or null if they are not stored as one int per pixel, row after row.
+     */
+    static int[] getPixels(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        if (buffer instanceof DataBufferInt && buffer.getNumBanks() == 1
+                && buffer.getSize() == image.getWidth() * image.getHeight()) {
+            return ((DataBufferInt) buffer).getData();
+        }
+        return null;
+    }
+
+    /**
+     * @param pixels to be hashed.
+     * @return the hash of a sample of the pixels.
+     */
+    private static long sampledHash(int[] pixels) {
+        long hash = pixels.length;
+        for (int i = 0; i < pixels.length; i += SAMPLE_STEP) {
+            hash = 31 * hash + pixels[i];
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.agomezmoron.multimedia.recorder.configuration.OverflowPolicy;
+
+/**
+ * Bounded circular buffer between the capture stage and the encoders. When it is full the configured
+ * {@link OverflowPolicy} decides if the producer waits or which element is discarded.
+ *
+ * @param <E> type of the buffered elements.
+ */
+class FrameRingBuffer<E> {
+
+    /**
+     * Slots of the buffer.
+     */
+    private final Object[] items;
+
+    /**
+     * What to do when the buffer is full.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * Index of the oldest element.
+     */
+    private int head = 0;
+
+    /**
+     * Number of buffered elements.
+     */
+    private int count = 0;
+
+    /**
+     * Once closed no more elements are accepted, but the buffered ones can still be taken.
+     */
+    private boolean closed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Constructor.
+     * @param capacity of the buffer.
+     * @param policy to apply when the buffer is full.
+     */
+    FrameRingBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.items = new Object[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * It adds an element applying the overflow policy if the buffer is full.
+     * @param item to be added.
+     * @return the element discarded to honour the policy (it can be the given one) or null if nothing was discarded.
+     * @throws InterruptedException if the thread is interrupted while waiting for room.
+     */
+    E put(E item) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            return enqueue(item, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * It adds an element like {@link #put(Object)}, but it keeps waiting for room if the thread is interrupted (the
+     * interruption is kept), so the element is never lost.
+     * @param item to be added.
+     * @return the element discarded to honour the policy (it can be the given one) or null if nothing was discarded.
+     */
+    E putUninterruptibly(E item) {
+        lock.lock();
+        try {
+            return enqueue(item, false);
+        } catch (InterruptedException e) {
+            // it doesn't wait interruptibly
+            throw new IllegalStateException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * It adds an element applying the overflow policy. The lock must be held.
+     * @param item to be added.
+     * @param interruptible if true, the wait for room ends if the thread is interrupted.
+     * @return the element discarded to honour the policy (it can be the given one) or null if nothing was discarded.
+     * @throws InterruptedException if the thread is interrupted while waiting for room.
+     */
+    private E enqueue(E item, boolean interruptible) throws InterruptedException {
+        E discarded = null;
+        if (!closed && count == items.length) {
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                discarded = item;
+            } else if (policy == OverflowPolicy.DROP_OLDEST) {
+                discarded = dequeue();
+            } else {
+                while (!closed && count == items.length) {
+                    if (interruptible) {
+                        notFull.await();
+                    } else {
+                        notFull.awaitUninterruptibly();
+                    }
+                }
+            }
+        }
+        if (closed) {
+            discarded = item;
+        } else if (discarded != item) {
+            items[(head + count) % items.length] = item;
+            count++;
+            notEmpty.signal();
+        }
+        return discarded;
+    }
+
+    /**
+     * It takes the oldest element, waiting for one if the buffer is empty.
+     * @return the oldest element or null if the buffer is closed and empty.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!closed && count == 0) {
+                notEmpty.await();
+            }
+            E item = null;
+            if (count > 0) {
+                item = dequeue();
+                notFull.signal();
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * It closes the buffer, waking up every waiting thread.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of buffered elements.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * It removes the oldest element. The lock must be held.
+     * @return the removed element.
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E item = (E) items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        return item;
+    }
+
+}
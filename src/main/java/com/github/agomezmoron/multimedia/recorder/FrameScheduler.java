@@ -0,0 +1,182 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed rate scheduler for the capture. The deadlines are computed from the start of the recording (not from the
+ * end of the previous capture), so the time spent capturing doesn't accumulate. When a capture takes longer than an
+ * interval, the deadlines that already passed are counted as missed and skipped instead of being captured in a burst.
+ * The interval can be changed while recording: the next deadline is the previous one plus the new interval. Once it
+ * is stopped, the wait for the next deadline ends right away.
+ *
+ */
+class FrameScheduler {
+
+    /**
+     * Interval between deadlines (in nanoseconds).
+     */
+    private volatile long interval;
+
+    /**
+     * Factor the interval is multiplied by, to slow down the capture.
+     */
+    private volatile double slowdown = 1;
+
+    /**
+     * {@link System#nanoTime()} when the scheduler was started.
+     */
+    private volatile long origin;
+
+    private volatile boolean started = false;
+
+    /**
+     * True once the scheduler was stopped.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Next deadline (in {@link System#nanoTime()} units).
+     */
+    private long nextDeadline;
+
+    /**
+     * Number of deadlines that were skipped because the previous capture was too late.
+     */
+    private volatile long missedDeadlines = 0;
+
+    /**
+     * Constructor.
+     * @param interval between deadlines (in milliseconds).
+     */
+    FrameScheduler(int interval) {
+        this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, interval));
+    }
+
+    /**
+     * @param interval between the following deadlines (in nanoseconds).
+     */
+    void setInterval(long interval) {
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * @param slowdown factor the interval is multiplied by (1 to capture at the normal rate).
+     */
+    void setSlowdown(double slowdown) {
+        this.slowdown = Math.max(1, slowdown);
+    }
+
+    /**
+     * It starts the scheduler: the first deadline is now.
+     */
+    void start() {
+        origin = System.nanoTime();
+        nextDeadline = origin;
+        started = true;
+    }
+
+    /**
+     * It starts the scheduler: the first deadline is now and the following ones are multiples of the interval since
+     * the given epoch, so schedulers with the same interval and epoch have the same deadlines.
+     * @param epoch {@link System#nanoTime()} the deadlines are aligned to.
+     */
+    void start(long epoch) {
+        start();
+        // awaitNextDeadline() adds the interval to the last aligned deadline
+        nextDeadline = origin - (origin - epoch) % interval;
+    }
+
+    /**
+     * It stops the scheduler, waking up the thread waiting for the next deadline.
+     */
+    synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * @return true if the scheduler was stopped.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the nanoseconds elapsed since the scheduler was started (0 if it wasn't started yet).
+     */
+    long elapsed() {
+        return started ? System.nanoTime() - origin : 0;
+    }
+
+    /**
+     * @param nanoTime a {@link System#nanoTime()}.
+     * @return the nanoseconds elapsed since the scheduler was started until the given time (0 if it was before).
+     */
+    long elapsed(long nanoTime) {
+        return Math.max(0, nanoTime - origin);
+    }
+
+    /**
+     * @return the interval between the following deadlines (in nanoseconds).
+     */
+    long getInterval() {
+        return interval;
+    }
+
+    /**
+     * It waits until the next deadline. If it already passed, it returns immediately and the deadlines that passed
+     * completely are counted as missed. It returns as soon as the scheduler is stopped.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void awaitNextDeadline() throws InterruptedException {
+        long interval = (long) (this.interval * slowdown);
+        nextDeadline += interval;
+        long now = System.nanoTime();
+        long lateness = now - nextDeadline;
+        if (lateness >= interval) {
+            long missed = lateness / interval;
+            missedDeadlines += missed;
+            nextDeadline += missed * interval;
+        }
+        if (nextDeadline - now > 0) {
+            synchronized (this) {
+                long wait;
+                while (!stopped && (wait = nextDeadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, wait);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of deadlines that were skipped.
+     */
+    long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+}
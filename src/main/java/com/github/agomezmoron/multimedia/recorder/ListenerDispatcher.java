@@ -0,0 +1,370 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.ListenerStats;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+
+/**
+ * It delivers the frames to one listener from its own thread, so a slow or failing listener doesn't stop the
+ * recording nor the other listeners. The frames wait in a bounded queue; what happens when it is full depends on the
+ * {@link DispatchPolicy}. The pooled buffer of each queued frame is retained until the listener is done with it.
+ * <p>
+ * The thread is started with the first frame and ends with {@link #pause()} once the recording stops, so an idle
+ * dispatcher doesn't keep a thread.
+ *
+ */
+class ListenerDispatcher implements Runnable {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(ListenerDispatcher.class);
+
+    /**
+     * Marker stopping the dispatcher thread.
+     */
+    private static final Delivery CLOSE = new Delivery(null, 0);
+
+    /**
+     * Marker ending the dispatcher thread while the dispatcher is still open.
+     */
+    private static final Delivery PAUSE = new Delivery(null, 0);
+
+    private final VideoRecorderEventListener listener;
+
+    private final DispatchPolicy policy;
+
+    private final int capacity;
+
+    /**
+     * With {@link DispatchPolicy#SAMPLE}, one of every sampleInterval frames is delivered.
+     */
+    private final int sampleInterval;
+
+    /**
+     * The queue itself is unbounded (so {@link #CLOSE} always fits), its capacity is enforced by the permits.
+     */
+    private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<Delivery>();
+
+    private final Semaphore permits;
+
+    /**
+     * Thread delivering the frames (null until the next frame once paused).
+     */
+    private Thread thread;
+
+    /**
+     * Thread ended by the last {@link #pause()}, joined before starting a new one so they never deliver at the same
+     * time.
+     */
+    private Thread paused;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Number of frames sent to the dispatcher, to sample them.
+     */
+    private long offered = 0;
+
+    /**
+     * Number of frames queued or being delivered.
+     */
+    private int pending = 0;
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong totalLag = new AtomicLong();
+
+    private final AtomicLong maxLag = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param listener to be notified.
+     * @param policy to apply when the queue is full.
+     * @param capacity of the queue (1 with {@link DispatchPolicy#COALESCE}).
+     * @param sampleInterval with {@link DispatchPolicy#SAMPLE}, one of every sampleInterval frames is delivered.
+     */
+    ListenerDispatcher(VideoRecorderEventListener listener, DispatchPolicy policy, int capacity, int sampleInterval) {
+        this.listener = listener;
+        this.policy = policy != null ? policy : DispatchPolicy.BLOCK;
+        this.capacity = this.policy == DispatchPolicy.COALESCE ? 1 : Math.max(1, capacity);
+        this.sampleInterval = Math.max(1, sampleInterval);
+        this.permits = new Semaphore(this.capacity);
+    }
+
+    /**
+     * @return the listener.
+     */
+    VideoRecorderEventListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the policy applied when the queue is full.
+     */
+    DispatchPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the capacity of the queue.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the sample interval.
+     */
+    int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * It queues a frame for the listener, applying the policy. It is called by a single thread (the writer of the
+     * recording owning the dispatcher).
+     * @param event with the frame.
+     * @throws InterruptedException if the thread is interrupted while waiting for room.
+     */
+    void dispatch(VideoRecorderEventObject event) throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        if (policy == DispatchPolicy.SAMPLE && offered++ % sampleInterval != 0) {
+            return;
+        }
+        startThread();
+        switch (policy) {
+        case DROP:
+            if (!permits.tryAcquire()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            break;
+        case COALESCE:
+            while (!permits.tryAcquire()) {
+                // the waiting frame is replaced, unless the dispatcher has just taken it
+                Delivery replaced = queue.poll();
+                if (replaced != null) {
+                    drop(replaced);
+                } else {
+                    Thread.yield();
+                }
+            }
+            break;
+        default:
+            permits.acquire();
+            break;
+        }
+        if (closed) {
+            permits.release();
+            return;
+        }
+        event.getScreenCapture().getFrameBuffer().retain();
+        synchronized (this) {
+            pending++;
+        }
+        queue.add(new Delivery(event, System.nanoTime()));
+    }
+
+    /**
+     * It waits until every queued frame has been delivered.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    synchronized void awaitIdle() throws InterruptedException {
+        while (pending > 0 && !closed) {
+            wait();
+        }
+    }
+
+    /**
+     * It ends the thread of the dispatcher once the queued frames have been delivered. The next frame starts a new
+     * one.
+     */
+    void pause() {
+        synchronized (this) {
+            if (thread == null || closed) {
+                return;
+            }
+            paused = thread;
+            thread = null;
+        }
+        queue.add(PAUSE);
+    }
+
+    /**
+     * It stops the dispatcher, discarding the queued frames. The frame being delivered (if any) is completed.
+     */
+    void close() {
+        closed = true;
+        // wake up a dispatch waiting for room
+        permits.release(capacity);
+        Delivery delivery;
+        while ((delivery = queue.poll()) != null) {
+            drop(delivery);
+        }
+        queue.add(CLOSE);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return a snapshot of the statistics.
+     */
+    ListenerStats getStats() {
+        int queued;
+        synchronized (this) {
+            queued = pending;
+        }
+        return new ListenerStats(delivered.get(), dropped.get(), failed.get(), queued, totalLag.get(),
+                maxLag.get());
+    }
+
+    @Override
+    public void run() {
+        Delivery delivery = null;
+        try {
+            while ((delivery = queue.take()) != CLOSE && delivery != PAUSE) {
+                permits.release();
+                deliver(delivery);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!closed && delivery != PAUSE) {
+                // the thread ended unexpectedly: the recording must not wait for room in its queue
+                close();
+            }
+        }
+    }
+
+    /**
+     * It starts the thread of the dispatcher if it isn't running, once the previous one (if any) has ended.
+     */
+    private void startThread() throws InterruptedException {
+        Thread previous;
+        Thread started;
+        synchronized (this) {
+            if (thread != null) {
+                return;
+            }
+            previous = paused;
+            paused = null;
+            started = new Thread(this, "screen-recorder-listener-" + listener.getClass().getSimpleName());
+            started.setDaemon(true);
+            thread = started;
+        }
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    thread = null;
+                    paused = previous;
+                }
+                throw e;
+            }
+        }
+        started.start();
+    }
+
+    /**
+     * It delivers a frame to the listener and releases it. Whatever the listener throws (ex: the {@link AssertionError}
+     * of a failed test) is counted as a failure and the next frames are still delivered.
+     */
+    private void deliver(Delivery delivery) {
+        long lag = System.nanoTime() - delivery.queuedAt;
+        totalLag.addAndGet(lag);
+        long max;
+        while (lag > (max = maxLag.get()) && !maxLag.compareAndSet(max, lag)) {
+            // retry
+        }
+        try {
+            listener.frameAdded(delivery.event);
+            delivered.incrementAndGet();
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            LOGGER.error("The listener " + listener + " failed processing the frame "
+                    + delivery.event.getScreenCapture().getSequence(), e);
+        } finally {
+            finish(delivery);
+        }
+    }
+
+    /**
+     * It discards a queued frame.
+     */
+    private void drop(Delivery delivery) {
+        permits.release();
+        dropped.incrementAndGet();
+        finish(delivery);
+    }
+
+    /**
+     * It releases a frame that left the queue.
+     */
+    private void finish(Delivery delivery) {
+        delivery.event.getScreenCapture().getFrameBuffer().release();
+        synchronized (this) {
+            if (--pending == 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A frame waiting for the listener.
+     */
+    private static final class Delivery {
+
+        private final VideoRecorderEventObject event;
+
+        /**
+         * {@link System#nanoTime()} when the frame was queued.
+         */
+        private final long queuedAt;
+
+        private Delivery(VideoRecorderEventObject event, long queuedAt) {
+            this.event = event;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+}
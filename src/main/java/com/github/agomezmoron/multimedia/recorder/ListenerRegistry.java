@@ -0,0 +1,143 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.ListenerStats;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+
+/**
+ * Thread safe registry of the listeners of a recording, each one with its {@link ListenerDispatcher}. Listeners can be
+ * added and removed while recording. Each recording has its own registry, so its writer is the only thread sending
+ * frames to the dispatchers.
+ *
+ */
+class ListenerRegistry {
+
+    /**
+     * Default number of frames that can wait for a listener.
+     */
+    static final int DEFAULT_QUEUE_SIZE = 8;
+
+    private final List<ListenerDispatcher> dispatchers = new CopyOnWriteArrayList<ListenerDispatcher>();
+
+    /**
+     * It adds a listener.
+     * @param listener to be notified.
+     * @param policy to apply when the listener is slower than the recording.
+     * @param queueSize number of frames that can wait for the listener.
+     * @param sampleInterval with {@link DispatchPolicy#SAMPLE}, one of every sampleInterval frames is delivered.
+     */
+    void add(VideoRecorderEventListener listener, DispatchPolicy policy, int queueSize, int sampleInterval) {
+        dispatchers.add(new ListenerDispatcher(listener, policy, queueSize, sampleInterval));
+    }
+
+    /**
+     * It removes a listener. The frames waiting for it are discarded.
+     * @param listener to be removed.
+     * @return true if the listener was registered.
+     */
+    boolean remove(VideoRecorderEventListener listener) {
+        ListenerDispatcher dispatcher = find(listener);
+        if (dispatcher != null && dispatchers.remove(dispatcher)) {
+            dispatcher.close();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a registry with the same listeners and policies, each one with its own dispatcher (and statistics).
+     */
+    ListenerRegistry copy() {
+        ListenerRegistry copy = new ListenerRegistry();
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            copy.add(dispatcher.getListener(), dispatcher.getPolicy(), dispatcher.getCapacity(),
+                    dispatcher.getSampleInterval());
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if there are no listeners.
+     */
+    boolean isEmpty() {
+        return dispatchers.isEmpty();
+    }
+
+    /**
+     * It sends a frame to every listener.
+     * @param event with the frame.
+     * @throws InterruptedException if the thread is interrupted while waiting for room in a queue.
+     */
+    void dispatch(VideoRecorderEventObject event) throws InterruptedException {
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            dispatcher.dispatch(event);
+        }
+    }
+
+    /**
+     * It waits until every listener got its queued frames.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void awaitIdle() throws InterruptedException {
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            dispatcher.awaitIdle();
+        }
+    }
+
+    /**
+     * It ends the threads of the listeners once their queued frames have been delivered (the recording stopped). They
+     * are started again with the next frame.
+     */
+    void pause() {
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            dispatcher.pause();
+        }
+    }
+
+    /**
+     * @param listener registered.
+     * @return the statistics of the listener or null if it isn't registered.
+     */
+    ListenerStats getStats(VideoRecorderEventListener listener) {
+        ListenerDispatcher dispatcher = find(listener);
+        return dispatcher != null ? dispatcher.getStats() : null;
+    }
+
+    private ListenerDispatcher find(VideoRecorderEventListener listener) {
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            if (dispatcher.getListener() == listener) {
+                return dispatcher;
+            }
+        }
+        return null;
+    }
+
+}
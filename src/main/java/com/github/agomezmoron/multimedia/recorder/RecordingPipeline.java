@@ -0,0 +1,742 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.github.agomezmoron.multimedia.capture.AreaAveragingScaler;
+import com.github.agomezmoron.multimedia.capture.FrameBuffer;
+import com.github.agomezmoron.multimedia.capture.FramePool;
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.capture.ScreenCapture;
+import com.github.agomezmoron.multimedia.encoder.StripedJpegEncoder;
+import com.github.agomezmoron.multimedia.recorder.metrics.RecordingMetrics;
+import com.github.agomezmoron.multimedia.recorder.metrics.RecordingSummary;
+import com.github.agomezmoron.multimedia.recorder.preview.PreviewStream;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+import com.github.agomezmoron.multimedia.store.DirectoryFrameStore;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.LiveFrameQueue;
+import com.github.agomezmoron.multimedia.store.SpoolFrameStore;
+import com.github.agomezmoron.multimedia.store.SpoolLease;
+
+/**
+ * Staged recording pipeline: a capture thread that only grabs the screen into a {@link FrameRingBuffer}, a pool of
+ * encoder threads that compress the frames to JPEG and a writer thread that stores them in capture order. This way
+ * the capture cadence doesn't depend on the encoding and disk times. The big frames (several screens) are also split
+ * into stripes encoded in parallel by a fork-join pool, so a single frame doesn't take a whole interval.
+ *
+ */
+class RecordingPipeline {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(RecordingPipeline.class);
+
+    /**
+     * End of stream mark for the writer.
+     */
+    private static final FrameTask END_OF_FRAMES = new FrameTask(null);
+
+    /**
+     * Maximum time a frame waits for room in the spool quota (in milliseconds).
+     */
+    private static final long SPOOL_WAIT_TIMEOUT = 5000;
+
+    /**
+     * Settings of the recording.
+     */
+    private final RecordingSettings settings;
+
+    /**
+     * Area of the screen to be captured.
+     */
+    private final Rectangle area;
+
+    /**
+     * Size of the recorded frames.
+     */
+    private final Dimension frameSize;
+
+    /**
+     * Scaler reducing the captured area to the frame size. It is null if the frames have the size of the area.
+     */
+    private final AreaAveragingScaler scaler;
+
+    /**
+     * Source of the frames (usually the screen), shared with the other recordings.
+     */
+    private final FrameSource grabber;
+
+    /**
+     * Interval between captures (in milliseconds).
+     */
+    private final int captureInterval;
+
+    /**
+     * Scheduler of the captures.
+     */
+    private final FrameScheduler scheduler;
+
+    /**
+     * Store of the encoded frames. It can be null if they are only muxed live.
+     */
+    private final FrameStore store;
+
+    /**
+     * Queue feeding the live muxer. It can be null if the video is created when the recording stops.
+     */
+    private final LiveFrameQueue live;
+
+    /**
+     * Accounting of the disk used by the recording. It can be null if it isn't limited.
+     */
+    private final SpoolLease spool;
+
+    /**
+     * If true, the store writes the frames to disk.
+     */
+    private final boolean diskStore;
+
+    /**
+     * Live preview the written frames are published to. It can be null if there is none.
+     */
+    private final PreviewStream preview;
+
+    /**
+     * Listeners to be notified for each stored frame.
+     */
+    private final ListenerRegistry listeners;
+
+    /**
+     * Session of the recording, the source of the events of the listeners.
+     */
+    private final RecordingSession session;
+
+    /**
+     * Frames waiting to be encoded.
+     */
+    private final FrameRingBuffer<FrameTask> captured;
+
+    /**
+     * Encoded frames waiting to be written.
+     */
+    private final BlockingQueue<FrameTask> encoded;
+
+    /**
+     * Sequence numbers of the frames that won't reach the writer (discarded or failed).
+     */
+    private final Set<Long> skipped = new ConcurrentSkipListSet<Long>();
+
+    /**
+     * Sequence number of the next frame to be queued (only the capture stage changes it).
+     */
+    private volatile long nextSequence = 0;
+
+    /**
+     * Sequence number of the next frame to be written (only the writer stage changes it).
+     */
+    private volatile long writtenSequence = 0;
+
+    /**
+     * Monitor notified when the writer makes progress.
+     */
+    private final Object writeProgress = new Object();
+
+    /**
+     * Duration of the recording (in nanoseconds), set when the capture ends.
+     */
+    private volatile long duration = 0;
+
+    /**
+     * Pool of the buffers of the captured frames.
+     */
+    private final FramePool pool;
+
+    /**
+     * Detector of the changes between captures. It can be null if the captures are not compared.
+     */
+    private final ChangeDetector changeDetector;
+
+    /**
+     * If true, the captures equal to the previous one are not encoded.
+     */
+    private final boolean skipDuplicates;
+
+    /**
+     * Controller of the capture interval. It can be null if the interval is fixed.
+     */
+    private final AdaptiveFrameRate frameRate;
+
+    /**
+     * Counters and latencies of the stages.
+     */
+    private final RecordingMetrics metrics = new RecordingMetrics();
+
+    /**
+     * Summary of the recording, set when its video was created.
+     */
+    private volatile RecordingSummary summary;
+
+    private final Thread captureThread;
+
+    private final Thread[] encoderThreads;
+
+    /**
+     * Encoder of the frames in stripes. It is null if the frames are encoded whole.
+     */
+    private final StripedJpegEncoder stripedEncoder;
+
+    private final Thread writerThread;
+
+    private volatile boolean running = false;
+
+    /**
+     * Constructor.
+     * @param settings of the recording: area, interval, queues, encoding...
+     * @param grabber source of the frames.
+     * @param store where the frames will be stored or null if they don't have to be stored.
+     * @param live queue feeding the live muxer or null if the video is created afterwards.
+     * @param spool accounting of the disk used by the recording, or null if it isn't limited.
+     * @param preview live preview of the recording, or null if there is none.
+     * @param listeners to be notified for each frame.
+     * @param session of the recording, the source of the events of the listeners.
+     */
+    RecordingPipeline(RecordingSettings settings, FrameSource grabber, FrameStore store, LiveFrameQueue live,
+            SpoolLease spool, PreviewStream preview, ListenerRegistry listeners, RecordingSession session) {
+        this.settings = settings;
+        this.area = settings.getArea();
+        this.frameSize = settings.getFrameSize();
+        this.scaler = frameSize.width != area.width || frameSize.height != area.height ? new AreaAveragingScaler(
+                area.width, area.height, frameSize.width, frameSize.height) : null;
+        this.grabber = grabber;
+        this.captureInterval = settings.getCaptureInterval();
+        this.scheduler = new FrameScheduler(captureInterval);
+        this.frameRate = settings.wantToAdaptFrameRate() ? new AdaptiveFrameRate(settings.getMinFrameRate(),
+                settings.getMaxFrameRate(), settings.getAdaptiveSensitivity()) : null;
+        if (frameRate != null) {
+            this.scheduler.setInterval(frameRate.getInterval());
+        }
+        this.store = store;
+        this.live = live;
+        this.spool = spool;
+        this.diskStore = store instanceof DirectoryFrameStore || store instanceof SpoolFrameStore;
+        this.preview = preview;
+        this.listeners = listeners;
+        this.session = session;
+        int queueDepth = settings.getQueueDepth();
+        int encoders = settings.getEncoderThreads();
+        // enough buffers for the frames waiting in both queues, the ones being encoded and the compared one
+        this.pool = new FramePool(frameSize.width, frameSize.height, 2 * queueDepth + encoders + 2, encoders + 2);
+        this.skipDuplicates = settings.wantToSkipDuplicateFrames();
+        this.changeDetector = skipDuplicates || frameRate != null ? new ChangeDetector() : null;
+        this.captured = new FrameRingBuffer<FrameTask>(queueDepth, settings.getOverflowPolicy());
+        this.encoded = new ArrayBlockingQueue<FrameTask>(queueDepth);
+        this.captureThread = new Thread(new CaptureStage(), "screen-recorder-capture");
+        this.encoderThreads = new Thread[encoders];
+        for (int i = 0; i < encoders; i++) {
+            this.encoderThreads[i] = new Thread(new EncoderStage(), "screen-recorder-encoder-" + i);
+        }
+        this.writerThread = new Thread(new WriterStage(), "screen-recorder-writer");
+        if (settings.wantToEncodeInStripes()
+                && (long) frameSize.width * frameSize.height >= StripedJpegEncoder.MIN_STRIPED_PIXELS) {
+            this.stripedEncoder = new StripedJpegEncoder(StripePool.get(settings.getEncoderParallelism()),
+                    settings.getJpegQuality(), settings.getChromaSubsampling());
+        } else {
+            this.stripedEncoder = null;
+        }
+    }
+
+    /**
+     * It starts all the stages.
+     */
+    void start() {
+        running = true;
+        metrics.started();
+        writerThread.start();
+        for (Thread encoder : encoderThreads) {
+            encoder.start();
+        }
+        captureThread.start();
+    }
+
+    /**
+     * It stops the capture and waits until every captured frame has been written and delivered to the listeners.
+     */
+    void stop() {
+        running = false;
+        // the capture isn't interrupted: it ends once the frame being captured is queued, so it isn't lost
+        scheduler.stop();
+        try {
+            captureThread.join();
+            captured.close();
+            for (Thread encoder : encoderThreads) {
+                encoder.join();
+            }
+            encoded.put(END_OF_FRAMES);
+            writerThread.join();
+            listeners.awaitIdle();
+            listeners.pause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the frames to be written", e);
+        }
+        metrics.missedDeadlines(scheduler.getMissedDeadlines());
+        metrics.ended();
+        LOGGER.debug(pool.getAllocated() + " frame buffers allocated");
+    }
+
+    /**
+     * It sets the summary of the recording once its video was created (or discarded).
+     * @param video path of the video, or null if it wasn't created.
+     * @param stopLatency time from the stop until the video was created (in nanoseconds).
+     * @return the summary.
+     */
+    RecordingSummary finish(String video, long stopLatency) {
+        metrics.videoCreated(stopLatency);
+        summary = metrics.getSummary(video, duration);
+        return summary;
+    }
+
+    /**
+     * @return the summary of the recording: the final one if it finished, the current state otherwise.
+     */
+    RecordingSummary getSummary() {
+        RecordingSummary summary = this.summary;
+        return summary != null ? summary : metrics.getSummary(null, running ? scheduler.elapsed() : duration);
+    }
+
+    /**
+     * @return the number of written frames.
+     */
+    int getWrittenFrames() {
+        return (int) metrics.getWrittenFrames();
+    }
+
+    /**
+     * It waits until the frames queued so far have been written (or skipped).
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return true if they were written, false if the timeout expired.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    boolean awaitWritten(long timeout) throws InterruptedException {
+        long target = nextSequence;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (writeProgress) {
+            while (writtenSequence < target && writerThread.isAlive()) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0) {
+                    return false;
+                }
+                writeProgress.wait(wait);
+            }
+        }
+        return writtenSequence >= target;
+    }
+
+    /**
+     * @return the nanoseconds elapsed since the capture started, the time base of the frame timestamps.
+     */
+    long getElapsed() {
+        return scheduler.elapsed();
+    }
+
+    /**
+     * @return the duration of the recording (in nanoseconds).
+     */
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the number of capture deadlines that were missed.
+     */
+    long getMissedDeadlines() {
+        return scheduler.getMissedDeadlines();
+    }
+
+    /**
+     * @return true if the capture is still running.
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of screen captures.
+     */
+    long getCapturedFrames() {
+        return metrics.getCapturedFrames();
+    }
+
+    /**
+     * @return the number of captures skipped because they were equal to the previous one.
+     */
+    long getDuplicateFrames() {
+        return metrics.getDuplicateFrames();
+    }
+
+    /**
+     * @return the number of frames discarded because of the overflow policy.
+     */
+    long getDroppedFrames() {
+        return metrics.getDroppedFrames();
+    }
+
+    /**
+     * It marks a frame as lost so the writer doesn't wait for it.
+     * @param task lost.
+     */
+    private void skip(FrameTask task) {
+        skipped.add(task.sequence);
+        task.capture.release();
+    }
+
+    /**
+     * Capture stage: it grabs the screen and queues the frames.
+     */
+    private class CaptureStage implements Runnable {
+
+        /**
+         * Last changed frame, retained while the following captures are compared with it.
+         */
+        private FrameBuffer previous;
+
+        @Override
+        public void run() {
+            // timestamp of the last capture skipped as duplicate: the previous frame is queued again with it at the
+            // end, so the video lasts until the end
+            long lastDuplicate = -1;
+            // the area is grabbed here before being reduced (only with a scaler)
+            FrameBuffer grabbed = scaler != null ? FrameBuffer.wrap(new BufferedImage(area.width, area.height,
+                    BufferedImage.TYPE_INT_RGB)) : null;
+            grabber.register(area);
+            try {
+                scheduler.start(grabber.getEpoch());
+                do {
+                    // the grabbed image is garbage right away: only pooled buffers wait in the queues
+                    FrameBuffer buffer = pool.lease();
+                    // a capture taken for another recording up to half an interval ago is reused
+                    long timestamp;
+                    long begin = System.nanoTime();
+                    if (scaler == null) {
+                        timestamp = scheduler.elapsed(grabber.grab(area, buffer, scheduler.getInterval() / 2));
+                    } else {
+                        timestamp = scheduler.elapsed(grabber.grab(area, grabbed, scheduler.getInterval() / 2));
+                        scaler.scale(grabbed, buffer);
+                    }
+                    metrics.captured(System.nanoTime() - begin);
+                    // a duplicate is counted when the next capture arrives: the last one is queued again at the end
+                    if (lastDuplicate >= 0) {
+                        metrics.duplicate();
+                    }
+                    if (!hasChanged(buffer) && skipDuplicates) {
+                        lastDuplicate = timestamp;
+                        buffer.release();
+                    } else {
+                        lastDuplicate = -1;
+                        queue(new ScreenCapture(buffer, nextSequence++, timestamp));
+                    }
+                    if (spool != null) {
+                        // the capture slows down as the disk quota is approached
+                        scheduler.setSlowdown(spool.getSlowdown());
+                    }
+                    scheduler.awaitNextDeadline();
+                } while (running);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("The capture was interrupted");
+            } catch (Exception e) {
+                LOGGER.error("An error occurred capturing the screen", e);
+            } finally {
+                duration = scheduler.elapsed();
+                running = false;
+                if (lastDuplicate >= 0 && previous != null) {
+                    // it is queued even if the thread was interrupted, its sequence can't be left as a gap
+                    queued(captured.putUninterruptibly(new FrameTask(new ScreenCapture(previous.retain(),
+                            nextSequence++, lastDuplicate))));
+                }
+                if (previous != null) {
+                    previous.release();
+                    previous = null;
+                }
+                captured.close();
+                grabber.unregister(area);
+            }
+        }
+
+        /**
+         * It compares a capture with the previous one and, if the frame rate is adaptive, it updates the interval
+         * until the next capture.
+         * @param buffer captured.
+         * @return true if the capture changed (or it wasn't compared).
+         */
+        private boolean hasChanged(FrameBuffer buffer) {
+            if (changeDetector == null) {
+                return true;
+            }
+            boolean changed;
+            if (frameRate == null) {
+                changed = changeDetector.hasChanged(buffer.getImage());
+            } else {
+                float dirtyFraction = changeDetector.getDirtyFraction(buffer.getImage());
+                scheduler.setInterval(frameRate.update(dirtyFraction));
+                changed = dirtyFraction > 0;
+            }
+            if (changed) {
+                // the detector compares with its pixels from now on, so they can't be reused yet
+                if (previous != null) {
+                    previous.release();
+                }
+                previous = buffer.retain();
+            }
+            return changed;
+        }
+
+        /**
+         * It queues a capture to be encoded, applying the overflow policy.
+         * @param capture to be queued.
+         * @throws InterruptedException if the thread is interrupted while waiting for room.
+         */
+        private void queue(ScreenCapture capture) throws InterruptedException {
+            queued(captured.put(new FrameTask(capture)));
+        }
+
+        /**
+         * It counts a frame that was queued.
+         * @param discarded frame discarded by the overflow policy, or null.
+         */
+        private void queued(FrameTask discarded) {
+            if (discarded != null) {
+                metrics.dropped();
+                skip(discarded);
+            }
+            metrics.captureQueueDepth(captured.size());
+        }
+    }
+
+    /**
+     * Encoder stage: it compresses the queued frames.
+     */
+    private class EncoderStage implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                FrameTask task;
+                while ((task = captured.take()) != null) {
+                    try {
+                        long begin = System.nanoTime();
+                        if (stripedEncoder != null) {
+                            task.jpeg = stripedEncoder.encode(task.capture.getImage());
+                        } else {
+                            task.jpeg = settings.getJpegEncoder().encode(task.capture.getImage());
+                        }
+                        metrics.encoded(System.nanoTime() - begin);
+                        encoded.put(task);
+                        metrics.encodedQueueDepth(encoded.size());
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        LOGGER.error("An error occurred encoding the frame " + task.sequence, e);
+                        metrics.failed();
+                        skip(task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writer stage: it writes the encoded frames in capture order and notifies the listeners.
+     */
+    private class WriterStage implements Runnable {
+
+        /**
+         * Encoded frames that arrived before their predecessors.
+         */
+        private final SortedMap<Long, FrameTask> pending = new TreeMap<Long, FrameTask>();
+
+        /**
+         * If true, the last frame didn't fit in the spool quota: the next ones don't wait for room until one fits.
+         */
+        private boolean spoolFull = false;
+
+        @Override
+        public void run() {
+            boolean ended = false;
+            try {
+                while (!ended) {
+                    FrameTask task = encoded.poll(captureInterval, TimeUnit.MILLISECONDS);
+                    if (task == END_OF_FRAMES) {
+                        ended = true;
+                    } else if (task != null) {
+                        pending.put(task.sequence, task);
+                        metrics.encodedQueueDepth(encoded.size());
+                    }
+                    writeReadyFrames(ended);
+                }
+                if (live != null) {
+                    // the capture already ended, so its duration is known
+                    live.finish(duration);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * It writes every frame whose predecessors have already been written or skipped.
+         * @param flush if true, the gaps are ignored and every pending frame is written.
+         */
+        private void writeReadyFrames(boolean flush) throws InterruptedException {
+            long next = writtenSequence;
+            while (true) {
+                if (skipped.remove(next)) {
+                    next++;
+                } else if (!pending.isEmpty() && (pending.firstKey() == next || flush)) {
+                    FrameTask task = pending.remove(pending.firstKey());
+                    next = task.sequence + 1;
+                    write(task);
+                } else {
+                    break;
+                }
+            }
+            if (next != writtenSequence) {
+                writtenSequence = next;
+                synchronized (writeProgress) {
+                    writeProgress.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * It waits until there is room for a frame in the spool quota, for the store and the live video. Once a frame
+         * didn't fit, the next ones only take the room that is already free.
+         * @param frame to be written.
+         * @return true if it can be written.
+         */
+        private boolean reserve(EncodedFrame frame) throws InterruptedException {
+            if (spool == null) {
+                return true;
+            }
+            int length = frame.getLength();
+            // once stopped, the frames still queued don't delay the video
+            long timeout = spoolFull || !running ? 0 : SPOOL_WAIT_TIMEOUT;
+            boolean reserved = (!diskStore || spool.reserveFrames(length, timeout))
+                    && (live == null || spool.reserveVideo(length, timeout));
+            if (!reserved && !spoolFull) {
+                LOGGER.warn("The spool quota is full: the frames are discarded until there is room");
+            }
+            spoolFull = !reserved;
+            return reserved;
+        }
+
+        /**
+         * It writes a frame and notifies the listeners.
+         * @param task to be written.
+         */
+        private void write(FrameTask task) throws InterruptedException {
+            EncodedFrame frame = new EncodedFrame(task.sequence, task.capture.getTimestamp(), task.jpeg);
+            if (!reserve(frame)) {
+                metrics.dropped();
+                task.capture.release();
+                return;
+            }
+            try {
+                long begin = System.nanoTime();
+                if (store != null) {
+                    store.append(frame);
+                }
+                if (live != null) {
+                    live.add(frame);
+                }
+                metrics.written(frame.getLength(), System.nanoTime() - begin);
+                if (preview != null) {
+                    // the viewers get the JPEG of the video, it isn't encoded again
+                    preview.publish(task.jpeg);
+                }
+            } catch (IOException e) {
+                LOGGER.error("An error occurred writing the frame " + task.sequence, e);
+                metrics.failed();
+                task.capture.release();
+                return;
+            }
+            try {
+                if (!listeners.isEmpty()) {
+                    long begin = System.nanoTime();
+                    // the listeners serializing the capture reuse its JPEG
+                    task.capture.setEncoded(task.jpeg);
+                    listeners.dispatch(new VideoRecorderEventObject(session, task.capture));
+                    metrics.dispatched(System.nanoTime() - begin);
+                }
+            } finally {
+                // the dispatchers retain the buffer while the frame waits for the listeners
+                task.capture.release();
+            }
+        }
+    }
+
+    /**
+     * A frame moving through the pipeline.
+     */
+    private static final class FrameTask {
+
+        /**
+         * Position of the frame in the capture order.
+         */
+        private final long sequence;
+
+        private final ScreenCapture capture;
+
+        /**
+         * Encoded frame, set by the encoder stage.
+         */
+        private byte[] jpeg;
+
+        private FrameTask(ScreenCapture capture) {
+            this.sequence = capture != null ? capture.getSequence() : -1;
+            this.capture = capture;
+        }
+    }
+
+}
@@ -0,0 +1,648 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.muxer.JmfMuxer;
+import com.github.agomezmoron.multimedia.muxer.QuickTimeMuxer;
+import com.github.agomezmoron.multimedia.muxer.VideoMuxer;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.MuxerType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration;
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.ListenerStats;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.metrics.RecordingSummary;
+import com.github.agomezmoron.multimedia.recorder.preview.PreviewServer;
+import com.github.agomezmoron.multimedia.recorder.preview.PreviewStream;
+import com.github.agomezmoron.multimedia.store.DirectoryFrameStore;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.LiveFrameQueue;
+import com.github.agomezmoron.multimedia.store.MemoryFrameStore;
+import com.github.agomezmoron.multimedia.store.RingFrameStore;
+import com.github.agomezmoron.multimedia.store.SpoolFrameStore;
+import com.github.agomezmoron.multimedia.store.SpoolLease;
+import com.github.agomezmoron.multimedia.store.SpoolManager;
+
+/**
+ * A recording of a video with its own settings, so several videos (of the same or different areas) can be recorded at
+ * the same time, e.g. by tests running in parallel. The screen is grabbed once per tick for all the sessions and each
+ * one crops its area.
+ *
+ */
+public class RecordingSession {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(RecordingSession.class);
+
+    /**
+     * Maximum time a clip waits for its frames to be written (in milliseconds).
+     */
+    private static final long CLIP_WAIT_TIMEOUT = 5000;
+
+    /**
+     * Settings snapshot of the session.
+     */
+    private final RecordingSettings settings;
+
+    /**
+     * Video name.
+     */
+    private final String videoName;
+
+    /**
+     * Listeners notified of the frames of the session.
+     */
+    private final ListenerRegistry listeners;
+
+    /**
+     * Status of the session.
+     */
+    private boolean recording = false;
+
+    /**
+     * Associated frames.
+     */
+    private FrameStore frames;
+
+    /**
+     * Pipeline capturing and storing the frames of the video.
+     */
+    private RecordingPipeline pipeline;
+
+    /**
+     * Video being muxed while recording (only with live encoding).
+     */
+    private FutureTask<String> liveVideo;
+
+    /**
+     * Accounting of the disk used by the recording in the temp directory (null if it couldn't be started).
+     */
+    private SpoolLease spool;
+
+    /**
+     * Live preview of the recording (null if there is none).
+     */
+    private PreviewStream preview;
+
+    /**
+     * Constructor using a snapshot of the current {@link VideoRecorderConfiguration}.
+     * @param videoName with the output of the video.
+     */
+    public RecordingSession(String videoName) {
+        this(videoName, RecordingSettings.fromConfiguration());
+    }
+
+    /**
+     * Constructor.
+     * @param videoName with the output of the video.
+     * @param settings of the recording.
+     */
+    public RecordingSession(String videoName, RecordingSettings settings) {
+        this(videoName, settings, new ListenerRegistry());
+    }
+
+    /**
+     * Constructor.
+     * @param videoName with the output of the video.
+     * @param settings of the recording.
+     * @param listeners notified of the frames.
+     */
+    RecordingSession(String videoName, RecordingSettings settings, ListenerRegistry listeners) {
+        this.videoName = videoName.endsWith(".mov") ? videoName : videoName + ".mov";
+        this.settings = settings;
+        this.listeners = listeners;
+    }
+
+    /**
+     * It creates a session for each screen, recording the whole screen, so each one gets its own video instead of a
+     * single video of the whole virtual desktop. The sessions share the captures like any other sessions running at
+     * the same time.
+     * @param videoName with the output of the videos: each one gets the number of its screen (videoName_screen1.mov,
+     *            videoName_screen2.mov...).
+     * @param settings of the recordings (their area is replaced by the bounds of each screen).
+     * @return the sessions, not started yet (none if there are no screens).
+     */
+    public static List<RecordingSession> forEachScreen(String videoName, RecordingSettings settings) {
+        String baseName = videoName.endsWith(".mov") ? videoName.substring(0, videoName.length() - 4) : videoName;
+        List<RecordingSession> sessions = new ArrayList<RecordingSession>();
+        for (Rectangle screen : VideoRecorderConfiguration.getScreenBounds()) {
+            sessions.add(new RecordingSession(baseName + "_screen" + (sessions.size() + 1), settings.withArea(screen)));
+        }
+        return sessions;
+    }
+
+    /**
+     * @return the settings of the session.
+     */
+    public RecordingSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return the name of the video.
+     */
+    public String getVideoName() {
+        return videoName;
+    }
+
+    /**
+     * @return true if the session is recording.
+     */
+    public synchronized boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * It starts recording (if it wasn't started before).
+     * @throws IllegalStateException if the area to be recorded is empty, or if the videos are muxed by JMF and it
+     *         isn't in the classpath.
+     */
+    public synchronized void start() {
+        if (!recording) {
+            if (settings.getArea().isEmpty()) {
+                throw new IllegalStateException("The area to be recorded is empty (" + settings.getArea()
+                        + "): there are no screens nor a frame source, or the configured area is outside them");
+            }
+            if (settings.getMuxerType() == MuxerType.JMF) {
+                JmfMuxer.checkAvailable();
+            }
+            if (!settings.getTempDirectory().exists()) {
+                settings.getTempDirectory().mkdirs();
+            }
+            recording = true;
+            frames = null;
+            spool = openSpoolLease();
+            preview = settings.wantToPreview() ? openPreview() : null;
+            LiveFrameQueue liveFrames = null;
+            liveVideo = null;
+            if (settings.wantToEncodeLive()) {
+                liveFrames = new LiveFrameQueue(settings.getQueueDepth());
+                liveVideo = new FutureTask<String>(createVideoTask(liveFrames));
+                new Thread(liveVideo, "screen-recorder-muxer").start();
+            }
+            if (liveVideo == null || settings.wantToKeepFrames()) {
+                frames = createFrameStore(settings.getTempDirectory().getAbsolutePath() + File.separatorChar
+                        + videoName.replace(".mov", ""));
+            }
+            FrameSource source = settings.getFrameSource() != null ? settings.getFrameSource()
+                    : ScreenGrabber.getShared();
+            pipeline = new RecordingPipeline(settings, source, frames, liveFrames, spool, preview, listeners,
+                    this);
+            pipeline.start();
+        }
+    }
+
+    /**
+     * It stops the recording and creates the video.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws MalformedURLException
+     */
+    public synchronized String stop() throws MalformedURLException {
+        String videoPathString = null;
+        if (recording) {
+            long stopped = System.nanoTime();
+            recording = false;
+            stopPipeline();
+            videoPathString = createVideo(pipeline, frames, liveVideo, spool, stopped);
+        }
+        return videoPathString;
+    }
+
+    /**
+     * It stops the recording and creates the video in the background, so the caller doesn't wait for the muxing. At
+     * most {@link VideoRecorderConfiguration#getMuxerThreads()} videos are created at the same time.
+     * @return the path where the video will be created, or null if the video couldn't be created.
+     */
+    public synchronized Future<String> stopAsync() {
+        FutureTask<String> video;
+        if (recording) {
+            final long stopped = System.nanoTime();
+            recording = false;
+            stopPipeline();
+            final RecordingPipeline stoppedPipeline = pipeline;
+            final FrameStore stoppedFrames = frames;
+            final FutureTask<String> stoppedLiveVideo = liveVideo;
+            final SpoolLease stoppedSpool = spool;
+            video = new FutureTask<String>(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return createVideo(stoppedPipeline, stoppedFrames, stoppedLiveVideo, stoppedSpool, stopped);
+                }
+            });
+            MuxerPool.execute(video);
+        } else {
+            video = noVideo();
+        }
+        return video;
+    }
+
+    /**
+     * @return a future already completed without video.
+     */
+    static FutureTask<String> noVideo() {
+        FutureTask<String> video = new FutureTask<String>(new Runnable() {
+            @Override
+            public void run() {
+                // there is no video
+            }
+        }, null);
+        video.run();
+        return video;
+    }
+
+    /**
+     * It stops the capture, waits until the captured frames are written and ends the live preview.
+     */
+    private void stopPipeline() {
+        pipeline.stop();
+        if (preview != null) {
+            preview.close();
+            preview = null;
+        }
+    }
+
+    /**
+     * It stops the recording without creating the video, removing its frames (unless they have to be kept).
+     */
+    public synchronized void discard() {
+        if (recording) {
+            long stopped = System.nanoTime();
+            recording = false;
+            stopPipeline();
+            if (liveVideo != null) {
+                String videoPathString = waitForLiveVideo(pipeline, liveVideo);
+                if (videoPathString != null) {
+                    new File(videoPathString).delete();
+                }
+            }
+            if (frames != null && !settings.wantToKeepFrames()) {
+                frames.delete();
+            }
+            if (spool != null) {
+                spool.close(frames != null && settings.wantToKeepFrames());
+            }
+            pipeline.finish(null, System.nanoTime() - stopped);
+        }
+    }
+
+    /**
+     * @return the frames captured, written and lost and the latencies of the stages of the current recording (the
+     *         last one if it stopped), or null if it was never started. The time from the stop until the video was
+     *         created is only known once it was.
+     */
+    public RecordingSummary getSummary() {
+        RecordingPipeline current = pipeline;
+        return current != null ? current.getSummary() : null;
+    }
+
+    /**
+     * @return the nanoseconds elapsed since the recording started, the time base of {@link #createClip}.
+     */
+    public long getElapsed() {
+        RecordingPipeline current = pipeline;
+        return current != null ? current.getElapsed() : 0;
+    }
+
+    /**
+     * It creates a video with a part of the recording, while it goes on. The frames have to be stored (the session
+     * can't only encode live).
+     * @param clipName with the output of the video.
+     * @param from {@link #getElapsed()} when the clip starts.
+     * @param to {@link #getElapsed()} when the clip ends.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws IOException if the frames couldn't be read.
+     */
+    public String createClip(String clipName, long from, long to) throws IOException {
+        return createClip(clipName, openClip(from, to));
+    }
+
+    /**
+     * It creates a video with the frames of a clip.
+     * @param clipName with the output of the video.
+     * @param clip opened with {@link #openClip(long, long)}, or null if there were no frames.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws MalformedURLException
+     */
+    public String createClip(String clipName, FrameReader clip) throws MalformedURLException {
+        if (clip == null) {
+            return null;
+        }
+        return createVideo(clip, clipName.endsWith(".mov") ? clipName : clipName + ".mov");
+    }
+
+    /**
+     * It releases the stored frames that no clip needs anymore, because the following clips start after a time (see
+     * {@link FrameStore#discardBefore(long)}). The video of the whole recording can't be created afterwards. The
+     * frames kept after the recording are never released.
+     * @param elapsed {@link #getElapsed()} before which no clip starts.
+     */
+    public void discardFramesBefore(long elapsed) {
+        FrameStore store;
+        synchronized (this) {
+            store = frames;
+        }
+        if (store != null && !settings.wantToKeepFrames()) {
+            store.discardBefore(elapsed);
+        }
+    }
+
+    /**
+     * It opens the frames of a part of the recording, once the frames captured until now are stored. With a
+     * {@link FrameStoreType#RING} store the frames are kept by the reader, so they can be muxed later.
+     * @param from {@link #getElapsed()} when the clip starts.
+     * @param to {@link #getElapsed()} when the clip ends.
+     * @return the frames or null if there were none.
+     * @throws IOException if the frames couldn't be read.
+     */
+    public FrameReader openClip(long from, long to) throws IOException {
+        FrameStore store;
+        RecordingPipeline current;
+        synchronized (this) {
+            store = frames;
+            current = pipeline;
+        }
+        if (store == null) {
+            throw new IllegalStateException("The frames of the recording are not stored");
+        }
+        try {
+            // the frames captured before the end of the clip can still be being encoded
+            if (!current.awaitWritten(CLIP_WAIT_TIMEOUT)) {
+                LOGGER.warn("The clip could miss its last frames");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (store.size() == 0) {
+            return null;
+        }
+        return store.openReader(from, to);
+    }
+
+    /**
+     * It adds a listener that gets the frames of this session from its own thread.
+     * @param listener to be notified.
+     * @param policy to apply when the queue of the listener is full.
+     * @param queueSize number of frames that can wait for the listener.
+     * @param sampleInterval with {@link DispatchPolicy#SAMPLE}, the listener gets one of every sampleInterval frames.
+     */
+    public void addVideoRecorderEventListener(VideoRecorderEventListener listener, DispatchPolicy policy,
+            int queueSize, int sampleInterval) {
+        listeners.add(listener, policy, queueSize, sampleInterval);
+    }
+
+    /**
+     * It removes a listener. The frames waiting for it are discarded.
+     * @param listener to be removed.
+     * @return true if the listener was registered.
+     */
+    public boolean removeVideoRecorderEventListener(VideoRecorderEventListener listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * @param listener registered.
+     * @return the delivered and dropped frames and the lag of the listener, or null if it isn't registered.
+     */
+    public ListenerStats getListenerStats(VideoRecorderEventListener listener) {
+        return listeners.getStats(listener);
+    }
+
+    /**
+     * It starts the accounting of the disk used by the recording in the temp directory, limited by
+     * {@link RecordingSettings#getSpoolQuota()}.
+     * @return the lease or null if it couldn't be started (the recording goes on without limits).
+     */
+    private SpoolLease openSpoolLease() {
+        SpoolManager manager = SpoolManager.get(settings.getTempDirectory());
+        manager.setQuota(settings.getSpoolQuota());
+        try {
+            return manager.open(videoName.replace(".mov", ""));
+        } catch (IOException e) {
+            LOGGER.warn("The disk used by " + videoName + " won't be limited", e);
+            return null;
+        }
+    }
+
+    /**
+     * It publishes the recording in the {@link PreviewServer}, starting it if needed with the address and port of the
+     * {@link VideoRecorderConfiguration}.
+     * @return the stream of the recording or null if the server couldn't be started (the recording goes on without
+     *         preview).
+     */
+    private PreviewStream openPreview() {
+        try {
+            PreviewStream stream = PreviewServer.start(VideoRecorderConfiguration.getPreviewAddress(),
+                    VideoRecorderConfiguration.getPreviewPort()).open(videoName.replace(".mov", ""));
+            LOGGER.info("Live preview of " + videoName + " at " + stream.getUrl());
+            return stream;
+        } catch (IOException e) {
+            LOGGER.warn("The preview server couldn't be started", e);
+            return null;
+        }
+    }
+
+    /**
+     * It creates the store for the frames of the video, according to the settings.
+     * @param path of the directory (one file per frame) or, without the extension, of the spool file.
+     * @return the store.
+     */
+    private FrameStore createFrameStore(String path) {
+        FrameStore store;
+        FrameStoreType type = settings.getFrameStoreType();
+        if (type == FrameStoreType.DIRECTORY || settings.wantToKeepFrames()) {
+            store = new DirectoryFrameStore(new File(path));
+        } else if (type == FrameStoreType.SPOOL) {
+            store = new SpoolFrameStore(new File(path + ".spool"));
+        } else if (type == FrameStoreType.RING) {
+            store = new RingFrameStore(TimeUnit.SECONDS.toNanos(settings.getRingDuration()),
+                    settings.getFrameStoreMemoryLimit());
+        } else {
+            store = new MemoryFrameStore(type == FrameStoreType.DIRECT, settings.getFrameStoreMemoryLimit(),
+                    new SpoolFrameStore(new File(path + ".spool")));
+        }
+        return store;
+    }
+
+    /**
+     * It creates the video of a stopped recording and removes its frames (unless they have to be kept). The fields of
+     * the recording are given because the session can be started again meanwhile.
+     * @param pipeline of the recording, already stopped.
+     * @param frames of the recording (null if they were not stored).
+     * @param liveVideo being muxed while recording (null if there is none).
+     * @param spool accounting of the disk used by the recording (null if there is none).
+     * @param stopped {@link System#nanoTime()} when the recording was stopped.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws MalformedURLException
+     */
+    private String createVideo(RecordingPipeline pipeline, FrameStore frames, FutureTask<String> liveVideo,
+            SpoolLease spool, long stopped) throws MalformedURLException {
+        String videoPathString = null;
+        try {
+            if (liveVideo != null) {
+                videoPathString = waitForLiveVideo(pipeline, liveVideo);
+            } else if (frames.size() > 0) {
+                if (spool != null) {
+                    reserveVideo(spool, frames.getSizeInBytes());
+                }
+                // the frames have timestamps: the last one lasts until the recording stopped
+                videoPathString = createVideo(null, frames, pipeline.getDuration(), videoName);
+            }
+        } finally {
+            if (frames != null && !settings.wantToKeepFrames()) {
+                frames.delete();
+            }
+            if (spool != null) {
+                spool.close(frames != null && settings.wantToKeepFrames());
+            }
+            // the summary is available through getSummary()
+            pipeline.finish(videoPathString, System.nanoTime() - stopped);
+        }
+        return videoPathString;
+    }
+
+    /**
+     * It counts a video against the spool quota, evicting other recordings if needed; it has about the size of its
+     * frames. The video is created anyway (without waiting) if there isn't room.
+     * @param spool accounting of the disk used by the recording.
+     * @param bytes of the video.
+     */
+    private void reserveVideo(SpoolLease spool, long bytes) {
+        try {
+            if (!spool.reserveVideo(bytes, 0)) {
+                LOGGER.warn("There is no room in the spool quota for " + videoName + ", it is created anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * It creates the video from the given frames.
+     * @param reader with the frames of the video.
+     * @param videoName with the output of the video.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws MalformedURLException
+     */
+    private String createVideo(FrameReader reader, String videoName) throws MalformedURLException {
+        return createVideo(reader, null, EncodedFrame.NO_TIMESTAMP, videoName);
+    }
+
+    /**
+     * It creates the video from the given frames, read from a reader or from the store of a stopped recording (so
+     * they can be muxed by several threads).
+     * @param reader with the frames of the video, or null to mux all the frames of the store.
+     * @param frames store of the frames, only used if there is no reader.
+     * @param end timestamp of the end of the recording, where the last frame of the store ends.
+     * @param videoName with the output of the video.
+     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
+     * @throws MalformedURLException
+     */
+    private String createVideo(FrameReader reader, FrameStore frames, long end, String videoName)
+            throws MalformedURLException {
+        File videoDirectory = settings.getVideoDirectory();
+        if (!videoDirectory.exists()) {
+            videoDirectory.mkdirs();
+        }
+        String videoPathString = videoDirectory.getAbsolutePath() + File.separatorChar + videoName;
+        VideoMuxer muxer = settings.getMuxerType() == MuxerType.JMF ? new JmfMuxer()
+                : new QuickTimeMuxer(settings.getMuxerParallelism());
+        Dimension frameSize = settings.getFrameSize();
+        // only used for the frames without timestamp, the others keep their real timing
+        float frameRate = settings.getNominalFrameRate();
+        try {
+            if (reader != null) {
+                muxer.mux(frameSize.width, frameSize.height, frameRate, reader, new File(videoPathString));
+            } else {
+                muxer.mux(frameSize.width, frameSize.height, frameRate, frames, end, new File(videoPathString));
+            }
+        } catch (IOException e) {
+            LOGGER.error("An error occurred creating the video " + videoPathString, e);
+            new File(videoPathString).delete();
+            videoPathString = null;
+        }
+        return videoPathString;
+    }
+
+    /**
+     * It creates the task muxing the video while the frames are recorded.
+     * @param liveFrames fed by the pipeline.
+     * @return the task, returning the path of the video.
+     */
+    private Callable<String> createVideoTask(final LiveFrameQueue liveFrames) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return createVideo(liveFrames, videoName);
+            }
+        };
+    }
+
+    /**
+     * It waits until the live muxer writes the tail of the video.
+     * @param pipeline of the recording, already stopped.
+     * @param liveVideo being muxed.
+     * @return the path where the video was created or null if the video couldn't be created.
+     */
+    private String waitForLiveVideo(RecordingPipeline pipeline, FutureTask<String> liveVideo) {
+        String videoPathString = null;
+        try {
+            videoPathString = liveVideo.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the video", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("An error occurred creating the video", e.getCause());
+        }
+        if (videoPathString != null && pipeline.getWrittenFrames() == 0) {
+            // nothing was captured
+            new File(videoPathString).delete();
+            videoPathString = null;
+        }
+        return videoPathString;
+    }
+
+}
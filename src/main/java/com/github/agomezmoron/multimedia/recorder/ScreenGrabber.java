@@ -0,0 +1,328 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.AWTException;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.agomezmoron.multimedia.capture.FrameBuffer;
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration;
+
+/**
+ * {@link FrameSource} of the screen (the default one), shared by the recordings running at the same time. It grabs
+ * the union of their areas with a single {@link Robot} capture and every recording asking for a frame shortly
+ * afterwards gets a crop of that capture, so N recordings don't cost N captures per tick.
+ * <p>
+ * When the captured area spans several screens, the part of each screen is grabbed by its own {@link Robot} in
+ * parallel and the parts are composited into a single capture. The pixels of the area not covered by any screen (gaps
+ * between screens of different sizes) are black.
+ *
+ */
+class ScreenGrabber implements FrameSource {
+
+    /**
+     * Grabber shared by all the recordings.
+     */
+    private static final ScreenGrabber SHARED = new ScreenGrabber();
+
+    /**
+     * {@link System#nanoTime()} the capture deadlines are aligned to, so recordings with the same interval ask for
+     * their frames at the same time.
+     */
+    private final long epoch = System.nanoTime();
+
+    /**
+     * Areas of the recordings using the grabber.
+     */
+    private final List<Rectangle> areas = new ArrayList<Rectangle>();
+
+    /**
+     * Bounds of the screens and their robots, read again with the first capture after the grabber was idle, so
+     * screens plugged between recordings are found.
+     */
+    private Rectangle[] screens;
+
+    private Robot[] robots;
+
+    /**
+     * Threads grabbing the screens in parallel (created with the first capture spanning several screens).
+     */
+    private ExecutorService screenGrabbers;
+
+    /**
+     * Last capture, its area and when it was taken.
+     */
+    private BufferedImage lastGrab;
+
+    private Rectangle lastArea;
+
+    private long lastGrabAt;
+
+    private long grabs = 0;
+
+    private long sharedGrabs = 0;
+
+    /**
+     * @return the grabber shared by all the recordings.
+     */
+    static ScreenGrabber getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @see {@link FrameSource#getBounds()}
+     */
+    @Override
+    public Rectangle getBounds() {
+        return VideoRecorderConfiguration.getVirtualDesktop();
+    }
+
+    /**
+     * @see {@link FrameSource#getEpoch()}
+     */
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * It adds the area of a recording, so it is included in the following captures.
+     * @see {@link FrameSource#register(Rectangle)}
+     */
+    @Override
+    public synchronized void register(Rectangle area) {
+        areas.add(new Rectangle(area));
+    }
+
+    /**
+     * @see {@link FrameSource#unregister(Rectangle)}
+     */
+    @Override
+    public synchronized void unregister(Rectangle area) {
+        areas.remove(area);
+        if (areas.isEmpty()) {
+            lastGrab = null;
+            lastArea = null;
+            screens = null;
+            robots = null;
+        }
+    }
+
+    /**
+     * It grabs an area of the screen into a buffer of the same size, reusing the last capture if it is recent enough
+     * and contains the area.
+     * @see {@link FrameSource#grab(Rectangle, FrameBuffer, long)}
+     */
+    @Override
+    public long grab(Rectangle area, FrameBuffer into, long maxAge) throws IOException, InterruptedException {
+        BufferedImage image;
+        Rectangle imageArea;
+        long grabbedAt;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (lastGrab == null || now - lastGrabAt > maxAge || !lastArea.contains(area)) {
+                lastArea = captureArea(area);
+                try {
+                    lastGrab = capture(lastArea);
+                } catch (AWTException e) {
+                    throw new IOException("The screen can't be captured", e);
+                }
+                lastGrabAt = now;
+                grabs++;
+            } else {
+                sharedGrabs++;
+            }
+            image = lastGrab;
+            imageArea = lastArea;
+            grabbedAt = lastGrabAt;
+        }
+        // the captures are never modified, so they are cropped out of the lock
+        into.copyFrom(image, area.x - imageArea.x, area.y - imageArea.y);
+        return grabbedAt;
+    }
+
+    /**
+     * @return the number of screen captures.
+     */
+    synchronized long getGrabs() {
+        return grabs;
+    }
+
+    /**
+     * @return the number of frames cropped from a capture taken for another frame.
+     */
+    synchronized long getSharedGrabs() {
+        return sharedGrabs;
+    }
+
+    /**
+     * It decides the area to be captured: the union of the areas of the recordings, unless they are so far apart
+     * that capturing the union would cost more than capturing them one by one.
+     * @param area requested.
+     * @return the area to be captured.
+     */
+    private Rectangle captureArea(Rectangle area) {
+        Rectangle union = new Rectangle(area);
+        long pixels = areas.contains(area) ? 0 : (long) area.width * area.height;
+        for (Rectangle registered : areas) {
+            union = union.union(registered);
+            pixels += (long) registered.width * registered.height;
+        }
+        if ((long) union.width * union.height > 2 * pixels) {
+            return new Rectangle(area);
+        }
+        return union;
+    }
+
+    /**
+     * It captures an area of the virtual desktop, grabbing the part of each screen in parallel if it spans several.
+     * @param area to be captured.
+     * @return the capture.
+     * @throws AWTException if the screen can't be captured.
+     * @throws InterruptedException if the thread is interrupted while the screens are grabbed.
+     */
+    private BufferedImage capture(final Rectangle area) throws AWTException, InterruptedException {
+        if (screens == null) {
+            loadScreens();
+        }
+        List<Rectangle> parts = new ArrayList<Rectangle>();
+        final List<Robot> partRobots = new ArrayList<Robot>();
+        for (int i = 0; i < screens.length; i++) {
+            Rectangle part = screens[i].intersection(area);
+            if (!part.isEmpty()) {
+                parts.add(part);
+                partRobots.add(robots[i]);
+            }
+        }
+        if (parts.isEmpty()) {
+            // out of every screen (or they couldn't be listed): the robot decides what to return
+            return robots[0].createScreenCapture(area);
+        }
+        if (parts.size() == 1 && parts.get(0).equals(area)) {
+            return partRobots.get(0).createScreenCapture(area);
+        }
+        if (parts.size() == 1) {
+            return composite(area, parts,
+                    Collections.singletonList(partRobots.get(0).createScreenCapture(parts.get(0))));
+        }
+        List<Callable<BufferedImage>> grabs = new ArrayList<Callable<BufferedImage>>();
+        for (int i = 0; i < parts.size(); i++) {
+            final Robot robot = partRobots.get(i);
+            final Rectangle part = parts.get(i);
+            grabs.add(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() {
+                    return robot.createScreenCapture(part);
+                }
+            });
+        }
+        List<Future<BufferedImage>> grabbed = getScreenGrabbers().invokeAll(grabs);
+        List<BufferedImage> captures = new ArrayList<BufferedImage>(parts.size());
+        for (Future<BufferedImage> part : grabbed) {
+            try {
+                captures.add(part.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("The screen couldn't be grabbed", e.getCause());
+            }
+        }
+        return composite(area, parts, captures);
+    }
+
+    /**
+     * It composites the captures of the parts of an area (one per screen) into a capture of the whole area. The
+     * pixels not covered by any part are black.
+     * @param area to be captured, in virtual desktop coordinates.
+     * @param parts of the area, in virtual desktop coordinates.
+     * @param captures of the parts, in the same order.
+     * @return the capture of the area.
+     */
+    static BufferedImage composite(Rectangle area, List<Rectangle> parts, List<BufferedImage> captures) {
+        BufferedImage capture = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < parts.size(); i++) {
+            Rectangle part = parts.get(i);
+            capture.getRaster().setRect(part.x - area.x, part.y - area.y, captures.get(i).getRaster());
+        }
+        return capture;
+    }
+
+    /**
+     * It reads the bounds of the screens and creates a {@link Robot} for each of them.
+     * @throws AWTException if the robots can't be created.
+     */
+    private void loadScreens() throws AWTException {
+        GraphicsDevice[] devices = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+        if (devices.length == 0) {
+            screens = new Rectangle[0];
+            robots = new Robot[] { new Robot() };
+            return;
+        }
+        screens = new Rectangle[devices.length];
+        robots = new Robot[devices.length];
+        for (int i = 0; i < devices.length; i++) {
+            screens[i] = devices[i].getDefaultConfiguration().getBounds();
+            robots[i] = new Robot(devices[i]);
+        }
+    }
+
+    /**
+     * @return the threads grabbing the screens in parallel.
+     */
+    private ExecutorService getScreenGrabbers() {
+        if (screenGrabbers == null) {
+            screenGrabbers = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "screen-recorder-grabber-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return screenGrabbers;
+    }
+
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import com.github.agomezmoron.multimedia.encoder.StripedJpegEncoder;
+import com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration;
+
+/**
+ * Threads encoding the stripes of the frames with a {@link StripedJpegEncoder}, shared by all the recordings. There is
+ * a pool for each {@link VideoRecorderConfiguration#getEncoderParallelism()} used, created the first time it is needed.
+ * Its threads are daemons and end when they are idle, so they don't keep the JVM alive.
+ *
+ */
+final class StripePool {
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new HashMap<Integer, ForkJoinPool>();
+
+    /**
+     * We don't allow to create objects for this class.
+     */
+    private StripePool() {
+
+    }
+
+    /**
+     * @param parallelism number of threads encoding the stripes of a frame.
+     * @return the shared pool with that parallelism.
+     */
+    static synchronized ForkJoinPool get(int parallelism) {
+        ForkJoinPool pool = POOLS.get(parallelism);
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+            POOLS.put(parallelism, pool);
+        }
+        return pool;
+    }
+
+}
@@ -24,25 +24,15 @@
  */
 package com.github.agomezmoron.multimedia.recorder;
 
-import com.sun.jna.Platform;
-import java.awt.Dimension;
 import java.awt.Rectangle;
-import java.awt.Robot;
-import java.awt.Toolkit;
-import java.io.File;
 import java.net.MalformedURLException;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.Future;
 
-import javax.media.MediaLocator;
-
-import com.github.agomezmoron.multimedia.capture.ScreenCapture;
-import com.github.agomezmoron.multimedia.external.JpegImagesToMovie;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
 import com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration;
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.ListenerStats;
 import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
-import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
 
 /**
  * It models the video recorder.
@@ -53,69 +43,19 @@ import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObj
 public class VideoRecorder {
 
     /**
-     * Status of the recorder.
-     */
-    private static boolean recording = false;
-
-    /**
-     * When we started recording.
+     * Session of the video being recorded.
      */
-    private static long startedAt = 0;
+    private static RecordingSession session;
 
     /**
-     * Associated frames.
+     * Session of the last video recorded, for the statistics of the listeners once it stopped.
      */
-    private static List<String> frames;
+    private static RecordingSession lastSession;
 
     /**
-     * Video name.
+     * Listeners of the recorder: every session gets its own copy when it is created.
      */
-    private static String videoName = "output.mov";
-
-    private static Thread currentThread;
-
-    private static List<VideoRecorderEventListener> listeners = new ArrayList<VideoRecorderEventListener>();
-
-
-    /**
-     * Strategy to record using {@link Thread}.
-     */
-    private static final Thread getRecordThread() {
-        return new Thread() {
-            @Override
-            public void run() {
-                Robot rt;
-                ScreenCapture capture;
-                try {
-                    rt = new Robot();
-                    do {
-                        capture = new ScreenCapture(rt.createScreenCapture(new Rectangle(
-                                VideoRecorderConfiguration.getX(), VideoRecorderConfiguration.getY(),
-                                VideoRecorderConfiguration.getWidth(), VideoRecorderConfiguration.getHeight())));
-
-                        VideoRecorderEventObject videoRecorderEvObj = new VideoRecorderEventObject (this,capture);
-
-                        //Exploring all the listeners
-                        for(VideoRecorderEventListener vr : listeners){
-
-                        	//Creating the object that will be sent
-                        	VideoRecorderEventListener listener = (VideoRecorderEventListener) vr;
-                        	listener.frameAdded(videoRecorderEvObj);
-                        }
-
-                        frames.add(VideoRecorderUtil.saveIntoDirectory(capture, new File(
-                                VideoRecorderConfiguration.getTempDirectory().getAbsolutePath() + File.separatorChar
-                                        + videoName.replace(".mov", ""))));
-                        Thread.sleep(VideoRecorderConfiguration.getCaptureInterval());
-                    } while (recording);
-                } catch (Exception e) {
-
-                    System.out.println(e.getStackTrace());
-                    recording = false;
-                }
-            }
-        };
-    }
+    private static final ListenerRegistry listeners = new ListenerRegistry();
 
     /**
      * We don't allow to create objects for this class.
@@ -129,136 +69,135 @@ public class VideoRecorder {
      * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
      * @throws MalformedURLException
      */
-    public static String stop() throws MalformedURLException {
+    public static synchronized String stop() throws MalformedURLException {
         String videoPathString = null;
-        if (recording) {
-            recording = false;
-            if (currentThread.isAlive()) {
-                long now = new Date().getTime();
-                while (frames.isEmpty()) {
-                    try {
-                        Thread.sleep(VideoRecorderConfiguration.getCaptureInterval());
-                    } catch (InterruptedException e) {
-                        ;
-                    }
-                }
-                currentThread.interrupt();
-            }
-            videoPathString = createVideo();
-            if (!VideoRecorderConfiguration.wantToKeepFrames()) {
-                deleteDirectory(new File(VideoRecorderConfiguration.getTempDirectory().getAbsolutePath()
-                        + File.separatorChar + videoName.replace(".mov", "")));
-            }
+        if (session != null) {
+            videoPathString = session.stop();
+            session = null;
         }
         return videoPathString;
     }
 
     /**
-     * It starts recording (if it wasn't started before).
-     * @param newVideoName with the output of the video.
+     * It stops the recording and creates the video in the background.
+     * @return the path where the video will be created, or null if the video couldn't be created.
+     * @see {@link RecordingSession#stopAsync()}
      */
-    public static void start(String newVideoName) {
-        if (!recording) {
-            if (!VideoRecorderConfiguration.getTempDirectory().exists()) {
-                VideoRecorderConfiguration.getTempDirectory().mkdirs();
-            }
-            calculateScreenshotSize();
-            videoName = newVideoName;
-            if (!videoName.endsWith(".mov")) {
-                videoName += ".mov";
-            }
-            recording = true;
-            frames = new ArrayList<String>();
-            startedAt = new Date().getTime();
-            currentThread = getRecordThread();
-            currentThread.start();
+    public static synchronized Future<String> stopAsync() {
+        Future<String> video = RecordingSession.noVideo();
+        if (session != null) {
+            video = session.stopAsync();
+            session = null;
         }
+        return video;
     }
 
     /**
-     * It calculates the screenshot size before recording. If the useFullScreen was defined, the width, height or x
+     * @return the session of the video being recorded, or null if it isn't recording.
      */
-    private static void calculateScreenshotSize() {
-        // if fullScreen was set, all the configuration will be changed back.
-        if (VideoRecorderConfiguration.wantToUseFullScreen()) {
-            Dimension size = Toolkit.getDefaultToolkit().getScreenSize();
-            VideoRecorderConfiguration.setWidth((int) size.getWidth());
-            VideoRecorderConfiguration.setHeight((int) size.getHeight());
-            VideoRecorderConfiguration.setCoordinates(0, 0);
-        } else {
-            // we have to check if x+width <= Toolkit.getDefaultToolkit().getScreenSize().getWidth() and the same for
-            // the height
-            if (VideoRecorderConfiguration.getX() + VideoRecorderConfiguration.getWidth() > Toolkit.getDefaultToolkit()
-                    .getScreenSize().getWidth()) {
-                VideoRecorderConfiguration.setWidth((int) (Toolkit.getDefaultToolkit().getScreenSize().getWidth()
-                        - VideoRecorderConfiguration.getX()));
-            }
-            if (VideoRecorderConfiguration.getY() + VideoRecorderConfiguration.getHeight() > Toolkit.getDefaultToolkit()
-                    .getScreenSize().getHeight()) {
-                VideoRecorderConfiguration.setHeight((int) (Toolkit.getDefaultToolkit().getScreenSize().getHeight()
-                        - VideoRecorderConfiguration.getY()));
-            }
-        }
+    public static synchronized RecordingSession getRecording() {
+        return session;
     }
 
     /**
-     * It deletes recursively a directory.
-     * @param directory to be deleted.
-     * @return true if the directory was deleted successfully.
+     * It starts recording (if it wasn't started before), with a snapshot of the current
+     * {@link VideoRecorderConfiguration}. To record several videos at the same time use {@link RecordingSession}.
+     * @param newVideoName with the output of the video.
+     * @throws IllegalStateException if the videos are muxed by JMF and it isn't in the classpath.
      */
-    private static boolean deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (null != files) {
-                for (int i = 0; i < files.length; i++) {
-                    if (files[i].isDirectory()) {
-                        deleteDirectory(files[i]);
-                    } else {
-                        files[i].delete();
-                    }
-                }
-            }
+    public static synchronized void start(String newVideoName) {
+        if (session == null) {
+            RecordingSession started = newRecording(newVideoName);
+            started.start();
+            session = started;
+            lastSession = started;
         }
-        return (directory.delete());
     }
 
     /**
-     * It creates the video.
-     * @return a {@link String} with the path where the video was created or null if the video couldn't be created.
-     * @throws MalformedURLException
+     * It creates a session with a snapshot of the current {@link VideoRecorderConfiguration} and the listeners of the
+     * recorder, without starting it. Unlike {@link #start(String)}, several of them can record at the same time (ex:
+     * the tests running in parallel): each one notifies its listeners of its own frames only.
+     * @param videoName with the output of the video.
+     * @return the session, to be started and stopped by the caller.
      */
-    private static String createVideo() throws MalformedURLException {
-        Vector<String> vector = new Vector<String>(frames);
-        String videoPathString = null;
-        JpegImagesToMovie jpegImaveToMovie = new JpegImagesToMovie();
-        if (!VideoRecorderConfiguration.getVideoDirectory().exists()) {
-            VideoRecorderConfiguration.getVideoDirectory().mkdirs();
-        }
-        MediaLocator oml;
-        String fileURL;
-        if (Platform.isWindows()) {
-            fileURL = "file://" + VideoRecorderConfiguration.getVideoDirectory().getPath() + File.separatorChar + videoName;
+    public static synchronized RecordingSession newRecording(String videoName) {
+        calculateScreenshotSize();
+        return new RecordingSession(videoName, RecordingSettings.fromConfiguration(), listeners.copy());
+    }
+
+    /**
+     * It calculates the screenshot size before recording. If the useFullScreen was defined, the width, height, x and
+     * y are changed to the whole virtual desktop (all the screens) or the bounds of the frame source; otherwise the
+     * area is limited to them.
+     */
+    private static void calculateScreenshotSize() {
+        Rectangle desktop = VideoRecorderConfiguration.getCaptureBounds();
+        // if fullScreen was set, all the configuration will be changed back.
+        if (VideoRecorderConfiguration.wantToUseFullScreen()) {
+            VideoRecorderConfiguration.setWidth(desktop.width);
+            VideoRecorderConfiguration.setHeight(desktop.height);
+            VideoRecorderConfiguration.setCoordinates(desktop.x, desktop.y);
         } else {
-            fileURL = VideoRecorderConfiguration.getVideoDirectory().getAbsolutePath() + File.separatorChar + videoName;
-        }
-        if ((oml = JpegImagesToMovie.createMediaLocator(fileURL)) == null) {
-            System.exit(0);
-        }
-        if (jpegImaveToMovie.doIt(VideoRecorderConfiguration.getWidth(), VideoRecorderConfiguration
-                .getHeight(), (1000 / VideoRecorderConfiguration.getCaptureInterval()), vector, oml)) {
-            videoPathString = VideoRecorderConfiguration.getVideoDirectory().getAbsolutePath() + File.separatorChar
-                    + videoName;
+            // we have to check if x+width <= the right edge of the desktop and the same for the height
+            if (VideoRecorderConfiguration.getX() + VideoRecorderConfiguration.getWidth() > desktop.x + desktop.width) {
+                VideoRecorderConfiguration.setWidth(desktop.x + desktop.width - VideoRecorderConfiguration.getX());
+            }
+            if (VideoRecorderConfiguration.getY() + VideoRecorderConfiguration.getHeight() > desktop.y
+                    + desktop.height) {
+                VideoRecorderConfiguration.setHeight(desktop.y + desktop.height - VideoRecorderConfiguration.getY());
+            }
         }
-        return videoPathString;
     }
 
 
 	/**
-	 * It adds the listeners to the list
+	 * It adds the listeners to the list. It gets every frame from its own thread; the recording waits if it falls
+	 * {@value ListenerRegistry#DEFAULT_QUEUE_SIZE} frames behind.
 	 * @param args
 	 */
 	public static void addVideoRecorderEventListener(VideoRecorderEventListener args){
-		listeners.add(args);
+		addVideoRecorderEventListener(args, DispatchPolicy.BLOCK, ListenerRegistry.DEFAULT_QUEUE_SIZE, 1);
+	}
+
+	/**
+	 * It adds a listener that gets the frames from its own thread, with the given policy when it is slower than the
+	 * recording. It is notified by the current recording and the sessions created afterwards.
+	 * @param listener to be notified.
+	 * @param policy to apply when the queue of the listener is full.
+	 * @param queueSize number of frames that can wait for the listener.
+	 * @param sampleInterval with {@link DispatchPolicy#SAMPLE}, the listener gets one of every sampleInterval frames.
+	 */
+	public static synchronized void addVideoRecorderEventListener(VideoRecorderEventListener listener,
+			DispatchPolicy policy, int queueSize, int sampleInterval) {
+		listeners.add(listener, policy, queueSize, sampleInterval);
+		if (session != null) {
+			session.addVideoRecorderEventListener(listener, policy, queueSize, sampleInterval);
+		}
+	}
+
+	/**
+	 * It removes a listener from the current recording and the sessions created afterwards. The frames waiting for it
+	 * are discarded.
+	 * @param listener to be removed.
+	 * @return true if the listener was registered.
+	 */
+	public static synchronized boolean removeVideoRecorderEventListener(VideoRecorderEventListener listener) {
+		boolean removed = listeners.remove(listener);
+		if (session != null) {
+			removed |= session.removeVideoRecorderEventListener(listener);
+		}
+		return removed;
+	}
+
+	/**
+	 * @param listener registered.
+	 * @return the delivered and dropped frames and the lag of the listener in the current recording (or the last one
+	 *         if it stopped), or null if it isn't registered.
+	 */
+	public static synchronized ListenerStats getListenerStats(VideoRecorderEventListener listener) {
+		ListenerStats stats = lastSession != null ? lastSession.getListenerStats(listener) : null;
+		return stats != null ? stats : listeners.getStats(listener);
 	}
 
 }
@@ -24,12 +24,15 @@
  */
 package com.github.agomezmoron.multimedia.recorder;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import javax.imageio.ImageIO;
+import java.io.OutputStream;
 
 import com.github.agomezmoron.multimedia.capture.ScreenCapture;
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
+import com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration;
 
 class VideoRecorderUtil {
 
@@ -38,8 +41,27 @@ class VideoRecorderUtil {
             directory.mkdirs();
         }
         String savedPath = directory.getAbsolutePath() + File.separatorChar + System.currentTimeMillis() + ".jpeg";
-        ImageIO.write(capture.getSource(), "jpeg", new File(savedPath));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(savedPath));
+        try {
+            if (capture.getEncoded() != null) {
+                out.write(capture.getEncoded());
+            } else {
+                getEncoder().encode(capture.getImage(), out);
+            }
+        } finally {
+            out.close();
+        }
         return savedPath;
     }
 
+    /**
+     * @return the JPEG encoder of the calling thread, with the configured settings.
+     */
+    static JpegEncoder getEncoder() {
+        return JpegEncoder.forCurrentThread(VideoRecorderConfiguration.getJpegQuality(),
+                VideoRecorderConfiguration.getChromaSubsampling(),
+                VideoRecorderConfiguration.wantToUseProgressiveJpeg(),
+                VideoRecorderConfiguration.wantToOptimizeHuffman());
+    }
+
 }
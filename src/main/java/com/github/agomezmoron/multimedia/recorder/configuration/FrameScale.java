@@ -0,0 +1,136 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.configuration;
+
+import java.awt.Dimension;
+
+/**
+ * Size of the recorded frames relative to the captured area: a factor, a maximum size or both. The frames are only
+ * reduced, never enlarged, and they keep the proportions of the area.
+ *
+ */
+public final class FrameScale {
+
+    /**
+     * The frames have the size of the area.
+     */
+    public static final FrameScale NONE = new FrameScale(1f, 0, 0);
+
+    /**
+     * Half the width and half the height of the area.
+     */
+    public static final FrameScale HALF = factor(0.5f);
+
+    /**
+     * The frames fit in 1280x720.
+     */
+    public static final FrameScale FIT_720P = fit(1280, 720);
+
+    /**
+     * The frames fit in 1920x1080.
+     */
+    public static final FrameScale FIT_1080P = fit(1920, 1080);
+
+    private final float factor;
+
+    /**
+     * Maximum width (0 if there is no maximum).
+     */
+    private final int maxWidth;
+
+    /**
+     * Maximum height (0 if there is no maximum).
+     */
+    private final int maxHeight;
+
+    private FrameScale(float factor, int maxWidth, int maxHeight) {
+        this.factor = factor;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * @param factor applied to both sides, greater than 0 and up to 1.
+     * @return the scale.
+     */
+    public static FrameScale factor(float factor) {
+        if (!(factor > 0 && factor <= 1)) {
+            throw new IllegalArgumentException("Invalid scale factor " + factor);
+        }
+        return new FrameScale(factor, 0, 0);
+    }
+
+    /**
+     * @param maxWidth maximum width of the frames.
+     * @param maxHeight maximum height of the frames.
+     * @return the scale fitting the frames in the given size.
+     */
+    public static FrameScale fit(int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            throw new IllegalArgumentException("Invalid maximum size " + maxWidth + "x" + maxHeight);
+        }
+        return new FrameScale(1f, maxWidth, maxHeight);
+    }
+
+    /**
+     * @param maxWidth maximum width of the frames.
+     * @return the scale limiting the width of the frames.
+     */
+    public static FrameScale maxWidth(int maxWidth) {
+        if (maxWidth <= 0) {
+            throw new IllegalArgumentException("Invalid maximum width " + maxWidth);
+        }
+        return new FrameScale(1f, maxWidth, 0);
+    }
+
+    /**
+     * @param width of the area.
+     * @param height of the area.
+     * @return the size of the frames.
+     */
+    public Dimension apply(int width, int height) {
+        double scale = factor;
+        if (maxWidth > 0) {
+            scale = Math.min(scale, maxWidth / (double) width);
+        }
+        if (maxHeight > 0) {
+            scale = Math.min(scale, maxHeight / (double) height);
+        }
+        if (scale >= 1) {
+            return new Dimension(width, height);
+        }
+        return new Dimension(Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    /**
+     * @see {@link Object#toString()}
+     */
+    @Override
+    public String toString() {
+        return "FrameScale[factor=" + factor + ", maxWidth=" + maxWidth + ", maxHeight=" + maxHeight + "]";
+    }
+
+}
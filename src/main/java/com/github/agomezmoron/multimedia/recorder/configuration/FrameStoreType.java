@@ -0,0 +1,58 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.configuration;
+
+/**
+ * Where the encoded frames are kept while recording.
+ *
+ */
+public enum FrameStoreType {
+
+    /**
+     * One JPEG file per frame in the temporal directory.
+     */
+    DIRECTORY,
+
+    /**
+     * Appended to a single memory mapped spool file in the temporal directory.
+     */
+    SPOOL,
+
+    /**
+     * In heap memory, spilling to a spool file once the memory limit is reached.
+     */
+    HEAP,
+
+    /**
+     * In direct (out of heap) memory, spilling to a spool file once the memory limit is reached.
+     */
+    DIRECT,
+
+    /**
+     * In heap memory, keeping only the frames of the last seconds (and up to the memory limit).
+     */
+    RING
+
+}
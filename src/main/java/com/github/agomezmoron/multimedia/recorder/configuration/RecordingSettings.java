@@ -0,0 +1,515 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.configuration;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.encoder.ChromaSubsampling;
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
+import com.github.agomezmoron.multimedia.recorder.preview.PreviewServer;
+
+/**
+ * Immutable snapshot of the {@link VideoRecorderConfiguration} used by a recording, so changing the configuration
+ * doesn't affect the recordings already started and each recording can use its own area and directories. The
+ * <code>with</code> methods return a modified copy.
+ *
+ */
+public final class RecordingSettings implements Cloneable {
+
+    private Rectangle area;
+
+    private FrameScale frameScale;
+
+    private int captureInterval;
+
+    private File tempDirectory;
+
+    private File videoDirectory;
+
+    private boolean keepFrames;
+
+    private boolean skipDuplicateFrames;
+
+    private FrameStoreType frameStoreType;
+
+    private long frameStoreMemoryLimit;
+
+    private int ringDuration;
+
+    private long spoolQuota;
+
+    private boolean preview;
+
+    private MuxerType muxerType;
+
+    private int muxerParallelism;
+
+    private FrameSource frameSource;
+
+    private boolean encodeLive;
+
+    private int queueDepth;
+
+    private OverflowPolicy overflowPolicy;
+
+    private int encoderThreads;
+
+    private int encoderParallelism;
+
+    private float jpegQuality;
+
+    private ChromaSubsampling chromaSubsampling;
+
+    private boolean progressiveJpeg;
+
+    private boolean optimizeHuffman;
+
+    private boolean adaptiveFrameRate;
+
+    private float minFrameRate;
+
+    private float maxFrameRate;
+
+    private float adaptiveSensitivity;
+
+    private RecordingSettings() {
+
+    }
+
+    /**
+     * It takes a snapshot of the current {@link VideoRecorderConfiguration}. The area is the whole virtual desktop (all
+     * the screens), or the bounds of the configured {@link FrameSource}, if
+     * {@link VideoRecorderConfiguration#wantToUseFullScreen()}; otherwise the configured one limited to them.
+     * @return the settings.
+     */
+    public static RecordingSettings fromConfiguration() {
+        RecordingSettings settings = new RecordingSettings();
+        settings.frameSource = VideoRecorderConfiguration.getFrameSource();
+        Rectangle desktop = VideoRecorderConfiguration.getCaptureBounds();
+        if (VideoRecorderConfiguration.wantToUseFullScreen()) {
+            settings.area = desktop;
+        } else {
+            settings.area = new Rectangle(VideoRecorderConfiguration.getX(), VideoRecorderConfiguration.getY(),
+                    VideoRecorderConfiguration.getWidth(), VideoRecorderConfiguration.getHeight());
+            if (!desktop.isEmpty()) {
+                settings.area = settings.area.intersection(desktop);
+            }
+        }
+        settings.frameScale = VideoRecorderConfiguration.getFrameScale();
+        settings.captureInterval = VideoRecorderConfiguration.getCaptureInterval();
+        settings.tempDirectory = VideoRecorderConfiguration.getTempDirectory();
+        settings.videoDirectory = VideoRecorderConfiguration.getVideoDirectory();
+        settings.keepFrames = VideoRecorderConfiguration.wantToKeepFrames();
+        settings.skipDuplicateFrames = VideoRecorderConfiguration.wantToSkipDuplicateFrames();
+        settings.frameStoreType = VideoRecorderConfiguration.getFrameStoreType();
+        settings.frameStoreMemoryLimit = VideoRecorderConfiguration.getFrameStoreMemoryLimit();
+        settings.ringDuration = VideoRecorderConfiguration.getRingDuration();
+        settings.spoolQuota = VideoRecorderConfiguration.getSpoolQuota();
+        settings.preview = VideoRecorderConfiguration.wantToPreview();
+        settings.muxerType = VideoRecorderConfiguration.getMuxerType();
+        settings.muxerParallelism = VideoRecorderConfiguration.getMuxerParallelism();
+        settings.encodeLive = VideoRecorderConfiguration.wantToEncodeLive();
+        settings.queueDepth = VideoRecorderConfiguration.getQueueDepth();
+        settings.overflowPolicy = VideoRecorderConfiguration.getOverflowPolicy();
+        settings.encoderThreads = VideoRecorderConfiguration.getEncoderThreads();
+        settings.encoderParallelism = VideoRecorderConfiguration.getEncoderParallelism();
+        settings.jpegQuality = VideoRecorderConfiguration.getJpegQuality();
+        settings.chromaSubsampling = VideoRecorderConfiguration.getChromaSubsampling();
+        settings.progressiveJpeg = VideoRecorderConfiguration.wantToUseProgressiveJpeg();
+        settings.optimizeHuffman = VideoRecorderConfiguration.wantToOptimizeHuffman();
+        settings.adaptiveFrameRate = VideoRecorderConfiguration.wantToAdaptFrameRate();
+        settings.minFrameRate = VideoRecorderConfiguration.getMinFrameRate();
+        settings.maxFrameRate = VideoRecorderConfiguration.getMaxFrameRate();
+        settings.adaptiveSensitivity = VideoRecorderConfiguration.getAdaptiveSensitivity();
+        return settings;
+    }
+
+    /**
+     * @param area of the screen to be recorded.
+     * @return a copy of the settings with the given area.
+     */
+    public RecordingSettings withArea(Rectangle area) {
+        if (area == null || area.width <= 0 || area.height <= 0) {
+            throw new IllegalArgumentException("Invalid area " + area);
+        }
+        RecordingSettings copy = copy();
+        copy.area = new Rectangle(area);
+        return copy;
+    }
+
+    /**
+     * @param frameScale size of the frames relative to the area.
+     * @return a copy of the settings with the given scale.
+     */
+    public RecordingSettings withFrameScale(FrameScale frameScale) {
+        if (frameScale == null) {
+            throw new IllegalArgumentException("Invalid frame scale");
+        }
+        RecordingSettings copy = copy();
+        copy.frameScale = frameScale;
+        return copy;
+    }
+
+    /**
+     * @param captureInterval between captures (in milliseconds).
+     * @return a copy of the settings with the given interval.
+     */
+    public RecordingSettings withCaptureInterval(int captureInterval) {
+        if (captureInterval <= 0) {
+            throw new IllegalArgumentException("Invalid capture interval " + captureInterval);
+        }
+        RecordingSettings copy = copy();
+        copy.captureInterval = captureInterval;
+        return copy;
+    }
+
+    /**
+     * @param tempDirectory where the frames are kept while recording.
+     * @return a copy of the settings with the given directory.
+     */
+    public RecordingSettings withTempDirectory(File tempDirectory) {
+        RecordingSettings copy = copy();
+        copy.tempDirectory = tempDirectory;
+        return copy;
+    }
+
+    /**
+     * @param videoDirectory where the video is created.
+     * @return a copy of the settings with the given directory.
+     */
+    public RecordingSettings withVideoDirectory(File videoDirectory) {
+        RecordingSettings copy = copy();
+        copy.videoDirectory = videoDirectory;
+        return copy;
+    }
+
+    /**
+     * @param frameStoreType where the encoded frames are kept while recording.
+     * @return a copy of the settings with the given store.
+     */
+    public RecordingSettings withFrameStoreType(FrameStoreType frameStoreType) {
+        if (frameStoreType == null) {
+            throw new IllegalArgumentException("Invalid frame store type");
+        }
+        RecordingSettings copy = copy();
+        copy.frameStoreType = frameStoreType;
+        return copy;
+    }
+
+    /**
+     * @param spoolQuota maximum bytes of frames and videos being created in the temp directory (0 if there is no
+     *            limit).
+     * @return a copy of the settings with the given quota.
+     */
+    public RecordingSettings withSpoolQuota(long spoolQuota) {
+        if (spoolQuota < 0) {
+            throw new IllegalArgumentException("Invalid spool quota " + spoolQuota);
+        }
+        RecordingSettings copy = copy();
+        copy.spoolQuota = spoolQuota;
+        return copy;
+    }
+
+    /**
+     * @param preview if true, the recording can be watched live through the {@link PreviewServer}.
+     * @return a copy of the settings with the given mode.
+     */
+    public RecordingSettings withPreview(boolean preview) {
+        RecordingSettings copy = copy();
+        copy.preview = preview;
+        return copy;
+    }
+
+    /**
+     * @param frameSource source of the frames, or null to capture the screen.
+     * @return a copy of the settings with the given source.
+     */
+    public RecordingSettings withFrameSource(FrameSource frameSource) {
+        RecordingSettings copy = copy();
+        copy.frameSource = frameSource;
+        return copy;
+    }
+
+    /**
+     * @param muxerParallelism number of threads writing the segments of the video in parallel when it is muxed after
+     *            the recording stops (1 to write it on a single thread).
+     * @return a copy of the settings with the given parallelism.
+     */
+    public RecordingSettings withMuxerParallelism(int muxerParallelism) {
+        if (muxerParallelism < 1) {
+            throw new IllegalArgumentException("Invalid muxer parallelism " + muxerParallelism);
+        }
+        RecordingSettings copy = copy();
+        copy.muxerParallelism = muxerParallelism;
+        return copy;
+    }
+
+    /**
+     * @param encodeLive if true the video is muxed while recording.
+     * @return a copy of the settings with the given mode.
+     */
+    public RecordingSettings withEncodeLive(boolean encodeLive) {
+        RecordingSettings copy = copy();
+        copy.encodeLive = encodeLive;
+        return copy;
+    }
+
+    /**
+     * @return the area of the screen to be recorded.
+     */
+    public Rectangle getArea() {
+        return new Rectangle(area);
+    }
+
+    /**
+     * @return the source of the frames, or null if the screen is captured.
+     */
+    public FrameSource getFrameSource() {
+        return frameSource;
+    }
+
+    /**
+     * @return the frameScale
+     */
+    public FrameScale getFrameScale() {
+        return frameScale;
+    }
+
+    /**
+     * @return the size of the recorded frames (and of the video): the area with the frame scale applied.
+     */
+    public Dimension getFrameSize() {
+        return frameScale.apply(area.width, area.height);
+    }
+
+    /**
+     * @return the captureInterval (in milliseconds)
+     */
+    public int getCaptureInterval() {
+        return captureInterval;
+    }
+
+    /**
+     * @return the tempDirectory
+     */
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @return the videoDirectory
+     */
+    public File getVideoDirectory() {
+        return videoDirectory;
+    }
+
+    /**
+     * @return the keepFrames
+     */
+    public boolean wantToKeepFrames() {
+        return keepFrames;
+    }
+
+    /**
+     * @return the skipDuplicateFrames
+     */
+    public boolean wantToSkipDuplicateFrames() {
+        return skipDuplicateFrames;
+    }
+
+    /**
+     * @return the frameStoreType
+     */
+    public FrameStoreType getFrameStoreType() {
+        return frameStoreType;
+    }
+
+    /**
+     * @return the frameStoreMemoryLimit (in bytes)
+     */
+    public long getFrameStoreMemoryLimit() {
+        return frameStoreMemoryLimit;
+    }
+
+    /**
+     * @return the ringDuration (in seconds)
+     */
+    public int getRingDuration() {
+        return ringDuration;
+    }
+
+    /**
+     * @return the spoolQuota (in bytes, 0 if there is no limit)
+     */
+    public long getSpoolQuota() {
+        return spoolQuota;
+    }
+
+    /**
+     * @return the preview
+     */
+    public boolean wantToPreview() {
+        return preview;
+    }
+
+    /**
+     * @return the muxerType
+     */
+    public MuxerType getMuxerType() {
+        return muxerType;
+    }
+
+    /**
+     * @return the muxerParallelism
+     */
+    public int getMuxerParallelism() {
+        return muxerParallelism;
+    }
+
+    /**
+     * @return the encodeLive
+     */
+    public boolean wantToEncodeLive() {
+        return encodeLive;
+    }
+
+    /**
+     * @return the queueDepth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the overflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return the encoderThreads
+     */
+    public int getEncoderThreads() {
+        return encoderThreads;
+    }
+
+    /**
+     * @return the encoderParallelism
+     */
+    public int getEncoderParallelism() {
+        return encoderParallelism;
+    }
+
+    /**
+     * @return true if the big frames can be encoded in stripes: there is more than one thread for them and the JPEGs
+     *         are baseline with the standard Huffman tables.
+     */
+    public boolean wantToEncodeInStripes() {
+        return encoderParallelism > 1 && !progressiveJpeg && !optimizeHuffman;
+    }
+
+    /**
+     * @return the jpegQuality
+     */
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * @return the chromaSubsampling
+     */
+    public ChromaSubsampling getChromaSubsampling() {
+        return chromaSubsampling;
+    }
+
+    /**
+     * @return the progressiveJpeg
+     */
+    public boolean wantToUseProgressiveJpeg() {
+        return progressiveJpeg;
+    }
+
+    /**
+     * @return the optimizeHuffman
+     */
+    public boolean wantToOptimizeHuffman() {
+        return optimizeHuffman;
+    }
+
+    /**
+     * @return the JPEG encoder of the calling thread, with these settings.
+     */
+    public JpegEncoder getJpegEncoder() {
+        return JpegEncoder.forCurrentThread(jpegQuality, chromaSubsampling, progressiveJpeg, optimizeHuffman);
+    }
+
+    /**
+     * @return the adaptiveFrameRate
+     */
+    public boolean wantToAdaptFrameRate() {
+        return adaptiveFrameRate;
+    }
+
+    /**
+     * @return the minFrameRate (in frames per second)
+     */
+    public float getMinFrameRate() {
+        return minFrameRate;
+    }
+
+    /**
+     * @return the maxFrameRate (in frames per second)
+     */
+    public float getMaxFrameRate() {
+        return maxFrameRate;
+    }
+
+    /**
+     * @return the adaptiveSensitivity
+     */
+    public float getAdaptiveSensitivity() {
+        return adaptiveSensitivity;
+    }
+
+    /**
+     * @return the frame rate the video is expected to have (the maximum one if it is adaptive).
+     */
+    public float getNominalFrameRate() {
+        return adaptiveFrameRate ? maxFrameRate : 1000f / captureInterval;
+    }
+
+    private RecordingSettings copy() {
+        try {
+            return (RecordingSettings) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
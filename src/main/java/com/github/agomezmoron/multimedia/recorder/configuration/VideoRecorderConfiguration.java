@@ -28,8 +28,14 @@ import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.encoder.ChromaSubsampling;
+import com.github.agomezmoron.multimedia.encoder.JpegEncoder;
 import com.github.agomezmoron.multimedia.recorder.VideoRecorder;
+import com.github.agomezmoron.multimedia.recorder.preview.PreviewServer;
 
 /**
  * Video recorder configuration to be used in {@link VideoRecorder}.
@@ -53,6 +59,106 @@ public class VideoRecorderConfiguration {
      */
     private static boolean keepFrames = false;
 
+    /**
+     * Flag to know if the captures equal to the previous one are skipped (the previous frame lasts longer instead).
+     */
+    private static boolean skipDuplicateFrames = true;
+
+    /**
+     * Size of the recorded frames relative to the captured area.
+     */
+    private static FrameScale frameScale = FrameScale.NONE;
+
+    /**
+     * Where the encoded frames are kept while recording.
+     */
+    private static FrameStoreType frameStoreType = FrameStoreType.DIRECTORY;
+
+    /**
+     * Maximum number of bytes of frames kept in memory by the memory frame stores.
+     */
+    private static long frameStoreMemoryLimit = 256L * 1024 * 1024;
+
+    /**
+     * Seconds of recording kept by the {@link FrameStoreType#RING} store.
+     */
+    private static int ringDuration = 30;
+
+    /**
+     * Maximum bytes of frames and videos being created in the temp directory (0 if there is no limit).
+     */
+    private static long spoolQuota = 0;
+
+    /**
+     * If true, the recordings can be watched live through the {@link PreviewServer}.
+     */
+    private static boolean preview = false;
+
+    /**
+     * Address the {@link PreviewServer} listens at.
+     */
+    private static String previewAddress = "localhost";
+
+    /**
+     * Port the {@link PreviewServer} listens at (0 for any free port).
+     */
+    private static int previewPort = 0;
+
+    /**
+     * How the videos are written.
+     */
+    private static MuxerType muxerType = MuxerType.QUICKTIME;
+
+    /**
+     * Source of the frames, or null to capture the screen.
+     */
+    private static FrameSource frameSource = null;
+
+    /**
+     * Flag to know if the video is muxed while recording instead of when the recording stops.
+     */
+    private static boolean encodeLive = false;
+
+    /**
+     * Quality of the JPEG frames, between 0 (smallest) and 1 (best).
+     */
+    private static float jpegQuality = JpegEncoder.DEFAULT_QUALITY;
+
+    /**
+     * Resolution of the colors of the JPEG frames.
+     */
+    private static ChromaSubsampling chromaSubsampling = ChromaSubsampling.YUV420;
+
+    /**
+     * Flag to know if the frames are encoded as progressive JPEGs.
+     */
+    private static boolean progressiveJpeg = false;
+
+    /**
+     * Flag to know if the Huffman tables are optimized for each frame.
+     */
+    private static boolean optimizeHuffman = false;
+
+    /**
+     * Flag to know if the capture interval adapts to the activity on the screen instead of being fixed.
+     */
+    private static boolean adaptiveFrameRate = false;
+
+    /**
+     * Frames per second captured while the screen is idle (adaptive frame rate).
+     */
+    private static float minFrameRate = 1f;
+
+    /**
+     * Frames per second captured while the screen is active (adaptive frame rate).
+     */
+    private static float maxFrameRate = 20f;
+
+    /**
+     * Between 0 and 1, how small a change can be to consider the screen active (adaptive frame rate).
+     */
+    private static float adaptiveSensitivity = 1f;
+
     /**
      * Flag to know if the video will be in full screen or not.
      */
@@ -73,6 +179,38 @@ public class VideoRecorderConfiguration {
      */
     private static int captureInterval = 50;
 
+    /**
+     * Number of captured frames that can wait to be encoded.
+     */
+    private static int queueDepth = 8;
+
+    /**
+     * What the capture does when the queue of frames waiting to be encoded is full.
+     */
+    private static OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * Number of threads encoding the captured frames.
+     */
+    private static int encoderThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Number of threads encoding the stripes of the big frames in parallel (1 to encode every frame whole). Only used
+     * with the standard Huffman tables and baseline JPEGs.
+     */
+    private static int encoderParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of videos that can be muxed at the same time after their recordings stop.
+     */
+    private static int muxerThreads = 2;
+
+    /**
+     * Number of threads writing the segments of a video in parallel when it is muxed after its recording stops (1 to
+     * write it on a single thread).
+     */
+    private static int muxerParallelism = Runtime.getRuntime().availableProcessors();
+
     private static File defaultDirectory = (System.getProperty("java.io.tmpdir") != null)
             ? new File(System.getProperty("java.io.tmpdir")) : new File(".");
 
@@ -97,7 +235,7 @@ public class VideoRecorderConfiguration {
      * @param width the width to set
      */
     public static void setWidth(int width) {
-        if (VideoRecorderConfiguration.width >= 0 && width <= getMaxWidth()) {
+        if (width >= 0 && width <= getMaxWidth()) {
             VideoRecorderConfiguration.width = width;
             if (VideoRecorderConfiguration.width < getMaxWidth()) {
                 useFullScreen = false;
@@ -116,7 +254,7 @@ public class VideoRecorderConfiguration {
      * @param height the height to set
      */
     public static void setHeight(int height) {
-        if (VideoRecorderConfiguration.height >= 0 && height <= getMaxHeight()) {
+        if (height >= 0 && height <= getMaxHeight()) {
             VideoRecorderConfiguration.height = height;
             if (VideoRecorderConfiguration.height < getMaxHeight()) {
                 useFullScreen = false;
@@ -138,6 +276,326 @@ public class VideoRecorderConfiguration {
         VideoRecorderConfiguration.keepFrames = keepFrames;
     }
 
+    /**
+     * @return the skipDuplicateFrames
+     */
+    public static boolean wantToSkipDuplicateFrames() {
+        return skipDuplicateFrames;
+    }
+
+    /**
+     * @param skipDuplicateFrames the skipDuplicateFrames to set
+     */
+    public static void wantToSkipDuplicateFrames(boolean skipDuplicateFrames) {
+        VideoRecorderConfiguration.skipDuplicateFrames = skipDuplicateFrames;
+    }
+
+    /**
+     * @return the frameScale
+     */
+    public static FrameScale getFrameScale() {
+        return frameScale;
+    }
+
+    /**
+     * The frames are reduced right after the capture, so the encoding, the memory and the disk usage decrease with the
+     * square of the factor.
+     * @param frameScale the frameScale to set, e.g. {@link FrameScale#HALF} or {@link FrameScale#FIT_720P}
+     */
+    public static void setFrameScale(FrameScale frameScale) {
+        if (frameScale != null) {
+            VideoRecorderConfiguration.frameScale = frameScale;
+        }
+    }
+
+    /**
+     * @return the frameStoreType
+     */
+    public static FrameStoreType getFrameStoreType() {
+        return frameStoreType;
+    }
+
+    /**
+     * The memory stores are ignored if {@link #wantToKeepFrames()}, because the frames have to be kept as files.
+     * @param frameStoreType the frameStoreType to set
+     */
+    public static void setFrameStoreType(FrameStoreType frameStoreType) {
+        if (frameStoreType != null) {
+            VideoRecorderConfiguration.frameStoreType = frameStoreType;
+        }
+    }
+
+    /**
+     * @return the frameStoreMemoryLimit (in bytes)
+     */
+    public static long getFrameStoreMemoryLimit() {
+        return frameStoreMemoryLimit;
+    }
+
+    /**
+     * @param frameStoreMemoryLimit the frameStoreMemoryLimit to set (in bytes)
+     */
+    public static void setFrameStoreMemoryLimit(long frameStoreMemoryLimit) {
+        if (frameStoreMemoryLimit > 0) {
+            VideoRecorderConfiguration.frameStoreMemoryLimit = frameStoreMemoryLimit;
+        }
+    }
+
+    /**
+     * @return the spoolQuota (in bytes, 0 if there is no limit)
+     * @see {@link com.github.agomezmoron.multimedia.store.SpoolManager}
+     */
+    public static long getSpoolQuota() {
+        return spoolQuota;
+    }
+
+    /**
+     * @param spoolQuota the spoolQuota to set (in bytes, 0 to remove the limit)
+     */
+    public static void setSpoolQuota(long spoolQuota) {
+        if (spoolQuota >= 0) {
+            VideoRecorderConfiguration.spoolQuota = spoolQuota;
+        }
+    }
+
+    /**
+     * @return the preview
+     */
+    public static boolean wantToPreview() {
+        return preview;
+    }
+
+    /**
+     * @param preview if true, the recordings can be watched live through the {@link PreviewServer}, started with the
+     *            first one.
+     */
+    public static void wantToPreview(boolean preview) {
+        VideoRecorderConfiguration.preview = preview;
+    }
+
+    /**
+     * @return the previewAddress
+     */
+    public static String getPreviewAddress() {
+        return previewAddress;
+    }
+
+    /**
+     * @param previewAddress the previewAddress to set ("localhost" so only the local machine can connect, "0.0.0.0"
+     *            for any)
+     */
+    public static void setPreviewAddress(String previewAddress) {
+        if (previewAddress != null && !previewAddress.isEmpty()) {
+            VideoRecorderConfiguration.previewAddress = previewAddress;
+        }
+    }
+
+    /**
+     * @return the previewPort
+     */
+    public static int getPreviewPort() {
+        return previewPort;
+    }
+
+    /**
+     * @param previewPort the previewPort to set (0 for any free port, logged when the server starts)
+     */
+    public static void setPreviewPort(int previewPort) {
+        if (previewPort >= 0 && previewPort <= 65535) {
+            VideoRecorderConfiguration.previewPort = previewPort;
+        }
+    }
+
+    /**
+     * @return the muxerType
+     */
+    public static MuxerType getMuxerType() {
+        return muxerType;
+    }
+
+    /**
+     * @param muxerType the muxerType to set
+     */
+    public static void setMuxerType(MuxerType muxerType) {
+        if (muxerType != null) {
+            VideoRecorderConfiguration.muxerType = muxerType;
+        }
+    }
+
+    /**
+     * @return the frameSource, or null if the screen is captured
+     */
+    public static FrameSource getFrameSource() {
+        return frameSource;
+    }
+
+    /**
+     * @param frameSource the frameSource to set, or null to capture the screen
+     */
+    public static void setFrameSource(FrameSource frameSource) {
+        VideoRecorderConfiguration.frameSource = frameSource;
+    }
+
+    /**
+     * @return the ringDuration (in seconds)
+     */
+    public static int getRingDuration() {
+        return ringDuration;
+    }
+
+    /**
+     * @param ringDuration the ringDuration to set (in seconds)
+     */
+    public static void setRingDuration(int ringDuration) {
+        if (ringDuration > 0) {
+            VideoRecorderConfiguration.ringDuration = ringDuration;
+        }
+    }
+
+    /**
+     * @return the encodeLive
+     */
+    public static boolean wantToEncodeLive() {
+        return encodeLive;
+    }
+
+    /**
+     * If true, the video is muxed while recording so {@link VideoRecorder#stop()} only has to write the last frames.
+     * The frames are only written into the temporal directory if {@link #wantToKeepFrames()}.
+     * @param encodeLive the encodeLive to set
+     */
+    public static void wantToEncodeLive(boolean encodeLive) {
+        VideoRecorderConfiguration.encodeLive = encodeLive;
+    }
+
+    /**
+     * @return the jpegQuality
+     */
+    public static float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * @param jpegQuality the jpegQuality to set, between 0 (smallest frames) and 1 (best quality)
+     */
+    public static void setJpegQuality(float jpegQuality) {
+        if (jpegQuality >= 0 && jpegQuality <= 1) {
+            VideoRecorderConfiguration.jpegQuality = jpegQuality;
+        }
+    }
+
+    /**
+     * @return the chromaSubsampling
+     */
+    public static ChromaSubsampling getChromaSubsampling() {
+        return chromaSubsampling;
+    }
+
+    /**
+     * {@link ChromaSubsampling#YUV444} keeps colored text sharp at the cost of bigger frames.
+     * @param chromaSubsampling the chromaSubsampling to set
+     */
+    public static void setChromaSubsampling(ChromaSubsampling chromaSubsampling) {
+        if (chromaSubsampling != null) {
+            VideoRecorderConfiguration.chromaSubsampling = chromaSubsampling;
+        }
+    }
+
+    /**
+     * @return the progressiveJpeg
+     */
+    public static boolean wantToUseProgressiveJpeg() {
+        return progressiveJpeg;
+    }
+
+    /**
+     * Progressive frames are a bit smaller but take more CPU and not every player supports them inside a video.
+     * @param progressiveJpeg the progressiveJpeg to set
+     */
+    public static void wantToUseProgressiveJpeg(boolean progressiveJpeg) {
+        VideoRecorderConfiguration.progressiveJpeg = progressiveJpeg;
+    }
+
+    /**
+     * @return the optimizeHuffman
+     */
+    public static boolean wantToOptimizeHuffman() {
+        return optimizeHuffman;
+    }
+
+    /**
+     * Optimized Huffman tables make the frames smaller at the cost of a second pass over each frame.
+     * @param optimizeHuffman the optimizeHuffman to set
+     */
+    public static void wantToOptimizeHuffman(boolean optimizeHuffman) {
+        VideoRecorderConfiguration.optimizeHuffman = optimizeHuffman;
+    }
+
+    /**
+     * @return the adaptiveFrameRate
+     */
+    public static boolean wantToAdaptFrameRate() {
+        return adaptiveFrameRate;
+    }
+
+    /**
+     * If true, the screen is captured at {@link #getMaxFrameRate()} while it changes and the rate drops down to
+     * {@link #getMinFrameRate()} while it is idle, so the capture interval is ignored.
+     * @param adaptiveFrameRate the adaptiveFrameRate to set
+     */
+    public static void wantToAdaptFrameRate(boolean adaptiveFrameRate) {
+        VideoRecorderConfiguration.adaptiveFrameRate = adaptiveFrameRate;
+    }
+
+    /**
+     * @return the minFrameRate (in frames per second)
+     */
+    public static float getMinFrameRate() {
+        return minFrameRate;
+    }
+
+    /**
+     * @param minFrameRate the minFrameRate to set (in frames per second)
+     */
+    public static void setMinFrameRate(float minFrameRate) {
+        if (minFrameRate > 0) {
+            VideoRecorderConfiguration.minFrameRate = minFrameRate;
+        }
+    }
+
+    /**
+     * @return the maxFrameRate (in frames per second)
+     */
+    public static float getMaxFrameRate() {
+        return maxFrameRate;
+    }
+
+    /**
+     * @param maxFrameRate the maxFrameRate to set (in frames per second)
+     */
+    public static void setMaxFrameRate(float maxFrameRate) {
+        if (maxFrameRate > 0) {
+            VideoRecorderConfiguration.maxFrameRate = maxFrameRate;
+        }
+    }
+
+    /**
+     * @return the adaptiveSensitivity
+     */
+    public static float getAdaptiveSensitivity() {
+        return adaptiveSensitivity;
+    }
+
+    /**
+     * With 1 any change on the screen raises the frame rate, with 0.9 at least a 10% of the screen has to change.
+     * @param adaptiveSensitivity the adaptiveSensitivity to set, between 0 and 1
+     */
+    public static void setAdaptiveSensitivity(float adaptiveSensitivity) {
+        if (adaptiveSensitivity >= 0 && adaptiveSensitivity <= 1) {
+            VideoRecorderConfiguration.adaptiveSensitivity = adaptiveSensitivity;
+        }
+    }
+
     /**
      * @return the useFullScreen
      */
@@ -160,10 +618,12 @@ public class VideoRecorderConfiguration {
     }
 
     /**
-     * @param x the x to set.
+     * @param x the x to set, in virtual desktop coordinates (it is negative for screens at the left of the primary
+     *          one), or in the coordinates of the {@link #getFrameSource() frameSource} if there is one.
      */
     public static void setX(int x) {
-        if (x >= 0 && x <= getMaxWidth()) {
+        Rectangle desktop = getCaptureBounds();
+        if (x >= desktop.x && x <= desktop.x + desktop.width) {
             VideoRecorderConfiguration.x = x;
         }
     }
@@ -176,10 +636,12 @@ public class VideoRecorderConfiguration {
     }
 
     /**
-     * @param y the y to set
+     * @param y the y to set, in virtual desktop coordinates (it is negative for screens above the primary one), or
+     *          in the coordinates of the {@link #getFrameSource() frameSource} if there is one.
      */
     public static void setY(int y) {
-        if (y >= 0 && y <= getMaxHeight()) {
+        Rectangle desktop = getCaptureBounds();
+        if (y >= desktop.y && y <= desktop.y + desktop.height) {
             VideoRecorderConfiguration.y = y;
         }
     }
@@ -198,6 +660,102 @@ public class VideoRecorderConfiguration {
         VideoRecorderConfiguration.captureInterval = captureInterval;
     }
 
+    /**
+     * @return the queueDepth
+     */
+    public static int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @param queueDepth the queueDepth to set
+     */
+    public static void setQueueDepth(int queueDepth) {
+        if (queueDepth > 0) {
+            VideoRecorderConfiguration.queueDepth = queueDepth;
+        }
+    }
+
+    /**
+     * @return the overflowPolicy
+     */
+    public static OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @param overflowPolicy the overflowPolicy to set
+     */
+    public static void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy != null) {
+            VideoRecorderConfiguration.overflowPolicy = overflowPolicy;
+        }
+    }
+
+    /**
+     * @return the encoderThreads
+     */
+    public static int getEncoderThreads() {
+        return encoderThreads;
+    }
+
+    /**
+     * @param encoderThreads the encoderThreads to set
+     */
+    public static void setEncoderThreads(int encoderThreads) {
+        if (encoderThreads > 0) {
+            VideoRecorderConfiguration.encoderThreads = encoderThreads;
+        }
+    }
+
+    /**
+     * @return the encoderParallelism
+     */
+    public static int getEncoderParallelism() {
+        return encoderParallelism;
+    }
+
+    /**
+     * @param encoderParallelism the encoderParallelism to set
+     */
+    public static void setEncoderParallelism(int encoderParallelism) {
+        if (encoderParallelism > 0) {
+            VideoRecorderConfiguration.encoderParallelism = encoderParallelism;
+        }
+    }
+
+    /**
+     * @return the muxerThreads
+     */
+    public static int getMuxerThreads() {
+        return muxerThreads;
+    }
+
+    /**
+     * @param muxerThreads the muxerThreads to set
+     */
+    public static void setMuxerThreads(int muxerThreads) {
+        if (muxerThreads > 0) {
+            VideoRecorderConfiguration.muxerThreads = muxerThreads;
+        }
+    }
+
+    /**
+     * @return the muxerParallelism
+     */
+    public static int getMuxerParallelism() {
+        return muxerParallelism;
+    }
+
+    /**
+     * @param muxerParallelism the muxerParallelism to set
+     */
+    public static void setMuxerParallelism(int muxerParallelism) {
+        if (muxerParallelism > 0) {
+            VideoRecorderConfiguration.muxerParallelism = muxerParallelism;
+        }
+    }
+
     /**
      * @return the tempDirectory
      */
@@ -243,27 +801,53 @@ public class VideoRecorderConfiguration {
         VideoRecorderConfiguration.videoDirectory = videoPath;
     }
 
+    /**
+     * @return the width of the area that can be recorded.
+     * @see {@link #getCaptureBounds()}
+     */
     public static final int getMaxWidth() {
-        int maxWidth = 0;
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsDevice[] screens = ge.getScreenDevices();
-        Rectangle allScreenBounds = new Rectangle();
-        for (GraphicsDevice screen : screens) {
-            Rectangle screenBounds = screen.getDefaultConfiguration().getBounds();
-            maxWidth += screenBounds.width;
-        }
-        return maxWidth;
+        return getCaptureBounds().width;
     }
 
+    /**
+     * @return the height of the area that can be recorded.
+     * @see {@link #getCaptureBounds()}
+     */
     public static final int getMaxHeight() {
-        int maxHeight = 0;
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsDevice[] screens = ge.getScreenDevices();
-        Rectangle allScreenBounds = new Rectangle();
-        for (GraphicsDevice screen : screens) {
-            Rectangle screenBounds = screen.getDefaultConfiguration().getBounds();
-            maxHeight += screenBounds.height;
+        return getCaptureBounds().height;
+    }
+
+    /**
+     * @return the area that can be recorded: the bounds of the {@link #getFrameSource() frameSource} if there is one,
+     *         otherwise the virtual desktop.
+     */
+    public static Rectangle getCaptureBounds() {
+        return frameSource != null ? frameSource.getBounds() : getVirtualDesktop();
+    }
+
+    /**
+     * @return the bounds of the virtual desktop: the union of the bounds of all the screens, which can start at
+     *         negative coordinates if there are screens at the left of or above the primary one. It is empty if there
+     *         are no screens.
+     */
+    public static Rectangle getVirtualDesktop() {
+        Rectangle desktop = new Rectangle();
+        for (Rectangle screen : getScreenBounds()) {
+            desktop = desktop.isEmpty() ? screen : desktop.union(screen);
+        }
+        return desktop;
+    }
+
+    /**
+     * @return the bounds of each screen, in virtual desktop coordinates (none without screens).
+     */
+    public static List<Rectangle> getScreenBounds() {
+        List<Rectangle> bounds = new ArrayList<Rectangle>();
+        if (!GraphicsEnvironment.isHeadless()) {
+            for (GraphicsDevice screen : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+                bounds.add(screen.getDefaultConfiguration().getBounds());
+            }
         }
-        return maxHeight;
+        return bounds;
     }
 }
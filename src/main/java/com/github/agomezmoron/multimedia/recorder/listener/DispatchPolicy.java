@@ -0,0 +1,55 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.listener;
+
+/**
+ * What happens with the frames of a {@link VideoRecorderEventListener} that is slower than the recording. Each
+ * listener has its own queue and thread, so the policy only affects that listener (except {@link #BLOCK}, which can
+ * slow down the recording).
+ *
+ */
+public enum DispatchPolicy {
+
+    /**
+     * The recording waits until there is room in the queue of the listener. It gets every frame.
+     */
+    BLOCK,
+
+    /**
+     * The new frames are discarded while the queue of the listener is full.
+     */
+    DROP,
+
+    /**
+     * Only the latest frame is kept: a new frame replaces the one waiting for the listener.
+     */
+    COALESCE,
+
+    /**
+     * The listener gets one of every N frames (the recording waits if its queue is full).
+     */
+    SAMPLE
+
+}
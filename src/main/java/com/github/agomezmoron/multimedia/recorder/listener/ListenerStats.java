@@ -0,0 +1,114 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.listener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the frames sent to a {@link VideoRecorderEventListener}. The lag is the time a frame waits in the queue
+ * of the listener until it is delivered.
+ *
+ */
+public class ListenerStats {
+
+    private final long delivered;
+
+    private final long dropped;
+
+    private final long failed;
+
+    private final int queued;
+
+    private final long totalLag;
+
+    private final long maxLag;
+
+    /**
+     * Constructor.
+     * @param delivered number of frames delivered.
+     * @param dropped number of frames discarded by the policy.
+     * @param failed number of frames where the listener threw an exception or an error.
+     * @param queued number of frames waiting (or being delivered).
+     * @param totalLag sum of the lag of the delivered frames (in nanoseconds).
+     * @param maxLag maximum lag (in nanoseconds).
+     */
+    public ListenerStats(long delivered, long dropped, long failed, int queued, long totalLag, long maxLag) {
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.failed = failed;
+        this.queued = queued;
+        this.totalLag = totalLag;
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * @return the number of frames delivered.
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return the number of frames discarded by the policy (or because the listener was removed).
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of frames where the listener threw an exception or an error.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of frames waiting to be delivered (or being delivered).
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return the average lag of the delivered frames (in milliseconds).
+     */
+    public double getAverageLag() {
+        return delivered > 0 ? totalLag / (double) delivered / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    /**
+     * @return the maximum lag (in milliseconds).
+     */
+    public double getMaxLag() {
+        return maxLag / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return delivered + " delivered, " + dropped + " dropped, " + failed + " failed, " + queued + " queued, "
+                + String.format("%.1f ms average lag, %.1f ms max lag", getAverageLag(), getMaxLag());
+    }
+
+}
@@ -1,18 +1,49 @@
 package com.github.agomezmoron.multimedia.recorder.listener;
 
+import java.nio.IntBuffer;
 import java.util.EventObject;
 
 import com.github.agomezmoron.multimedia.capture.ScreenCapture;
+import com.github.agomezmoron.multimedia.recorder.RecordingSession;
 
 public class VideoRecorderEventObject extends EventObject {
 	
 	private static final long serialVersionUID = 7841721360521723629L;
 	private ScreenCapture screenCapture;
 	
+	/**
+	 * The capture is only valid during {@link VideoRecorderEventListener#frameAdded}. The image returned by its
+	 * {@link ScreenCapture#getSource()} is a copy that can be kept. {@link ScreenCapture#getImage()} and
+	 * {@link ScreenCapture#getFrameBuffer()} give access to the pixels without copying them, but their buffer is reused
+	 * afterwards unless the listener calls {@code getScreenCapture().getFrameBuffer().retain()} (and releases it later).
+	 * @return the capture.
+	 */
 	public ScreenCapture getScreenCapture(){
 		return this.screenCapture;
 	}
 	
+	/**
+	 * @return the session that recorded the frame (the source of the event), or null if it wasn't sent by a session.
+	 */
+	public RecordingSession getRecording() {
+		return this.source instanceof RecordingSession ? (RecordingSession) this.source : null;
+	}
+	
+	/**
+	 * @return a read only view of the pixels of the frame (RGB ints, row after row), without copying them. It is only
+	 *         valid during {@link VideoRecorderEventListener#frameAdded}.
+	 */
+	public IntBuffer getPixels() {
+		return this.screenCapture.getFrameBuffer().getPixels();
+	}
+	
+	/**
+	 * @return the number of pixels between the starts of two consecutive rows of {@link #getPixels()}.
+	 */
+	public int getStride() {
+		return this.screenCapture.getFrameBuffer().getStride();
+	}
+	
 	public VideoRecorderEventObject(Object source, ScreenCapture screenCapture) {
 		super(source);
 		this.screenCapture = screenCapture;
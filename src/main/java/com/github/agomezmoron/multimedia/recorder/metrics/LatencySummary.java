@@ -0,0 +1,118 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Locale;
+
+/**
+ * Snapshot of a {@link LatencyHistogram}. The latencies are in nanoseconds.
+ *
+ */
+public class LatencySummary {
+
+    private final long count;
+
+    private final long mean;
+
+    private final long median;
+
+    private final long percentile90;
+
+    private final long percentile99;
+
+    private final long max;
+
+    /**
+     * Constructor.
+     * @param count number of latencies.
+     * @param mean latency.
+     * @param median latency.
+     * @param percentile90 latency below which are 90% of them.
+     * @param percentile99 latency below which are 99% of them.
+     * @param max latency.
+     */
+    @ConstructorProperties({ "count", "mean", "median", "percentile90", "percentile99", "max" })
+    public LatencySummary(long count, long mean, long median, long percentile90, long percentile99, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean latency.
+     */
+    public long getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the median latency.
+     */
+    public long getMedian() {
+        return median;
+    }
+
+    /**
+     * @return the latency below which are 90% of them.
+     */
+    public long getPercentile90() {
+        return percentile90;
+    }
+
+    /**
+     * @return the latency below which are 99% of them.
+     */
+    public long getPercentile99() {
+        return percentile99;
+    }
+
+    /**
+     * @return the maximum latency.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "none";
+        }
+        return String.format(Locale.ROOT, "%d, mean %.2fms, p50 %.2fms, p90 %.2fms, p99 %.2fms, max %.2fms", count,
+                mean / 1e6, median / 1e6, percentile90 / 1e6, percentile99 / 1e6, max / 1e6);
+    }
+
+}
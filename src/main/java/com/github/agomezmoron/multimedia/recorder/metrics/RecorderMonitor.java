@@ -0,0 +1,262 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Metrics of all the recordings of the JVM. It is registered in the platform MBean server as
+ * {@value #OBJECT_NAME} the first time it is used, so they can be followed with any JMX console.
+ *
+ */
+public final class RecorderMonitor implements RecorderMonitorMXBean {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(RecorderMonitor.class);
+
+    /**
+     * Name of the MBean.
+     */
+    public static final String OBJECT_NAME = "com.github.agomezmoron.multimedia:type=RecorderMonitor";
+
+    private static RecorderMonitor instance;
+
+    /**
+     * Totals of all the recordings.
+     */
+    private final RecordingMetrics totals = new RecordingMetrics(null);
+
+    /**
+     * Metrics of the running recordings.
+     */
+    private final Set<RecordingMetrics> active = Collections
+            .newSetFromMap(new ConcurrentHashMap<RecordingMetrics, Boolean>());
+
+    private final AtomicLong recordings = new AtomicLong();
+
+    /**
+     * We don't allow to create objects for this class.
+     */
+    private RecorderMonitor() {
+
+    }
+
+    /**
+     * @return the monitor, registered in the platform MBean server.
+     */
+    public static synchronized RecorderMonitor getInstance() {
+        if (instance == null) {
+            instance = new RecorderMonitor();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // another copy of the library (in another class loader) registered it first
+                LOGGER.warn("The recorder monitor couldn't be registered as " + OBJECT_NAME, e);
+            } catch (SecurityException e) {
+                LOGGER.warn("The recorder monitor couldn't be registered as " + OBJECT_NAME, e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return the totals of all the recordings.
+     */
+    RecordingMetrics getTotals() {
+        return totals;
+    }
+
+    /**
+     * @param recording that started.
+     */
+    void started(RecordingMetrics recording) {
+        recordings.incrementAndGet();
+        active.add(recording);
+    }
+
+    /**
+     * @param recording that ended.
+     */
+    void ended(RecordingMetrics recording) {
+        active.remove(recording);
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getActiveRecordings()}
+     */
+    @Override
+    public int getActiveRecordings() {
+        return active.size();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getRecordings()}
+     */
+    @Override
+    public long getRecordings() {
+        return recordings.get();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getCapturedFrames()}
+     */
+    @Override
+    public long getCapturedFrames() {
+        return totals.getCapturedFrames();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getDuplicateFrames()}
+     */
+    @Override
+    public long getDuplicateFrames() {
+        return totals.getDuplicateFrames();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getDroppedFrames()}
+     */
+    @Override
+    public long getDroppedFrames() {
+        return totals.getDroppedFrames();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getFailedFrames()}
+     */
+    @Override
+    public long getFailedFrames() {
+        return totals.getFailedFrames();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getWrittenFrames()}
+     */
+    @Override
+    public long getWrittenFrames() {
+        return totals.getWrittenFrames();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getBytesWritten()}
+     */
+    @Override
+    public long getBytesWritten() {
+        return totals.getBytesWritten();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getMissedDeadlines()}
+     */
+    @Override
+    public long getMissedDeadlines() {
+        return totals.getMissedDeadlines();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getCaptureQueueDepth()}
+     */
+    @Override
+    public int getCaptureQueueDepth() {
+        int depth = 0;
+        for (RecordingMetrics recording : active) {
+            depth += recording.getCaptureQueueDepth();
+        }
+        return depth;
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getEncodedQueueDepth()}
+     */
+    @Override
+    public int getEncodedQueueDepth() {
+        int depth = 0;
+        for (RecordingMetrics recording : active) {
+            depth += recording.getEncodedQueueDepth();
+        }
+        return depth;
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getCaptureLatency()}
+     */
+    @Override
+    public LatencySummary getCaptureLatency() {
+        return totals.getCaptureLatency().getSummary();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getEncodeLatency()}
+     */
+    @Override
+    public LatencySummary getEncodeLatency() {
+        return totals.getEncodeLatency().getSummary();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getStoreLatency()}
+     */
+    @Override
+    public LatencySummary getStoreLatency() {
+        return totals.getStoreLatency().getSummary();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getDispatchLatency()}
+     */
+    @Override
+    public LatencySummary getDispatchLatency() {
+        return totals.getDispatchLatency().getSummary();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#getStopLatency()}
+     */
+    @Override
+    public LatencySummary getStopLatency() {
+        return totals.getStopLatency().getSummary();
+    }
+
+    /**
+     * @see {@link RecorderMonitorMXBean#reset()}
+     */
+    @Override
+    public void reset() {
+        totals.reset();
+        recordings.set(active.size());
+    }
+
+}
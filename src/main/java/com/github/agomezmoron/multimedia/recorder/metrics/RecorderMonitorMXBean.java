@@ -0,0 +1,119 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.metrics;
+
+/**
+ * JMX view of the {@link RecorderMonitor}: totals of every recording since the start (or the last reset) and the
+ * current state of the running ones. The latencies are in nanoseconds.
+ *
+ */
+public interface RecorderMonitorMXBean {
+
+    /**
+     * @return the number of recordings running.
+     */
+    int getActiveRecordings();
+
+    /**
+     * @return the number of recordings started.
+     */
+    long getRecordings();
+
+    /**
+     * @return the number of captures.
+     */
+    long getCapturedFrames();
+
+    /**
+     * @return the number of captures skipped because they were equal to the previous one.
+     */
+    long getDuplicateFrames();
+
+    /**
+     * @return the number of frames discarded because of the overflow policy.
+     */
+    long getDroppedFrames();
+
+    /**
+     * @return the number of frames that couldn't be encoded or written.
+     */
+    long getFailedFrames();
+
+    /**
+     * @return the number of written frames.
+     */
+    long getWrittenFrames();
+
+    /**
+     * @return the bytes of the written frames.
+     */
+    long getBytesWritten();
+
+    /**
+     * @return the number of capture deadlines missed (added when each recording stops).
+     */
+    long getMissedDeadlines();
+
+    /**
+     * @return the frames waiting to be encoded in the running recordings.
+     */
+    int getCaptureQueueDepth();
+
+    /**
+     * @return the frames waiting to be written in the running recordings.
+     */
+    int getEncodedQueueDepth();
+
+    /**
+     * @return the latencies of the captures.
+     */
+    LatencySummary getCaptureLatency();
+
+    /**
+     * @return the latencies of the encoding.
+     */
+    LatencySummary getEncodeLatency();
+
+    /**
+     * @return the latencies of the writing into the stores (and the live muxers).
+     */
+    LatencySummary getStoreLatency();
+
+    /**
+     * @return the latencies of the dispatch to the listeners.
+     */
+    LatencySummary getDispatchLatency();
+
+    /**
+     * @return the latencies from the stop of the recordings until their videos were created.
+     */
+    LatencySummary getStopLatency();
+
+    /**
+     * It sets the totals back to 0.
+     */
+    void reset();
+
+}
@@ -0,0 +1,354 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of a recording, updated by its pipeline without locks. Every event is also added to
+ * the totals of the {@link RecorderMonitor}, published through JMX.
+ *
+ */
+public final class RecordingMetrics {
+
+    /**
+     * Metrics the events are also added to, or null.
+     */
+    private final RecordingMetrics totals;
+
+    private final LatencyHistogram captureLatency = new LatencyHistogram();
+
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+
+    private final LatencyHistogram storeLatency = new LatencyHistogram();
+
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+    private final LatencyHistogram stopLatency = new LatencyHistogram();
+
+    private final AtomicLong capturedFrames = new AtomicLong();
+
+    private final AtomicLong duplicateFrames = new AtomicLong();
+
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private final AtomicLong failedFrames = new AtomicLong();
+
+    private final AtomicLong writtenFrames = new AtomicLong();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final AtomicLong missedDeadlines = new AtomicLong();
+
+    private volatile int captureQueueDepth = 0;
+
+    private volatile int encodedQueueDepth = 0;
+
+    private final AtomicInteger maxCaptureQueueDepth = new AtomicInteger();
+
+    private final AtomicInteger maxEncodedQueueDepth = new AtomicInteger();
+
+    /**
+     * Constructor of the metrics of a recording, added to the totals of the {@link RecorderMonitor}.
+     */
+    public RecordingMetrics() {
+        this(RecorderMonitor.getInstance().getTotals());
+    }
+
+    /**
+     * Constructor.
+     * @param totals metrics the events are also added to, or null.
+     */
+    RecordingMetrics(RecordingMetrics totals) {
+        this.totals = totals;
+    }
+
+    /**
+     * It publishes the queue depths of the recording in the {@link RecorderMonitor} while it is running.
+     */
+    public void started() {
+        RecorderMonitor.getInstance().started(this);
+    }
+
+    /**
+     * It removes the recording from the running ones of the {@link RecorderMonitor}.
+     */
+    public void ended() {
+        captureQueueDepth = 0;
+        encodedQueueDepth = 0;
+        RecorderMonitor.getInstance().ended(this);
+    }
+
+    /**
+     * @param latency of a capture (in nanoseconds).
+     */
+    public void captured(long latency) {
+        capturedFrames.incrementAndGet();
+        captureLatency.record(latency);
+        if (totals != null) {
+            totals.captured(latency);
+        }
+    }
+
+    /**
+     * It counts a capture skipped because it was equal to the previous one.
+     */
+    public void duplicate() {
+        duplicateFrames.incrementAndGet();
+        if (totals != null) {
+            totals.duplicate();
+        }
+    }
+
+    /**
+     * It counts a frame discarded because of the overflow policy.
+     */
+    public void dropped() {
+        droppedFrames.incrementAndGet();
+        if (totals != null) {
+            totals.dropped();
+        }
+    }
+
+    /**
+     * It counts a frame that couldn't be encoded or written.
+     */
+    public void failed() {
+        failedFrames.incrementAndGet();
+        if (totals != null) {
+            totals.failed();
+        }
+    }
+
+    /**
+     * @param latency of the encoding of a frame (in nanoseconds).
+     */
+    public void encoded(long latency) {
+        encodeLatency.record(latency);
+        if (totals != null) {
+            totals.encoded(latency);
+        }
+    }
+
+    /**
+     * @param bytes of the written frame.
+     * @param latency of the writing (in nanoseconds).
+     */
+    public void written(int bytes, long latency) {
+        writtenFrames.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        storeLatency.record(latency);
+        if (totals != null) {
+            totals.written(bytes, latency);
+        }
+    }
+
+    /**
+     * @param latency of the dispatch of a frame to the listeners (in nanoseconds), including the wait for room in
+     *            their queues.
+     */
+    public void dispatched(long latency) {
+        dispatchLatency.record(latency);
+        if (totals != null) {
+            totals.dispatched(latency);
+        }
+    }
+
+    /**
+     * @param count of capture deadlines missed.
+     */
+    public void missedDeadlines(long count) {
+        missedDeadlines.addAndGet(count);
+        if (totals != null) {
+            totals.missedDeadlines(count);
+        }
+    }
+
+    /**
+     * @param latency from the stop of the recording until its video was created (in nanoseconds).
+     */
+    public void videoCreated(long latency) {
+        stopLatency.record(latency);
+        if (totals != null) {
+            totals.videoCreated(latency);
+        }
+    }
+
+    /**
+     * @param depth of the queue of frames waiting to be encoded.
+     */
+    public void captureQueueDepth(int depth) {
+        captureQueueDepth = depth;
+        updateMax(maxCaptureQueueDepth, depth);
+    }
+
+    /**
+     * @param depth of the queue of frames waiting to be written.
+     */
+    public void encodedQueueDepth(int depth) {
+        encodedQueueDepth = depth;
+        updateMax(maxEncodedQueueDepth, depth);
+    }
+
+    /**
+     * @return the number of captures.
+     */
+    public long getCapturedFrames() {
+        return capturedFrames.get();
+    }
+
+    /**
+     * @return the number of captures skipped because they were equal to the previous one.
+     */
+    public long getDuplicateFrames() {
+        return duplicateFrames.get();
+    }
+
+    /**
+     * @return the number of frames discarded because of the overflow policy.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return the number of frames that couldn't be encoded or written.
+     */
+    public long getFailedFrames() {
+        return failedFrames.get();
+    }
+
+    /**
+     * @return the number of written frames.
+     */
+    public long getWrittenFrames() {
+        return writtenFrames.get();
+    }
+
+    /**
+     * @return the bytes of the written frames.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return the number of capture deadlines missed.
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines.get();
+    }
+
+    /**
+     * @return the current depth of the queue of frames waiting to be encoded.
+     */
+    public int getCaptureQueueDepth() {
+        return captureQueueDepth;
+    }
+
+    /**
+     * @return the current depth of the queue of frames waiting to be written.
+     */
+    public int getEncodedQueueDepth() {
+        return encodedQueueDepth;
+    }
+
+    /**
+     * @return the latencies of the captures.
+     */
+    public LatencyHistogram getCaptureLatency() {
+        return captureLatency;
+    }
+
+    /**
+     * @return the latencies of the encoding.
+     */
+    public LatencyHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    /**
+     * @return the latencies of the writing into the store (and the live muxer).
+     */
+    public LatencyHistogram getStoreLatency() {
+        return storeLatency;
+    }
+
+    /**
+     * @return the latencies of the dispatch to the listeners.
+     */
+    public LatencyHistogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * @return the latencies from the stop of the recordings until their videos were created.
+     */
+    public LatencyHistogram getStopLatency() {
+        return stopLatency;
+    }
+
+    /**
+     * @param video path of the video, or null if there is none (yet).
+     * @param duration of the recording (in nanoseconds).
+     * @return a snapshot of the metrics.
+     */
+    public RecordingSummary getSummary(String video, long duration) {
+        return new RecordingSummary(video, duration, capturedFrames.get(), duplicateFrames.get(), droppedFrames.get(),
+                failedFrames.get(), writtenFrames.get(), bytesWritten.get(), missedDeadlines.get(),
+                maxCaptureQueueDepth.get(), maxEncodedQueueDepth.get(), captureLatency.getSummary(),
+                encodeLatency.getSummary(), storeLatency.getSummary(), dispatchLatency.getSummary(),
+                stopLatency.getCount() > 0 ? stopLatency.getMax() : -1);
+    }
+
+    /**
+     * It sets the counters and the histograms back to 0.
+     */
+    void reset() {
+        for (LatencyHistogram histogram : new LatencyHistogram[] { captureLatency, encodeLatency, storeLatency,
+                dispatchLatency, stopLatency }) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : new AtomicLong[] { capturedFrames, duplicateFrames, droppedFrames, failedFrames,
+                writtenFrames, bytesWritten, missedDeadlines }) {
+            counter.set(0);
+        }
+        maxCaptureQueueDepth.set(0);
+        maxEncodedQueueDepth.set(0);
+    }
+
+    /**
+     * @param max to be updated.
+     * @param value that can be the new maximum.
+     */
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+}
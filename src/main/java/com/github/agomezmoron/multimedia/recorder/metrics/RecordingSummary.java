@@ -0,0 +1,241 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.metrics;
+
+import java.util.Locale;
+
+/**
+ * Summary of a recording: what happened to its frames and how long each stage took. The latencies are in
+ * nanoseconds.
+ *
+ */
+public class RecordingSummary {
+
+    private final String video;
+
+    private final long duration;
+
+    private final long capturedFrames;
+
+    private final long duplicateFrames;
+
+    private final long droppedFrames;
+
+    private final long failedFrames;
+
+    private final long writtenFrames;
+
+    private final long bytesWritten;
+
+    private final long missedDeadlines;
+
+    private final int maxCaptureQueueDepth;
+
+    private final int maxEncodedQueueDepth;
+
+    private final LatencySummary captureLatency;
+
+    private final LatencySummary encodeLatency;
+
+    private final LatencySummary storeLatency;
+
+    private final LatencySummary dispatchLatency;
+
+    private final long stopLatency;
+
+    /**
+     * Constructor.
+     * @param video path of the video, or null if there is none (yet).
+     * @param duration of the recording (in nanoseconds).
+     * @param capturedFrames number of captures.
+     * @param duplicateFrames number of captures skipped because they were equal to the previous one.
+     * @param droppedFrames number of frames discarded because of the overflow policy.
+     * @param failedFrames number of frames that couldn't be encoded or written.
+     * @param writtenFrames number of written frames.
+     * @param bytesWritten bytes of the written frames.
+     * @param missedDeadlines number of capture deadlines missed.
+     * @param maxCaptureQueueDepth maximum depth of the queue of frames waiting to be encoded.
+     * @param maxEncodedQueueDepth maximum depth of the queue of frames waiting to be written.
+     * @param captureLatency of the captures.
+     * @param encodeLatency of the encoding.
+     * @param storeLatency of the writing.
+     * @param dispatchLatency of the dispatch to the listeners.
+     * @param stopLatency from the stop until the video was created, or -1 if it wasn't created (yet).
+     */
+    public RecordingSummary(String video, long duration, long capturedFrames, long duplicateFrames,
+            long droppedFrames, long failedFrames, long writtenFrames, long bytesWritten, long missedDeadlines,
+            int maxCaptureQueueDepth, int maxEncodedQueueDepth, LatencySummary captureLatency,
+            LatencySummary encodeLatency, LatencySummary storeLatency, LatencySummary dispatchLatency,
+            long stopLatency) {
+        this.video = video;
+        this.duration = duration;
+        this.capturedFrames = capturedFrames;
+        this.duplicateFrames = duplicateFrames;
+        this.droppedFrames = droppedFrames;
+        this.failedFrames = failedFrames;
+        this.writtenFrames = writtenFrames;
+        this.bytesWritten = bytesWritten;
+        this.missedDeadlines = missedDeadlines;
+        this.maxCaptureQueueDepth = maxCaptureQueueDepth;
+        this.maxEncodedQueueDepth = maxEncodedQueueDepth;
+        this.captureLatency = captureLatency;
+        this.encodeLatency = encodeLatency;
+        this.storeLatency = storeLatency;
+        this.dispatchLatency = dispatchLatency;
+        this.stopLatency = stopLatency;
+    }
+
+    /**
+     * @return the path of the video, or null if there is none (yet).
+     */
+    public String getVideo() {
+        return video;
+    }
+
+    /**
+     * @return the duration of the recording (in nanoseconds).
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the written frames per second of recording.
+     */
+    public double getFrameRate() {
+        return duration > 0 ? writtenFrames * 1e9 / duration : 0;
+    }
+
+    /**
+     * @return the number of captures.
+     */
+    public long getCapturedFrames() {
+        return capturedFrames;
+    }
+
+    /**
+     * @return the number of captures skipped because they were equal to the previous one.
+     */
+    public long getDuplicateFrames() {
+        return duplicateFrames;
+    }
+
+    /**
+     * @return the number of frames discarded because of the overflow policy.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return the number of frames that couldn't be encoded or written.
+     */
+    public long getFailedFrames() {
+        return failedFrames;
+    }
+
+    /**
+     * @return the number of written frames.
+     */
+    public long getWrittenFrames() {
+        return writtenFrames;
+    }
+
+    /**
+     * @return the bytes of the written frames.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the number of capture deadlines missed.
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * @return the maximum depth of the queue of frames waiting to be encoded.
+     */
+    public int getMaxCaptureQueueDepth() {
+        return maxCaptureQueueDepth;
+    }
+
+    /**
+     * @return the maximum depth of the queue of frames waiting to be written.
+     */
+    public int getMaxEncodedQueueDepth() {
+        return maxEncodedQueueDepth;
+    }
+
+    /**
+     * @return the latencies of the captures.
+     */
+    public LatencySummary getCaptureLatency() {
+        return captureLatency;
+    }
+
+    /**
+     * @return the latencies of the encoding.
+     */
+    public LatencySummary getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    /**
+     * @return the latencies of the writing into the store (and the live muxer).
+     */
+    public LatencySummary getStoreLatency() {
+        return storeLatency;
+    }
+
+    /**
+     * @return the latencies of the dispatch to the listeners.
+     */
+    public LatencySummary getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * @return the time from the stop until the video was created (in nanoseconds), or -1 if it wasn't created (yet).
+     */
+    public long getStopLatency() {
+        return stopLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%.1fs, %d captures, %d frames written (%.1f frames/sec, %d KB), %d duplicates skipped, %d dropped, "
+                        + "%d failed, %d deadlines missed, max queues %d/%d; capture: %s; encode: %s; store: %s; "
+                        + "listeners: %s; stop to file: %s",
+                duration / 1e9, capturedFrames, writtenFrames, getFrameRate(), bytesWritten / 1024, duplicateFrames,
+                droppedFrames, failedFrames, missedDeadlines, maxCaptureQueueDepth, maxEncodedQueueDepth,
+                captureLatency, encodeLatency, storeLatency, dispatchLatency,
+                stopLatency >= 0 ? String.format(Locale.ROOT, "%.2fms", stopLatency / 1e6) : "none");
+    }
+
+}
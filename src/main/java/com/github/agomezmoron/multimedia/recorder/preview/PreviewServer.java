@@ -0,0 +1,395 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.preview;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server (the one of the JDK) showing the recordings live as MJPEG streams
+ * (<code>multipart/x-mixed-replace</code>), which any browser can play:
+ * <ul>
+ * <li><code>/</code> lists the recordings in progress.</li>
+ * <li><code>/stream/&lt;name&gt;</code> streams a recording, <code>/stream</code> the last one started.</li>
+ * </ul>
+ * The frames are the JPEGs already encoded for the video, so the preview doesn't encode them again. Each viewer has
+ * its own small queue: a slow viewer misses frames but never slows down the recording or the other viewers.
+ *
+ */
+public final class PreviewServer {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(PreviewServer.class);
+
+    /**
+     * Boundary between the frames of the streams.
+     */
+    private static final String BOUNDARY = "screen-recorder-frame";
+
+    /**
+     * Time after which the last frame is sent again if there are no new ones (in milliseconds), so the disconnected
+     * viewers are detected.
+     */
+    private static final long KEEP_ALIVE_INTERVAL = 1000;
+
+    private static PreviewServer instance;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Streams of the recordings in progress, in start order.
+     */
+    private final Map<String, PreviewStream> streams = new LinkedHashMap<String, PreviewStream>();
+
+    /**
+     * Constructor.
+     * @param server HTTP server, not started yet.
+     * @param executor running the requests.
+     */
+    private PreviewServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+        server.setExecutor(executor);
+        server.createContext("/", new IndexHandler());
+        server.createContext("/stream", new StreamHandler());
+    }
+
+    /**
+     * It starts the server, if it wasn't started before.
+     * @param host address to listen at ("localhost" so only the local machine can connect).
+     * @param port to listen at (0 for any free port).
+     * @return the running server (listening where it was started the first time).
+     * @throws IOException if the server couldn't be started.
+     */
+    public static synchronized PreviewServer start(final String host, final int port) throws IOException {
+        if (instance == null) {
+            // the dispatcher thread of the server inherits the daemon status, so it doesn't keep the JVM alive
+            FutureTask<PreviewServer> creation = new FutureTask<PreviewServer>(new Callable<PreviewServer>() {
+                @Override
+                public PreviewServer call() throws IOException {
+                    PreviewServer created = new PreviewServer(HttpServer.create(new InetSocketAddress(host, port), 0),
+                            Executors.newCachedThreadPool(new DaemonThreadFactory()));
+                    created.server.start();
+                    return created;
+                }
+            });
+            Thread starter = new Thread(creation, "screen-recorder-preview-starter");
+            starter.setDaemon(true);
+            starter.start();
+            try {
+                instance = creation.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while starting the preview server", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("The preview server couldn't be started", e.getCause());
+            }
+            LOGGER.info("Live preview of the recordings at " + instance.getUrl());
+        }
+        return instance;
+    }
+
+    /**
+     * @return the running server, or null if it wasn't started.
+     */
+    public static synchronized PreviewServer getInstance() {
+        return instance;
+    }
+
+    /**
+     * It stops the server, ending the streams of the viewers.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            List<PreviewStream> open;
+            synchronized (instance.streams) {
+                open = new ArrayList<PreviewStream>(instance.streams.values());
+            }
+            for (PreviewStream stream : open) {
+                stream.close();
+            }
+            instance.server.stop(0);
+            instance.executor.shutdownNow();
+            instance = null;
+        }
+    }
+
+    /**
+     * @return the address the server listens at.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return the URL of the list of recordings.
+     */
+    public String getUrl() {
+        InetSocketAddress address = getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/";
+    }
+
+    /**
+     * @param stream published.
+     * @return the path of the stream in the server.
+     */
+    String getPath(PreviewStream stream) {
+        try {
+            return "/stream/" + URLEncoder.encode(stream.getName(), "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * It publishes the stream of a recording. If the name is in use, a number is appended.
+     * @param name of the recording.
+     * @return the stream, to publish the frames of the recording and close it when it ends.
+     */
+    public PreviewStream open(String name) {
+        synchronized (streams) {
+            String unique = name;
+            for (int i = 2; streams.containsKey(unique); i++) {
+                unique = name + "-" + i;
+            }
+            PreviewStream stream = new PreviewStream(this, unique);
+            streams.put(unique, stream);
+            return stream;
+        }
+    }
+
+    /**
+     * @param stream closed.
+     */
+    void remove(PreviewStream stream) {
+        synchronized (streams) {
+            if (streams.get(stream.getName()) == stream) {
+                streams.remove(stream.getName());
+            }
+        }
+    }
+
+    /**
+     * @param name of a stream, or null for the last one started.
+     * @return the stream, or null if there is none.
+     */
+    private PreviewStream find(String name) {
+        synchronized (streams) {
+            if (name != null) {
+                return streams.get(name);
+            }
+            PreviewStream last = null;
+            for (PreviewStream stream : streams.values()) {
+                last = stream;
+            }
+            return last;
+        }
+    }
+
+    /**
+     * It sends a plain response.
+     * @param exchange request.
+     * @param status HTTP status.
+     * @param contentType of the body.
+     * @param body of the response.
+     * @throws IOException if it couldn't be sent.
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /**
+     * @param text to be written in HTML.
+     * @return the text with the HTML special characters escaped.
+     */
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * List of the recordings in progress.
+     */
+    private class IndexHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"/".equals(exchange.getRequestURI().getPath())) {
+                    send(exchange, 404, "text/plain", "Not found");
+                    return;
+                }
+                StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><title>screen-recorder</title>"
+                        + "</head><body><h1>Recordings in progress</h1>");
+                List<PreviewStream> open;
+                synchronized (streams) {
+                    open = new ArrayList<PreviewStream>(streams.values());
+                }
+                if (open.isEmpty()) {
+                    html.append("<p>None</p>");
+                }
+                for (PreviewStream stream : open) {
+                    String name = escape(stream.getName());
+                    String url = escape(getPath(stream));
+                    html.append("<h2><a href=\"").append(url).append("\">").append(name).append("</a> (")
+                            .append(stream.getViewers()).append(" viewers)</h2><img src=\"").append(url)
+                            .append("\" alt=\"").append(name).append("\" style=\"max-width: 100%\">");
+                }
+                html.append("</body></html>");
+                send(exchange, 200, "text/html", html.toString());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * MJPEG stream of a recording.
+     */
+    private class StreamHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String path = exchange.getRequestURI().getRawPath();
+                String name = path.startsWith("/stream/") && path.length() > "/stream/".length() ? decode(path
+                        .substring("/stream/".length())) : null;
+                PreviewStream stream = find(name);
+                if (stream == null) {
+                    send(exchange, 404, "text/plain", "There is no recording "
+                            + (name != null ? name : "in progress"));
+                    return;
+                }
+                stream(exchange, stream);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * It sends the frames of a stream until it ends or the viewer disconnects.
+         * @param exchange request.
+         * @param stream to be sent.
+         * @throws IOException if the frames couldn't be sent.
+         */
+        private void stream(HttpExchange exchange, PreviewStream stream) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache, no-store");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            PreviewViewer viewer = stream.addViewer();
+            byte[] last = null;
+            try {
+                while (true) {
+                    byte[] jpeg = viewer.next(KEEP_ALIVE_INTERVAL);
+                    if (jpeg == PreviewViewer.END_OF_STREAM) {
+                        out.write(("--" + BOUNDARY + "--\r\n").getBytes("US-ASCII"));
+                        break;
+                    }
+                    if (jpeg == null) {
+                        if (last == null) {
+                            continue;
+                        }
+                        jpeg = last;
+                    }
+                    out.write(("--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: " + jpeg.length
+                            + "\r\n\r\n").getBytes("US-ASCII"));
+                    out.write(jpeg);
+                    out.write("\r\n".getBytes("US-ASCII"));
+                    out.flush();
+                    last = jpeg;
+                }
+                out.close();
+            } catch (IOException e) {
+                // the viewer disconnected
+                LOGGER.debug("A viewer of " + stream.getName() + " disconnected", e);
+            } catch (InterruptedException e) {
+                // the server is stopping
+            } finally {
+                stream.removeViewer(viewer);
+                if (viewer.getSkippedFrames() > 0) {
+                    LOGGER.debug("A viewer of " + stream.getName() + " missed " + viewer.getSkippedFrames()
+                            + " frames");
+                }
+            }
+        }
+
+        /**
+         * @param name encoded in the URL.
+         * @return the decoded name.
+         */
+        private String decode(String name) throws UnsupportedEncodingException {
+            return URLDecoder.decode(name.replace("+", "%2B"), "UTF-8");
+        }
+    }
+
+    /**
+     * Factory of the daemon threads of the requests.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "screen-recorder-preview-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.preview;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Live preview of a recording: the encoded frames are published as they are written and every viewer gets them from
+ * its own queue. Publishing never blocks.
+ *
+ */
+public final class PreviewStream {
+
+    /**
+     * Number of frames that can wait for each viewer.
+     */
+    static final int VIEWER_QUEUE_SIZE = 2;
+
+    private final PreviewServer server;
+
+    private final String name;
+
+    private final Set<PreviewViewer> viewers = new CopyOnWriteArraySet<PreviewViewer>();
+
+    /**
+     * Last published frame, sent first to the new viewers.
+     */
+    private volatile byte[] latest;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     * @param server publishing the stream.
+     * @param name of the stream in the URL.
+     */
+    PreviewStream(PreviewServer server, String name) {
+        this.server = server;
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the stream in the URL.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the URL of the stream.
+     */
+    public String getUrl() {
+        return server.getUrl() + server.getPath(this).substring(1);
+    }
+
+    /**
+     * @return the number of viewers.
+     */
+    public int getViewers() {
+        return viewers.size();
+    }
+
+    /**
+     * It sends a frame to every viewer.
+     * @param jpeg frame. It must not be changed afterwards.
+     */
+    public void publish(byte[] jpeg) {
+        latest = jpeg;
+        for (PreviewViewer viewer : viewers) {
+            viewer.offer(jpeg);
+        }
+    }
+
+    /**
+     * It ends the stream for every viewer and removes it from the server.
+     */
+    public void close() {
+        closed = true;
+        server.remove(this);
+        for (PreviewViewer viewer : viewers) {
+            viewer.end();
+        }
+    }
+
+    /**
+     * @return a new viewer, starting with the last frame.
+     */
+    PreviewViewer addViewer() {
+        PreviewViewer viewer = new PreviewViewer(VIEWER_QUEUE_SIZE);
+        byte[] first = latest;
+        if (first != null) {
+            viewer.offer(first);
+        }
+        viewers.add(viewer);
+        if (closed) {
+            viewer.end();
+        }
+        return viewer;
+    }
+
+    /**
+     * @param viewer that disconnected.
+     */
+    void removeViewer(PreviewViewer viewer) {
+        viewers.remove(viewer);
+    }
+
+}
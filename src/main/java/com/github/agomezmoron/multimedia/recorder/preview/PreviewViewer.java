@@ -0,0 +1,93 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.preview;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames waiting to be sent to a viewer of a {@link PreviewStream}. The queue is bounded and, when the viewer is too
+ * slow, the oldest frame is discarded, so the recording never waits for it.
+ *
+ */
+class PreviewViewer {
+
+    /**
+     * Mark of the end of the stream.
+     */
+    static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> frames;
+
+    /**
+     * Number of frames discarded because the viewer was too slow.
+     */
+    private volatile long skippedFrames = 0;
+
+    /**
+     * Constructor.
+     * @param queueSize number of frames that can wait to be sent.
+     */
+    PreviewViewer(int queueSize) {
+        this.frames = new ArrayBlockingQueue<byte[]>(Math.max(1, queueSize));
+    }
+
+    /**
+     * It queues a frame, discarding the oldest one if the queue is full.
+     * @param jpeg frame.
+     */
+    void offer(byte[] jpeg) {
+        while (!frames.offer(jpeg)) {
+            if (frames.poll() != null) {
+                skippedFrames++;
+            }
+        }
+    }
+
+    /**
+     * It ends the stream once the queued frames are sent.
+     */
+    void end() {
+        offer(END_OF_STREAM);
+    }
+
+    /**
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return the next frame, {@link #END_OF_STREAM} or null if none arrived in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    byte[] next(long timeout) throws InterruptedException {
+        return frames.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the number of frames discarded because the viewer was too slow.
+     */
+    long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+}
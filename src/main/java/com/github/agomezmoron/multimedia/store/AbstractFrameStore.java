@@ -0,0 +1,190 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+
+/**
+ * Base {@link FrameStore} providing the reader on top of the indexed access.
+ *
+ */
+public abstract class AbstractFrameStore implements FrameStore {
+
+    /**
+     * @see {@link FrameStore#openReader()}
+     */
+    @Override
+    public FrameReader openReader() {
+        return new IndexFrameReader(this, 0, size());
+    }
+
+    /**
+     * @see {@link FrameStore#openReader(long, long)}
+     */
+    @Override
+    public FrameReader openReader(long from, long to) throws IOException {
+        int size = size();
+        int start = Math.max(0, firstAfter(from, size) - 1);
+        return new IndexFrameReader(this, start, firstAfter(to, size), from, to);
+    }
+
+    /**
+     * By default the frames are kept.
+     * @see {@link FrameStore#discardBefore(long)}
+     */
+    @Override
+    public void discardBefore(long timestamp) {
+        // nothing to release
+    }
+
+    /**
+     * @param index of a frame.
+     * @return its timestamp. The stores keeping the timestamps apart from the frames return it without reading the
+     *         frame, so it is known even after the frame was released.
+     * @throws IOException if the frame couldn't be read.
+     */
+    protected long getTimestamp(int index) throws IOException {
+        return get(index).getTimestamp();
+    }
+
+    /**
+     * It searches the frames by timestamp (they are stored in capture order).
+     * @param timestamp to be searched.
+     * @param size number of frames to be searched.
+     * @return the index of the first frame captured after the timestamp (size if none).
+     * @throws IOException if a frame couldn't be read.
+     */
+    private int firstAfter(long timestamp, int size) throws IOException {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * {@link FrameReader} over a range of frames of a store.
+     */
+    static class IndexFrameReader implements FrameReader {
+
+        private final FrameStore store;
+
+        /**
+         * Index after the last frame to be read.
+         */
+        private final int end;
+
+        /**
+         * Index of the next frame to be read.
+         */
+        private int next;
+
+        /**
+         * Timestamp subtracted from the ones of the frames, or {@link EncodedFrame#NO_TIMESTAMP} to keep them.
+         */
+        private final long origin;
+
+        /**
+         * Timestamp where the last frame ends (before subtracting the origin), or {@link EncodedFrame#NO_TIMESTAMP}.
+         */
+        private final long endTimestamp;
+
+        /**
+         * Constructor.
+         * @param store to be read.
+         * @param start index of the first frame.
+         * @param end index after the last frame.
+         */
+        IndexFrameReader(FrameStore store, int start, int end) {
+            this(store, start, end, EncodedFrame.NO_TIMESTAMP, EncodedFrame.NO_TIMESTAMP);
+        }
+
+        /**
+         * Constructor.
+         * @param store to be read.
+         * @param start index of the first frame.
+         * @param end index after the last frame.
+         * @param origin timestamp the ones of the frames become relative to (the earlier ones become 0).
+         * @param endTimestamp timestamp where the last frame ends or {@link EncodedFrame#NO_TIMESTAMP}.
+         */
+        IndexFrameReader(FrameStore store, int start, int end, long origin, long endTimestamp) {
+            this.store = store;
+            this.next = start;
+            this.end = end;
+            this.origin = origin;
+            this.endTimestamp = endTimestamp;
+        }
+
+        /**
+         * @see {@link FrameReader#next()}
+         */
+        @Override
+        public EncodedFrame next() throws IOException {
+            EncodedFrame frame = null;
+            if (next < end) {
+                frame = store.get(next++);
+                if (origin != EncodedFrame.NO_TIMESTAMP && frame.getTimestamp() != EncodedFrame.NO_TIMESTAMP) {
+                    frame = new EncodedFrame(frame.getSequence(), Math.max(0, frame.getTimestamp() - origin),
+                            frame.getData());
+                }
+            }
+            return frame;
+        }
+
+        /**
+         * @see {@link FrameReader#willBlock()}
+         */
+        @Override
+        public boolean willBlock() {
+            return false;
+        }
+
+        /**
+         * @see {@link FrameReader#getEnd()}
+         */
+        @Override
+        public long getEnd() {
+            if (endTimestamp == EncodedFrame.NO_TIMESTAMP || origin == EncodedFrame.NO_TIMESTAMP) {
+                return endTimestamp;
+            }
+            return Math.max(0, endTimestamp - origin);
+        }
+
+        /**
+         * @see {@link java.io.Closeable#close()}
+         */
+        @Override
+        public void close() {
+            next = end;
+        }
+    }
+
+}
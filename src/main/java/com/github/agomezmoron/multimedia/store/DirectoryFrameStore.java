@@ -0,0 +1,255 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link FrameStore} writing one JPEG file per frame into a directory. The files are named
+ * <code>&lt;sequence&gt;_&lt;timestamp&gt;.jpeg</code> so they are sorted in capture order.
+ *
+ */
+public class DirectoryFrameStore extends AbstractFrameStore {
+
+    /**
+     * Name of the frame files: sequence and timestamp.
+     */
+    private static final Pattern FRAME_NAME = Pattern.compile("(\\d+)_(-?\\d+)\\.jpeg");
+
+    /**
+     * Directory where the frames are written.
+     */
+    private final File directory;
+
+    /**
+     * Written files, in capture order.
+     */
+    private final List<File> files = new ArrayList<File>();
+
+    /**
+     * Sequence number and timestamp of each written frame.
+     */
+    private final List<long[]> sequencesAndTimestamps = new ArrayList<long[]>();
+
+    /**
+     * Bytes written.
+     */
+    private long sizeInBytes = 0;
+
+    /**
+     * Index of the first frame whose file is kept, the previous ones were deleted by {@link #discardBefore(long)}.
+     */
+    private int released = 0;
+
+    /**
+     * Constructor.
+     * @param directory where the frames will be written. It is created if needed.
+     */
+    public DirectoryFrameStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * It opens the frames kept in a directory by a previous recording (see
+     * {@link com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration#wantToKeepFrames()}).
+     * The files not named like frames are ignored.
+     * @param directory with the frames.
+     * @return the store, with the frames sorted by sequence. New frames can be appended.
+     * @throws IOException if the directory can't be listed.
+     */
+    public static DirectoryFrameStore open(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new FileNotFoundException(directory.getPath());
+        }
+        List<File> frames = new ArrayList<File>();
+        for (File file : files) {
+            if (file.isFile() && FRAME_NAME.matcher(file.getName()).matches()) {
+                frames.add(file);
+            }
+        }
+        Collections.sort(frames, new Comparator<File>() {
+            @Override
+            public int compare(File frame, File other) {
+                long sequence = parseName(frame)[0];
+                long otherSequence = parseName(other)[0];
+                return sequence < otherSequence ? -1 : (sequence == otherSequence ? 0 : 1);
+            }
+        });
+        DirectoryFrameStore store = new DirectoryFrameStore(directory);
+        for (File frame : frames) {
+            store.files.add(frame);
+            store.sequencesAndTimestamps.add(parseName(frame));
+            store.sizeInBytes += frame.length();
+        }
+        return store;
+    }
+
+    /**
+     * @param frame file of a frame.
+     * @return the sequence and timestamp of the frame.
+     */
+    private static long[] parseName(File frame) {
+        Matcher name = FRAME_NAME.matcher(frame.getName());
+        name.matches();
+        return new long[] { Long.parseLong(name.group(1)), Long.parseLong(name.group(2)) };
+    }
+
+    /**
+     * @return the directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @see {@link FrameStore#append(EncodedFrame)}
+     */
+    @Override
+    public void append(EncodedFrame frame) throws IOException {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = new File(directory, String.format("%08d_%d.jpeg", frame.getSequence(), frame.getTimestamp()));
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            ByteBuffer data = frame.getData();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            out.close();
+        }
+        synchronized (this) {
+            files.add(file);
+            sequencesAndTimestamps.add(new long[] { frame.getSequence(), frame.getTimestamp() });
+            sizeInBytes += frame.getLength();
+        }
+    }
+
+    /**
+     * @see {@link FrameStore#size()}
+     */
+    @Override
+    public synchronized int size() {
+        return files.size();
+    }
+
+    /**
+     * @see {@link FrameStore#getSizeInBytes()}
+     */
+    @Override
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * The file of the frame is only read when its data is requested.
+     * @see {@link FrameStore#get(int)}
+     */
+    @Override
+    public EncodedFrame get(int index) throws IOException {
+        File file;
+        long[] sequenceAndTimestamp;
+        synchronized (this) {
+            if (index >= 0 && index < released) {
+                throw new IllegalStateException("The frame " + index + " was discarded");
+            }
+            file = files.get(index);
+            sequenceAndTimestamp = sequencesAndTimestamps.get(index);
+        }
+        return new FileFrame(sequenceAndTimestamp[0], sequenceAndTimestamp[1], file);
+    }
+
+    /**
+     * @see {@link AbstractFrameStore#getTimestamp(int)}
+     */
+    @Override
+    protected synchronized long getTimestamp(int index) {
+        return sequencesAndTimestamps.get(index)[1];
+    }
+
+    /**
+     * The files of the released frames are deleted, but the indexes of the frames don't change.
+     * @see {@link FrameStore#discardBefore(long)}
+     */
+    @Override
+    public synchronized void discardBefore(long timestamp) {
+        while (released + 1 < files.size() && getTimestamp(released + 1) != EncodedFrame.NO_TIMESTAMP
+                && getTimestamp(released + 1) <= timestamp) {
+            File file = files.get(released);
+            sizeInBytes -= file.length();
+            file.delete();
+            released++;
+        }
+    }
+
+    /**
+     * It deletes the written files and the directory.
+     * @see {@link FrameStore#delete()}
+     */
+    @Override
+    public synchronized void delete() {
+        deleteDirectory(directory);
+        files.clear();
+        sequencesAndTimestamps.clear();
+        sizeInBytes = 0;
+        released = 0;
+    }
+
+    /**
+     * It deletes recursively a directory.
+     * @param directory to be deleted.
+     * @return true if the directory was deleted successfully.
+     */
+    static boolean deleteDirectory(File directory) {
+        if (directory.exists()) {
+            File[] files = directory.listFiles();
+            if (null != files) {
+                for (int i = 0; i < files.length; i++) {
+                    if (files[i].isDirectory()) {
+                        deleteDirectory(files[i]);
+                    } else {
+                        files[i].delete();
+                    }
+                }
+            }
+        }
+        return (directory.delete());
+    }
+
+}
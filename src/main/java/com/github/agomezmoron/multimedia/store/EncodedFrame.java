@@ -0,0 +1,143 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * It models an already encoded (JPEG) frame of a recording.
+ *
+ */
+public class EncodedFrame {
+
+    /**
+     * Timestamp of the frames whose capture time is unknown.
+     */
+    public static final long NO_TIMESTAMP = -1;
+
+    /**
+     * Position of the frame in its recording.
+     */
+    private final long sequence;
+
+    /**
+     * Nanoseconds elapsed since the start of the recording when the frame was captured.
+     */
+    private final long timestamp;
+
+    /**
+     * Encoded frame. It is null if a subclass provides it.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Constructor.
+     * @param sequence position of the frame in its recording.
+     * @param timestamp nanoseconds since the start of the recording or {@link #NO_TIMESTAMP}.
+     * @param data encoded frame, between its position and its limit.
+     */
+    public EncodedFrame(long sequence, long timestamp, ByteBuffer data) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+
+    /**
+     * Constructor.
+     * @param sequence position of the frame in its recording.
+     * @param timestamp nanoseconds since the start of the recording or {@link #NO_TIMESTAMP}.
+     * @param data encoded frame.
+     */
+    public EncodedFrame(long sequence, long timestamp, byte[] data) {
+        this(sequence, timestamp, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Constructor for the subclasses providing the encoded frame ({@link #getData()} and {@link #getLength()}).
+     * @param sequence position of the frame in its recording.
+     * @param timestamp nanoseconds since the start of the recording or {@link #NO_TIMESTAMP}.
+     */
+    protected EncodedFrame(long sequence, long timestamp) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.data = null;
+    }
+
+    /**
+     * @return the sequence.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the timestamp (in nanoseconds since the start of the recording) or {@link #NO_TIMESTAMP}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return a view of the encoded frame. Its position and limit can be changed without affecting this frame.
+     */
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    /**
+     * @return the size of the encoded frame (in bytes).
+     */
+    public int getLength() {
+        return data.remaining();
+    }
+
+    /**
+     * It copies the encoded frame into an array.
+     * @param destination array, it must have room for {@link #getLength()} bytes from the offset.
+     * @param offset where the frame will be copied.
+     */
+    public void copyTo(byte[] destination, int offset) {
+        getData().get(destination, offset, getLength());
+    }
+
+    /**
+     * It writes the encoded frame into a channel. The frames read from files are transferred by the file system,
+     * without copying them through the heap.
+     * @param target channel, the frame is written at its position.
+     * @return the number of written bytes.
+     * @throws IOException if the frame couldn't be read or written.
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = getData();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link EncodedFrame} stored in a file of its own. The file is only read when the data is requested, and it is
+ * transferred to other channels by the file system.
+ *
+ */
+class FileFrame extends EncodedFrame {
+
+    private final File file;
+
+    private final int length;
+
+    /**
+     * Constructor.
+     * @param sequence position of the frame in its recording.
+     * @param timestamp nanoseconds since the start of the recording or {@link #NO_TIMESTAMP}.
+     * @param file with the encoded frame.
+     */
+    FileFrame(long sequence, long timestamp, File file) {
+        super(sequence, timestamp);
+        this.file = file;
+        this.length = (int) file.length();
+    }
+
+    /**
+     * It reads the file.
+     * @throws IllegalStateException if the file couldn't be read.
+     * @see {@link EncodedFrame#getData()}
+     */
+    @Override
+    public ByteBuffer getData() {
+        try {
+            RandomAccessFile raFile = new RandomAccessFile(file, "r");
+            try {
+                byte[] data = new byte[(int) raFile.length()];
+                raFile.readFully(data);
+                return ByteBuffer.wrap(data);
+            } finally {
+                raFile.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The frame " + file + " couldn't be read", e);
+        }
+    }
+
+    /**
+     * @see {@link EncodedFrame#getLength()}
+     */
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @see {@link EncodedFrame#transferTo(WritableByteChannel)}
+     */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        RandomAccessFile raFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raFile.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        } finally {
+            raFile.close();
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link FrameReader} over a list of JPEG files, one per frame.
+ *
+ */
+public class FileListFrameReader implements FrameReader {
+
+    /**
+     * Paths of the frames.
+     */
+    private final List<?> files;
+
+    /**
+     * Timestamps of the frames, in the same order as the files. It can be null.
+     */
+    private final long[] timestamps;
+
+    /**
+     * Index of the next frame to be read.
+     */
+    private int next = 0;
+
+    /**
+     * Constructor.
+     * @param files paths of the frames, in capture order.
+     * @param timestamps of the frames (in nanoseconds since the start of the recording) or null if they are unknown.
+     */
+    public FileListFrameReader(List<?> files, long[] timestamps) {
+        this.files = files;
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * @see {@link FrameReader#next()}
+     */
+    @Override
+    public EncodedFrame next() throws IOException {
+        if (next >= files.size()) {
+            return null;
+        }
+        File file = new File(String.valueOf(files.get(next)));
+        long timestamp = timestamps != null ? timestamps[next] : EncodedFrame.NO_TIMESTAMP;
+        EncodedFrame frame = new FileFrame(next, timestamp, file);
+        next++;
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        // the file is read when the frame is written into the video
+        return frame;
+    }
+
+    /**
+     * The files are already written, so it never blocks.
+     * @see {@link FrameReader#willBlock()}
+     */
+    @Override
+    public boolean willBlock() {
+        return false;
+    }
+
+    /**
+     * The files don't record when the recording ended.
+     * @see {@link FrameReader#getEnd()}
+     */
+    @Override
+    public long getEnd() {
+        return EncodedFrame.NO_TIMESTAMP;
+    }
+
+    /**
+     * @see {@link java.io.Closeable#close()}
+     */
+    @Override
+    public void close() {
+        next = files.size();
+    }
+
+}
@@ -0,0 +1,55 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential access to the encoded frames of a recording, in capture order.
+ *
+ */
+public interface FrameReader extends Closeable {
+
+    /**
+     * It reads the next frame. It can block if the frames are still being recorded.
+     * @return the next frame or null if there are no more frames.
+     * @throws IOException if the frame couldn't be read.
+     */
+    EncodedFrame next() throws IOException;
+
+    /**
+     * @return true if {@link #next()} could block waiting for a frame to be recorded.
+     */
+    boolean willBlock();
+
+    /**
+     * @return the timestamp of the end of the recording or the clip (in nanoseconds, as the ones of the frames), where
+     *         the last frame ends, or {@link EncodedFrame#NO_TIMESTAMP} if it is unknown. It can be unknown until
+     *         {@link #next()} returns null.
+     */
+    long getEnd();
+
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+
+/**
+ * Storage of the encoded frames of a recording. The frames are appended by a single writer in capture order and can
+ * be read by index at the same time.
+ *
+ */
+public interface FrameStore {
+
+    /**
+     * It appends a frame.
+     * @param frame to be stored.
+     * @throws IOException if the frame couldn't be stored.
+     */
+    void append(EncodedFrame frame) throws IOException;
+
+    /**
+     * @return the number of stored frames.
+     */
+    int size();
+
+    /**
+     * @return the number of bytes of the stored frames.
+     */
+    long getSizeInBytes();
+
+    /**
+     * It reads a stored frame.
+     * @param index of the frame, between 0 and {@link #size()} - 1.
+     * @return the frame.
+     * @throws IOException if the frame couldn't be read.
+     */
+    EncodedFrame get(int index) throws IOException;
+
+    /**
+     * @return a reader over the frames stored so far, in capture order.
+     */
+    FrameReader openReader();
+
+    /**
+     * It opens a reader over the frames shown between two timestamps (a clip): the frame on screen at the start (the
+     * last one captured before it) and the ones captured until the end. The timestamps of the frames are relative to
+     * the start of the clip.
+     * @param from timestamp where the clip starts (in nanoseconds since the start of the recording).
+     * @param to timestamp where the clip ends.
+     * @return the reader.
+     * @throws IOException if the frames couldn't be read.
+     */
+    FrameReader openReader(long from, long to) throws IOException;
+
+    /**
+     * It releases the frames that aren't needed anymore to show the recording from a timestamp: the ones captured
+     * before the frame on screen at it. The readers of the following frames keep working, but the whole recording
+     * can't be read anymore. The stores that can't release a part of their frames (ex: a spool file) keep them.
+     * @param timestamp before which the frames aren't needed (in nanoseconds since the start of the recording).
+     */
+    void discardBefore(long timestamp);
+
+    /**
+     * It removes all the frames and releases the resources of the store. It can't be used afterwards.
+     */
+    void delete();
+
+}
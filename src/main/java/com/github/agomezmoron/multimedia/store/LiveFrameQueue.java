@@ -0,0 +1,142 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@link FrameReader} fed while the recording is running, so the video can be muxed at the same time the frames are
+ * captured. The producer adds the frames with {@link #add(EncodedFrame)} and calls {@link #finish(long)} after the
+ * last one.
+ *
+ */
+public class LiveFrameQueue implements FrameReader {
+
+    /**
+     * Mark of the end of the recording.
+     */
+    private static final EncodedFrame END_OF_FRAMES = new EncodedFrame(-1, EncodedFrame.NO_TIMESTAMP, new byte[0]);
+
+    /**
+     * Frames waiting to be read.
+     */
+    private final BlockingQueue<EncodedFrame> queue;
+
+    /**
+     * True once the end of the recording was read.
+     */
+    private volatile boolean ended = false;
+
+    /**
+     * True if the reader was closed, so the new frames are discarded.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Timestamp of the end of the recording, once it is finished.
+     */
+    private volatile long end = EncodedFrame.NO_TIMESTAMP;
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of frames waiting to be read. When the reader is slower, the producer waits.
+     */
+    public LiveFrameQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<EncodedFrame>(capacity);
+    }
+
+    /**
+     * It adds a frame, waiting if the queue is full.
+     * @param frame to be added.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void add(EncodedFrame frame) throws InterruptedException {
+        if (!closed) {
+            queue.put(frame);
+        }
+    }
+
+    /**
+     * It marks the end of the recording: once the queued frames are read, {@link #next()} returns null.
+     * @param end timestamp of the end of the recording (in nanoseconds) or {@link EncodedFrame#NO_TIMESTAMP}.
+     * @throws InterruptedException if the thread is interrupted while waiting for room.
+     */
+    public void finish(long end) throws InterruptedException {
+        this.end = end;
+        if (!closed) {
+            queue.put(END_OF_FRAMES);
+        }
+    }
+
+    /**
+     * @see {@link FrameReader#next()}
+     */
+    @Override
+    public EncodedFrame next() throws IOException {
+        if (ended || closed) {
+            return null;
+        }
+        try {
+            EncodedFrame frame = queue.take();
+            if (frame == END_OF_FRAMES) {
+                ended = true;
+                frame = null;
+            }
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a frame");
+        }
+    }
+
+    /**
+     * @see {@link FrameReader#willBlock()}
+     */
+    @Override
+    public boolean willBlock() {
+        return !ended && !closed && queue.isEmpty();
+    }
+
+    /**
+     * @see {@link FrameReader#getEnd()}
+     */
+    @Override
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * It stops reading: the queued and the following frames are discarded so the producer never waits.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+
+}
@@ -0,0 +1,314 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link FrameStore} keeping the frames in memory. The frames are packed one after another into big chunks (an arena)
+ * allocated on the heap or out of it (direct buffers), so there is no object per frame and no file system work. When
+ * the memory limit is reached the following frames are appended to a spill store (usually on disk).
+ *
+ */
+public class MemoryFrameStore extends AbstractFrameStore {
+
+    /**
+     * Default size of each chunk of the arena (in bytes).
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * If true the chunks are direct buffers, otherwise they are heap buffers.
+     */
+    private final boolean direct;
+
+    /**
+     * Maximum number of bytes allocated for the chunks.
+     */
+    private final long memoryLimit;
+
+    /**
+     * Size of each chunk. Bigger frames get a chunk of their own.
+     */
+    private final int chunkSize;
+
+    /**
+     * Store receiving the frames once the memory limit is reached. It can be null, so the frames are rejected.
+     */
+    private final FrameStore spill;
+
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+    /**
+     * Bytes allocated for the chunks.
+     */
+    private long allocated = 0;
+
+    /**
+     * Bytes used by the frames.
+     */
+    private long sizeInBytes = 0;
+
+    /**
+     * Number of frames kept in memory. The following ones are in the spill store.
+     */
+    private int inMemory = 0;
+
+    /**
+     * True once a frame didn't fit in the memory limit, so the following ones go to the spill store to keep the
+     * order.
+     */
+    private boolean spilling = false;
+
+    /**
+     * Index of the first frame kept in memory, the previous ones were released by {@link #discardBefore(long)}.
+     */
+    private int released = 0;
+
+    /**
+     * Number of chunks released, from the first one.
+     */
+    private int releasedChunks = 0;
+
+    /*
+     * Index of the frames kept in memory.
+     */
+    private int[] chunkIndexes = new int[256];
+
+    private int[] offsets = new int[256];
+
+    private int[] lengths = new int[256];
+
+    private long[] sequences = new long[256];
+
+    private long[] timestamps = new long[256];
+
+    /**
+     * Constructor.
+     * @param direct if true the frames are kept out of the heap.
+     * @param memoryLimit maximum number of bytes kept in memory.
+     * @param spill store receiving the frames once the limit is reached (or null to reject them).
+     */
+    public MemoryFrameStore(boolean direct, long memoryLimit, FrameStore spill) {
+        this(direct, memoryLimit, DEFAULT_CHUNK_SIZE, spill);
+    }
+
+    /**
+     * Constructor.
+     * @param direct if true the frames are kept out of the heap.
+     * @param memoryLimit maximum number of bytes kept in memory.
+     * @param chunkSize size of each chunk of the arena.
+     * @param spill store receiving the frames once the limit is reached (or null to reject them).
+     */
+    public MemoryFrameStore(boolean direct, long memoryLimit, int chunkSize, FrameStore spill) {
+        this.direct = direct;
+        this.memoryLimit = memoryLimit;
+        this.chunkSize = chunkSize;
+        this.spill = spill;
+    }
+
+    /**
+     * @see {@link FrameStore#append(EncodedFrame)}
+     */
+    @Override
+    public void append(EncodedFrame frame) throws IOException {
+        synchronized (this) {
+            if (!spilling && reserve(frame.getLength())) {
+                ByteBuffer chunk = chunks.get(chunks.size() - 1);
+                int offset = chunk.position();
+                chunk.put(frame.getData());
+                index(chunks.size() - 1, offset, frame);
+                return;
+            }
+            spilling = true;
+        }
+        if (spill == null) {
+            throw new IOException("The memory limit of " + memoryLimit + " bytes was reached");
+        }
+        spill.append(frame);
+    }
+
+    /**
+     * @see {@link FrameStore#size()}
+     */
+    @Override
+    public int size() {
+        int size;
+        synchronized (this) {
+            size = inMemory;
+        }
+        if (spill != null) {
+            size += spill.size();
+        }
+        return size;
+    }
+
+    /**
+     * @see {@link FrameStore#getSizeInBytes()}
+     */
+    @Override
+    public long getSizeInBytes() {
+        long size;
+        synchronized (this) {
+            size = sizeInBytes;
+        }
+        if (spill != null) {
+            size += spill.getSizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of frames kept in memory.
+     */
+    public synchronized int getFramesInMemory() {
+        return inMemory - released;
+    }
+
+    /**
+     * It returns a frame. The frames kept in memory are not copied: the returned frame is a view of the arena.
+     * @see {@link FrameStore#get(int)}
+     */
+    @Override
+    public EncodedFrame get(int index) throws IOException {
+        synchronized (this) {
+            if (index >= 0 && index < released) {
+                throw new IllegalStateException("The frame " + index + " was discarded");
+            }
+            if (index < inMemory) {
+                ByteBuffer data = chunks.get(chunkIndexes[index]).duplicate();
+                data.limit(offsets[index] + lengths[index]);
+                data.position(offsets[index]);
+                return new EncodedFrame(sequences[index], timestamps[index], data.slice());
+            }
+            if (spill == null || index < 0) {
+                throw new IndexOutOfBoundsException("Frame " + index + " of " + inMemory);
+            }
+            index -= inMemory;
+        }
+        return spill.get(index);
+    }
+
+    /**
+     * @see {@link AbstractFrameStore#getTimestamp(int)}
+     */
+    @Override
+    protected long getTimestamp(int index) throws IOException {
+        synchronized (this) {
+            if (index >= 0 && index < inMemory) {
+                return timestamps[index];
+            }
+        }
+        return super.getTimestamp(index);
+    }
+
+    /**
+     * The indexes of the frames don't change. The chunks whose frames were all released are freed, so the memory
+     * limit allows new ones until the frames spill. The frames in the spill store are kept.
+     * @see {@link FrameStore#discardBefore(long)}
+     */
+    @Override
+    public synchronized void discardBefore(long timestamp) {
+        if (inMemory == 0) {
+            return;
+        }
+        // the frame on screen at the timestamp is kept
+        int kept = released;
+        while (kept + 1 < inMemory && timestamps[kept + 1] != EncodedFrame.NO_TIMESTAMP
+                && timestamps[kept + 1] <= timestamp) {
+            kept++;
+        }
+        for (int i = released; i < kept; i++) {
+            sizeInBytes -= lengths[i];
+        }
+        released = kept;
+        for (; releasedChunks < chunkIndexes[kept]; releasedChunks++) {
+            allocated -= chunks.get(releasedChunks).capacity();
+            chunks.set(releasedChunks, null);
+        }
+    }
+
+    /**
+     * @see {@link FrameStore#delete()}
+     */
+    @Override
+    public void delete() {
+        synchronized (this) {
+            chunks.clear();
+            allocated = 0;
+            sizeInBytes = 0;
+            inMemory = 0;
+            released = 0;
+            releasedChunks = 0;
+        }
+        if (spill != null) {
+            spill.delete();
+        }
+    }
+
+    /**
+     * It makes sure the last chunk has room for a frame, allocating a new chunk if needed.
+     * @param length of the frame.
+     * @return false if the memory limit doesn't allow to keep the frame.
+     */
+    private boolean reserve(int length) {
+        if (!chunks.isEmpty() && chunks.get(chunks.size() - 1).remaining() >= length) {
+            return true;
+        }
+        int size = Math.max(chunkSize, length);
+        if (allocated + size > memoryLimit) {
+            return false;
+        }
+        chunks.add(direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+        allocated += size;
+        return true;
+    }
+
+    /**
+     * It adds a frame kept in memory to the index.
+     */
+    private void index(int chunk, int offset, EncodedFrame frame) {
+        if (inMemory == offsets.length) {
+            int capacity = inMemory * 2;
+            chunkIndexes = Arrays.copyOf(chunkIndexes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+        }
+        chunkIndexes[inMemory] = chunk;
+        offsets[inMemory] = offset;
+        lengths[inMemory] = frame.getLength();
+        sequences[inMemory] = frame.getSequence();
+        timestamps[inMemory] = frame.getTimestamp();
+        sizeInBytes += frame.getLength();
+        inMemory++;
+    }
+
+}
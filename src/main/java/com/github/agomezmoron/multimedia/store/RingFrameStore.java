@@ -0,0 +1,229 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link FrameStore} keeping only the last frames of a recording in memory (a flight recorder): once the frames span
+ * more than the maximum duration or use more than the maximum bytes, the oldest ones are discarded. The frame on
+ * screen at the start of the kept duration is kept too, so the whole duration can be shown.
+ * <p>
+ * The indexes of the frames change as the oldest ones are discarded, so the readers take a snapshot of the frames
+ * when they are opened.
+ *
+ */
+public class RingFrameStore extends AbstractFrameStore {
+
+    /**
+     * Maximum time between the oldest and the newest frames (in nanoseconds).
+     */
+    private final long maxDuration;
+
+    /**
+     * Maximum number of bytes of the frames.
+     */
+    private final long maxBytes;
+
+    /**
+     * Frames, from the oldest (at head) to the newest.
+     */
+    private EncodedFrame[] frames = new EncodedFrame[64];
+
+    /**
+     * Position of the oldest frame.
+     */
+    private int head = 0;
+
+    /**
+     * Number of stored frames.
+     */
+    private int count = 0;
+
+    /**
+     * Bytes used by the frames.
+     */
+    private long sizeInBytes = 0;
+
+    /**
+     * Number of discarded frames.
+     */
+    private long discarded = 0;
+
+    /**
+     * Constructor.
+     * @param maxDuration maximum time between the oldest and the newest frames (in nanoseconds).
+     * @param maxBytes maximum number of bytes of the frames.
+     */
+    public RingFrameStore(long maxDuration, long maxBytes) {
+        this.maxDuration = maxDuration;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The frame is kept as it is, so its data must not be changed afterwards.
+     * @see {@link FrameStore#append(EncodedFrame)}
+     */
+    @Override
+    public synchronized void append(EncodedFrame frame) throws IOException {
+        if (count == frames.length) {
+            EncodedFrame[] grown = new EncodedFrame[count * 2];
+            for (int i = 0; i < count; i++) {
+                grown[i] = frames[(head + i) % frames.length];
+            }
+            frames = grown;
+            head = 0;
+        }
+        frames[(head + count) % frames.length] = frame;
+        count++;
+        sizeInBytes += frame.getLength();
+        while (count > 1 && (sizeInBytes > maxBytes || (frame.getTimestamp() != EncodedFrame.NO_TIMESTAMP
+                && frame.getTimestamp() - frames[(head + 1) % frames.length].getTimestamp() >= maxDuration))) {
+            // the second oldest frame is already on screen at the start of the kept duration
+            sizeInBytes -= frames[head].getLength();
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            count--;
+            discarded++;
+        }
+    }
+
+    /**
+     * @see {@link FrameStore#size()}
+     */
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @see {@link FrameStore#getSizeInBytes()}
+     */
+    @Override
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return the number of frames discarded to keep the limits.
+     */
+    public synchronized long getDiscardedFrames() {
+        return discarded;
+    }
+
+    /**
+     * @param index of the frame, 0 being the oldest one still kept.
+     * @see {@link FrameStore#get(int)}
+     */
+    @Override
+    public synchronized EncodedFrame get(int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + count);
+        }
+        return frames[(head + index) % frames.length];
+    }
+
+    /**
+     * @see {@link FrameStore#openReader()}
+     */
+    @Override
+    public synchronized FrameReader openReader() {
+        return new IndexFrameReader(snapshot(), 0, count);
+    }
+
+    /**
+     * @see {@link FrameStore#openReader(long, long)}
+     */
+    @Override
+    public synchronized FrameReader openReader(long from, long to) throws IOException {
+        return snapshot().openReader(from, to);
+    }
+
+    /**
+     * The released frames aren't counted as discarded. The readers already opened keep their frames.
+     * @see {@link FrameStore#discardBefore(long)}
+     */
+    @Override
+    public synchronized void discardBefore(long timestamp) {
+        while (count > 1 && frames[(head + 1) % frames.length].getTimestamp() != EncodedFrame.NO_TIMESTAMP
+                && frames[(head + 1) % frames.length].getTimestamp() <= timestamp) {
+            sizeInBytes -= frames[head].getLength();
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            count--;
+        }
+    }
+
+    /**
+     * @see {@link FrameStore#delete()}
+     */
+    @Override
+    public synchronized void delete() {
+        Arrays.fill(frames, null);
+        head = 0;
+        count = 0;
+        sizeInBytes = 0;
+    }
+
+    /**
+     * @return a store with the frames kept now, which won't be discarded.
+     */
+    private AbstractFrameStore snapshot() {
+        final EncodedFrame[] kept = new EncodedFrame[count];
+        for (int i = 0; i < count; i++) {
+            kept[i] = frames[(head + i) % frames.length];
+        }
+        final long bytes = sizeInBytes;
+        return new AbstractFrameStore() {
+
+            @Override
+            public void append(EncodedFrame frame) {
+                throw new UnsupportedOperationException("Snapshot of a ring");
+            }
+
+            @Override
+            public int size() {
+                return kept.length;
+            }
+
+            @Override
+            public long getSizeInBytes() {
+                return bytes;
+            }
+
+            @Override
+            public EncodedFrame get(int index) {
+                return kept[index];
+            }
+
+            @Override
+            public void delete() {
+                // the frames belong to the ring
+            }
+        };
+    }
+
+}
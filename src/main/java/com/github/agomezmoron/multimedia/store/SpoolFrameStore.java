@@ -0,0 +1,332 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link FrameStore} appending all the frames to a single spool file instead of one file per frame. The file is
+ * written through memory mapped segments and the frames are read as views of those segments, so they are never copied
+ * by the store. Removing the frames is a single file delete.
+ * <p>
+ * Each segment starts with its size and each frame is preceded by a header with its length, sequence and timestamp,
+ * so the spool describes itself (a zero length marks the end of the frames of a segment). A compact index of the
+ * frames is kept in memory.
+ *
+ */
+public class SpoolFrameStore extends AbstractFrameStore {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(SpoolFrameStore.class);
+
+    /**
+     * Default size of each mapped segment (in bytes).
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Size of the header of each segment: its size (int).
+     */
+    public static final int SEGMENT_HEADER_SIZE = 4;
+
+    /**
+     * Size of the header of each frame: length (int), sequence (long) and timestamp (long).
+     */
+    public static final int FRAME_HEADER_SIZE = 4 + 8 + 8;
+
+    /**
+     * Spool file.
+     */
+    private final File file;
+
+    /**
+     * Size of each mapped segment. Bigger frames get a segment of their own.
+     */
+    private final int segmentSize;
+
+    private RandomAccessFile raFile;
+
+    private FileChannel channel;
+
+    /**
+     * Mapped segments, in file order.
+     */
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+    /**
+     * Position in the file where the next segment will be mapped.
+     */
+    private long mappedEnd = 0;
+
+    /**
+     * Bytes used by the frames (without headers).
+     */
+    private long sizeInBytes = 0;
+
+    /**
+     * Number of stored frames.
+     */
+    private int count = 0;
+
+    /*
+     * Index of the frames: segment, position of the frame inside it, length, sequence and timestamp.
+     */
+    private int[] segmentIndexes = new int[256];
+
+    private int[] positions = new int[256];
+
+    private int[] lengths = new int[256];
+
+    private long[] sequences = new long[256];
+
+    private long[] timestamps = new long[256];
+
+    /**
+     * Constructor.
+     * @param file spool file. It is created (or overwritten) with the first frame.
+     */
+    public SpoolFrameStore(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * @param file spool file. It is created (or overwritten) with the first frame.
+     * @param segmentSize size of each mapped segment.
+     */
+    public SpoolFrameStore(File file, int segmentSize) {
+        this.file = file;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * It opens the spool of a previous recording, scanning its segments to rebuild the index of the frames.
+     * @param file spool.
+     * @return the store. New frames can be appended.
+     * @throws IOException if the spool can't be read or it is corrupted.
+     */
+    public static SpoolFrameStore open(File file) throws IOException {
+        SpoolFrameStore store = new SpoolFrameStore(file);
+        try {
+            store.scan();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * @return the spool file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @see {@link FrameStore#append(EncodedFrame)}
+     */
+    @Override
+    public synchronized void append(EncodedFrame frame) throws IOException {
+        int length = frame.getLength();
+        MappedByteBuffer segment = reserve(FRAME_HEADER_SIZE + length);
+        segment.putInt(length);
+        segment.putLong(frame.getSequence());
+        segment.putLong(frame.getTimestamp());
+        int position = segment.position();
+        segment.put(frame.getData());
+        index(segments.size() - 1, position, length, frame.getSequence(), frame.getTimestamp());
+        sizeInBytes += length;
+    }
+
+    /**
+     * It adds a frame to the index.
+     * @param segmentIndex segment of the frame.
+     * @param position of the frame inside the segment (after its header).
+     * @param length of the frame.
+     * @param sequence of the frame.
+     * @param timestamp of the frame.
+     */
+    private void index(int segmentIndex, int position, int length, long sequence, long timestamp) {
+        if (count == positions.length) {
+            int capacity = count * 2;
+            segmentIndexes = Arrays.copyOf(segmentIndexes, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+        }
+        segmentIndexes[count] = segmentIndex;
+        positions[count] = position;
+        lengths[count] = length;
+        sequences[count] = sequence;
+        timestamps[count] = timestamp;
+        count++;
+    }
+
+    /**
+     * @see {@link FrameStore#size()}
+     */
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @see {@link FrameStore#getSizeInBytes()}
+     */
+    @Override
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * It returns a frame as a view of the mapped spool, without copying it.
+     * @see {@link FrameStore#get(int)}
+     */
+    @Override
+    public synchronized EncodedFrame get(int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + count);
+        }
+        ByteBuffer data = segments.get(segmentIndexes[index]).duplicate();
+        data.limit(positions[index] + lengths[index]);
+        data.position(positions[index]);
+        return new EncodedFrame(sequences[index], timestamps[index], data.slice());
+    }
+
+    /**
+     * It closes and deletes the spool file.
+     * @see {@link FrameStore#delete()}
+     */
+    @Override
+    public synchronized void delete() {
+        close();
+        // some platforms don't allow to delete a file while it is still mapped
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * It closes the spool file and forgets its frames, without deleting it.
+     */
+    private synchronized void close() {
+        segments.clear();
+        count = 0;
+        sizeInBytes = 0;
+        if (raFile != null) {
+            try {
+                raFile.close();
+            } catch (IOException e) {
+                LOGGER.warn("The spool " + file + " couldn't be closed", e);
+            }
+            raFile = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * It maps the segments of an existing spool and indexes their frames. The last segment is left positioned after
+     * its last frame, so the next one is appended there.
+     * @throws IOException if the spool can't be read or it is corrupted.
+     */
+    private synchronized void scan() throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        raFile = new RandomAccessFile(file, "rw");
+        channel = raFile.getChannel();
+        long fileSize = channel.size();
+        while (mappedEnd + SEGMENT_HEADER_SIZE <= fileSize) {
+            raFile.seek(mappedEnd);
+            int length = raFile.readInt();
+            if (length < SEGMENT_HEADER_SIZE || mappedEnd + length > fileSize) {
+                throw new IOException("The spool " + file + " is corrupted at " + mappedEnd);
+            }
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, mappedEnd, length);
+            segment.position(SEGMENT_HEADER_SIZE);
+            while (segment.remaining() >= FRAME_HEADER_SIZE) {
+                int frameLength = segment.getInt(segment.position());
+                if (frameLength <= 0 || frameLength > segment.remaining() - FRAME_HEADER_SIZE) {
+                    // end of the frames of the segment
+                    break;
+                }
+                segment.getInt();
+                long sequence = segment.getLong();
+                long timestamp = segment.getLong();
+                index(segments.size(), segment.position(), frameLength, sequence, timestamp);
+                segment.position(segment.position() + frameLength);
+                sizeInBytes += frameLength;
+            }
+            segments.add(segment);
+            mappedEnd += length;
+        }
+    }
+
+    /**
+     * It returns the segment where the next frame will be written, mapping a new one if the current one doesn't
+     * have room for it.
+     * @param size of the frame, including its header.
+     * @return the segment, positioned where the frame has to be written.
+     * @throws IOException if the segment couldn't be mapped.
+     */
+    private MappedByteBuffer reserve(int size) throws IOException {
+        if (!segments.isEmpty()) {
+            MappedByteBuffer current = segments.get(segments.size() - 1);
+            if (current.remaining() >= size) {
+                return current;
+            }
+        }
+        if (channel == null) {
+            if (file.getParentFile() != null && !file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            raFile = new RandomAccessFile(file, "rw");
+            raFile.setLength(0);
+            channel = raFile.getChannel();
+        }
+        int length = Math.max(segmentSize, SEGMENT_HEADER_SIZE + size);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, mappedEnd, length);
+        segment.putInt(length);
+        mappedEnd += length;
+        segments.add(segment);
+        return segment;
+    }
+
+}
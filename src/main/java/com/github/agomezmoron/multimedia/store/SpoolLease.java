@@ -0,0 +1,163 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Accounting of the disk used by a recording in the {@link SpoolManager} of its temp directory. It holds the lock of
+ * the marker of the recording until it is closed.
+ *
+ */
+public final class SpoolLease {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(SpoolLease.class);
+
+    private final SpoolManager manager;
+
+    /**
+     * Name of the frames of the recording in the directory.
+     */
+    private final String name;
+
+    /**
+     * Marker of the recording.
+     */
+    private final RandomAccessFile marker;
+
+    private final FileLock lock;
+
+    /**
+     * Bytes counted for the frames.
+     */
+    private long frameBytes = 0;
+
+    /**
+     * Bytes counted for the video being created.
+     */
+    private long videoBytes = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     * @param manager of the directory.
+     * @param name of the frames of the recording in the directory.
+     * @param marker of the recording.
+     * @param lock of the marker.
+     */
+    SpoolLease(SpoolManager manager, String name, RandomAccessFile marker, FileLock lock) {
+        this.manager = manager;
+        this.name = name;
+        this.marker = marker;
+        this.lock = lock;
+    }
+
+    /**
+     * @return the name of the frames of the recording in the directory.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how much the capture has to slow down because the quota is close.
+     * @see {@link SpoolManager#getSlowdown()}
+     */
+    public double getSlowdown() {
+        return manager.getSlowdown();
+    }
+
+    /**
+     * It counts bytes of frames against the quota, waiting for room if needed.
+     * @param bytes to be written.
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return true if they can be written, false if there wasn't room in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public boolean reserveFrames(long bytes, long timeout) throws InterruptedException {
+        if (!manager.reserve(bytes, timeout)) {
+            return false;
+        }
+        synchronized (this) {
+            frameBytes += bytes;
+        }
+        return true;
+    }
+
+    /**
+     * It counts bytes of the video against the quota, waiting for room if needed. They stop being counted when the
+     * lease is closed.
+     * @param bytes to be written.
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return true if they can be written, false if there wasn't room in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public boolean reserveVideo(long bytes, long timeout) throws InterruptedException {
+        if (!manager.reserve(bytes, timeout)) {
+            return false;
+        }
+        synchronized (this) {
+            videoBytes += bytes;
+        }
+        return true;
+    }
+
+    /**
+     * It ends the accounting of the recording. Its video no longer counts against the quota.
+     * @param keepFrames if true the frames are kept (and counted) until they are evicted, otherwise they must have
+     *            been removed already.
+     */
+    public synchronized void close(boolean keepFrames) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        manager.release(videoBytes);
+        try {
+            if (keepFrames) {
+                marker.setLength(0);
+                marker.write(SpoolManager.COMPLETED.getBytes("US-ASCII"));
+            }
+            lock.release();
+            marker.close();
+        } catch (IOException e) {
+            LOGGER.warn("The marker of " + name + " couldn't be updated", e);
+        }
+        if (!keepFrames) {
+            new File(manager.getDirectory(), name + SpoolManager.MARKER_SUFFIX).delete();
+        }
+        manager.close(this, frameBytes, keepFrames);
+    }
+
+}
@@ -0,0 +1,565 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * It keeps the disk used by the recordings in a temp directory under a quota, shared by all the recordings of the JVM
+ * (and, through the files, with the other JVMs using the same directory).
+ * <p>
+ * Each recording holds a {@link SpoolLease}: a marker file <code>&lt;name&gt;{@value #MARKER_SUFFIX}</code>, locked
+ * while it is recording, next to its frames (<code>&lt;name&gt;</code> directory or <code>&lt;name&gt;.spool</code>
+ * file). When a JVM dies or a recording is never stopped in a JVM that ends, its lock is released and the recording
+ * is orphaned; when a recording keeps its frames, its marker is marked as completed. Both can be evicted, the least
+ * recently used first, when a recording needs room. The orphaned recordings left by previous runs are removed in the
+ * background when the directory is first used.
+ * <p>
+ * The quota covers the frames and the videos being created; the videos already created belong to the user and are
+ * not counted. The capture slows down as the quota is approached and, when it is reached and nothing can be evicted,
+ * the frames wait for room (and are lost if it doesn't come in time) instead of filling the disk.
+ *
+ */
+public final class SpoolManager {
+
+    /**
+     * Log instance.
+     */
+    private final static Logger LOGGER = Logger.getLogger(SpoolManager.class);
+
+    /**
+     * Suffix of the marker files of the recordings.
+     */
+    public static final String MARKER_SUFFIX = ".recording";
+
+    /**
+     * Content of the marker of a completed recording.
+     */
+    static final String COMPLETED = "completed";
+
+    /**
+     * Fraction of the quota from which the capture slows down.
+     */
+    static final double HIGH_WATER_MARK = 0.9;
+
+    /**
+     * Maximum factor the capture interval is multiplied by, when the quota is reached.
+     */
+    static final double MAX_SLOWDOWN = 4;
+
+    /**
+     * Minimum time between two scans of the directory looking for new orphans (in milliseconds).
+     */
+    private static final long RESCAN_INTERVAL = 5000;
+
+    private static final Map<File, SpoolManager> managers = new HashMap<File, SpoolManager>();
+
+    /**
+     * Managed directory.
+     */
+    private final File directory;
+
+    /**
+     * Maximum bytes of the recordings (0 if there is no limit).
+     */
+    private long quota = 0;
+
+    /**
+     * Bytes counted against the quota.
+     */
+    private long used = 0;
+
+    /**
+     * Recordings of this JVM still writing.
+     */
+    private final Map<String, SpoolLease> leases = new HashMap<String, SpoolLease>();
+
+    /**
+     * Recordings of this JVM whose marker is being created and locked: the scans must not take it for an orphan.
+     */
+    private final Set<String> opening = new HashSet<String>();
+
+    /**
+     * Recordings being evicted and their size: their files are removed without holding the lock of the manager.
+     */
+    private final Map<String, Long> evicting = new HashMap<String, Long>();
+
+    /**
+     * Recordings that can be evicted (orphaned or completed) and their size, the least recently used first.
+     */
+    private final LinkedHashMap<String, Long> evictable = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /**
+     * Recordings of other JVMs and their size when they were scanned.
+     */
+    private final Map<String, Long> foreign = new HashMap<String, Long>();
+
+    /**
+     * {@link System#nanoTime()} of the last scan of the directory.
+     */
+    private long lastScan;
+
+    /**
+     * Constructor.
+     * @param directory to be managed.
+     */
+    private SpoolManager(File directory) {
+        this.directory = directory;
+        this.lastScan = System.nanoTime();
+    }
+
+    /**
+     * @param directory temp directory of the recordings.
+     * @return the manager of the directory. The first time, the orphaned recordings left by previous runs are removed
+     *         in the background.
+     */
+    public static SpoolManager get(File directory) {
+        File key = directory.getAbsoluteFile();
+        try {
+            key = directory.getCanonicalFile();
+        } catch (IOException e) {
+            // the absolute path is good enough
+        }
+        SpoolManager manager;
+        synchronized (managers) {
+            manager = managers.get(key);
+            if (manager == null) {
+                manager = new SpoolManager(key);
+                managers.put(key, manager);
+                final SpoolManager sweptManager = manager;
+                Thread sweeper = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        sweptManager.sweep();
+                    }
+                }, "screen-recorder-sweeper");
+                sweeper.setDaemon(true);
+                sweeper.start();
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * @return the managed directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the maximum bytes of the recordings (0 if there is no limit).
+     */
+    public synchronized long getQuota() {
+        return quota;
+    }
+
+    /**
+     * @param quota maximum bytes of the recordings (0 if there is no limit). The last recording started sets it.
+     */
+    public synchronized void setQuota(long quota) {
+        if (quota >= 0) {
+            this.quota = quota;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return the bytes counted against the quota.
+     */
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * It starts the accounting of a recording, creating and locking its marker. A completed recording with the same
+     * name is replaced.
+     * @param name of the frames of the recording in the directory (without extension).
+     * @return the lease of the recording.
+     * @throws IOException if the marker couldn't be created.
+     */
+    public SpoolLease open(String name) throws IOException {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        boolean replaced;
+        synchronized (this) {
+            try {
+                while (evicting.containsKey(name)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while the recording " + name + " was evicted");
+            }
+            if (leases.containsKey(name) || opening.contains(name)) {
+                throw new IOException("The recording " + name + " is already being written in " + directory);
+            }
+            opening.add(name);
+            replaced = startEviction(name);
+            Long previousForeign = foreign.remove(name);
+            if (previousForeign != null) {
+                release(previousForeign);
+            }
+        }
+        SpoolLease lease = null;
+        try {
+            if (replaced) {
+                evict(name);
+            }
+            File marker = new File(directory, name + MARKER_SUFFIX);
+            RandomAccessFile raFile = new RandomAccessFile(marker, "rw");
+            try {
+                raFile.setLength(0);
+                FileLock lock = tryLock(raFile.getChannel());
+                if (lock == null) {
+                    throw new IOException("The recording " + name + " is being written by another process in "
+                            + directory);
+                }
+                lease = new SpoolLease(this, name, raFile, lock);
+            } finally {
+                if (lease == null) {
+                    raFile.close();
+                }
+            }
+        } finally {
+            synchronized (this) {
+                opening.remove(name);
+                if (lease != null) {
+                    leases.put(name, lease);
+                }
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * @return how much the capture has to slow down: 1 until {@value #HIGH_WATER_MARK} of the quota is used, growing
+     *         up to {@value #MAX_SLOWDOWN} when it is reached.
+     */
+    public synchronized double getSlowdown() {
+        if (quota <= 0) {
+            return 1;
+        }
+        double fraction = used / (double) quota;
+        if (fraction <= HIGH_WATER_MARK) {
+            return 1;
+        }
+        return 1 + (MAX_SLOWDOWN - 1) * Math.min(1, (fraction - HIGH_WATER_MARK) / (1 - HIGH_WATER_MARK));
+    }
+
+    /**
+     * It counts bytes against the quota, evicting recordings or waiting while they don't fit. The evicted recordings
+     * are removed without holding the lock of the manager, so the other recordings aren't stalled meanwhile.
+     * @param bytes to be written.
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return true if they were counted, false if there wasn't room in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    boolean reserve(long bytes, long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            String evicted;
+            synchronized (this) {
+                if (quota <= 0 || used + bytes <= quota) {
+                    used += bytes;
+                    return true;
+                }
+                evicted = startEvictionOfOldest();
+                if (evicted == null && rescan()) {
+                    evicted = startEvictionOfOldest();
+                }
+                if (evicted == null) {
+                    // waiting for room, also freed by the evictions of other threads
+                    long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (wait <= 0) {
+                        return false;
+                    }
+                    wait(Math.min(wait, RESCAN_INTERVAL));
+                    continue;
+                }
+            }
+            LOGGER.info("Removing the frames of " + evicted + " from " + directory + " to keep the quota");
+            evict(evicted);
+        }
+    }
+
+    /**
+     * @param bytes no longer counted against the quota.
+     */
+    synchronized void release(long bytes) {
+        used = Math.max(0, used - bytes);
+        notifyAll();
+    }
+
+    /**
+     * It ends the accounting of a recording.
+     * @param lease of the recording.
+     * @param frameBytes counted for its frames.
+     * @param keep if true the frames are kept (and counted) until they are evicted; otherwise they were removed.
+     */
+    synchronized void close(SpoolLease lease, long frameBytes, boolean keep) {
+        leases.remove(lease.getName());
+        if (keep) {
+            evictable.put(lease.getName(), frameBytes);
+        } else {
+            release(frameBytes);
+        }
+        notifyAll();
+    }
+
+    /**
+     * It starts the eviction of the least recently used orphaned or completed recording.
+     * @return its name or null if there is none.
+     */
+    private String startEvictionOfOldest() {
+        if (evictable.isEmpty()) {
+            return null;
+        }
+        String name = evictable.keySet().iterator().next();
+        startEviction(name);
+        return name;
+    }
+
+    /**
+     * It starts the eviction of a recording: it is no longer evictable, but its bytes are counted until
+     * {@link #evict(String)} removes its files.
+     * @param name of the recording.
+     * @return true if it was evictable.
+     */
+    private boolean startEviction(String name) {
+        Long size = evictable.remove(name);
+        if (size == null) {
+            return false;
+        }
+        evicting.put(name, size);
+        return true;
+    }
+
+    /**
+     * It removes the files of a recording whose eviction was started, without holding the lock of the manager.
+     * @param name of the recording.
+     */
+    private void evict(String name) {
+        try {
+            remove(name);
+        } finally {
+            synchronized (this) {
+                release(evicting.remove(name));
+            }
+        }
+    }
+
+    /**
+     * It looks for recordings orphaned since the last scan, at most every {@value #RESCAN_INTERVAL} milliseconds.
+     * @return true if new recordings can be evicted.
+     */
+    private boolean rescan() {
+        if (System.nanoTime() - lastScan < TimeUnit.MILLISECONDS.toNanos(RESCAN_INTERVAL)) {
+            return false;
+        }
+        scan();
+        return !evictable.isEmpty();
+    }
+
+    /**
+     * It removes the orphaned recordings of previous runs and counts the rest.
+     */
+    void sweep() {
+        List<String> orphans = scan();
+        for (String name : orphans) {
+            boolean orphaned;
+            synchronized (this) {
+                // it could have been evicted or replaced meanwhile
+                orphaned = startEviction(name);
+            }
+            if (orphaned) {
+                LOGGER.info("Removing the frames of the orphaned recording " + name + " from " + directory);
+                evict(name);
+            }
+        }
+    }
+
+    /**
+     * It scans the markers of the directory, counting the recordings that are not known yet.
+     * @return the orphaned recordings found.
+     */
+    private synchronized List<String> scan() {
+        lastScan = System.nanoTime();
+        List<String> orphans = new ArrayList<String>();
+        File[] markers = directory.listFiles();
+        if (markers == null) {
+            return orphans;
+        }
+        // the least recently modified first, so they are evicted first
+        List<File> sorted = new ArrayList<File>();
+        for (File marker : markers) {
+            if (marker.getName().endsWith(MARKER_SUFFIX) && marker.isFile()) {
+                sorted.add(marker);
+            }
+        }
+        Collections.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.compare(first.lastModified(), second.lastModified());
+            }
+        });
+        Set<String> found = new HashSet<String>();
+        for (File marker : sorted) {
+            String name = marker.getName().substring(0, marker.getName().length() - MARKER_SUFFIX.length());
+            found.add(name);
+            if (leases.containsKey(name) || opening.contains(name) || evicting.containsKey(name)
+                    || evictable.containsKey(name)) {
+                continue;
+            }
+            Boolean completed = readState(marker);
+            long size = sizeOf(name);
+            Long previous = foreign.remove(name);
+            if (previous != null) {
+                used -= previous;
+            }
+            if (completed == null) {
+                // still being written by another JVM
+                foreign.put(name, size);
+            } else {
+                evictable.put(name, size);
+                if (!completed) {
+                    orphans.add(name);
+                }
+            }
+            used += size;
+        }
+        // the recordings of other JVMs that were removed meanwhile
+        for (String name : new ArrayList<String>(foreign.keySet())) {
+            if (!found.contains(name)) {
+                used -= foreign.remove(name);
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * @param marker of a recording of another JVM (or of a previous run).
+     * @return null if it is being written, true if it completed, false if it is orphaned.
+     */
+    private static Boolean readState(File marker) {
+        RandomAccessFile raFile = null;
+        try {
+            raFile = new RandomAccessFile(marker, "rw");
+            FileLock lock = tryLock(raFile.getChannel());
+            if (lock == null) {
+                return null;
+            }
+            try {
+                byte[] content = new byte[(int) Math.min(raFile.length(), COMPLETED.length())];
+                raFile.readFully(content);
+                return COMPLETED.equals(new String(content, "US-ASCII"));
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("The marker " + marker + " couldn't be read", e);
+            return null;
+        } finally {
+            if (raFile != null) {
+                try {
+                    raFile.close();
+                } catch (IOException e) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * @param channel of a marker.
+     * @return the lock of the marker or null if another process (or this one) holds it.
+     * @throws IOException if the lock couldn't be tried.
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param name of a recording.
+     * @return the bytes of its frames.
+     */
+    private long sizeOf(String name) {
+        return sizeOf(new File(directory, name)) + sizeOf(new File(directory, name + ".spool"));
+    }
+
+    /**
+     * @param file file or directory.
+     * @return its bytes (including the content of the directories).
+     */
+    private static long sizeOf(File file) {
+        File[] files = file.listFiles();
+        if (files == null) {
+            return file.length();
+        }
+        long size = 0;
+        for (File child : files) {
+            size += sizeOf(child);
+        }
+        return size;
+    }
+
+    /**
+     * It removes the frames and the marker of a recording.
+     * @param name of the recording.
+     */
+    private void remove(String name) {
+        File frames = new File(directory, name);
+        if (frames.isDirectory()) {
+            DirectoryFrameStore.deleteDirectory(frames);
+        }
+        new File(directory, name + ".spool").delete();
+        // the last one, so the frames are found again if they couldn't be removed
+        new File(directory, name + MARKER_SUFFIX).delete();
+    }
+
+}
@@ -0,0 +1,52 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.testng.configuration;
+
+/**
+ * How the {@link com.github.agomezmoron.multimedia.testng.listener.VideoRecorderListener} records the tests.
+ *
+ */
+public enum RecordingMode {
+
+    /**
+     * A recording is started and stopped for each test.
+     */
+    PER_TEST,
+
+    /**
+     * A single recording runs for the whole suite and the clip of each test to be kept is cut out of it, in the
+     * background, when the test ends.
+     */
+    SUITE,
+
+    /**
+     * Like {@link #SUITE}, but only the last seconds of the recording are kept, in memory, so the tests whose videos
+     * are not kept cost no muxing nor files. The clips show up to the last
+     * {@link com.github.agomezmoron.multimedia.recorder.configuration.VideoRecorderConfiguration#getRingDuration()}
+     * seconds of each test.
+     */
+    FLIGHT_RECORDER
+
+}
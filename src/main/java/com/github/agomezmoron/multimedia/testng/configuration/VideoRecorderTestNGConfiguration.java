@@ -39,6 +39,11 @@ public final class VideoRecorderTestNGConfiguration extends VideoRecorderConfigu
      */
     private static boolean recordTest = true;
 
+    /**
+     * How the tests are recorded.
+     */
+    private static RecordingMode recordingMode = RecordingMode.PER_TEST;
+
     /**
      * Flag to know if the video should be kept on success.
      */
@@ -63,6 +68,22 @@ public final class VideoRecorderTestNGConfiguration extends VideoRecorderConfigu
         VideoRecorderTestNGConfiguration.recordTest = recordTest;
     }
 
+    /**
+     * @return the recordingMode
+     */
+    public static RecordingMode getRecordingMode() {
+        return recordingMode;
+    }
+
+    /**
+     * @param recordingMode the recordingMode to set
+     */
+    public static void setRecordingMode(RecordingMode recordingMode) {
+        if (recordingMode != null) {
+            VideoRecorderTestNGConfiguration.recordingMode = recordingMode;
+        }
+    }
+
     /**
      * @return the keepVideoOnSuccess
      */
@@ -26,18 +26,34 @@ package com.github.agomezmoron.multimedia.testng.listener;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestResult;
 import org.testng.TestListenerAdapter;
 
+import com.github.agomezmoron.multimedia.recorder.RecordingSession;
 import com.github.agomezmoron.multimedia.recorder.VideoRecorder;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.metrics.RecordingSummary;
+import com.github.agomezmoron.multimedia.store.FrameReader;
+import com.github.agomezmoron.multimedia.testng.configuration.RecordingMode;
 import com.github.agomezmoron.multimedia.testng.configuration.VideoRecorderTestNGConfiguration;
 
 /**
@@ -46,20 +62,64 @@ import com.github.agomezmoron.multimedia.testng.configuration.VideoRecorderTestN
  * @author Alejandro Gomez <agommor@gmail.com>
  *
  */
-public class VideoRecorderListener extends TestListenerAdapter {
+public class VideoRecorderListener extends TestListenerAdapter implements ISuiteListener {
 
     /**
      * Log instance.
      */
     private final static Logger LOGGER = Logger.getLogger(VideoRecorderListener.class);
 
+    /**
+     * Attribute of the test results with the start of their clip in the suite recording.
+     */
+    private static final String CLIP_START = VideoRecorderListener.class.getName() + ".clipStart";
+
+    /**
+     * Attribute of the test results with their {@link RecordingSession} ({@link RecordingMode#PER_TEST}), until it is
+     * stopped.
+     */
+    private static final String RECORDING = VideoRecorderListener.class.getName() + ".recording";
+
+    /**
+     * Attribute of the test results with the {@link RecordingSummary} of their video, set once it is created.
+     */
+    public static final String RECORDING_SUMMARY = VideoRecorderListener.class.getName() + ".recordingSummary";
+
+    /**
+     * Recording of the whole suite ({@link RecordingMode#SUITE} and {@link RecordingMode#FLIGHT_RECORDER}).
+     */
+    private RecordingSession suiteRecording;
+
+    /**
+     * Starts of the clips of the tests running or being created: the frames of the suite recording from the earliest
+     * one are still needed.
+     */
+    private final List<Long> openClips = new ArrayList<Long>();
+
+    /**
+     * Thread moving the videos once they are created and cutting the clips out of the suite recording.
+     */
+    private ExecutorService background;
+
     /**
      * @see {@link TestListenerAdapter#onTestStart(ITestResult)}
      */
     @Override
     public void onTestStart(ITestResult result) {
         if (VideoRecorderTestNGConfiguration.wantToRecordTest()) {
-            VideoRecorder.start(result.getMethod().getMethodName() + "_" + new Date().getTime());
+            if (VideoRecorderTestNGConfiguration.getRecordingMode() != RecordingMode.PER_TEST) {
+                long start = getSuiteRecording().getElapsed();
+                synchronized (openClips) {
+                    openClips.add(start);
+                }
+                result.setAttribute(CLIP_START, start);
+            } else {
+                // a session for each test, so the tests running in parallel get their own videos
+                RecordingSession recording = VideoRecorder.newRecording(result.getMethod().getMethodName() + "_"
+                        + new Date().getTime());
+                recording.start();
+                result.setAttribute(RECORDING, recording);
+            }
         }
     }
 
@@ -67,10 +127,15 @@ public class VideoRecorderListener extends TestListenerAdapter {
      * @see {@link TestListenerAdapter#onTestSuccess(ITestResult)}
      */
     public void onTestSuccess(ITestResult result) {
-        File createdVideo = endVideo(result);
-        if (createdVideo != null && !VideoRecorderTestNGConfiguration.wantToKeepVideoOnSuccess()) {
-            createdVideo.delete();
+        if (result.getAttribute(CLIP_START) != null) {
+            if (VideoRecorderTestNGConfiguration.wantToKeepVideoOnSuccess()) {
+                cutClip(result);
+            } else {
+                closeClip(result);
+            }
+            return;
         }
+        endVideo(result, VideoRecorderTestNGConfiguration.wantToKeepVideoOnSuccess());
     }
 
     /**
@@ -78,10 +143,15 @@ public class VideoRecorderListener extends TestListenerAdapter {
      */
     @Override
     public void onTestFailure(ITestResult result) {
-        File createdVideo = endVideo(result);
-        if (createdVideo != null && !VideoRecorderTestNGConfiguration.wantToKeepVideoOnFailure()) {
-            createdVideo.delete();
+        if (result.getAttribute(CLIP_START) != null) {
+            if (VideoRecorderTestNGConfiguration.wantToKeepVideoOnFailure()) {
+                cutClip(result);
+            } else {
+                closeClip(result);
+            }
+            return;
         }
+        endVideo(result, VideoRecorderTestNGConfiguration.wantToKeepVideoOnFailure());
     }
 
     /**
@@ -89,49 +159,205 @@ public class VideoRecorderListener extends TestListenerAdapter {
      */
     @Override
     public void onTestSkipped(ITestResult result) {
-        File createdVideo = endVideo(result);
-        if (createdVideo != null) {
-            createdVideo.delete();
+        if (result.getAttribute(CLIP_START) != null) {
+            closeClip(result);
+            return;
         }
+        endVideo(result, false);
     }
 
     /**
-     * It ends the video and move it if needed.
-     * @param result {@link ITestResult}.
-     * @return File with the path.
+     * @see {@link ISuiteListener#onStart(ISuite)}
      */
-    private File endVideo(ITestResult result) {
-        File createdVideoFile = null;
-        if (VideoRecorderTestNGConfiguration.wantToRecordTest()) {
+    @Override
+    public void onStart(ISuite suite) {
+        // the suite recording starts with the first test
+    }
+
+    /**
+     * It waits for the videos still being created and stops the suite recording, without creating its video.
+     * @see {@link ISuiteListener#onFinish(ISuite)}
+     */
+    @Override
+    public synchronized void onFinish(ISuite suite) {
+        if (background != null) {
+            background.shutdown();
             try {
-                String createdVideo = VideoRecorder.stop();
-                String videoName = "";
-                if (createdVideo != null) {
-                    String[] paths = createdVideo.split("" + File.separatorChar);
-                    videoName = paths[paths.length - 1];
+                background.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting for the videos", e);
+            }
+            background = null;
+        }
+        if (suiteRecording != null) {
+            suiteRecording.discard();
+            LOGGER.info("Suite recording stats: " + suiteRecording.getSummary());
+            suiteRecording = null;
+        }
+    }
+
+    /**
+     * @return the recording of the suite, started with the first test.
+     */
+    private synchronized RecordingSession getSuiteRecording() {
+        if (suiteRecording == null) {
+            // the clips are cut from the stored frames
+            RecordingSettings settings = RecordingSettings.fromConfiguration().withEncodeLive(false);
+            if (VideoRecorderTestNGConfiguration.getRecordingMode() == RecordingMode.FLIGHT_RECORDER) {
+                settings = settings.withFrameStoreType(FrameStoreType.RING);
+            }
+            suiteRecording = new RecordingSession("suite_" + new Date().getTime(), settings);
+            suiteRecording.start();
+        }
+        return suiteRecording;
+    }
+
+    /**
+     * @return the thread for the work done after the tests, created on demand.
+     */
+    private synchronized ExecutorService getBackground() {
+        if (background == null) {
+            background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "screen-recorder-videos");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return background;
+    }
+
+    /**
+     * It takes the frames of a test from the suite recording, before they can be discarded, and creates its clip in
+     * the background.
+     * @param result {@link ITestResult}.
+     */
+    private synchronized void cutClip(final ITestResult result) {
+        final RecordingSession recording = suiteRecording;
+        if (recording == null) {
+            return;
+        }
+        final String clipName = result.getMethod().getMethodName() + "_" + new Date().getTime();
+        final long start = (Long) result.getAttribute(CLIP_START);
+        final long end = recording.getElapsed();
+        final FrameReader clip;
+        try {
+            clip = recording.openClip(start, end);
+        } catch (IOException e) {
+            LOGGER.error("An error occurred reading the clip " + clipName, e);
+            releaseFrames(recording, start, end);
+            return;
+        }
+        getBackground().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String createdClip = recording.createClip(clipName, clip);
+                    if (createdClip != null) {
+                        moveVideo(createdClip, result);
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("An error occurred creating the clip " + clipName, e);
+                } finally {
+                    releaseFrames(recording, start, end);
                 }
-                createdVideoFile = new File(createdVideo);
-                if (VideoRecorderTestNGConfiguration.getDefaultDirectory().getAbsolutePath()
-                        .equals(VideoRecorderTestNGConfiguration.getVideoDirectory().getAbsolutePath())) {
+            }
+        });
+    }
+
+    /**
+     * It ends the clip of a test whose video isn't kept.
+     * @param result {@link ITestResult}.
+     */
+    private synchronized void closeClip(ITestResult result) {
+        if (suiteRecording != null) {
+            releaseFrames(suiteRecording, (Long) result.getAttribute(CLIP_START), suiteRecording.getElapsed());
+        }
+    }
+
+    /**
+     * It releases the frames of the suite recording that no clip needs anymore, once a clip was created (or
+     * discarded): the ones before its end or before the start of the earliest clip still open.
+     * @param recording of the suite.
+     * @param start of the clip.
+     * @param end of the clip.
+     */
+    private void releaseFrames(RecordingSession recording, long start, long end) {
+        long cut;
+        synchronized (openClips) {
+            openClips.remove(Long.valueOf(start));
+            cut = openClips.isEmpty() ? end : Math.min(end, Collections.min(openClips));
+        }
+        recording.discardFramesBefore(cut);
+    }
+
+    /**
+     * It ends the video, which is created in the background, and then moves or deletes it.
+     * @param result {@link ITestResult}.
+     * @param keep if false the video is deleted.
+     */
+    private void endVideo(final ITestResult result, final boolean keep) {
+        final RecordingSession recording = (RecordingSession) result.getAttribute(RECORDING);
+        if (recording != null) {
+            result.removeAttribute(RECORDING);
+            final Future<String> video = recording.stopAsync();
+            getBackground().submit(new Runnable() {
+                @Override
+                public void run() {
                     try {
-                        Path newVideoPath = Paths.get(new File(".")
-                                .getCanonicalPath(), "target", "screen-recorder", result.getTestClass().getName());
-                        createdVideoFile = new File(newVideoPath.toFile().getCanonicalPath() + File.separatorChar);
-                        if (!createdVideoFile.exists()) {
-                            createdVideoFile.mkdirs();
+                        String createdVideo = video.get();
+                        RecordingSummary summary = recording.getSummary();
+                        result.setAttribute(RECORDING_SUMMARY, summary);
+                        LOGGER.info("Recording summary of " + result.getTestClass().getName() + "."
+                                + result.getMethod().getMethodName() + ": " + summary);
+                        if (createdVideo != null) {
+                            if (keep) {
+                                moveVideo(createdVideo, result);
+                            } else {
+                                new File(createdVideo).delete();
+                            }
                         }
-                        newVideoPath = Paths.get(createdVideoFile.getCanonicalPath() + File.separatorChar + videoName);
-                        Files.move(Paths.get(createdVideo), newVideoPath, StandardCopyOption.REPLACE_EXISTING);
-                        LOGGER.info("Video created at " + newVideoPath.toFile().getCanonicalPath());
-                    } catch (IOException e) {
-                        LOGGER.error("An error occurred moving the video", e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        LOGGER.error("An error occurred creating the video", e.getCause());
                     }
-                } else {
-                    LOGGER.info("Video created at " + createdVideo);
                 }
-            } catch (MalformedURLException e) {
-                LOGGER.error("An error occurred creating the video", e);
+            });
+        }
+    }
+
+    /**
+     * It moves a video to the directory of its test class if the video directory is the default one.
+     * @param createdVideo path of the video.
+     * @param result {@link ITestResult}.
+     * @return File with the path.
+     */
+    private File moveVideo(String createdVideo, ITestResult result) {
+        String[] paths = createdVideo.split("" + File.separatorChar);
+        String videoName = paths[paths.length - 1];
+        File createdVideoFile = new File(createdVideo);
+        if (VideoRecorderTestNGConfiguration.getDefaultDirectory().getAbsolutePath()
+                .equals(VideoRecorderTestNGConfiguration.getVideoDirectory().getAbsolutePath())) {
+            try {
+                Path newVideoPath = Paths.get(new File(".")
+                        .getCanonicalPath(), "target", "screen-recorder", result.getTestClass().getName());
+                createdVideoFile = new File(newVideoPath.toFile().getCanonicalPath() + File.separatorChar);
+                if (!createdVideoFile.exists()) {
+                    createdVideoFile.mkdirs();
+                }
+                newVideoPath = Paths.get(createdVideoFile.getCanonicalPath() + File.separatorChar + videoName);
+                Files.move(Paths.get(createdVideo), newVideoPath, StandardCopyOption.REPLACE_EXISTING);
+                createdVideoFile = newVideoPath.toFile();
+                LOGGER.info("Video created at " + newVideoPath.toFile().getCanonicalPath());
+            } catch (IOException e) {
+                LOGGER.error("An error occurred moving the video", e);
             }
+        } else {
+            LOGGER.info("Video created at " + createdVideo);
         }
         return createdVideoFile;
     }
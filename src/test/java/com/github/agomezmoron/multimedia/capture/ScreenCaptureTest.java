@@ -0,0 +1,222 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.capture;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Images handed out by a pooled {@link ScreenCapture} and its serialized format.
+ *
+ */
+public class ScreenCaptureTest {
+
+    @Test
+    public void sourceOfAPooledCaptureSurvivesTheReuseOfItsBuffer() {
+        FramePool pool = new FramePool(8, 4, 1, 1);
+        FrameBuffer buffer = pool.lease();
+        fill(buffer, Color.RED);
+        ScreenCapture capture = new ScreenCapture(buffer, 0, 0);
+        BufferedImage source = capture.getSource();
+        Assert.assertSame(capture.getSource(), source);
+        Assert.assertNotSame(source, capture.getImage());
+        capture.release();
+
+        FrameBuffer reused = pool.lease();
+        Assert.assertSame(reused, buffer);
+        fill(reused, Color.BLUE);
+        Assert.assertEquals(source.getWidth(), 8);
+        Assert.assertEquals(source.getHeight(), 4);
+        Assert.assertEquals(source.getRGB(3, 2) & 0xffffff, 0xff0000);
+        reused.release();
+    }
+
+    @Test
+    public void imageOfAPooledCaptureIsNotCopied() {
+        FramePool pool = new FramePool(8, 4, 1, 1);
+        FrameBuffer buffer = pool.lease();
+        ScreenCapture capture = new ScreenCapture(buffer, 0, 0);
+        Assert.assertSame(capture.getImage(), buffer.getImage());
+        Assert.assertSame(capture.getFrameBuffer(), buffer);
+        capture.release();
+    }
+
+    @Test
+    public void sourceOfACaptureBuiltFromAnImageIsNotCopied() {
+        BufferedImage image = new BufferedImage(8, 4, BufferedImage.TYPE_INT_RGB);
+        ScreenCapture capture = new ScreenCapture(image, 0, 0);
+        Assert.assertSame(capture.getSource(), image);
+        Assert.assertSame(capture.getImage(), image);
+    }
+
+    @DataProvider
+    public Object[][] payloads() {
+        return new Object[][] { { CapturePayload.RAW }, { CapturePayload.DEFLATE }, { CapturePayload.JPEG } };
+    }
+
+    @Test(dataProvider = "payloads")
+    public void captureSurvivesARoundTrip(CapturePayload payload) throws Exception {
+        ScreenCapture capture = new ScreenCapture(gradient(33, 17), 7, 1234567L);
+        capture.setPayload(payload);
+        ScreenCapture read = read(write(capture));
+        Assert.assertEquals(read.getPayload(), payload);
+        Assert.assertEquals(read.getSequence(), 7);
+        Assert.assertEquals(read.getTimestamp(), 1234567L);
+        Assert.assertEquals(read.getWidth(), 33);
+        Assert.assertEquals(read.getHeight(), 17);
+        BufferedImage image = read.getSource();
+        Assert.assertEquals(image.getWidth(), 33);
+        Assert.assertEquals(image.getHeight(), 17);
+        // JPEG is lossy: only the solid block in the corner is compared
+        int[] points = payload == CapturePayload.JPEG ? new int[] { 2, 2 } : new int[] { 0, 0, 32, 16, 20, 9 };
+        for (int i = 0; i < points.length; i += 2) {
+            int expected = capture.getSource().getRGB(points[i], points[i + 1]) & 0xffffff;
+            int actual = image.getRGB(points[i], points[i + 1]) & 0xffffff;
+            if (payload == CapturePayload.JPEG) {
+                assertClose(actual, expected);
+            } else {
+                Assert.assertEquals(actual, expected);
+            }
+        }
+    }
+
+    @Test(dataProvider = "payloads")
+    public void capturesAreForwardedWithoutDecoding(CapturePayload payload) throws Exception {
+        ScreenCapture capture = new ScreenCapture(gradient(33, 17), 3, 300);
+        capture.setPayload(payload);
+        byte[] serialized = write(capture);
+        ScreenCapture forwarded = read(serialized);
+        // the received pixels are written as they are, so the stream is the same
+        Assert.assertEquals(write(forwarded), serialized);
+        Assert.assertEquals(write(read(write(forwarded))), serialized);
+    }
+
+    @Test(expectedExceptions = InvalidObjectException.class)
+    public void oversizedCaptureIsRejected() throws Exception {
+        readHeader(CapturePayload.DEFLATE, ScreenCapture.MAX_DIMENSION + 1, 1, 16);
+    }
+
+    /**
+     * 32768 x 32768 x 4 bytes overflows an int (to 0).
+     */
+    @Test(expectedExceptions = InvalidObjectException.class)
+    public void captureWhosePixelsOverflowAnIntIsRejected() throws Exception {
+        readHeader(CapturePayload.RAW, ScreenCapture.MAX_DIMENSION, ScreenCapture.MAX_DIMENSION, 16);
+    }
+
+    @Test(expectedExceptions = InvalidObjectException.class)
+    public void rawPixelsOfTheWrongLengthAreRejected() throws Exception {
+        readHeader(CapturePayload.RAW, 4, 4, 4 * 4 * 4 - 1);
+    }
+
+    /**
+     * The length is checked before the pixels are allocated (and read).
+     */
+    @Test(expectedExceptions = InvalidObjectException.class)
+    public void payloadLongerThanItsPixelsIsRejected() throws Exception {
+        readHeader(CapturePayload.JPEG, 4, 4, Integer.MAX_VALUE);
+    }
+
+    @Test(expectedExceptions = InvalidObjectException.class)
+    public void payloadWithoutPixelsIsRejected() throws Exception {
+        readHeader(CapturePayload.DEFLATE, 0, 0, 16);
+    }
+
+    private static byte[] write(ScreenCapture capture) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(capture);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static ScreenCapture read(byte[] serialized) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        try {
+            return (ScreenCapture) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * It reads a capture with the given header and no pixels after it.
+     */
+    private static void readHeader(CapturePayload payload, int width, int height, int length) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte(payload.getCode());
+        out.writeLong(0);
+        out.writeLong(0);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(length);
+        out.close();
+        new ScreenCapture().readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * @return an image with a solid block in the top left corner and a gradient elsewhere.
+     */
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x < 8 && y < 8 ? 0x3080c0 : (x * 7) << 16 | (y * 13) << 8 | (x + y) * 3);
+            }
+        }
+        return image;
+    }
+
+    private static void assertClose(int actual, int expected) {
+        for (int shift = 0; shift < 24; shift += 8) {
+            int difference = Math.abs((actual >> shift & 0xff) - (expected >> shift & 0xff));
+            Assert.assertTrue(difference <= 8, Integer.toHexString(actual) + " != " + Integer.toHexString(expected));
+        }
+    }
+
+    private static void fill(FrameBuffer buffer, Color color) {
+        Graphics2D graphics = buffer.getImage().createGraphics();
+        try {
+            graphics.setColor(color);
+            graphics.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+}
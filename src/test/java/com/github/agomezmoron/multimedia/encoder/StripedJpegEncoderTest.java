@@ -0,0 +1,140 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.encoder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * JPEGs joined from stripes by {@link StripedJpegEncoder}: they must decode to the same pixels as the whole image
+ * encoded at once.
+ *
+ */
+public class StripedJpegEncoderTest {
+
+    private static final float QUALITY = 0.75f;
+
+    /**
+     * More stripes than restart markers (RST0 to RST7), so their index wraps.
+     */
+    private final ForkJoinPool pool = new ForkJoinPool(12);
+
+    @AfterClass(alwaysRun = true)
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @DataProvider
+    public Object[][] images() {
+        return new Object[][] { { ChromaSubsampling.YUV420, 1920, 1080 }, { ChromaSubsampling.YUV420, 1921, 1083 },
+                { ChromaSubsampling.YUV422, 1920, 1080 }, { ChromaSubsampling.YUV422, 1921, 1083 },
+                { ChromaSubsampling.YUV444, 1920, 1080 }, { ChromaSubsampling.YUV444, 1921, 1083 },
+                { ChromaSubsampling.YUV420, 3840, 2160 } };
+    }
+
+    @Test(dataProvider = "images")
+    public void stripedImageDecodesLikeTheWholeOne(ChromaSubsampling subsampling, int width, int height)
+            throws IOException {
+        BufferedImage image = image(width, height);
+        byte[] striped = new StripedJpegEncoder(pool, QUALITY, subsampling).encode(image);
+        byte[] whole = new JpegEncoder(QUALITY, subsampling, false, false).encode(image);
+        Assert.assertTrue(restartMarkers(striped) > 8, "The image wasn't encoded in enough stripes");
+
+        BufferedImage stripedImage = ImageIO.read(new ByteArrayInputStream(striped));
+        BufferedImage wholeImage = ImageIO.read(new ByteArrayInputStream(whole));
+        Assert.assertEquals(stripedImage.getWidth(), width);
+        Assert.assertEquals(stripedImage.getHeight(), height);
+        int[] stripedPixels = stripedImage.getRGB(0, 0, width, height, null, 0, width);
+        int[] wholePixels = wholeImage.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < wholePixels.length; i++) {
+            if (stripedPixels[i] != wholePixels[i]) {
+                Assert.fail("The pixel (" + i % width + ", " + i / width + ") differs: "
+                        + Integer.toHexString(stripedPixels[i]) + " != " + Integer.toHexString(wholePixels[i]));
+            }
+        }
+    }
+
+    @Test
+    public void smallImageIsEncodedWhole() throws IOException {
+        BufferedImage image = image(640, 480);
+        byte[] jpeg = new StripedJpegEncoder(pool, QUALITY, ChromaSubsampling.YUV420).encode(image);
+        Assert.assertEquals(restartMarkers(jpeg), 0);
+        Assert.assertEquals(jpeg, new JpegEncoder(QUALITY, ChromaSubsampling.YUV420, false, false).encode(image));
+    }
+
+    /**
+     * @return an image with gradients, noise and sharp edges crossing the borders of the stripes.
+     */
+    private static BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(width * 31 + height);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = x * 255 / width;
+                int green = y * 255 / height;
+                int blue = ((x / 37 + y / 23) % 2 == 0) ? 40 : 220;
+                if ((x + y) % 97 < 10) {
+                    red = random.nextInt(256);
+                    green = random.nextInt(256);
+                }
+                row[x] = red << 16 | green << 8 | blue;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * @return the number of restart markers in the entropy coded data (after the last SOS marker).
+     */
+    private static int restartMarkers(byte[] jpeg) {
+        int start = 0;
+        for (int i = 0; i + 1 < jpeg.length; i++) {
+            if ((jpeg[i] & 0xFF) == 0xFF && (jpeg[i + 1] & 0xFF) == 0xDA) {
+                start = i;
+            }
+        }
+        int count = 0;
+        for (int i = start; i + 1 < jpeg.length; i++) {
+            int marker = jpeg[i + 1] & 0xFF;
+            if ((jpeg[i] & 0xFF) == 0xFF && marker >= 0xD0 && marker <= 0xD7) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,237 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * QuickTime file read back by the tests: it finds the atoms by path and decodes the durations and the sample tables.
+ *
+ */
+public final class MovieFile {
+
+    private final ByteBuffer bytes;
+
+    /**
+     * Constructor.
+     * @param file to be read.
+     * @throws IOException if the file couldn't be read.
+     */
+    public MovieFile(File file) throws IOException {
+        this.bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * @param path types of the nested atoms, ex: "moov", "trak", "mdia", "mdhd".
+     * @return the content of the atom (after its header) or null if there is no such atom.
+     */
+    public ByteBuffer find(String... path) {
+        ByteBuffer parent = bytes.duplicate();
+        ByteBuffer atom = null;
+        for (String type : path) {
+            atom = child(parent, type);
+            if (atom == null) {
+                return null;
+            }
+            parent = atom.duplicate();
+        }
+        return atom;
+    }
+
+    /**
+     * @param path types of the nested atoms, ex: "moov", "mvhd".
+     * @return true if the atom is a version 1 one, with 64 bits times.
+     */
+    public boolean isLarge(String... path) {
+        return find(path).get(0) == 1;
+    }
+
+    /**
+     * @return the time scale of the movie header.
+     */
+    public long getMovieTimescale() {
+        return timescale(find("moov", "mvhd"));
+    }
+
+    /**
+     * @return the duration of the movie header, in its time scale.
+     */
+    public long getMovieDuration() {
+        return duration(find("moov", "mvhd"));
+    }
+
+    /**
+     * @return the duration of the track header, in the time scale of the movie.
+     */
+    public long getTrackDuration() {
+        ByteBuffer tkhd = find("moov", "trak", "tkhd");
+        // version and flags, creation and modification times and track id, then a reserved field
+        return tkhd.get(0) == 1 ? tkhd.getLong(4 + 8 + 8 + 4 + 4) : tkhd.getInt(4 + 4 + 4 + 4 + 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the time scale of the media.
+     */
+    public long getMediaTimescale() {
+        return timescale(find("moov", "trak", "mdia", "mdhd"));
+    }
+
+    /**
+     * @return the duration of the media, in its time scale.
+     */
+    public long getMediaDuration() {
+        return duration(find("moov", "trak", "mdia", "mdhd"));
+    }
+
+    /**
+     * @return the duration of each sample, expanding the time to sample table.
+     */
+    public long[] getSampleDurations() {
+        ByteBuffer stts = sampleTable("stts");
+        int entries = stts.getInt(4);
+        long[] durations = new long[getSampleSizes().length];
+        int sample = 0;
+        for (int i = 0; i < entries; i++) {
+            int run = stts.getInt(8 + i * 8);
+            long duration = stts.getInt(12 + i * 8) & 0xFFFFFFFFL;
+            for (int j = 0; j < run; j++) {
+                durations[sample++] = duration;
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * @return the size of each sample.
+     */
+    public int[] getSampleSizes() {
+        ByteBuffer stsz = sampleTable("stsz");
+        int[] sizes = new int[stsz.getInt(8)];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = stsz.getInt(12 + i * 4);
+        }
+        return sizes;
+    }
+
+    /**
+     * @return the offset of each chunk (one sample per chunk).
+     */
+    public long[] getChunkOffsets() {
+        ByteBuffer stco = sampleTable("stco");
+        boolean large = stco == null;
+        if (large) {
+            stco = sampleTable("co64");
+        }
+        long[] offsets = new long[stco.getInt(4)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = large ? stco.getLong(8 + i * 8) : stco.getInt(8 + i * 4) & 0xFFFFFFFFL;
+        }
+        return offsets;
+    }
+
+    /**
+     * @param offset in the file.
+     * @param length number of bytes.
+     * @return the bytes of the file.
+     */
+    public byte[] read(long offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer view = bytes.duplicate();
+        view.position((int) offset);
+        view.get(data);
+        return data;
+    }
+
+    /**
+     * @return the bytes of the file with the creation and modification times of the headers set to 0, so the files
+     *         written at different times can be compared.
+     */
+    public byte[] withoutTimes() {
+        String[][] headers = { { "moov", "mvhd" }, { "moov", "trak", "tkhd" }, { "moov", "trak", "mdia", "mdhd" } };
+        for (String[] path : headers) {
+            ByteBuffer header = find(path);
+            int timeSize = header.get(0) == 1 ? 8 : 4;
+            for (int i = 4; i < 4 + 2 * timeSize; i++) {
+                header.put(i, (byte) 0);
+            }
+        }
+        return bytes.array().clone();
+    }
+
+    private ByteBuffer sampleTable(String type) {
+        return find("moov", "trak", "mdia", "minf", "stbl", type);
+    }
+
+    /**
+     * @param header movie or media header.
+     * @return its time scale.
+     */
+    private static long timescale(ByteBuffer header) {
+        return header.get(0) == 1 ? header.getInt(4 + 8 + 8) & 0xFFFFFFFFL : header.getInt(4 + 4 + 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param header movie or media header.
+     * @return its duration.
+     */
+    private static long duration(ByteBuffer header) {
+        return header.get(0) == 1 ? header.getLong(4 + 8 + 8 + 4) : header.getInt(4 + 4 + 4 + 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param parent content of an atom, between its position and its limit.
+     * @param type of the child.
+     * @return the content of the first child of the given type, or null.
+     */
+    private static ByteBuffer child(ByteBuffer parent, String type) {
+        int position = parent.position();
+        while (position + 8 <= parent.limit()) {
+            long size = parent.getInt(position) & 0xFFFFFFFFL;
+            int header = 8;
+            if (size == 1) {
+                size = parent.getLong(position + 8);
+                header = 16;
+            } else if (size == 0) {
+                size = parent.limit() - position;
+            }
+            byte[] name = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                name[i] = parent.get(position + 4 + i);
+            }
+            if (new String(name).equals(type)) {
+                ByteBuffer content = parent.duplicate();
+                content.limit((int) (position + size));
+                content.position(position + header);
+                return content.slice();
+            }
+            position += size;
+        }
+        return null;
+    }
+
+}
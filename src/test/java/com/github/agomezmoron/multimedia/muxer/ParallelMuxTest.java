@@ -0,0 +1,126 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.store.DirectoryFrameStore;
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.MemoryFrameStore;
+
+/**
+ * The videos muxed in parallel segments by {@link QuickTimeMuxer} are the same as the ones written on one thread.
+ *
+ */
+public class ParallelMuxTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("parallel-mux-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @DataProvider
+    public Object[][] layouts() {
+        return new Object[][] {
+                // frames, threads
+                { QuickTimeMuxer.MIN_SEGMENT_FRAMES * 2, 2 }, { 1000, 4 }, { 1001, 3 }, { 777, 16 } };
+    }
+
+    @Test(dataProvider = "layouts")
+    public void parallelMuxIsTheSameAsTheSerialOne(int frames, int threads) throws IOException {
+        FrameStore store = new MemoryFrameStore(false, Long.MAX_VALUE, null);
+        fill(store, frames);
+        assertSameVideos(store, threads, 100L * frames * MS);
+        store.delete();
+    }
+
+    @Test
+    public void parallelMuxOfFramesInFilesIsTheSameAsTheSerialOne() throws IOException {
+        FrameStore store = new DirectoryFrameStore(new File(directory, "frames"));
+        fill(store, 300);
+        assertSameVideos(store, 4, EncodedFrame.NO_TIMESTAMP);
+        store.delete();
+    }
+
+    private void assertSameVideos(FrameStore store, int threads, long end) throws IOException {
+        File serial = new File(directory, "serial.mov");
+        File parallel = new File(directory, "parallel.mov");
+        new QuickTimeMuxer(1).mux(320, 240, 10, store, end, serial);
+        new QuickTimeMuxer(threads).mux(320, 240, 10, store, end, parallel);
+        Assert.assertEquals(parallel.length(), serial.length());
+        byte[] expected = new MovieFile(serial).withoutTimes();
+        byte[] actual = new MovieFile(parallel).withoutTimes();
+        if (!Arrays.equals(actual, expected)) {
+            int i = 0;
+            while (actual[i] == expected[i]) {
+                i++;
+            }
+            Assert.fail("The videos differ at the byte " + i + " of " + expected.length);
+        }
+        Assert.assertEquals(new MovieFile(parallel).getSampleSizes().length, store.size());
+    }
+
+    /**
+     * It appends frames of different sizes and content, captured at irregular times.
+     */
+    private static void fill(FrameStore store, int frames) throws IOException {
+        long timestamp = 0;
+        for (int i = 0; i < frames; i++) {
+            byte[] data = new byte[200 + (i * 7919) % 1500];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) (i * 31 + j);
+            }
+            store.append(new EncodedFrame(i, timestamp, data));
+            timestamp += (30 + (i * 13) % 140) * MS;
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.muxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.store.EncodedFrame;
+import com.github.agomezmoron.multimedia.store.FrameStore;
+import com.github.agomezmoron.multimedia.store.MemoryFrameStore;
+
+/**
+ * Atoms and durations written by {@link QuickTimeMuxer}.
+ *
+ */
+public class QuickTimeMuxerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private File video;
+
+    @BeforeMethod
+    public void createVideo() throws IOException {
+        video = File.createTempFile("quicktime-muxer-test", ".mov");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteVideo() {
+        video.delete();
+    }
+
+    @Test
+    public void writesTheAtomsAndTheFrames() throws IOException {
+        FrameStore frames = store(0, 100 * MS, 200 * MS, 500 * MS, 600 * MS);
+        new QuickTimeMuxer().mux(64, 48, 10, frames, 1000 * MS, video);
+        MovieFile movie = new MovieFile(video);
+
+        ByteBuffer ftyp = movie.find("ftyp");
+        Assert.assertEquals(new String(new byte[] { ftyp.get(0), ftyp.get(1), ftyp.get(2), ftyp.get(3) }), "qt  ");
+        Assert.assertNotNull(movie.find("mdat"));
+        Assert.assertNotNull(movie.find("moov", "trak", "mdia", "hdlr"));
+        Assert.assertNotNull(movie.find("moov", "trak", "mdia", "minf", "vmhd"));
+        ByteBuffer stsd = movie.find("moov", "trak", "mdia", "minf", "stbl", "stsd");
+        Assert.assertEquals(stsd.getInt(4), 1);
+        Assert.assertEquals(stsd.get(12), (byte) 'j');
+        ByteBuffer tkhd = movie.find("moov", "trak", "tkhd");
+        Assert.assertEquals(tkhd.getInt(tkhd.limit() - 8), 64 << 16);
+        Assert.assertEquals(tkhd.getInt(tkhd.limit() - 4), 48 << 16);
+
+        int[] sizes = movie.getSampleSizes();
+        long[] offsets = movie.getChunkOffsets();
+        Assert.assertEquals(sizes.length, frames.size());
+        Assert.assertEquals(offsets.length, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            Assert.assertEquals(sizes[i], frames.get(i).getLength());
+            Assert.assertEquals(movie.read(offsets[i], sizes[i]), bytes(frames.get(i)), "frame " + i);
+        }
+        frames.delete();
+    }
+
+    @Test
+    public void takesTheDurationsFromTheTimestamps() throws IOException {
+        FrameStore frames = store(0, 100 * MS, 200 * MS, 500 * MS, 600 * MS);
+        new QuickTimeMuxer().mux(64, 48, 10, frames, 1000 * MS, video);
+        MovieFile movie = new MovieFile(video);
+
+        Assert.assertFalse(movie.isLarge("moov", "mvhd"));
+        Assert.assertFalse(movie.isLarge("moov", "trak", "mdia", "mdhd"));
+        Assert.assertEquals(movie.getMovieTimescale(), QuickTimeMuxer.MOVIE_TIMESCALE);
+        Assert.assertEquals(movie.getMovieDuration(), 1000);
+        Assert.assertEquals(movie.getTrackDuration(), 1000);
+        Assert.assertEquals(movie.getMediaTimescale(), QuickTimeMuxer.MEDIA_TIMESCALE);
+        Assert.assertEquals(movie.getMediaDuration(), 90000);
+        Assert.assertEquals(movie.getSampleDurations(), new long[] { 9000, 9000, 27000, 9000, 36000 });
+        frames.delete();
+    }
+
+    @Test
+    public void usesTheFrameRateForTheFramesWithoutTimestamp() throws IOException {
+        FrameStore frames = store(EncodedFrame.NO_TIMESTAMP, EncodedFrame.NO_TIMESTAMP, EncodedFrame.NO_TIMESTAMP);
+        new QuickTimeMuxer().mux(64, 48, 4, frames, EncodedFrame.NO_TIMESTAMP, video);
+        MovieFile movie = new MovieFile(video);
+
+        Assert.assertEquals(movie.getSampleDurations(), new long[] { 22500, 22500, 22500 });
+        Assert.assertEquals(movie.getMediaDuration(), 67500);
+        Assert.assertEquals(movie.getMovieDuration(), 750);
+        frames.delete();
+    }
+
+    /**
+     * A static screen recorded for 14 hours: the media duration and the last frame don't fit in 32 bits at 90 kHz.
+     */
+    @Test
+    public void writesTheDurationsOfLongRecordings() throws IOException {
+        long end = TimeUnit.HOURS.toNanos(14);
+        FrameStore frames = store(0, 1000 * MS);
+        new QuickTimeMuxer().mux(64, 48, 10, frames, end, video);
+        MovieFile movie = new MovieFile(video);
+
+        long mediaDuration = 14L * 3600 * QuickTimeMuxer.MEDIA_TIMESCALE;
+        Assert.assertTrue(mediaDuration > QuickTimeMuxer.MAX_DURATION);
+        Assert.assertTrue(movie.isLarge("moov", "trak", "mdia", "mdhd"));
+        Assert.assertEquals(movie.getMediaDuration(), mediaDuration);
+        Assert.assertFalse(movie.isLarge("moov", "mvhd"));
+        Assert.assertEquals(movie.getMovieDuration(), 14L * 3600 * 1000);
+        Assert.assertEquals(movie.getTrackDuration(), 14L * 3600 * 1000);
+
+        // the last frame is split into samples sharing its data
+        long[] durations = movie.getSampleDurations();
+        Assert.assertEquals(durations, new long[] { QuickTimeMuxer.MEDIA_TIMESCALE, QuickTimeMuxer.MAX_DURATION,
+                mediaDuration - QuickTimeMuxer.MEDIA_TIMESCALE - QuickTimeMuxer.MAX_DURATION });
+        int[] sizes = movie.getSampleSizes();
+        long[] offsets = movie.getChunkOffsets();
+        Assert.assertEquals(sizes[2], sizes[1]);
+        Assert.assertEquals(offsets[2], offsets[1]);
+        Assert.assertEquals(movie.read(offsets[1], sizes[1]), bytes(frames.get(1)));
+        frames.delete();
+    }
+
+    /**
+     * A recording of 50 days: the duration of the movie doesn't fit in 32 bits either.
+     */
+    @Test
+    public void writesVersion1MovieHeadersWhenNeeded() throws IOException {
+        long end = TimeUnit.DAYS.toNanos(50);
+        FrameStore frames = store(0);
+        new QuickTimeMuxer().mux(64, 48, 10, frames, end, video);
+        MovieFile movie = new MovieFile(video);
+
+        long movieDuration = 50L * 24 * 3600 * 1000;
+        Assert.assertTrue(movie.isLarge("moov", "mvhd"));
+        Assert.assertTrue(movie.isLarge("moov", "trak", "tkhd"));
+        Assert.assertEquals(movie.getMovieTimescale(), QuickTimeMuxer.MOVIE_TIMESCALE);
+        Assert.assertEquals(movie.getMovieDuration(), movieDuration);
+        Assert.assertEquals(movie.getTrackDuration(), movieDuration);
+        Assert.assertEquals(movie.getMediaTimescale(), QuickTimeMuxer.MEDIA_TIMESCALE);
+        long total = 0;
+        for (long duration : movie.getSampleDurations()) {
+            Assert.assertTrue(duration <= QuickTimeMuxer.MAX_DURATION);
+            total += duration;
+        }
+        Assert.assertEquals(total, movie.getMediaDuration());
+        Assert.assertEquals(total, 50L * 24 * 3600 * QuickTimeMuxer.MEDIA_TIMESCALE);
+        frames.delete();
+    }
+
+    /**
+     * @param timestamps of the frames (in nanoseconds).
+     * @return a store with a frame of different content and size for each timestamp.
+     * @throws IOException never, the frames are kept in memory.
+     */
+    static FrameStore store(long... timestamps) throws IOException {
+        FrameStore frames = new MemoryFrameStore(false, Long.MAX_VALUE, null);
+        for (int i = 0; i < timestamps.length; i++) {
+            byte[] data = new byte[100 + i * 37];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) (i * 31 + j);
+            }
+            frames.append(new EncodedFrame(i, timestamps[i], data));
+        }
+        return frames;
+    }
+
+    private static byte[] bytes(EncodedFrame frame) {
+        byte[] data = new byte[frame.getLength()];
+        frame.copyTo(data, 0);
+        return data;
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.recorder.configuration.OverflowPolicy;
+
+/**
+ * Overflow policies of {@link FrameRingBuffer}.
+ *
+ */
+public class FrameRingBufferTest {
+
+    private static final long TIMEOUT = 5000;
+
+    @Test
+    public void takesInInsertionOrderAcrossTheWrap() throws InterruptedException {
+        FrameRingBuffer<Integer> buffer = new FrameRingBuffer<Integer>(3, OverflowPolicy.BLOCK);
+        List<Integer> taken = new ArrayList<Integer>();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(buffer.put(i));
+            if (i % 2 == 1) {
+                taken.add(buffer.take());
+                taken.add(buffer.take());
+            }
+        }
+        Assert.assertEquals(buffer.size(), 0);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(taken.get(i).intValue(), i);
+        }
+    }
+
+    @Test
+    public void dropNewestDiscardsTheNewElement() throws InterruptedException {
+        FrameRingBuffer<Integer> buffer = fill(OverflowPolicy.DROP_NEWEST);
+        Assert.assertEquals(buffer.put(3), Integer.valueOf(3));
+        assertContent(buffer, 0, 1, 2);
+    }
+
+    @Test
+    public void dropOldestDiscardsTheOldestElement() throws InterruptedException {
+        FrameRingBuffer<Integer> buffer = fill(OverflowPolicy.DROP_OLDEST);
+        Assert.assertEquals(buffer.put(3), Integer.valueOf(0));
+        Assert.assertEquals(buffer.put(4), Integer.valueOf(1));
+        assertContent(buffer, 2, 3, 4);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void blockWaitsForRoom() throws InterruptedException {
+        final FrameRingBuffer<Integer> buffer = fill(OverflowPolicy.BLOCK);
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    buffer.put(3);
+                    added.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        producer.start();
+        Assert.assertFalse(added.await(200, TimeUnit.MILLISECONDS), "The producer didn't wait");
+        Assert.assertEquals(buffer.take(), Integer.valueOf(0));
+        Assert.assertTrue(added.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        producer.join();
+        assertContent(buffer, 1, 2, 3);
+    }
+
+    @Test(timeOut = TIMEOUT, expectedExceptions = InterruptedException.class)
+    public void blockedPutIsInterruptible() throws InterruptedException {
+        FrameRingBuffer<Integer> buffer = fill(OverflowPolicy.BLOCK);
+        Thread.currentThread().interrupt();
+        buffer.put(3);
+    }
+
+    /**
+     * The last frame of a recording is queued even if the capture thread was interrupted.
+     */
+    @Test(timeOut = TIMEOUT)
+    public void putUninterruptiblyKeepsTheElementAndTheInterruption() throws InterruptedException {
+        final FrameRingBuffer<Integer> buffer = new FrameRingBuffer<Integer>(1, OverflowPolicy.BLOCK);
+        buffer.put(0);
+        final boolean[] interrupted = new boolean[1];
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                Thread.currentThread().interrupt();
+                buffer.putUninterruptibly(1);
+                interrupted[0] = Thread.currentThread().isInterrupted();
+            }
+        };
+        producer.start();
+        Thread.sleep(100);
+        Assert.assertEquals(buffer.take(), Integer.valueOf(0));
+        producer.join();
+        Assert.assertTrue(interrupted[0]);
+        assertContent(buffer, 1);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void closeWakesUpAndRejectsTheProducers() throws InterruptedException {
+        final FrameRingBuffer<Integer> buffer = fill(OverflowPolicy.BLOCK);
+        final Integer[] discarded = new Integer[1];
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    discarded[0] = buffer.put(3);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        producer.start();
+        Thread.sleep(100);
+        buffer.close();
+        producer.join();
+        Assert.assertEquals(discarded[0], Integer.valueOf(3));
+        Assert.assertEquals(buffer.put(4), Integer.valueOf(4));
+        // the buffered elements can still be taken
+        assertContent(buffer, 0, 1, 2);
+        Assert.assertNull(buffer.take());
+    }
+
+    private static FrameRingBuffer<Integer> fill(OverflowPolicy policy) throws InterruptedException {
+        FrameRingBuffer<Integer> buffer = new FrameRingBuffer<Integer>(3, policy);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNull(buffer.put(i));
+        }
+        return buffer;
+    }
+
+    private static void assertContent(FrameRingBuffer<Integer> buffer, int... expected) throws InterruptedException {
+        Assert.assertEquals(buffer.size(), expected.length);
+        for (int item : expected) {
+            Assert.assertEquals(buffer.take(), Integer.valueOf(item));
+        }
+    }
+
+}
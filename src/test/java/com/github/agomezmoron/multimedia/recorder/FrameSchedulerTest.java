@@ -0,0 +1,112 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Deadlines and missed frames of {@link FrameScheduler}.
+ *
+ */
+public class FrameSchedulerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Time a wait can last longer than expected on a busy machine.
+     */
+    private static final long TOLERANCE = 40 * MS;
+
+    @Test(timeOut = 10000)
+    public void deadlinesDontDriftWithTheCaptureTime() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(20);
+        scheduler.start();
+        for (int i = 0; i < 10; i++) {
+            scheduler.awaitNextDeadline();
+            // a capture shorter than the interval
+            Thread.sleep(i % 3 * 5);
+        }
+        long elapsed = scheduler.elapsed();
+        Assert.assertTrue(elapsed >= 200 * MS, "Early: " + elapsed / MS + "ms");
+        Assert.assertTrue(elapsed < 200 * MS + TOLERANCE, "The deadlines drifted: " + elapsed / MS + "ms");
+        Assert.assertEquals(scheduler.getMissedDeadlines(), 0);
+    }
+
+    @Test(timeOut = 10000)
+    public void lateCaptureSkipsTheDeadlinesThatPassed() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(50);
+        scheduler.start();
+        // a capture lasting from 0 until 275 ms: the deadlines at 50, 100, 150 and 200 ms passed completely
+        Thread.sleep(275);
+        long before = System.nanoTime();
+        scheduler.awaitNextDeadline();
+        Assert.assertTrue(System.nanoTime() - before < TOLERANCE, "The deadline at 250 ms wasn't late");
+        Assert.assertEquals(scheduler.getMissedDeadlines(), 4);
+        // the next one is 300 ms, not a burst of the missed ones
+        scheduler.awaitNextDeadline();
+        long elapsed = scheduler.elapsed();
+        Assert.assertTrue(elapsed >= 300 * MS, "Early: " + elapsed / MS + "ms");
+        Assert.assertEquals(scheduler.getMissedDeadlines(), 4);
+    }
+
+    @Test(timeOut = 10000)
+    public void slowdownStretchesTheInterval() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(20);
+        scheduler.setSlowdown(2);
+        scheduler.start();
+        for (int i = 0; i < 5; i++) {
+            scheduler.awaitNextDeadline();
+        }
+        long elapsed = scheduler.elapsed();
+        Assert.assertTrue(elapsed >= 200 * MS, "Early: " + elapsed / MS + "ms");
+        Assert.assertTrue(elapsed < 200 * MS + TOLERANCE, "Late: " + elapsed / MS + "ms");
+    }
+
+    @Test(timeOut = 5000)
+    public void stopEndsTheWait() throws InterruptedException {
+        final FrameScheduler scheduler = new FrameScheduler(60000);
+        scheduler.start();
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                scheduler.stop();
+            }
+        }.start();
+        scheduler.awaitNextDeadline();
+        Assert.assertTrue(scheduler.isStopped());
+        Assert.assertTrue(scheduler.elapsed() < 100 * MS + 1000 * MS);
+        // once stopped, it doesn't wait anymore
+        scheduler.awaitNextDeadline();
+    }
+
+}
@@ -0,0 +1,254 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.capture.FrameBuffer;
+import com.github.agomezmoron.multimedia.capture.ScreenCapture;
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.ListenerStats;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+
+/**
+ * Policies of {@link ListenerDispatcher} with slow and failing listeners. Every dispatched frame buffer has to be
+ * released once the listener is done with it.
+ *
+ */
+public class ListenerDispatcherTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private ListenerDispatcher dispatcher;
+
+    /**
+     * Sequence of the next dispatched frame.
+     */
+    private int sequence;
+
+    @BeforeMethod
+    public void resetSequence() {
+        sequence = 0;
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void close() {
+        if (dispatcher != null) {
+            dispatcher.close();
+            dispatcher = null;
+        }
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void blockDeliversEveryFrameInOrder() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher = new ListenerDispatcher(listener, DispatchPolicy.BLOCK, 2, 1);
+        List<FrameBuffer> buffers = dispatch(50);
+        dispatcher.awaitIdle();
+        Assert.assertEquals(listener.sequences.size(), 50);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(listener.sequences.get(i).longValue(), i);
+        }
+        ListenerStats stats = dispatcher.getStats();
+        Assert.assertEquals(stats.getDelivered(), 50);
+        Assert.assertEquals(stats.getDropped(), 0);
+        Assert.assertEquals(stats.getQueued(), 0);
+        assertReleased(buffers);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void dropDiscardsTheFramesThatDontFit() throws InterruptedException {
+        BlockedListener listener = new BlockedListener();
+        dispatcher = new ListenerDispatcher(listener, DispatchPolicy.DROP, 2, 1);
+        List<FrameBuffer> buffers = dispatch(1);
+        listener.awaitFirstFrame();
+        // the listener holds the first frame: two fit in the queue and the rest are dropped
+        buffers.addAll(dispatch(10));
+        listener.unblock();
+        dispatcher.awaitIdle();
+        ListenerStats stats = dispatcher.getStats();
+        Assert.assertEquals(stats.getDelivered(), 3);
+        Assert.assertEquals(stats.getDropped(), 8);
+        assertReleased(buffers);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void coalesceKeepsOnlyTheLatestFrame() throws InterruptedException {
+        BlockedListener listener = new BlockedListener();
+        dispatcher = new ListenerDispatcher(listener, DispatchPolicy.COALESCE, 10, 1);
+        List<FrameBuffer> buffers = dispatch(1);
+        listener.awaitFirstFrame();
+        buffers.addAll(dispatch(10));
+        listener.unblock();
+        dispatcher.awaitIdle();
+        Assert.assertEquals(listener.sequences, Arrays.asList(0L, 10L));
+        Assert.assertEquals(dispatcher.getStats().getDropped(), 9);
+        assertReleased(buffers);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void sampleDeliversOneOfEveryInterval() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher = new ListenerDispatcher(listener, DispatchPolicy.SAMPLE, 100, 3);
+        List<FrameBuffer> buffers = dispatch(10);
+        dispatcher.awaitIdle();
+        Assert.assertEquals(listener.sequences, Arrays.asList(0L, 3L, 6L, 9L));
+        assertReleased(buffers);
+    }
+
+    /**
+     * The thread of a paused dispatcher ends; the next frame starts another one, which delivers it after the frames
+     * queued before the pause.
+     */
+    @Test(timeOut = TIMEOUT)
+    public void pausedDispatcherDeliversTheNextFrames() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher = new ListenerDispatcher(listener, DispatchPolicy.BLOCK, 2, 1);
+        List<FrameBuffer> buffers = dispatch(5);
+        dispatcher.pause();
+        buffers.addAll(dispatch(5));
+        dispatcher.awaitIdle();
+        dispatcher.pause();
+        dispatcher.pause();
+        buffers.addAll(dispatch(5));
+        dispatcher.awaitIdle();
+        Assert.assertEquals(listener.sequences.size(), 15);
+        for (int i = 0; i < 15; i++) {
+            Assert.assertEquals(listener.sequences.get(i).longValue(), i);
+        }
+        assertReleased(buffers);
+    }
+
+    /**
+     * A listener failing with an error (ex: a failed assertion) must not stop the dispatcher, or a blocking dispatch
+     * would wait forever for room.
+     */
+    @Test(timeOut = TIMEOUT)
+    public void failingListenerDoesntBlockTheRecording() throws InterruptedException {
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<Long>());
+        dispatcher = new ListenerDispatcher(new VideoRecorderEventListener() {
+            @Override
+            public void frameAdded(VideoRecorderEventObject args) {
+                long sequence = args.getScreenCapture().getSequence();
+                sequences.add(sequence);
+                if (sequence % 2 == 0) {
+                    throw new AssertionError("Frame " + sequence);
+                }
+                throw new IllegalStateException("Frame " + sequence);
+            }
+        }, DispatchPolicy.BLOCK, 1, 1);
+        List<FrameBuffer> buffers = dispatch(20);
+        dispatcher.awaitIdle();
+        Assert.assertEquals(sequences.size(), 20);
+        ListenerStats stats = dispatcher.getStats();
+        Assert.assertEquals(stats.getFailed(), 20);
+        Assert.assertEquals(stats.getDelivered(), 0);
+        assertReleased(buffers);
+    }
+
+    /**
+     * @param count number of frames.
+     * @return the buffers of the dispatched frames, already released by the caller.
+     */
+    private List<FrameBuffer> dispatch(int count) throws InterruptedException {
+        List<FrameBuffer> buffers = new ArrayList<FrameBuffer>();
+        int first = sequence;
+        for (int i = first; i < first + count; i++) {
+            FrameBuffer buffer = FrameBuffer.wrap(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+            dispatcher.dispatch(new VideoRecorderEventObject(this, new ScreenCapture(buffer, i, i)));
+            // as the writer does once the frame is dispatched
+            buffer.release();
+            buffers.add(buffer);
+        }
+        sequence += count;
+        return buffers;
+    }
+
+    /**
+     * It checks that the dispatcher released every frame: releasing them once more fails.
+     */
+    private static void assertReleased(List<FrameBuffer> buffers) {
+        for (FrameBuffer buffer : buffers) {
+            try {
+                buffer.release();
+                Assert.fail("A frame buffer was retained");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    private static class RecordingListener implements VideoRecorderEventListener {
+
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<Long>());
+
+        @Override
+        public void frameAdded(VideoRecorderEventObject args) {
+            sequences.add(args.getScreenCapture().getSequence());
+        }
+    }
+
+    /**
+     * Listener blocked in its first frame until it is unblocked.
+     */
+    private static class BlockedListener extends RecordingListener {
+
+        private final CountDownLatch firstFrame = new CountDownLatch(1);
+
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+
+        @Override
+        public void frameAdded(VideoRecorderEventObject args) {
+            super.frameAdded(args);
+            firstFrame.countDown();
+            try {
+                unblocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void awaitFirstFrame() throws InterruptedException {
+            Assert.assertTrue(firstFrame.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+
+        void unblock() {
+            unblocked.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.muxer.MovieFile;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+
+/**
+ * End to end recordings of a {@link SyntheticFrameSource}: the videos last as long as the recordings.
+ *
+ */
+public class RecordingDurationTest {
+
+    /**
+     * Duration of each recording (in milliseconds).
+     */
+    private static final long RECORDING_MILLIS = 1500;
+
+    /**
+     * Allowed difference between the durations of the recording and the video (in milliseconds).
+     */
+    private static final long TOLERANCE_MILLIS = 250;
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("recording-duration-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @DataProvider
+    public Object[][] modes() {
+        return new Object[][] { { FrameStoreType.HEAP, false }, { FrameStoreType.DIRECTORY, false },
+                { FrameStoreType.SPOOL, false }, { FrameStoreType.HEAP, true } };
+    }
+
+    /**
+     * A static screen is written as a couple of frames: the last one has to last until the recording stopped.
+     */
+    @Test(dataProvider = "modes")
+    public void staticScreenLastsAsTheRecording(FrameStoreType storeType, boolean encodeLive) throws Exception {
+        MovieFile video = record(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0f), storeType,
+                encodeLive);
+        Assert.assertTrue(video.getSampleSizes().length <= 3, video.getSampleSizes().length + " frames written");
+        assertDuration(video);
+    }
+
+    @Test(dataProvider = "modes")
+    public void changingScreenLastsAsTheRecording(FrameStoreType storeType, boolean encodeLive) throws Exception {
+        assertDuration(record(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0.1f), storeType,
+                encodeLive));
+    }
+
+    private MovieFile record(SyntheticFrameSource source, FrameStoreType storeType, boolean encodeLive)
+            throws Exception {
+        RecordingSettings settings = RecordingSettings.fromConfiguration().withFrameSource(source)
+                .withArea(source.getBounds()).withCaptureInterval(100).withFrameStoreType(storeType)
+                .withEncodeLive(encodeLive).withTempDirectory(directory).withVideoDirectory(directory);
+        RecordingSession session = new RecordingSession("duration-" + storeType + "-" + encodeLive + ".mov",
+                settings);
+        session.start();
+        Thread.sleep(RECORDING_MILLIS);
+        String video = session.stop();
+        Assert.assertNotNull(video, "The video wasn't created");
+        return new MovieFile(new File(video));
+    }
+
+    private static void assertDuration(MovieFile video) {
+        long movieMillis = video.getMovieDuration() * 1000 / video.getMovieTimescale();
+        long mediaMillis = video.getMediaDuration() * 1000 / video.getMediaTimescale();
+        long samplesMillis = 0;
+        for (long duration : video.getSampleDurations()) {
+            samplesMillis += duration;
+        }
+        samplesMillis = samplesMillis * 1000 / video.getMediaTimescale();
+        Assert.assertTrue(Math.abs(movieMillis - RECORDING_MILLIS) <= TOLERANCE_MILLIS, "The video lasts "
+                + movieMillis + " ms");
+        Assert.assertTrue(Math.abs(mediaMillis - movieMillis) <= 1, mediaMillis + " ms of media");
+        Assert.assertEquals(samplesMillis, mediaMillis);
+    }
+
+}
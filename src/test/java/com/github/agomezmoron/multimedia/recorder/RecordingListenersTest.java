@@ -0,0 +1,124 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.listener.DispatchPolicy;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventListener;
+import com.github.agomezmoron.multimedia.recorder.listener.VideoRecorderEventObject;
+
+/**
+ * Listeners of sessions recording at the same time: each session notifies its own listeners of its own frames.
+ *
+ */
+public class RecordingListenersTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("recording-listeners-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test(timeOut = 30000)
+    public void sessionsNotifyOnlyTheirOwnFrames() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(160, 120, SyntheticContent.TEXT, 1f);
+        RecordingSettings settings = RecordingSettings.fromConfiguration().withFrameSource(source)
+                .withArea(source.getBounds()).withCaptureInterval(20).withFrameStoreType(FrameStoreType.HEAP)
+                .withTempDirectory(directory).withVideoDirectory(directory);
+        SessionListener shared = new SessionListener();
+        ListenerRegistry recorderListeners = new ListenerRegistry();
+        recorderListeners.add(shared, DispatchPolicy.SAMPLE, ListenerRegistry.DEFAULT_QUEUE_SIZE, 2);
+
+        RecordingSession first = new RecordingSession("first.mov", settings, recorderListeners.copy());
+        RecordingSession second = new RecordingSession("second.mov", settings, recorderListeners.copy());
+        SessionListener own = new SessionListener();
+        second.addVideoRecorderEventListener(own, DispatchPolicy.BLOCK, ListenerRegistry.DEFAULT_QUEUE_SIZE, 1);
+        first.start();
+        second.start();
+        Thread.sleep(500);
+        Assert.assertNotNull(first.stop());
+        Assert.assertNotNull(second.stop());
+
+        long firstWritten = first.getSummary().getWrittenFrames();
+        long secondWritten = second.getSummary().getWrittenFrames();
+        // each session samples its own frames: one of every two
+        Assert.assertEquals(shared.count(first), (firstWritten + 1) / 2);
+        Assert.assertEquals(shared.count(second), (secondWritten + 1) / 2);
+        Assert.assertEquals(first.getListenerStats(shared).getDelivered(), (firstWritten + 1) / 2);
+        Assert.assertEquals(second.getListenerStats(shared).getDelivered(), (secondWritten + 1) / 2);
+        Assert.assertEquals(recorderListeners.getStats(shared).getDelivered(), 0);
+
+        Assert.assertEquals(own.count(second), secondWritten);
+        Assert.assertEquals(own.count(first), 0);
+        Assert.assertNull(first.getListenerStats(own));
+    }
+
+    /**
+     * It keeps the session of every frame.
+     */
+    private static class SessionListener implements VideoRecorderEventListener {
+
+        private final List<RecordingSession> sessions = Collections
+                .synchronizedList(new ArrayList<RecordingSession>());
+
+        @Override
+        public void frameAdded(VideoRecorderEventObject args) {
+            Assert.assertSame(args.getRecording(), args.getSource());
+            sessions.add(args.getRecording());
+        }
+
+        long count(RecordingSession session) {
+            return Collections.frequency(sessions, session);
+        }
+    }
+
+}
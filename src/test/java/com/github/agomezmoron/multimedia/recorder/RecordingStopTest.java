@@ -0,0 +1,91 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.recorder.configuration.FrameStoreType;
+import com.github.agomezmoron.multimedia.recorder.configuration.RecordingSettings;
+import com.github.agomezmoron.multimedia.recorder.metrics.RecordingSummary;
+
+/**
+ * Stopping a recording: every capture is written, skipped as duplicate or counted as dropped.
+ *
+ */
+public class RecordingStopTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("recording-stop-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @DataProvider
+    public Object[][] changeRates() {
+        return new Object[][] { { 0f }, { 0.2f }, { 1f } };
+    }
+
+    @Test(dataProvider = "changeRates", timeOut = 30000)
+    public void noCaptureIsLostWhenStopping(float changeRate) throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(160, 120, SyntheticContent.TEXT, changeRate);
+        RecordingSettings settings = RecordingSettings.fromConfiguration().withFrameSource(source)
+                .withArea(source.getBounds()).withCaptureInterval(20).withFrameStoreType(FrameStoreType.HEAP)
+                .withTempDirectory(directory).withVideoDirectory(directory);
+        for (int i = 0; i < 3; i++) {
+            RecordingSession session = new RecordingSession("stop-" + i + ".mov", settings);
+            session.start();
+            Thread.sleep(300 + i * 70);
+            Assert.assertNotNull(session.stop());
+            RecordingSummary summary = session.getSummary();
+            Assert.assertEquals(summary.getCapturedFrames(), summary.getDuplicateFrames()
+                    + summary.getDroppedFrames() + summary.getFailedFrames() + summary.getWrittenFrames(),
+                    summary.toString());
+            Assert.assertEquals(summary.getDroppedFrames(), 0, summary.toString());
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Compositing of the captures of several screens by {@link ScreenGrabber}.
+ *
+ */
+public class ScreenGrabberTest {
+
+    private static final int BLACK = 0x000000;
+
+    private static final int RED = 0xFF0000;
+
+    private static final int BLUE = 0x0000FF;
+
+    @Test
+    public void screensLeftOfThePrimaryOneAreCompositedInPlace() {
+        Rectangle left = new Rectangle(-100, 0, 100, 100);
+        Rectangle primary = new Rectangle(0, 0, 200, 100);
+        Rectangle area = new Rectangle(-100, 0, 300, 100);
+        BufferedImage capture = ScreenGrabber.composite(area, Arrays.asList(left, primary),
+                Arrays.asList(filled(left, RED), filled(primary, BLUE)));
+        Assert.assertEquals(capture.getWidth(), 300);
+        Assert.assertEquals(capture.getHeight(), 100);
+        Assert.assertEquals(rgb(capture, 0, 0), RED);
+        Assert.assertEquals(rgb(capture, 99, 99), RED);
+        Assert.assertEquals(rgb(capture, 100, 0), BLUE);
+        Assert.assertEquals(rgb(capture, 299, 99), BLUE);
+    }
+
+    @Test
+    public void gapsBetweenScreensOfDifferentSizesAreBlack() {
+        Rectangle left = new Rectangle(-100, -50, 100, 150);
+        Rectangle primary = new Rectangle(0, 0, 200, 100);
+        Rectangle area = new Rectangle(-100, -50, 300, 150);
+        BufferedImage capture = ScreenGrabber.composite(area, Arrays.asList(left, primary),
+                Arrays.asList(filled(left, RED), filled(primary, BLUE)));
+        Assert.assertEquals(rgb(capture, 50, 0), RED);
+        Assert.assertEquals(rgb(capture, 100, 0), BLACK);
+        Assert.assertEquals(rgb(capture, 299, 49), BLACK);
+        Assert.assertEquals(rgb(capture, 100, 50), BLUE);
+    }
+
+    @Test
+    public void areaPartiallyOffTheScreenIsBlackOutsideIt() {
+        Rectangle visible = new Rectangle(0, 0, 50, 100);
+        Rectangle area = new Rectangle(-30, 0, 80, 100);
+        BufferedImage capture = ScreenGrabber.composite(area, Collections.singletonList(visible),
+                Collections.singletonList(filled(visible, BLUE)));
+        Assert.assertEquals(capture.getWidth(), 80);
+        Assert.assertEquals(rgb(capture, 29, 50), BLACK);
+        Assert.assertEquals(rgb(capture, 30, 50), BLUE);
+    }
+
+    private static BufferedImage filled(Rectangle bounds, int rgb) {
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(rgb));
+        graphics.fillRect(0, 0, bounds.width, bounds.height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static int rgb(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) & 0xFFFFFF;
+    }
+
+}
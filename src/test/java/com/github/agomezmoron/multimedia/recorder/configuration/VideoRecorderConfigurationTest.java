@@ -0,0 +1,156 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.recorder.configuration;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.github.agomezmoron.multimedia.capture.FrameBuffer;
+import com.github.agomezmoron.multimedia.capture.FrameSource;
+import com.github.agomezmoron.multimedia.capture.SyntheticContent;
+import com.github.agomezmoron.multimedia.capture.SyntheticFrameSource;
+import com.github.agomezmoron.multimedia.recorder.RecordingSession;
+import com.github.agomezmoron.multimedia.recorder.VideoRecorder;
+
+/**
+ * Area to be recorded by {@link VideoRecorder} depending on the {@link VideoRecorderConfiguration}.
+ *
+ */
+public class VideoRecorderConfigurationTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void resetConfiguration() {
+        VideoRecorderConfiguration.setFrameSource(null);
+        VideoRecorderConfiguration.wantToUseFullScreen(true);
+    }
+
+    @Test
+    public void areaIsLimitedToTheFrameSource() {
+        VideoRecorderConfiguration.setFrameSource(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0));
+        VideoRecorderConfiguration.setCoordinates(40, 30);
+        VideoRecorderConfiguration.setWidth(200);
+        VideoRecorderConfiguration.setHeight(100);
+        Assert.assertFalse(VideoRecorderConfiguration.wantToUseFullScreen());
+        Assert.assertEquals(RecordingSettings.fromConfiguration().getArea(), new Rectangle(40, 30, 200, 100));
+
+        VideoRecorderConfiguration.setWidth(300);
+        VideoRecorderConfiguration.setHeight(240);
+        RecordingSession session = VideoRecorder.newRecording("area.mov");
+        Assert.assertEquals(session.getSettings().getArea(), new Rectangle(40, 30, 280, 210));
+    }
+
+    @Test
+    public void fullScreenRecordsTheWholeFrameSource() {
+        VideoRecorderConfiguration.setFrameSource(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0));
+        VideoRecorderConfiguration.wantToUseFullScreen(true);
+        RecordingSession session = VideoRecorder.newRecording("full.mov");
+        Assert.assertEquals(session.getSettings().getArea(), new Rectangle(0, 0, 320, 240));
+    }
+
+    @Test
+    public void coordinatesAreLimitedToADesktopWithNegativeOrigin() {
+        // a 1920x1080 screen at the left of the primary one
+        VideoRecorderConfiguration.setFrameSource(new DesktopBounds(new Rectangle(-1920, 0, 3840, 1080)));
+        VideoRecorderConfiguration.setCoordinates(-1920, 0);
+        Assert.assertEquals(VideoRecorderConfiguration.getX(), -1920);
+        VideoRecorderConfiguration.setCoordinates(-1921, -1);
+        Assert.assertEquals(VideoRecorderConfiguration.getX(), -1920);
+        Assert.assertEquals(VideoRecorderConfiguration.getY(), 0);
+        VideoRecorderConfiguration.setCoordinates(1920, 1080);
+        Assert.assertEquals(VideoRecorderConfiguration.getX(), 1920);
+        Assert.assertEquals(VideoRecorderConfiguration.getY(), 1080);
+        VideoRecorderConfiguration.setCoordinates(1000, 500);
+        VideoRecorderConfiguration.setCoordinates(1921, 1081);
+        Assert.assertEquals(VideoRecorderConfiguration.getX(), 1000);
+        Assert.assertEquals(VideoRecorderConfiguration.getY(), 500);
+        VideoRecorderConfiguration.setCoordinates(3840, 500);
+        Assert.assertEquals(VideoRecorderConfiguration.getX(), 1000);
+
+        VideoRecorderConfiguration.setWidth(1000);
+        VideoRecorderConfiguration.setHeight(600);
+        RecordingSession session = VideoRecorder.newRecording("negative.mov");
+        Assert.assertEquals(session.getSettings().getArea(), new Rectangle(1000, 500, 920, 580));
+    }
+
+    @Test
+    public void negativeSizesAreIgnored() {
+        VideoRecorderConfiguration.setFrameSource(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0));
+        VideoRecorderConfiguration.setWidth(100);
+        VideoRecorderConfiguration.setHeight(50);
+        VideoRecorderConfiguration.setWidth(-1);
+        VideoRecorderConfiguration.setHeight(-1);
+        Assert.assertEquals(VideoRecorderConfiguration.getWidth(), 100);
+        Assert.assertEquals(VideoRecorderConfiguration.getHeight(), 50);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void emptyAreaIsRejectedWhenStarting() {
+        VideoRecorderConfiguration.setFrameSource(new SyntheticFrameSource(320, 240, SyntheticContent.TEXT, 0));
+        VideoRecorderConfiguration.setCoordinates(0, 0);
+        VideoRecorderConfiguration.setWidth(0);
+        new RecordingSession("empty.mov").start();
+    }
+
+    /**
+     * Source with the bounds of a virtual desktop, never grabbed.
+     */
+    private static class DesktopBounds implements FrameSource {
+
+        private final Rectangle bounds;
+
+        DesktopBounds(Rectangle bounds) {
+            this.bounds = bounds;
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return new Rectangle(bounds);
+        }
+
+        @Override
+        public long getEpoch() {
+            return 0;
+        }
+
+        @Override
+        public void register(Rectangle area) {
+        }
+
+        @Override
+        public void unregister(Rectangle area) {
+        }
+
+        @Override
+        public long grab(Rectangle area, FrameBuffer into, long maxAge) throws IOException {
+            throw new IOException("Not grabbed");
+        }
+
+    }
+
+}
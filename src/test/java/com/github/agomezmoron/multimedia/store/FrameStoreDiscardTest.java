@@ -0,0 +1,186 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Frames released by {@link FrameStore#discardBefore(long)}.
+ *
+ */
+public class FrameStoreDiscardTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int FRAME_SIZE = 100;
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("frame-store-discard-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        DirectoryFrameStore.deleteDirectory(directory);
+    }
+
+    @Test
+    public void memoryStoreFreesTheChunksOfTheReleasedFrames() throws IOException {
+        // two frames per chunk
+        int chunkSize = 2 * FRAME_SIZE + FRAME_SIZE / 2;
+        MemoryFrameStore store = new MemoryFrameStore(false, 5 * chunkSize, chunkSize, null);
+        append(store, 10);
+        store.discardBefore(450 * MS);
+        assertReleased(store, 4);
+        Assert.assertEquals(store.getFramesInMemory(), 6);
+        store.delete();
+    }
+
+    @Test
+    public void memoryStoreAllowsNewChunksOnceReleased() throws IOException {
+        // room for 3 chunks of 2 frames
+        MemoryFrameStore store = new MemoryFrameStore(false, 3 * (2 * FRAME_SIZE), 2 * FRAME_SIZE, null);
+        append(store, 6);
+        store.discardBefore(450 * MS);
+        // the first two chunks were freed, so there is room for 4 more frames
+        for (int i = 6; i < 10; i++) {
+            store.append(frame(i));
+        }
+        Assert.assertEquals(store.size(), 10);
+        assertReadable(store, 4, 10);
+        store.delete();
+    }
+
+    @Test
+    public void memoryStoreKeepsTheSpilledFrames() throws IOException {
+        DirectoryFrameStore spill = new DirectoryFrameStore(new File(directory, "spill"));
+        MemoryFrameStore store = new MemoryFrameStore(false, 4 * FRAME_SIZE, FRAME_SIZE, spill);
+        append(store, 10);
+        store.discardBefore(750 * MS);
+        // the last frame in memory is kept, so the frames stay in order
+        assertReleased(store, 3);
+        Assert.assertEquals(spill.size(), 6);
+        store.delete();
+    }
+
+    @Test
+    public void directoryStoreDeletesTheFilesOfTheReleasedFrames() throws IOException {
+        DirectoryFrameStore store = new DirectoryFrameStore(new File(directory, "frames"));
+        append(store, 10);
+        store.discardBefore(450 * MS);
+        assertReleased(store, 4);
+        Assert.assertEquals(store.getDirectory().listFiles().length, 6);
+        store.delete();
+    }
+
+    @Test
+    public void ringStoreDropsTheReleasedFrames() throws IOException {
+        RingFrameStore store = new RingFrameStore(Long.MAX_VALUE, Long.MAX_VALUE);
+        append(store, 10);
+        store.discardBefore(450 * MS);
+        Assert.assertEquals(store.size(), 6);
+        Assert.assertEquals(store.getSizeInBytes(), 6 * FRAME_SIZE);
+        Assert.assertEquals(store.get(0).getSequence(), 4);
+        Assert.assertEquals(store.getDiscardedFrames(), 0);
+        assertClip(store.openReader(450 * MS, 800 * MS), 4, 8);
+    }
+
+    @Test
+    public void keepsTheFrameOnScreen() throws IOException {
+        MemoryFrameStore store = new MemoryFrameStore(false, 10 * FRAME_SIZE, FRAME_SIZE, null);
+        append(store, 10);
+        // the first frame is still on screen
+        store.discardBefore(50 * MS);
+        assertReadable(store, 0, 10);
+        store.discardBefore(400 * MS);
+        assertReleased(store, 4);
+        // releasing before an earlier time keeps them released
+        store.discardBefore(50 * MS);
+        assertReleased(store, 4);
+        store.delete();
+    }
+
+    /**
+     * It checks that the frames before an index were released and the following ones can still be read.
+     */
+    private static void assertReleased(FrameStore store, int first) throws IOException {
+        Assert.assertEquals(store.size(), 10);
+        Assert.assertEquals(store.getSizeInBytes(), (10 - first) * FRAME_SIZE);
+        for (int i = 0; i < first; i++) {
+            try {
+                store.get(i);
+                Assert.fail("The frame " + i + " wasn't released");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+        assertReadable(store, first, 10);
+        assertClip(store.openReader(first * 100 * MS + 50 * MS, 800 * MS), first, 8);
+    }
+
+    private static void assertReadable(FrameStore store, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            EncodedFrame frame = store.get(i);
+            Assert.assertEquals(frame.getSequence(), i);
+            byte[] data = new byte[frame.getLength()];
+            frame.copyTo(data, 0);
+            Assert.assertEquals(data[0], (byte) i);
+        }
+    }
+
+    private static void assertClip(FrameReader clip, int first, int last) throws IOException {
+        for (int i = first; i <= last; i++) {
+            Assert.assertEquals(clip.next().getSequence(), i);
+        }
+        Assert.assertNull(clip.next());
+        clip.close();
+    }
+
+    /**
+     * It appends frames captured every 100 ms.
+     */
+    private static void append(FrameStore store, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            store.append(frame(i));
+        }
+    }
+
+    private static EncodedFrame frame(int sequence) {
+        byte[] data = new byte[FRAME_SIZE];
+        data[0] = (byte) sequence;
+        return new EncodedFrame(sequence, sequence * 100 * MS, data);
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Arena and spill of {@link MemoryFrameStore}.
+ *
+ */
+public class MemoryFrameStoreTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("memory-frame-store-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        DirectoryFrameStore.deleteDirectory(directory);
+    }
+
+    @DataProvider
+    public Object[][] buffers() {
+        return new Object[][] { { false }, { true } };
+    }
+
+    @Test(dataProvider = "buffers")
+    public void packsTheFramesIntoChunks(boolean direct) throws IOException {
+        MemoryFrameStore store = new MemoryFrameStore(direct, 1024 * 1024, 1000, null);
+        // 300 bytes each, so they cross the chunks; the 2500 bytes one gets a chunk of its own
+        int[] sizes = { 300, 300, 300, 300, 2500, 300, 300 };
+        for (int i = 0; i < sizes.length; i++) {
+            store.append(frame(i, sizes[i]));
+        }
+        Assert.assertEquals(store.size(), sizes.length);
+        Assert.assertEquals(store.getFramesInMemory(), sizes.length);
+        Assert.assertEquals(store.getSizeInBytes(), 4300);
+        for (int i = 0; i < sizes.length; i++) {
+            assertFrame(store.get(i), i, sizes[i]);
+        }
+        store.delete();
+        Assert.assertEquals(store.size(), 0);
+        Assert.assertEquals(store.getSizeInBytes(), 0);
+    }
+
+    @Test
+    public void spillsTheFramesOverTheMemoryLimit() throws IOException {
+        DirectoryFrameStore spill = new DirectoryFrameStore(new File(directory, "spill"));
+        MemoryFrameStore store = new MemoryFrameStore(false, 2000, 1000, spill);
+        for (int i = 0; i < 10; i++) {
+            store.append(frame(i, 300));
+        }
+        // 3 frames fit in each of the 2 chunks
+        Assert.assertEquals(store.getFramesInMemory(), 6);
+        Assert.assertEquals(spill.size(), 4);
+        Assert.assertEquals(store.size(), 10);
+        Assert.assertEquals(store.getSizeInBytes(), 3000);
+        // the frames keep their order even if a smaller one would fit in memory again
+        store.append(frame(10, 10));
+        Assert.assertEquals(spill.size(), 5);
+        for (int i = 0; i < 10; i++) {
+            assertFrame(store.get(i), i, 300);
+        }
+        assertFrame(store.get(10), 10, 10);
+        store.delete();
+        Assert.assertFalse(spill.getDirectory().exists());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsTheFramesOverTheMemoryLimitWithoutSpill() throws IOException {
+        MemoryFrameStore store = new MemoryFrameStore(false, 1000, 1000, null);
+        for (int i = 0; i < 4; i++) {
+            store.append(frame(i, 300));
+        }
+    }
+
+    @Test
+    public void readsTheClipsAcrossTheSpill() throws IOException {
+        DirectoryFrameStore spill = new DirectoryFrameStore(new File(directory, "spill"));
+        MemoryFrameStore store = new MemoryFrameStore(false, 1000, 1000, spill);
+        for (int i = 0; i < 6; i++) {
+            store.append(frame(i, 300));
+        }
+        // the frame on screen at 150 ms (1) until the last one captured at 450 ms (4)
+        FrameReader clip = store.openReader(150 * MS, 450 * MS);
+        for (int i = 1; i <= 4; i++) {
+            EncodedFrame frame = clip.next();
+            Assert.assertEquals(frame.getSequence(), i);
+            Assert.assertEquals(frame.getTimestamp(), Math.max(0, i * 100 * MS - 150 * MS));
+        }
+        Assert.assertNull(clip.next());
+        Assert.assertEquals(clip.getEnd(), 300 * MS);
+        clip.close();
+        store.delete();
+    }
+
+    private static void assertFrame(EncodedFrame frame, int sequence, int size) {
+        Assert.assertEquals(frame.getSequence(), sequence);
+        Assert.assertEquals(frame.getTimestamp(), sequence * 100 * MS);
+        Assert.assertEquals(frame.getLength(), size);
+        byte[] data = new byte[size];
+        frame.copyTo(data, 0);
+        for (int i = 0; i < size; i++) {
+            Assert.assertEquals(data[i], (byte) (sequence + i), "byte " + i + " of the frame " + sequence);
+        }
+    }
+
+    /**
+     * @return a frame captured at sequence * 100 ms.
+     */
+    private static EncodedFrame frame(int sequence, int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (sequence + i);
+        }
+        return new EncodedFrame(sequence, sequence * 100 * MS, data);
+    }
+
+}
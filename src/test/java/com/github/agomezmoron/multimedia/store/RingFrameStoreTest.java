@@ -0,0 +1,126 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Eviction and wraparound of {@link RingFrameStore}.
+ *
+ */
+public class RingFrameStoreTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void keepsTheLastSecondsAcrossTheWrap() throws IOException {
+        RingFrameStore store = new RingFrameStore(1000 * MS, Long.MAX_VALUE);
+        for (int i = 0; i < 500; i++) {
+            store.append(frame(i, 100));
+            // the frames of the last second and the one on screen when it starts
+            int first = Math.max(0, i - 10);
+            assertFrames(store, first, i);
+            Assert.assertEquals(store.getSizeInBytes(), (i - first + 1) * 100L);
+        }
+        Assert.assertEquals(store.getDiscardedFrames(), 489);
+    }
+
+    @Test
+    public void keepsTheBytesLimitAcrossTheWrap() throws IOException {
+        RingFrameStore store = new RingFrameStore(Long.MAX_VALUE, 1000);
+        for (int i = 0; i < 300; i++) {
+            store.append(frame(i, 100));
+            assertFrames(store, Math.max(0, i - 9), i);
+        }
+        Assert.assertEquals(store.getSizeInBytes(), 1000);
+    }
+
+    @Test
+    public void growsWhileWrapped() throws IOException {
+        RingFrameStore store = new RingFrameStore(Long.MAX_VALUE, 10000);
+        // the big frames move the oldest one away from the start of the array
+        for (int i = 0; i < 100; i++) {
+            store.append(frame(i, 1000));
+        }
+        assertFrames(store, 90, 99);
+        // then the small ones fill it, so it grows while its frames wrap around
+        for (int i = 100; i < 400; i++) {
+            store.append(frame(i, 10));
+            assertFrames(store, (int) store.get(0).getSequence(), i);
+            Assert.assertTrue(store.getSizeInBytes() <= 10000);
+        }
+        // 7 big frames and 300 small ones fit in the limit
+        assertFrames(store, 93, 399);
+        Assert.assertEquals(store.getSizeInBytes(), 10000);
+        Assert.assertEquals(store.getDiscardedFrames(), 93);
+    }
+
+    @Test
+    public void readersKeepTheirFramesWhenTheOldestAreDiscarded() throws IOException {
+        RingFrameStore store = new RingFrameStore(Long.MAX_VALUE, 1000);
+        for (int i = 0; i < 70; i++) {
+            store.append(frame(i, 100));
+        }
+        FrameReader reader = store.openReader();
+        FrameReader clip = store.openReader(6550 * MS, 6700 * MS);
+        for (int i = 70; i < 200; i++) {
+            store.append(frame(i, 100));
+        }
+        for (int i = 60; i < 70; i++) {
+            Assert.assertEquals(reader.next().getSequence(), i);
+        }
+        Assert.assertNull(reader.next());
+        // the frame on screen at 6550 ms (65) until the last one captured at 6700 ms (67)
+        for (int i = 65; i <= 67; i++) {
+            Assert.assertEquals(clip.next().getSequence(), i);
+        }
+        Assert.assertNull(clip.next());
+    }
+
+    private static void assertFrames(RingFrameStore store, int first, int last) throws IOException {
+        Assert.assertEquals(store.size(), last - first + 1, "frames kept after " + last);
+        for (int i = 0; i < store.size(); i++) {
+            EncodedFrame frame = store.get(i);
+            Assert.assertEquals(frame.getSequence(), first + i);
+            byte[] data = new byte[frame.getLength()];
+            frame.copyTo(data, 0);
+            Assert.assertEquals(data[0], (byte) (first + i));
+        }
+    }
+
+    /**
+     * @return a frame captured at sequence * 100 ms.
+     */
+    private static EncodedFrame frame(int sequence, int size) {
+        byte[] data = new byte[size];
+        data[0] = (byte) sequence;
+        return new EncodedFrame(sequence, sequence * 100 * MS, data);
+    }
+
+}
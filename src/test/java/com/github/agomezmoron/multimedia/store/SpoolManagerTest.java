@@ -0,0 +1,168 @@
+/**
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Alejandro Gómez Morón
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.agomezmoron.multimedia.store;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Quota accounting, eviction and sweep of the orphaned recordings of {@link SpoolManager}.
+ *
+ */
+public class SpoolManagerTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("spool-manager-test").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() {
+        DirectoryFrameStore.deleteDirectory(directory);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void framesAreCountedUntilTheLeaseIsClosed() throws Exception {
+        SpoolManager manager = SpoolManager.get(directory);
+        manager.setQuota(1000);
+        SpoolLease lease = manager.open("recording");
+        Assert.assertTrue(lease.reserveFrames(600, 0));
+        Assert.assertTrue(lease.reserveVideo(350, 0));
+        Assert.assertEquals(manager.getUsed(), 950);
+        Assert.assertFalse(lease.reserveFrames(100, 0));
+        Assert.assertEquals(manager.getUsed(), 950);
+        Assert.assertTrue(manager.getSlowdown() > 1);
+        lease.close(false);
+        Assert.assertEquals(manager.getUsed(), 0);
+        Assert.assertEquals(manager.getSlowdown(), 1.0);
+        Assert.assertFalse(new File(directory, "recording" + SpoolManager.MARKER_SUFFIX).exists());
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void completedRecordingsAreEvictedWhenThereIsNoRoom() throws Exception {
+        SpoolManager manager = SpoolManager.get(directory);
+        manager.setQuota(1000);
+        SpoolLease first = manager.open("first");
+        File frames = writeFrames("first", 600);
+        Assert.assertTrue(first.reserveFrames(600, 0));
+        first.close(true);
+        Assert.assertEquals(manager.getUsed(), 600);
+        Assert.assertTrue(frames.exists());
+
+        SpoolLease second = manager.open("second");
+        Assert.assertTrue(second.reserveFrames(600, 0));
+        Assert.assertFalse(frames.exists());
+        Assert.assertFalse(new File(directory, "first" + SpoolManager.MARKER_SUFFIX).exists());
+        Assert.assertEquals(manager.getUsed(), 600);
+        second.close(false);
+        Assert.assertEquals(manager.getUsed(), 0);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void completedRecordingIsReplacedByOneWithTheSameName() throws Exception {
+        SpoolManager manager = SpoolManager.get(directory);
+        SpoolLease first = manager.open("recording");
+        File frames = writeFrames("recording", 400);
+        Assert.assertTrue(first.reserveFrames(400, 0));
+        first.close(true);
+        SpoolLease second = manager.open("recording");
+        Assert.assertFalse(frames.exists());
+        Assert.assertEquals(manager.getUsed(), 0);
+        second.close(false);
+    }
+
+    @Test(timeOut = TIMEOUT)
+    public void orphansOfPreviousRunsAreSweptAndCompletedOnesCounted() throws Exception {
+        File orphan = writeFrames("orphan", 300);
+        writeMarker("orphan", "");
+        File completed = writeFrames("completed", 200);
+        writeMarker("completed", SpoolManager.COMPLETED);
+        SpoolManager manager = SpoolManager.get(directory);
+        // the background sweep could have been first
+        manager.sweep();
+        // the orphan is no longer counted once its files were removed
+        while (manager.getUsed() != 200) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(orphan.exists());
+        Assert.assertFalse(new File(directory, "orphan" + SpoolManager.MARKER_SUFFIX).exists());
+        Assert.assertTrue(completed.exists());
+    }
+
+    /**
+     * The marker of a recording of this JVM is locked by it: a scan must not count it as an orphan nor as a recording
+     * of another JVM.
+     */
+    @Test(timeOut = TIMEOUT)
+    public void sweepIgnoresTheRecordingsBeingWritten() throws Exception {
+        SpoolManager manager = SpoolManager.get(directory);
+        SpoolLease lease = manager.open("recording");
+        File frames = writeFrames("recording", 100);
+        Assert.assertTrue(lease.reserveFrames(100, 0));
+        manager.sweep();
+        Assert.assertTrue(frames.exists());
+        Assert.assertTrue(new File(directory, "recording" + SpoolManager.MARKER_SUFFIX).exists());
+        Assert.assertEquals(manager.getUsed(), 100);
+        lease.close(false);
+        Assert.assertEquals(manager.getUsed(), 0);
+    }
+
+    /**
+     * @return the directory with the frames of a recording.
+     */
+    private File writeFrames(String name, int bytes) throws IOException {
+        File frames = new File(directory, name);
+        frames.mkdirs();
+        OutputStream out = new FileOutputStream(new File(frames, "frame0.jpeg"));
+        try {
+            out.write(new byte[bytes]);
+        } finally {
+            out.close();
+        }
+        return frames;
+    }
+
+    private void writeMarker(String name, String content) throws IOException {
+        OutputStream out = new FileOutputStream(new File(directory, name + SpoolManager.MARKER_SUFFIX));
+        try {
+            out.write(content.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+    }
+
+}